@@ -1,11 +1,14 @@
 package com.abarigena.bankoperation;
 
+import com.abarigena.bankoperation.config.NativeRuntimeHints;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.annotation.ImportRuntimeHints;
 import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
 @EnableScheduling
+@ImportRuntimeHints(NativeRuntimeHints.class)
 public class BankOperationApplication {
 
     public static void main(String[] args) {
@@ -0,0 +1,119 @@
+package com.abarigena.bankoperation.admission;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+
+/**
+ * Ограничитель частоты по ключу (token bucket в форме GCRA) с фиксированным объемом памяти.
+ * <p>
+ * Состояние корзины — одно число: теоретическое время следующего запроса (TAT) в наносекундах.
+ * Корзины хранятся в массиве фиксированного размера, ключ отображается в {@code hashes} ячеек
+ * разными хеш-функциями (как в count-min sketch). Запрос пропускается, только если токены есть во всех
+ * ячейках ключа, поэтому ключ ограничивается несправедливо, только если все его ячейки
+ * делит с активными ключами. Память не зависит от числа ключей: 8 байт на ячейку.
+ * <p>
+ * Потокобезопасен без блокировок (CAS по ячейке).
+ */
+public class HashedRateLimiter {
+
+    private final AtomicLongArray theoreticalArrivalTimes;
+    private final int mask;
+    private final int hashes;
+    private final long emissionIntervalNanos;
+    private final long toleranceNanos;
+    private final LongSupplier nanoClock;
+    private final long origin;
+
+    /**
+     * @param slots         Число ячеек (округляется вверх до степени двойки).
+     * @param hashes        Число ячеек на ключ.
+     * @param ratePerSecond Средняя разрешенная частота запросов одного ключа.
+     * @param burst         Сколько запросов подряд разрешено после простоя.
+     * @param nanoClock     Источник монотонного времени в наносекундах.
+     */
+    public HashedRateLimiter(int slots, int hashes, double ratePerSecond, int burst, LongSupplier nanoClock) {
+        if (slots < 1 || hashes < 1 || ratePerSecond <= 0 || burst < 1) {
+            throw new IllegalArgumentException("Некорректные параметры ограничителя частоты");
+        }
+        int size = slots == 1 ? 1 : Integer.highestOneBit(slots - 1) << 1;
+        this.theoreticalArrivalTimes = new AtomicLongArray(size);
+        this.mask = size - 1;
+        this.hashes = Math.min(hashes, size);
+        this.emissionIntervalNanos = (long) (1_000_000_000L / ratePerSecond);
+        this.toleranceNanos = emissionIntervalNanos * (burst - 1);
+        this.nanoClock = nanoClock;
+        this.origin = nanoClock.getAsLong();
+    }
+
+    /**
+     * Пытается получить токен для ключа.
+     *
+     * @param key Ключ (например, номер счета).
+     * @return 0, если токен получен, иначе через сколько наносекунд появится следующий токен.
+     */
+    public long tryAcquire(String key) {
+        // Время отсчитывается от создания ограничителя: нулевое состояние ячейки означает "давно не использовалась"
+        long now = nanoClock.getAsLong() - origin + toleranceNanos + emissionIntervalNanos;
+        long hash = hash(key);
+        int first = (int) hash;
+        int second = (int) (hash >>> 32);
+
+        for (int i = 0; i < hashes; i++) {
+            int slot = (first + i * second) & mask;
+            long waitNanos = acquireSlot(slot, now);
+            if (waitNanos > 0) {
+                // Возвращаем токены, уже списанные в предыдущих ячейках ключа
+                releaseSlots(first, second, i);
+                return waitNanos;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Возвращает токен, полученный {@link #tryAcquire(String)}, если запрос не был выполнен
+     * (например, его отклонила следующая проверка допуска).
+     *
+     * @param key Ключ, для которого токен был получен.
+     */
+    public void release(String key) {
+        long hash = hash(key);
+        releaseSlots((int) hash, (int) (hash >>> 32), hashes);
+    }
+
+    private void releaseSlots(int first, int second, int count) {
+        for (int j = 0; j < count; j++) {
+            theoreticalArrivalTimes.addAndGet((first + j * second) & mask, -emissionIntervalNanos);
+        }
+    }
+
+    private long acquireSlot(int slot, long now) {
+        while (true) {
+            long tat = theoreticalArrivalTimes.get(slot);
+            long base = Math.max(tat, now);
+            long allowAt = base - toleranceNanos;
+            if (allowAt > now) {
+                return allowAt - now;
+            }
+            if (theoreticalArrivalTimes.compareAndSet(slot, tat, base + emissionIntervalNanos)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * 64-битный FNV-1a с перемешиванием: две независимые половины дают индексы ячеек.
+     */
+    private static long hash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            h ^= key.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        // Второй индекс нечетный, чтобы ячейки ключа не совпадали
+        return h | (1L << 32);
+    }
+}
@@ -0,0 +1,182 @@
+package com.abarigena.bankoperation.admission;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.AccessLevel;
+import lombok.Getter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Допуск запросов на прием транзакций.
+ * <p>
+ * Запрос проходит три проверки по порядку:
+ * <ol>
+ *     <li>частота запросов со счета accountFrom (token bucket на счет, память ограничена, см. {@link HashedRateLimiter});</li>
+ *     <li>общая частота запросов экземпляра;</li>
+ *     <li>число одновременно обрабатываемых транзакций. Оно меньше размера пула соединений Hikari,
+ *     поэтому при перегрузке лишние запросы сразу получают 429 и не ждут соединения из пула.</li>
+ * </ol>
+ * Отклоненный запрос получает время, через которое имеет смысл повторить его (Retry-After).
+ * Токены, полученные на пройденных проверках, при отказе на следующей возвращаются: отклоненный запрос
+ * не расходует частоту счета и экземпляра.
+ */
+@Component
+public class TransactionAdmissionControl {
+
+    private static final Logger log = LoggerFactory.getLogger(TransactionAdmissionControl.class);
+
+    private static final String GLOBAL_KEY = "";
+
+    private final boolean enabled;
+    private final HashedRateLimiter accountLimiter;
+    private final HashedRateLimiter globalLimiter;
+    private final Semaphore inFlight;
+    private final long acquireTimeoutNanos;
+    private final Duration concurrencyRetryAfter;
+    private final Map<RejectReason, Counter> rejections = new EnumMap<>(RejectReason.class);
+
+    @Autowired
+    public TransactionAdmissionControl(MeterRegistry meterRegistry,
+                                       @Value("${app.admission.enabled:true}") boolean enabled,
+                                       @Value("${app.admission.account.rate-per-second:5}") double accountRate,
+                                       @Value("${app.admission.account.burst:20}") int accountBurst,
+                                       @Value("${app.admission.account.slots:1048576}") int accountSlots,
+                                       @Value("${app.admission.global.rate-per-second:2000}") double globalRate,
+                                       @Value("${app.admission.global.burst:4000}") int globalBurst,
+                                       @Value("${app.admission.max-concurrent:8}") int maxConcurrent,
+                                       @Value("${app.admission.acquire-timeout:50ms}") Duration acquireTimeout) {
+        this(meterRegistry, enabled,
+                new HashedRateLimiter(accountSlots, 2, accountRate, accountBurst, System::nanoTime),
+                new HashedRateLimiter(1, 1, globalRate, globalBurst, System::nanoTime),
+                maxConcurrent, acquireTimeout);
+    }
+
+    TransactionAdmissionControl(MeterRegistry meterRegistry, boolean enabled,
+                                HashedRateLimiter accountLimiter, HashedRateLimiter globalLimiter,
+                                int maxConcurrent, Duration acquireTimeout) {
+        this.enabled = enabled;
+        this.accountLimiter = accountLimiter;
+        this.globalLimiter = globalLimiter;
+        this.inFlight = new Semaphore(maxConcurrent);
+        this.acquireTimeoutNanos = acquireTimeout.toNanos();
+        this.concurrencyRetryAfter = Duration.ofSeconds(1);
+        for (RejectReason reason : RejectReason.values()) {
+            rejections.put(reason, Counter.builder("transactions.admission.rejected")
+                    .tag("reason", reason.name().toLowerCase())
+                    .register(meterRegistry));
+        }
+        Gauge.builder("transactions.admission.in-flight", inFlight, s -> maxConcurrent - s.availablePermits())
+                .register(meterRegistry);
+    }
+
+    /**
+     * Проверяет, можно ли принять транзакцию со счета accountFrom.
+     * Допущенный запрос занимает место среди одновременно обрабатываемых до вызова {@link Admission#close()}.
+     *
+     * @param accountFrom Счет списания.
+     * @return Решение о допуске.
+     */
+    public Admission tryAdmit(String accountFrom) {
+        if (!enabled) {
+            return Admission.admitted(null);
+        }
+
+        String accountKey = accountFrom != null ? accountFrom : GLOBAL_KEY;
+        long accountWait = accountLimiter.tryAcquire(accountKey);
+        if (accountWait > 0) {
+            return reject(RejectReason.ACCOUNT_RATE, Duration.ofNanos(accountWait));
+        }
+        long globalWait = globalLimiter.tryAcquire(GLOBAL_KEY);
+        if (globalWait > 0) {
+            accountLimiter.release(accountKey);
+            return reject(RejectReason.GLOBAL_RATE, Duration.ofNanos(globalWait));
+        }
+
+        boolean acquired;
+        try {
+            acquired = inFlight.tryAcquire(acquireTimeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        if (!acquired) {
+            globalLimiter.release(GLOBAL_KEY);
+            accountLimiter.release(accountKey);
+            return reject(RejectReason.CONCURRENCY, concurrencyRetryAfter);
+        }
+        return Admission.admitted(inFlight);
+    }
+
+    private Admission reject(RejectReason reason, Duration retryAfter) {
+        rejections.get(reason).increment();
+        log.debug("Транзакция отклонена ({}), повтор через {} мс", reason, retryAfter.toMillis());
+        return new Admission(false, reason, retryAfter, null);
+    }
+
+    /**
+     * Причина отказа в допуске.
+     */
+    public enum RejectReason {
+        /** Превышена частота запросов со счета. */
+        ACCOUNT_RATE,
+        /** Превышена общая частота запросов. */
+        GLOBAL_RATE,
+        /** Достигнут предел одновременно обрабатываемых транзакций. */
+        CONCURRENCY
+    }
+
+    /**
+     * Решение о допуске. Допущенный запрос обязан вызвать {@link #close()} после обработки.
+     */
+    @Getter
+    public static final class Admission implements AutoCloseable {
+
+        private final boolean admitted;
+        // Причина отказа и время до повтора (для отклоненного запроса)
+        private final RejectReason reason;
+        private final Duration retryAfter;
+        @Getter(AccessLevel.NONE)
+        private Semaphore permit;
+
+        private Admission(boolean admitted, RejectReason reason, Duration retryAfter, Semaphore permit) {
+            this.admitted = admitted;
+            this.reason = reason;
+            this.retryAfter = retryAfter;
+            this.permit = permit;
+        }
+
+        private static Admission admitted(Semaphore permit) {
+            return new Admission(true, null, Duration.ZERO, permit);
+        }
+
+        /**
+         * @return Значение заголовка Retry-After в секундах (не меньше 1).
+         */
+        public long getRetryAfterSeconds() {
+            long seconds = (retryAfter.toMillis() + 999) / 1000;
+            return Math.max(seconds, 1);
+        }
+
+        /**
+         * Освобождает место среди одновременно обрабатываемых транзакций. Повторный вызов ничего не делает.
+         */
+        @Override
+        public void close() {
+            if (permit != null) {
+                permit.release();
+                permit = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.abarigena.bankoperation.archive;
+
+import com.abarigena.bankoperation.store.entity.Transaction;
+
+import java.time.Instant;
+
+/**
+ * Условие чтения архива транзакций. По нему пропускаются файлы и группы строк, не читая их.
+ *
+ * @param from         Начало периода (включительно).
+ * @param to           Конец периода (исключительно).
+ * @param category     Категория расходов или null — любая.
+ * @param exceededOnly Только транзакции, превысившие лимит.
+ */
+public record ArchiveQuery(Instant from, Instant to, Transaction.ExpenseCategory category, boolean exceededOnly) {
+
+    /**
+     * Все транзакции периода.
+     */
+    public static ArchiveQuery period(Instant from, Instant to) {
+        return new ArchiveQuery(from, to, null, false);
+    }
+}
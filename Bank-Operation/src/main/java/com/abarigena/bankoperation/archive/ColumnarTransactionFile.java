@@ -0,0 +1,487 @@
+package com.abarigena.bankoperation.archive;
+
+import com.abarigena.bankoperation.store.entity.Transaction;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Формат колоночного файла архива транзакций.
+ * <p>
+ * Строки разбиты на группы (row group); внутри группы каждая колонка хранится отдельным блоком,
+ * сжатым Deflate. В конце файла — метаданные (footer): для каждой группы число строк,
+ * min/max времени транзакции, маска категорий, число превышений лимита и смещения блоков колонок.
+ * <pre>
+ * [MAGIC][VERSION] [группа 1: блоки колонок] ... [группа N] [footer] [смещение footer: long][MAGIC]
+ * </pre>
+ * Чтение с условием ({@link ArchiveQuery}) пропускает группы по метаданным, не читая их,
+ * а в подходящих группах сначала распаковывает только колонки условия и остальные — лишь при совпадениях.
+ */
+final class ColumnarTransactionFile {
+
+    static final int MAGIC = 0x424F5441; // "BOTA"
+    static final int VERSION = 1;
+    private static final int TRAILER_SIZE = Long.BYTES + Integer.BYTES;
+    // Бит маски категорий для строк без категории
+    private static final int NULL_CATEGORY_BIT = 1 << 31;
+
+    private ColumnarTransactionFile() {
+    }
+
+    /**
+     * Колонки файла в порядке записи блоков внутри группы.
+     */
+    enum Column {
+        ID, ACCOUNT_FROM, ACCOUNT_TO, CURRENCY_SHORTNAME, SUM, SUM_IN_USD,
+        EXPENSE_CATEGORY, DATETIME, LIMIT_EXCEEDED, IDEMPOTENCY_KEY
+    }
+
+    /**
+     * Расположение сжатого блока колонки в файле.
+     */
+    record Chunk(long offset, int compressedLength, int rawLength) {
+    }
+
+    /**
+     * Метаданные группы строк.
+     */
+    record RowGroup(int rowCount, long minMicros, long maxMicros, int categoryMask, int exceededCount,
+                    Map<Column, Chunk> chunks) {
+
+        /**
+         * @return false, если по метаданным в группе точно нет строк, подходящих под условие.
+         */
+        boolean mayMatch(ArchiveQuery query) {
+            if (maxMicros < toMicros(query.from()) || minMicros >= toMicros(query.to())) {
+                return false;
+            }
+            if (query.category() != null && (categoryMask & categoryBit(query.category())) == 0) {
+                return false;
+            }
+            return !query.exceededOnly() || exceededCount > 0;
+        }
+    }
+
+    /**
+     * Метаданные файла.
+     */
+    record Footer(List<RowGroup> rowGroups) {
+
+        long rowCount() {
+            long rows = 0;
+            for (RowGroup group : rowGroups) {
+                rows += group.rowCount();
+            }
+            return rows;
+        }
+
+        long minMicros() {
+            return rowGroups.stream().mapToLong(RowGroup::minMicros).min().orElse(Long.MAX_VALUE);
+        }
+
+        long maxMicros() {
+            return rowGroups.stream().mapToLong(RowGroup::maxMicros).max().orElse(Long.MIN_VALUE);
+        }
+
+        boolean mayMatch(ArchiveQuery query) {
+            for (RowGroup group : rowGroups) {
+                if (group.mayMatch(query)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    // --- Запись ---
+
+    /**
+     * Пишет строки, отсортированные по времени транзакции, группами по rowGroupSize.
+     * В памяти держится только текущая группа.
+     */
+    static final class Writer implements Closeable {
+
+        private final FileChannel channel;
+        private final OutputStream output;
+        private final int rowGroupSize;
+        private final Map<Column, ByteArrayOutputStream> buffers = new EnumMap<>(Column.class);
+        private final Map<Column, DataOutputStream> columns = new EnumMap<>(Column.class);
+        private final List<RowGroup> rowGroups = new ArrayList<>();
+        private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+        private long position;
+
+        // Статистика текущей группы
+        private int rows;
+        private long minMicros;
+        private long maxMicros;
+        private int categoryMask;
+        private int exceededCount;
+        private long previousMicros;
+
+        Writer(Path path, int rowGroupSize) throws IOException {
+            if (rowGroupSize <= 0) {
+                throw new IllegalArgumentException("Размер группы строк должен быть положительным: " + rowGroupSize);
+            }
+            this.channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+            this.output = new BufferedOutputStream(Channels.newOutputStream(channel), 64 * 1024);
+            this.rowGroupSize = rowGroupSize;
+            for (Column column : Column.values()) {
+                ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+                buffers.put(column, buffer);
+                columns.put(column, new DataOutputStream(buffer));
+            }
+            DataOutputStream header = new DataOutputStream(output);
+            header.writeInt(MAGIC);
+            header.writeInt(VERSION);
+            position = 2 * Integer.BYTES;
+            resetGroup();
+        }
+
+        void append(Transaction transaction) throws IOException {
+            long micros = toMicros(transaction.getDateTime().toInstant());
+            if (rows > 0 && micros < previousMicros) {
+                throw new IllegalArgumentException("Строки архива должны быть отсортированы по времени транзакции");
+            }
+
+            UUID id = transaction.getId();
+            columns.get(Column.ID).writeLong(id.getMostSignificantBits());
+            columns.get(Column.ID).writeLong(id.getLeastSignificantBits());
+            writeString(columns.get(Column.ACCOUNT_FROM), transaction.getAccountFrom());
+            writeString(columns.get(Column.ACCOUNT_TO), transaction.getAccountTo());
+            writeString(columns.get(Column.CURRENCY_SHORTNAME), transaction.getCurrencyShortname());
+            writeDecimal(columns.get(Column.SUM), transaction.getSum());
+            writeDecimal(columns.get(Column.SUM_IN_USD), transaction.getSumInUsd());
+            Transaction.ExpenseCategory category = transaction.getExpenseCategory();
+            columns.get(Column.EXPENSE_CATEGORY).writeByte(category != null ? category.ordinal() : -1);
+            // Время пишется разностью с предыдущей строкой: для отсортированных данных это малые числа
+            columns.get(Column.DATETIME).writeLong(rows == 0 ? micros : micros - previousMicros);
+            Boolean exceeded = transaction.getLimitExceeded();
+            columns.get(Column.LIMIT_EXCEEDED).writeByte(exceeded == null ? -1 : exceeded ? 1 : 0);
+            writeString(columns.get(Column.IDEMPOTENCY_KEY), transaction.getIdempotencyKey());
+
+            if (rows == 0) {
+                minMicros = micros;
+            }
+            maxMicros = micros;
+            previousMicros = micros;
+            categoryMask |= category != null ? categoryBit(category) : NULL_CATEGORY_BIT;
+            if (Boolean.TRUE.equals(exceeded)) {
+                exceededCount++;
+            }
+            if (++rows == rowGroupSize) {
+                flushGroup();
+            }
+        }
+
+        private void flushGroup() throws IOException {
+            if (rows == 0) {
+                return;
+            }
+            Map<Column, Chunk> chunks = new EnumMap<>(Column.class);
+            for (Column column : Column.values()) {
+                columns.get(column).flush();
+                byte[] raw = buffers.get(column).toByteArray();
+                byte[] compressed = deflate(raw);
+                output.write(compressed);
+                chunks.put(column, new Chunk(position, compressed.length, raw.length));
+                position += compressed.length;
+                buffers.get(column).reset();
+            }
+            rowGroups.add(new RowGroup(rows, minMicros, maxMicros, categoryMask, exceededCount,
+                    Collections.unmodifiableMap(chunks)));
+            resetGroup();
+        }
+
+        private void resetGroup() {
+            rows = 0;
+            minMicros = 0;
+            maxMicros = 0;
+            categoryMask = 0;
+            exceededCount = 0;
+            previousMicros = 0;
+        }
+
+        private byte[] deflate(byte[] raw) {
+            deflater.reset();
+            deflater.setInput(raw);
+            deflater.finish();
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(Math.max(raw.length / 4, 64));
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                int length = deflater.deflate(buffer);
+                compressed.write(buffer, 0, length);
+            }
+            return compressed.toByteArray();
+        }
+
+        /**
+         * @return Число записанных строк.
+         */
+        long rowCount() {
+            return new Footer(rowGroups).rowCount() + rows;
+        }
+
+        /**
+         * Дописывает последнюю группу и метаданные и сбрасывает файл на диск.
+         */
+        @Override
+        public void close() throws IOException {
+            try {
+                flushGroup();
+                long footerOffset = position;
+                DataOutputStream footer = new DataOutputStream(output);
+                footer.writeInt(rowGroups.size());
+                for (RowGroup group : rowGroups) {
+                    footer.writeInt(group.rowCount());
+                    footer.writeLong(group.minMicros());
+                    footer.writeLong(group.maxMicros());
+                    footer.writeInt(group.categoryMask());
+                    footer.writeInt(group.exceededCount());
+                    for (Column column : Column.values()) {
+                        Chunk chunk = group.chunks().get(column);
+                        footer.writeLong(chunk.offset());
+                        footer.writeInt(chunk.compressedLength());
+                        footer.writeInt(chunk.rawLength());
+                    }
+                }
+                footer.writeLong(footerOffset);
+                footer.writeInt(MAGIC);
+                footer.flush();
+                channel.force(true);
+            } finally {
+                deflater.end();
+                output.close();
+            }
+        }
+    }
+
+    // --- Чтение ---
+
+    /**
+     * Читает метаданные файла.
+     *
+     * @throws IOException если файл поврежден или не является архивом транзакций.
+     */
+    static Footer readFooter(FileChannel channel) throws IOException {
+        long size = channel.size();
+        if (size < 2 * Integer.BYTES + TRAILER_SIZE) {
+            throw new IOException("Файл архива слишком короткий: " + size + " байт");
+        }
+        ByteBuffer header = read(channel, 0, 2 * Integer.BYTES);
+        if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+            throw new IOException("Неизвестный формат файла архива");
+        }
+        ByteBuffer trailer = read(channel, size - TRAILER_SIZE, TRAILER_SIZE);
+        long footerOffset = trailer.getLong();
+        if (trailer.getInt() != MAGIC || footerOffset < 2 * Integer.BYTES || footerOffset > size - TRAILER_SIZE) {
+            throw new IOException("Файл архива не завершен или поврежден");
+        }
+
+        DataInputStream footer = new DataInputStream(new ByteArrayInputStream(
+                read(channel, footerOffset, (int) (size - TRAILER_SIZE - footerOffset)).array()));
+        int groupCount = footer.readInt();
+        List<RowGroup> groups = new ArrayList<>(groupCount);
+        for (int i = 0; i < groupCount; i++) {
+            int rowCount = footer.readInt();
+            long minMicros = footer.readLong();
+            long maxMicros = footer.readLong();
+            int categoryMask = footer.readInt();
+            int exceededCount = footer.readInt();
+            Map<Column, Chunk> chunks = new EnumMap<>(Column.class);
+            for (Column column : Column.values()) {
+                chunks.put(column, new Chunk(footer.readLong(), footer.readInt(), footer.readInt()));
+            }
+            groups.add(new RowGroup(rowCount, minMicros, maxMicros, categoryMask, exceededCount,
+                    Collections.unmodifiableMap(chunks)));
+        }
+        return new Footer(Collections.unmodifiableList(groups));
+    }
+
+    /**
+     * Номера строк группы, подходящих под условие. Распаковывает только колонки, участвующие в условии.
+     */
+    static BitSet filter(FileChannel channel, RowGroup group, ArchiveQuery query) throws IOException {
+        long from = toMicros(query.from());
+        long to = toMicros(query.to());
+        BitSet matches = new BitSet(group.rowCount());
+        DataInputStream datetime = column(channel, group, Column.DATETIME);
+        long micros = 0;
+        for (int row = 0; row < group.rowCount(); row++) {
+            micros = row == 0 ? datetime.readLong() : micros + datetime.readLong();
+            if (micros >= from && micros < to) {
+                matches.set(row);
+            }
+        }
+        if (query.category() != null && !matches.isEmpty()) {
+            DataInputStream categories = column(channel, group, Column.EXPENSE_CATEGORY);
+            for (int row = 0; row < group.rowCount(); row++) {
+                if (categories.readByte() != query.category().ordinal()) {
+                    matches.clear(row);
+                }
+            }
+        }
+        if (query.exceededOnly() && !matches.isEmpty()) {
+            DataInputStream exceeded = column(channel, group, Column.LIMIT_EXCEEDED);
+            for (int row = 0; row < group.rowCount(); row++) {
+                if (exceeded.readByte() != 1) {
+                    matches.clear(row);
+                }
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Сумма в USD по отмеченным строкам группы. Распаковывает только колонку sum_in_usd.
+     */
+    static BigDecimal sumInUsd(FileChannel channel, RowGroup group, BitSet rows) throws IOException {
+        DataInputStream sums = column(channel, group, Column.SUM_IN_USD);
+        BigDecimal total = BigDecimal.ZERO;
+        for (int row = 0; row < group.rowCount(); row++) {
+            BigDecimal sum = readDecimal(sums);
+            if (sum != null && rows.get(row)) {
+                total = total.add(sum);
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Восстанавливает отмеченные строки группы целиком (в порядке хранения).
+     * Время транзакции возвращается в часовом поясе zone, как его вернул бы PostgreSQL.
+     */
+    static List<Transaction> readRows(FileChannel channel, RowGroup group, BitSet rows, ZoneId zone) throws IOException {
+        Map<Column, DataInputStream> in = new EnumMap<>(Column.class);
+        for (Column column : Column.values()) {
+            in.put(column, column(channel, group, column));
+        }
+        List<Transaction> result = new ArrayList<>(rows.cardinality());
+        long micros = 0;
+        for (int row = 0; row < group.rowCount(); row++) {
+            UUID id = new UUID(in.get(Column.ID).readLong(), in.get(Column.ID).readLong());
+            String accountFrom = readString(in.get(Column.ACCOUNT_FROM));
+            String accountTo = readString(in.get(Column.ACCOUNT_TO));
+            String currency = readString(in.get(Column.CURRENCY_SHORTNAME));
+            BigDecimal sum = readDecimal(in.get(Column.SUM));
+            BigDecimal sumInUsd = readDecimal(in.get(Column.SUM_IN_USD));
+            byte category = in.get(Column.EXPENSE_CATEGORY).readByte();
+            micros = row == 0 ? in.get(Column.DATETIME).readLong() : micros + in.get(Column.DATETIME).readLong();
+            byte exceeded = in.get(Column.LIMIT_EXCEEDED).readByte();
+            String idempotencyKey = readString(in.get(Column.IDEMPOTENCY_KEY));
+            if (!rows.get(row)) {
+                continue;
+            }
+            result.add(new Transaction(id, accountFrom, accountTo, currency, sum, sumInUsd,
+                    category >= 0 ? Transaction.ExpenseCategory.values()[category] : null,
+                    fromMicros(micros).atZone(zone),
+                    exceeded < 0 ? null : exceeded == 1,
+                    idempotencyKey));
+        }
+        return result;
+    }
+
+    private static DataInputStream column(FileChannel channel, RowGroup group, Column column) throws IOException {
+        Chunk chunk = group.chunks().get(column);
+        byte[] compressed = read(channel, chunk.offset(), chunk.compressedLength()).array();
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            byte[] raw = new byte[chunk.rawLength()];
+            int length = 0;
+            while (length < raw.length) {
+                int read = inflater.inflate(raw, length, raw.length - length);
+                if (read == 0 && (inflater.finished() || inflater.needsInput())) {
+                    throw new IOException("Блок колонки " + column + " поврежден");
+                }
+                length += read;
+            }
+            return new DataInputStream(new ByteArrayInputStream(raw));
+        } catch (DataFormatException e) {
+            throw new IOException("Блок колонки " + column + " поврежден", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static ByteBuffer read(FileChannel channel, long offset, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, offset + buffer.position()) < 0) {
+                throw new IOException("Неожиданный конец файла архива");
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    // --- Кодирование значений ---
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static void writeDecimal(DataOutputStream out, BigDecimal value) throws IOException {
+        if (value == null) {
+            out.writeByte(-1);
+            return;
+        }
+        byte[] unscaled = value.unscaledValue().toByteArray();
+        out.writeByte(unscaled.length);
+        out.write(unscaled);
+        out.writeInt(value.scale());
+    }
+
+    private static BigDecimal readDecimal(DataInputStream in) throws IOException {
+        int length = in.readByte();
+        if (length < 0) {
+            return null;
+        }
+        byte[] unscaled = new byte[length];
+        in.readFully(unscaled);
+        return new BigDecimal(new BigInteger(unscaled), in.readInt());
+    }
+
+    static int categoryBit(Transaction.ExpenseCategory category) {
+        return 1 << category.ordinal();
+    }
+
+    static long toMicros(Instant instant) {
+        return Math.addExact(Math.multiplyExact(instant.getEpochSecond(), 1_000_000L), instant.getNano() / 1_000);
+    }
+
+    static Instant fromMicros(long micros) {
+        return Instant.ofEpochSecond(Math.floorDiv(micros, 1_000_000L), Math.floorMod(micros, 1_000_000L) * 1_000L);
+    }
+}
@@ -0,0 +1,385 @@
+package com.abarigena.bankoperation.archive;
+
+import com.abarigena.bankoperation.cache.LimitCache;
+import com.abarigena.bankoperation.dto.LimitExceededTransactionDTO;
+import com.abarigena.bankoperation.event.CacheInvalidationEvent;
+import com.abarigena.bankoperation.store.entity.ArchiveVersion;
+import com.abarigena.bankoperation.store.entity.ExpenseLimit;
+import com.abarigena.bankoperation.store.entity.Transaction;
+import com.abarigena.bankoperation.store.repository.ArchiveVersionRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Архив закрытых месяцев таблицы transactions: по одному колоночному файлу на месяц
+ * (формат — {@link ColumnarTransactionFile}) в каталоге app.archive.dir.
+ * <p>
+ * Файл месяца не изменяется: при доархивации (транзакции, записанные задним числом) пишется новая версия
+ * {@code transactions-YYYY-MM.v<версия>.bcol}, и читается всегда последняя. Предыдущие версии удаляет
+ * следующий запуск архивации, поэтому чтение, начатое по старому каталогу, не прерывается.
+ * <p>
+ * Каталог (месяц -> файл и его метаданные) хранится в памяти и перечитывается по {@link CacheInvalidationEvent}
+ * с типом ARCHIVE — после архивации месяца на этом или другом экземпляре. Оповещение приходит после коммита
+ * переноса и может опоздать, поэтому {@link #sumInUsd} сверяет версии месяцев периода с таблицей archive_versions
+ * и перечитывает каталог, если он старее. При нескольких экземплярах каталог app.archive.dir должен быть общим томом.
+ */
+@Component
+public class TransactionArchive {
+
+    private static final Logger log = LoggerFactory.getLogger(TransactionArchive.class);
+
+    private static final Pattern FILE_NAME = Pattern.compile("transactions-(\\d{4}-\\d{2})\\.v(\\d+)\\.bcol");
+
+    private final Path directory;
+    private final LimitCache limitCache;
+    private final ArchiveVersionRepository archiveVersionRepository;
+    private final ZoneId zone = ZoneId.systemDefault();
+
+    private volatile NavigableMap<YearMonth, ArchivedMonth> catalog = Collections.emptyNavigableMap();
+
+    public TransactionArchive(@Value("${app.archive.dir:./data/transaction-archive}") Path directory,
+                              LimitCache limitCache,
+                              ArchiveVersionRepository archiveVersionRepository) {
+        this.directory = directory;
+        this.limitCache = limitCache;
+        this.archiveVersionRepository = archiveVersionRepository;
+    }
+
+    /**
+     * Файл месяца в архиве.
+     *
+     * @param month   Месяц (в часовом поясе приложения).
+     * @param version Версия файла; больше — новее.
+     * @param path    Путь к файлу.
+     * @param footer  Метаданные файла.
+     */
+    record ArchivedMonth(YearMonth month, long version, Path path, ColumnarTransactionFile.Footer footer) {
+    }
+
+    @PostConstruct
+    void init() {
+        reload();
+    }
+
+    @EventListener
+    public void onCacheInvalidation(CacheInvalidationEvent event) {
+        if (event.topic() == CacheInvalidationEvent.Topic.ARCHIVE) {
+            reload();
+        }
+    }
+
+    /**
+     * Перечитывает каталог архива. Метаданные неизмененных файлов повторно не читаются.
+     * Поврежденный файл пропускается с ошибкой в журнале.
+     */
+    public synchronized void reload() {
+        NavigableMap<YearMonth, ArchivedMonth> previous = catalog;
+        NavigableMap<YearMonth, ArchivedMonth> loaded = new TreeMap<>();
+        for (ArchiveFile file : listFiles()) {
+            ArchivedMonth current = loaded.get(file.month());
+            if (current != null && current.version() >= file.version()) {
+                continue;
+            }
+            ArchivedMonth known = previous.get(file.month());
+            if (known != null && known.path().equals(file.path())) {
+                loaded.put(file.month(), known);
+                continue;
+            }
+            try (FileChannel channel = FileChannel.open(file.path(), StandardOpenOption.READ)) {
+                loaded.put(file.month(), new ArchivedMonth(file.month(), file.version(), file.path(),
+                        ColumnarTransactionFile.readFooter(channel)));
+            } catch (IOException e) {
+                log.error("Файл архива {} не прочитан и пропущен: {}", file.path(), e.getMessage());
+            }
+        }
+        catalog = Collections.unmodifiableNavigableMap(loaded);
+        log.debug("Каталог архива транзакций перечитан: {} месяцев", loaded.size());
+    }
+
+    /**
+     * @return Последняя версия файла месяца, если месяц архивирован.
+     */
+    Optional<ArchivedMonth> find(YearMonth month) {
+        return Optional.ofNullable(catalog.get(month));
+    }
+
+    /**
+     * @return Архивированные месяцы по возрастанию.
+     */
+    public List<YearMonth> archivedMonths() {
+        return List.copyOf(catalog.keySet());
+    }
+
+    /**
+     * Сумма транзакций категории в USD за период [from, to) по архиву.
+     * Если период не задевает архивированные месяцы, файлы не читаются.
+     * Каталог перечитывается, если в archive_versions для месяца периода записана более новая версия:
+     * вызывающий держит блокировку трат месяца, поэтому перенос, закоммиченный до нее, виден сразу.
+     *
+     * @return Сумма или 0.
+     * @throws UncheckedIOException если файл архива не удалось прочитать.
+     * @throws IllegalStateException если файла записанной версии нет в каталоге.
+     */
+    public BigDecimal sumInUsd(Transaction.ExpenseCategory category, ZonedDateTime from, ZonedDateTime to) {
+        ArchiveQuery query = new ArchiveQuery(from.toInstant(), to.toInstant(), category, false);
+        if (query.from().isBefore(query.to())) {
+            reloadIfStale(month(query.from()), month(query.to()));
+        }
+        BigDecimal total = BigDecimal.ZERO;
+        for (ArchivedMonth month : candidates(query)) {
+            try (FileChannel channel = FileChannel.open(month.path(), StandardOpenOption.READ)) {
+                for (ColumnarTransactionFile.RowGroup group : month.footer().rowGroups()) {
+                    if (!group.mayMatch(query)) {
+                        continue;
+                    }
+                    BitSet rows = ColumnarTransactionFile.filter(channel, group, query);
+                    if (!rows.isEmpty()) {
+                        total = total.add(ColumnarTransactionFile.sumInUsd(channel, group, rows));
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Не удалось прочитать архив " + month.path(), e);
+            }
+        }
+        return total;
+    }
+
+    private void reloadIfStale(YearMonth first, YearMonth last) {
+        List<ArchiveVersion> versions = archiveVersionRepository.findByMonthStartBetween(first.atDay(1), last.atDay(1));
+        if (versions.stream().noneMatch(this::isStale)) {
+            return;
+        }
+        log.debug("Каталог архива старее archive_versions за {}..{}, перечитывается до оповещения", first, last);
+        reload();
+        for (ArchiveVersion version : versions) {
+            if (isStale(version)) {
+                throw new IllegalStateException("Файл архива за " + YearMonth.from(version.getMonthStart())
+                        + " версии " + version.getVersion() + " не найден в " + directory);
+            }
+        }
+    }
+
+    private boolean isStale(ArchiveVersion version) {
+        ArchivedMonth known = catalog.get(YearMonth.from(version.getMonthStart()));
+        return known == null || known.version() < version.getVersion();
+    }
+
+    /**
+     * Потоково читает транзакции архива, подходящие под условие, по возрастанию времени.
+     * Файлы читаются по одной группе строк; Stream нужно закрыть после чтения.
+     */
+    public Stream<Transaction> stream(ArchiveQuery query) {
+        RowIterator iterator = new RowIterator(candidates(query).iterator(), query);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator,
+                        Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(iterator::close);
+    }
+
+    /**
+     * Транзакции архива, превысившие лимит, за период [from, to) с деталями лимита —
+     * в том же виде, что и streamExceededTransactionsWithLimitDetails по PostgreSQL.
+     */
+    public Stream<LimitExceededTransactionDTO> streamExceeded(ZonedDateTime from, ZonedDateTime to) {
+        return stream(new ArchiveQuery(from.toInstant(), to.toInstant(), null, true))
+                .map(this::toExceededDto);
+    }
+
+    private LimitExceededTransactionDTO toExceededDto(Transaction transaction) {
+        ExpenseLimit limit = transaction.getExpenseCategory() != null
+                ? limitCache.findLimitValidAt(transaction.getExpenseCategory(), transaction.getDateTime()).orElse(null)
+                : null;
+        return new LimitExceededTransactionDTO(
+                transaction.getId(),
+                transaction.getAccountFrom(),
+                transaction.getAccountTo(),
+                transaction.getCurrencyShortname(),
+                transaction.getSum(),
+                transaction.getSumInUsd(),
+                transaction.getExpenseCategory(),
+                transaction.getDateTime(),
+                limit != null ? limit.getLimitSum() : null,
+                limit != null ? limit.getLimitDateTime() : null,
+                limit != null ? limit.getLimitCurrencyShortname() : null);
+    }
+
+    private List<ArchivedMonth> candidates(ArchiveQuery query) {
+        NavigableMap<YearMonth, ArchivedMonth> snapshot = catalog;
+        if (snapshot.isEmpty() || !query.from().isBefore(query.to())) {
+            return List.of();
+        }
+        return snapshot.subMap(month(query.from()), true, month(query.to()), true).values().stream()
+                .filter(month -> month.footer().mayMatch(query))
+                .toList();
+    }
+
+    private YearMonth month(Instant instant) {
+        return YearMonth.from(instant.atZone(zone));
+    }
+
+    // --- Файлы ---
+
+    Path directory() {
+        return directory;
+    }
+
+    /**
+     * Часовой пояс приложения: в нем определяются границы месяцев архива, агрегатов spending_rollups и лимитов.
+     */
+    public ZoneId zone() {
+        return zone;
+    }
+
+    /**
+     * Путь для новой версии файла месяца.
+     */
+    Path pathFor(YearMonth month, long version) {
+        return directory.resolve("transactions-" + month + ".v" + version + ".bcol");
+    }
+
+    /**
+     * Файл архива в каталоге.
+     */
+    record ArchiveFile(YearMonth month, long version, Path path) {
+    }
+
+    /**
+     * Все версии файлов архива в каталоге (без временных файлов).
+     */
+    List<ArchiveFile> listFiles() {
+        return listFiles(directory);
+    }
+
+    /**
+     * Месяцы, для которых в каталоге есть файл архива; читаются только имена файлов.
+     * Нужен там, где экземпляра архива еще нет (миграции схемы).
+     *
+     * @param directory Каталог архива (app.archive.dir).
+     * @return Архивированные месяцы по возрастанию; пусто, если каталога нет.
+     */
+    public static NavigableSet<YearMonth> archivedMonthsIn(Path directory) {
+        NavigableSet<YearMonth> months = new TreeSet<>();
+        for (ArchiveFile file : listFiles(directory)) {
+            months.add(file.month());
+        }
+        return months;
+    }
+
+    private static List<ArchiveFile> listFiles(Path directory) {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        List<ArchiveFile> files = new ArrayList<>();
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory, "transactions-*.bcol")) {
+            for (Path entry : entries) {
+                Matcher matcher = FILE_NAME.matcher(entry.getFileName().toString());
+                if (matcher.matches()) {
+                    files.add(new ArchiveFile(YearMonth.parse(matcher.group(1)), Long.parseLong(matcher.group(2)), entry));
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось прочитать каталог архива " + directory, e);
+        }
+        return files;
+    }
+
+    /**
+     * Обходит строки подходящих групп всех файлов-кандидатов. Открыт не более чем один файл.
+     */
+    private final class RowIterator implements Iterator<Transaction> {
+
+        private final Iterator<ArchivedMonth> months;
+        private final ArchiveQuery query;
+        private ArchivedMonth month;
+        private FileChannel channel;
+        private Iterator<ColumnarTransactionFile.RowGroup> groups = Collections.emptyIterator();
+        private Iterator<Transaction> rows = Collections.emptyIterator();
+
+        private RowIterator(Iterator<ArchivedMonth> months, ArchiveQuery query) {
+            this.months = months;
+            this.query = query;
+        }
+
+        @Override
+        public boolean hasNext() {
+            try {
+                while (!rows.hasNext()) {
+                    if (groups.hasNext()) {
+                        ColumnarTransactionFile.RowGroup group = groups.next();
+                        if (!group.mayMatch(query)) {
+                            continue;
+                        }
+                        BitSet matches = ColumnarTransactionFile.filter(channel, group, query);
+                        if (!matches.isEmpty()) {
+                            rows = ColumnarTransactionFile.readRows(channel, group, matches, zone).iterator();
+                        }
+                        continue;
+                    }
+                    close();
+                    if (!months.hasNext()) {
+                        return false;
+                    }
+                    month = months.next();
+                    channel = FileChannel.open(month.path(), StandardOpenOption.READ);
+                    groups = month.footer().rowGroups().iterator();
+                }
+                return true;
+            } catch (IOException e) {
+                close();
+                throw new UncheckedIOException("Не удалось прочитать архив " + (month != null ? month.path() : directory), e);
+            }
+        }
+
+        @Override
+        public Transaction next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return rows.next();
+        }
+
+        void close() {
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    log.debug("Ошибка при закрытии файла архива {}: {}", month.path(), e.getMessage());
+                }
+                channel = null;
+            }
+        }
+    }
+}
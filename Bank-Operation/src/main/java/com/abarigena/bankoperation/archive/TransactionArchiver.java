@@ -0,0 +1,269 @@
+package com.abarigena.bankoperation.archive;
+
+import com.abarigena.bankoperation.event.TransactionsArchivedEvent;
+import com.abarigena.bankoperation.store.entity.Transaction;
+import com.abarigena.bankoperation.store.repository.ArchiveVersionRepository;
+import com.abarigena.bankoperation.store.repository.TransactionRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZonedDateTime;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Переносит закрытые месяцы из таблицы transactions в {@link TransactionArchive}.
+ * <p>
+ * В PostgreSQL остаются последние app.archive.hot-months месяцев (включая текущий).
+ * Месяц переносится в одной транзакции REPEATABLE READ: строки читаются курсором и пишутся во временный файл,
+ * файл атомарно переименовывается и только затем строки удаляются из таблицы. Транзакции, записанные
+ * задним числом во время переноса, не видны в снимке, не удаляются и будут перенесены следующим запуском.
+ * На время переноса берутся advisory-блокировки трат месяца по всем категориям, поэтому новые записи в месяц
+ * ждут коммита и считают траты уже по таблице без перенесенных строк и по новому файлу архива. Версия нового файла
+ * записывается в archive_versions в той же транзакции: по ней любой экземпляр перечитывает каталог,
+ * не дожидаясь оповещения.
+ * Если сбой произошел между переименованием файла и коммитом, строки временно есть и в архиве,
+ * и в таблице; следующий запуск перепишет месяц без повторов.
+ */
+@Service
+public class TransactionArchiver {
+
+    private static final Logger log = LoggerFactory.getLogger(TransactionArchiver.class);
+
+    private final TransactionRepository transactionRepository;
+    private final TransactionArchive transactionArchive;
+    private final ArchiveVersionRepository archiveVersionRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate snapshotTransaction;
+    private final int hotMonths;
+    private final int maxMonthsPerRun;
+    private final int rowGroupSize;
+    private final Clock clock;
+
+    @Autowired
+    public TransactionArchiver(TransactionRepository transactionRepository,
+                               TransactionArchive transactionArchive,
+                               ArchiveVersionRepository archiveVersionRepository,
+                               ApplicationEventPublisher eventPublisher,
+                               PlatformTransactionManager transactionManager,
+                               @Value("${app.archive.hot-months:3}") int hotMonths,
+                               @Value("${app.archive.max-months-per-run:12}") int maxMonthsPerRun,
+                               @Value("${app.archive.row-group-size:65536}") int rowGroupSize) {
+        this(transactionRepository, transactionArchive, archiveVersionRepository, eventPublisher, transactionManager,
+                hotMonths, maxMonthsPerRun, rowGroupSize, Clock.systemDefaultZone());
+    }
+
+    TransactionArchiver(TransactionRepository transactionRepository, TransactionArchive transactionArchive,
+                        ArchiveVersionRepository archiveVersionRepository,
+                        ApplicationEventPublisher eventPublisher, PlatformTransactionManager transactionManager,
+                        int hotMonths, int maxMonthsPerRun, int rowGroupSize, Clock clock) {
+        if (hotMonths < 1) {
+            throw new IllegalArgumentException("app.archive.hot-months должен быть не меньше 1: " + hotMonths);
+        }
+        this.transactionRepository = transactionRepository;
+        this.transactionArchive = transactionArchive;
+        this.archiveVersionRepository = archiveVersionRepository;
+        this.eventPublisher = eventPublisher;
+        this.snapshotTransaction = new TransactionTemplate(transactionManager);
+        this.snapshotTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.hotMonths = hotMonths;
+        this.maxMonthsPerRun = maxMonthsPerRun;
+        this.rowGroupSize = rowGroupSize;
+        this.clock = clock;
+    }
+
+    /**
+     * Переносит в архив закрытые месяцы, начиная с самого старого, не больше app.archive.max-months-per-run за вызов.
+     *
+     * @return Количество перенесенных месяцев.
+     */
+    public int archiveClosedMonths() {
+        transactionArchive.reload();
+        removeSupersededFiles();
+
+        ZonedDateTime cutoff = cutoff();
+        int archived = 0;
+        while (archived < maxMonthsPerRun) {
+            Optional<ZonedDateTime> oldest = transactionRepository.findOldestDateTimeBefore(cutoff);
+            if (oldest.isEmpty()) {
+                break;
+            }
+            archiveMonth(YearMonth.from(oldest.get().withZoneSameInstant(transactionArchive.zone())));
+            archived++;
+        }
+        if (archived > 0) {
+            log.info("Архивация завершена: перенесено {} месяцев, в PostgreSQL остаются транзакции с {}", archived, cutoff);
+        }
+        return archived;
+    }
+
+    /**
+     * Начало самого старого месяца, который остается в PostgreSQL.
+     */
+    ZonedDateTime cutoff() {
+        LocalDate firstHotMonth = LocalDate.now(clock).withDayOfMonth(1).minusMonths(hotMonths - 1L);
+        return firstHotMonth.atStartOfDay(transactionArchive.zone());
+    }
+
+    /**
+     * Переносит месяц в архив: новая версия файла объединяет прежнюю версию (если есть) и строки из таблицы.
+     *
+     * @param month Месяц в часовом поясе приложения.
+     * @return Количество строк, перенесенных из PostgreSQL.
+     */
+    public long archiveMonth(YearMonth month) {
+        ZonedDateTime periodStart = month.atDay(1).atStartOfDay(transactionArchive.zone());
+        ZonedDateTime periodEnd = month.plusMonths(1).atDay(1).atStartOfDay(transactionArchive.zone());
+        Optional<TransactionArchive.ArchivedMonth> previous = transactionArchive.find(month);
+        long version = Math.max(clock.millis(), previous.map(p -> p.version() + 1).orElse(0L));
+        Path target = transactionArchive.pathFor(month, version);
+        Path temporary = target.resolveSibling(target.getFileName() + ".tmp");
+
+        Long moved = snapshotTransaction.execute(status -> {
+            // Запись задним числом в этот месяц ждет конца переноса (та же блокировка, что в TransactionService):
+            // иначе она посчитала бы траты месяца, когда строки уже удалены из таблицы, а каталог архива еще старый
+            for (Transaction.ExpenseCategory category : Transaction.ExpenseCategory.values()) {
+                transactionRepository.lockSpendingMonth(category, month);
+            }
+            long fromTable;
+            try {
+                Files.createDirectories(transactionArchive.directory());
+                Files.deleteIfExists(temporary);
+                try (Stream<Transaction> archived = previous.isPresent()
+                             ? transactionArchive.stream(ArchiveQuery.period(periodStart.toInstant(), periodEnd.toInstant()))
+                             : Stream.empty();
+                     Stream<Transaction> table = transactionRepository.streamForArchive(periodStart, periodEnd);
+                     ColumnarTransactionFile.Writer writer = new ColumnarTransactionFile.Writer(temporary, rowGroupSize)) {
+                    fromTable = merge(archived.iterator(), table.iterator(), writer);
+                }
+                Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                deleteQuietly(temporary);
+                throw new UncheckedIOException("Не удалось записать архив за " + month, e);
+            }
+
+            try {
+                int deleted = transactionRepository.deleteByPeriod(periodStart, periodEnd);
+                if (deleted != fromTable) {
+                    throw new IllegalStateException("Удалено " + deleted + " строк за " + month
+                            + ", а в архив записано " + fromTable);
+                }
+                // Экземпляры, которые возьмут блокировку трат месяца после коммита, увидят новую версию сразу
+                archiveVersionRepository.recordVersion(month.atDay(1), version);
+                eventPublisher.publishEvent(new TransactionsArchivedEvent(month));
+                // Каталог этого экземпляра видит новый файл до снятия блокировок
+                transactionArchive.reload();
+            } catch (RuntimeException e) {
+                // Строки остаются в таблице; читается прежняя версия файла
+                deleteQuietly(target);
+                throw e;
+            }
+            return fromTable;
+        });
+
+        long rows = moved != null ? moved : 0;
+        log.info("Месяц {} перенесен в архив: {} строк из PostgreSQL, файл {}", month, rows, target.getFileName());
+        return rows;
+    }
+
+    /**
+     * Сливает отсортированные по времени строки прежней версии архива и таблицы.
+     * Строки таблицы, уже записанные в архив (повтор после сбоя), пропускаются.
+     *
+     * @return Количество строк, прочитанных из таблицы.
+     */
+    static long merge(Iterator<Transaction> archived, Iterator<Transaction> table,
+                      ColumnarTransactionFile.Writer writer) throws IOException {
+        long fromTable = 0;
+        Transaction a = archived.hasNext() ? archived.next() : null;
+        Transaction b = table.hasNext() ? table.next() : null;
+        while (a != null || b != null) {
+            if (b == null || (a != null && micros(a) < micros(b))) {
+                writer.append(a);
+                a = archived.hasNext() ? archived.next() : null;
+            } else if (a == null || micros(b) < micros(a)) {
+                writer.append(b);
+                fromTable++;
+                b = table.hasNext() ? table.next() : null;
+            } else {
+                // Одинаковое время: повторы могут быть только среди строк с этим временем
+                long tie = micros(a);
+                Set<UUID> ids = new HashSet<>();
+                while (a != null && micros(a) == tie) {
+                    writer.append(a);
+                    ids.add(a.getId());
+                    a = archived.hasNext() ? archived.next() : null;
+                }
+                while (b != null && micros(b) == tie) {
+                    if (ids.add(b.getId())) {
+                        writer.append(b);
+                    }
+                    fromTable++;
+                    b = table.hasNext() ? table.next() : null;
+                }
+            }
+        }
+        return fromTable;
+    }
+
+    private static long micros(Transaction transaction) {
+        return ColumnarTransactionFile.toMicros(transaction.getDateTime().toInstant());
+    }
+
+    /**
+     * Удаляет вытесненные версии файлов и временные файлы прерванных запусков.
+     * К этому моменту все экземпляры давно перечитали каталог после предыдущего запуска.
+     */
+    private void removeSupersededFiles() {
+        Map<YearMonth, Long> latest = new HashMap<>();
+        for (TransactionArchive.ArchiveFile file : transactionArchive.listFiles()) {
+            latest.merge(file.month(), file.version(), Math::max);
+        }
+        for (TransactionArchive.ArchiveFile file : transactionArchive.listFiles()) {
+            if (file.version() < latest.get(file.month())) {
+                deleteQuietly(file.path());
+                log.info("Удалена вытесненная версия архива {}", file.path().getFileName());
+            }
+        }
+        if (!Files.isDirectory(transactionArchive.directory())) {
+            return;
+        }
+        try (DirectoryStream<Path> temporary = Files.newDirectoryStream(transactionArchive.directory(), "*.tmp")) {
+            for (Path path : temporary) {
+                deleteQuietly(path);
+            }
+        } catch (IOException e) {
+            log.warn("Не удалось очистить временные файлы архива: {}", e.getMessage());
+        }
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("Не удалось удалить файл архива {}: {}", path, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,333 @@
+package com.abarigena.bankoperation.cache;
+
+import com.abarigena.bankoperation.config.InstanceIdentity;
+import com.abarigena.bankoperation.event.CacheInvalidationEvent;
+import com.abarigena.bankoperation.event.ExchangeRateSavedEvent;
+import com.abarigena.bankoperation.event.LimitChangedEvent;
+import com.abarigena.bankoperation.event.LimitExceededEvent;
+import com.abarigena.bankoperation.event.TransactionsArchivedEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Шина сброса кешей между экземплярами приложения на PostgreSQL LISTEN/NOTIFY.
+ * <p>
+ * Локальное изменение (новый лимит, новый курс, архивированный месяц) отправляется в канал {@value #CHANNEL} через pg_notify.
+ * Для лимита и архива оповещение выполняется в той же транзакции БД, поэтому PostgreSQL доставит его
+ * только после коммита и только если коммит удался. Локальные кеши сбрасываются сразу после коммита,
+ * не дожидаясь возврата оповещения.
+ * <p>
+ * Через тот же канал расходятся транзакции, превысившие лимит: подписчики потока SSE на любом экземпляре
+ * получают события всего кластера. Эти оповещения отправляются после коммита и могут теряться; поток
+ * SSE это допускает.
+ * <p>
+ * Каждый экземпляр слушает канал на отдельном соединении (не из пула). Пока соединение живо,
+ * PostgreSQL доставляет все оповещения; пропуск возможен только при разрыве. Поэтому после каждого
+ * (пере)подключения все кеши сбрасываются целиком — это и есть полная ресинхронизация.
+ */
+@Component
+public class CacheInvalidationBus implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(CacheInvalidationBus.class);
+
+    static final String CHANNEL = "bank_operation_cache_invalidation";
+    private static final String SEPARATOR = "|";
+    private static final Duration INITIAL_RECONNECT_DELAY = Duration.ofMillis(500);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DataSourceProperties dataSourceProperties;
+    private final ApplicationEventPublisher eventPublisher;
+    private final InstanceIdentity instanceIdentity;
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+    private final Duration pollTimeout;
+    private final Duration maxReconnectDelay;
+
+    private final AtomicLong resyncCount = new AtomicLong();
+    private volatile boolean running;
+    private volatile Thread listenerThread;
+    private volatile Connection listenConnection;
+
+    @Autowired
+    public CacheInvalidationBus(JdbcTemplate jdbcTemplate,
+                                DataSourceProperties dataSourceProperties,
+                                ApplicationEventPublisher eventPublisher,
+                                InstanceIdentity instanceIdentity,
+                                ObjectMapper objectMapper,
+                                @Value("${app.cache-bus.enabled:true}") boolean enabled,
+                                @Value("${app.cache-bus.poll-timeout:10s}") Duration pollTimeout,
+                                @Value("${app.cache-bus.max-reconnect-delay:30s}") Duration maxReconnectDelay) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.dataSourceProperties = dataSourceProperties;
+        this.eventPublisher = eventPublisher;
+        this.instanceIdentity = instanceIdentity;
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.pollTimeout = pollTimeout;
+        this.maxReconnectDelay = maxReconnectDelay;
+    }
+
+    // --- Исходящие оповещения ---
+
+    /**
+     * Отправляет оповещение о новом лимите в транзакции, в которой он сохранен.
+     * Ошибка отправки откатывает транзакцию: лимит не может измениться незаметно для других экземпляров.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void notifyLimitChanged(LimitChangedEvent event) {
+        send(CacheInvalidationEvent.Topic.LIMITS, event.category().name());
+    }
+
+    /**
+     * Сбрасывает локальный кеш лимитов после коммита.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void invalidateLocalLimit(LimitChangedEvent event) {
+        eventPublisher.publishEvent(new CacheInvalidationEvent(CacheInvalidationEvent.Topic.LIMITS, event.category().name()));
+    }
+
+    /**
+     * Отправляет оповещение об архивации месяца в транзакции, удаляющей архивированные строки:
+     * другие экземпляры перечитают каталог архива только после коммита.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void notifyTransactionsArchived(TransactionsArchivedEvent event) {
+        send(CacheInvalidationEvent.Topic.ARCHIVE, event.month().toString());
+    }
+
+    /**
+     * Перечитывает локальный каталог архива после коммита.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void invalidateLocalArchive(TransactionsArchivedEvent event) {
+        eventPublisher.publishEvent(new CacheInvalidationEvent(CacheInvalidationEvent.Topic.ARCHIVE, event.month().toString()));
+    }
+
+    /**
+     * Отправляет транзакцию, превысившую лимит, другим экземплярам после коммита, в отдельном пуле потоков
+     * и вне транзакции приема: NOTIFY в транзакции приема откатывал бы платеж при ошибке отправки и
+     * выстраивал бы коммиты всех превышающих транзакций в очередь. Локальные подписчики получают событие
+     * от {@code LimitExceededBroadcaster}.
+     */
+    @Async("busNotifyExecutor")
+    @TransactionalEventListener(fallbackExecution = true)
+    public void notifyLimitExceeded(LimitExceededEvent event) {
+        UUID transactionId = event.transaction().getTransactionId();
+        try {
+            send(CacheInvalidationEvent.Topic.EXCEEDED_STREAM, objectMapper.writeValueAsString(event.transaction()));
+        } catch (Exception e) {
+            // Транзакция уже сохранена; подписчики других экземпляров событие пропустят
+            log.error("Не удалось отправить превышение {} другим экземплярам: {}", transactionId, e.getMessage());
+        }
+    }
+
+    /**
+     * Курсы хранятся в Cassandra, транзакции БД нет: оповещение отправляется сразу.
+     * Ошибка отправки не отменяет сохранение курса; другие экземпляры получат его при ресинхронизации.
+     */
+    @EventListener
+    public void onExchangeRateSaved(ExchangeRateSavedEvent event) {
+        String key = event.fromCurrency() + "/" + event.toCurrency();
+        eventPublisher.publishEvent(new CacheInvalidationEvent(CacheInvalidationEvent.Topic.RATES, key));
+        try {
+            send(CacheInvalidationEvent.Topic.RATES, key);
+        } catch (Exception e) {
+            log.error("Не удалось отправить оповещение о новом курсе {} на {}", key, event.date(), e);
+        }
+    }
+
+    private void send(CacheInvalidationEvent.Topic topic, String key) {
+        if (!enabled) {
+            return;
+        }
+        jdbcTemplate.query("select pg_notify(?, ?)", (ResultSetExtractor<Void>) rs -> null,
+                CHANNEL, encode(instanceIdentity.getId(), topic, key));
+        log.debug("Отправлено оповещение о сбросе кеша {} {}", topic, key);
+    }
+
+    // --- Входящие оповещения ---
+
+    /**
+     * Обрабатывает полезную нагрузку оповещения. Собственные оповещения пропускаются:
+     * локальный кеш уже сброшен после коммита.
+     */
+    void dispatch(String payload) {
+        String[] parts = payload.split("\\" + SEPARATOR, 3);
+        if (parts.length != 3) {
+            log.warn("Некорректное оповещение о сбросе кеша: {}", payload);
+            return;
+        }
+        if (instanceIdentity.getId().equals(parts[0])) {
+            return;
+        }
+        CacheInvalidationEvent.Topic topic;
+        try {
+            topic = CacheInvalidationEvent.Topic.valueOf(parts[1]);
+        } catch (IllegalArgumentException e) {
+            log.warn("Оповещение о сбросе кеша с неизвестным типом данных: {}", payload);
+            return;
+        }
+        String key = parts[2].isEmpty() ? null : parts[2];
+        log.debug("Получено оповещение о сбросе кеша {} {} от экземпляра {}", topic, key, parts[0]);
+        eventPublisher.publishEvent(new CacheInvalidationEvent(topic, key));
+    }
+
+    /**
+     * Сбрасывает все кеши целиком: часть оповещений могла быть пропущена.
+     */
+    void resync() {
+        resyncCount.incrementAndGet();
+        for (CacheInvalidationEvent.Topic topic : CacheInvalidationEvent.Topic.values()) {
+            eventPublisher.publishEvent(CacheInvalidationEvent.all(topic));
+        }
+    }
+
+    private void listenLoop() {
+        Duration reconnectDelay = INITIAL_RECONNECT_DELAY;
+        while (running) {
+            try (Connection connection = openListenConnection()) {
+                listenConnection = connection;
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + CHANNEL);
+                }
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                reconnectDelay = INITIAL_RECONNECT_DELAY;
+                // Оповещения, отправленные до LISTEN, не придут: сбрасываем все, что могло устареть
+                safely(this::resync);
+                log.info("Экземпляр {} подписан на канал {}", instanceIdentity.getId(), CHANNEL);
+
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications((int) pollTimeout.toMillis());
+                    if (notifications == null || notifications.length == 0) {
+                        // Простой: проверяем, что соединение живо
+                        try (Statement statement = connection.createStatement()) {
+                            statement.execute("select 1");
+                        }
+                        continue;
+                    }
+                    for (PGNotification notification : notifications) {
+                        safely(() -> dispatch(notification.getParameter()));
+                    }
+                }
+            } catch (SQLException e) {
+                if (!running) {
+                    break;
+                }
+                log.warn("Соединение для LISTEN {} потеряно: {}. Повтор через {} мс",
+                        CHANNEL, e.getMessage(), reconnectDelay.toMillis());
+                try {
+                    Thread.sleep(reconnectDelay.toMillis());
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+                reconnectDelay = reconnectDelay.multipliedBy(2);
+                if (reconnectDelay.compareTo(maxReconnectDelay) > 0) {
+                    reconnectDelay = maxReconnectDelay;
+                }
+            } finally {
+                listenConnection = null;
+            }
+        }
+    }
+
+    private static void safely(Runnable action) {
+        try {
+            action.run();
+        } catch (RuntimeException e) {
+            // Ошибка слушателя кеша не должна останавливать подписку
+            log.error("Ошибка обработки оповещения о сбросе кеша", e);
+        }
+    }
+
+    private Connection openListenConnection() throws SQLException {
+        Properties properties = new Properties();
+        properties.setProperty("user", dataSourceProperties.determineUsername());
+        String password = dataSourceProperties.determinePassword();
+        if (password != null) {
+            properties.setProperty("password", password);
+        }
+        properties.setProperty("ApplicationName", "bank-operation-cache-bus");
+        // Полуоткрытое TCP-соединение обнаруживается по таймауту проверки "select 1"
+        properties.setProperty("socketTimeout", String.valueOf(pollTimeout.multipliedBy(3).toSeconds()));
+        properties.setProperty("tcpKeepAlive", "true");
+        return DriverManager.getConnection(dataSourceProperties.determineUrl(), properties);
+    }
+
+    static String encode(String instanceId, CacheInvalidationEvent.Topic topic, String key) {
+        return instanceId + SEPARATOR + topic.name() + SEPARATOR + (key != null ? key : "");
+    }
+
+    /**
+     * @return Сколько раз кеши сбрасывались целиком после (пере)подключения.
+     */
+    public long getResyncCount() {
+        return resyncCount.get();
+    }
+
+    @Override
+    public void start() {
+        if (!enabled) {
+            log.info("Шина сброса кешей отключена (app.cache-bus.enabled=false)");
+            return;
+        }
+        running = true;
+        listenerThread = Thread.ofPlatform()
+                .name("cache-invalidation-listener")
+                .daemon(true)
+                .start(this::listenLoop);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        Connection connection = listenConnection;
+        if (connection != null) {
+            try {
+                // Прерывает ожидание getNotifications
+                connection.close();
+            } catch (SQLException e) {
+                log.debug("Ошибка при закрытии соединения LISTEN: {}", e.getMessage());
+            }
+        }
+        Thread thread = listenerThread;
+        if (thread != null) {
+            thread.interrupt();
+            try {
+                thread.join(pollTimeout.toMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            listenerThread = null;
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+}
@@ -0,0 +1,87 @@
+package com.abarigena.bankoperation.cache;
+
+import com.abarigena.bankoperation.event.CacheInvalidationEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Кеш результатов поиска курса (пара валют и дата -> курс) для расчета сумм в USD.
+ * <p>
+ * Хранит и найденные курсы, и их отсутствие. Любое сохранение курса на этом или другом экземпляре
+ * сбрасывает кеш целиком: курсы меняются раз в день, а курс на дату может заменить найденный ранее
+ * последний доступный курс. При достижении предельного размера кеш также очищается.
+ */
+@Component
+public class ExchangeRateCache {
+
+    private static final Logger log = LoggerFactory.getLogger(ExchangeRateCache.class);
+
+    private final int maxEntries;
+    private final ConcurrentMap<RateKey, Optional<BigDecimal>> rates = new ConcurrentHashMap<>();
+    // Увеличивается при каждом сбросе: курс, найденный до сброса, не попадет в кеш
+    private long generation;
+
+    public ExchangeRateCache(@Value("${app.rates.cache-max-entries:10000}") int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Возвращает курс из кеша или ищет его с помощью loader.
+     *
+     * @param from   Валюта ИЗ.
+     * @param to     Валюта В.
+     * @param date   Дата курса.
+     * @param loader Поиск курса в хранилище.
+     * @return Optional с курсом или пустой Optional.
+     */
+    public Optional<BigDecimal> get(String from, String to, LocalDate date, Supplier<Optional<BigDecimal>> loader) {
+        RateKey key = new RateKey(from, to, date);
+        Optional<BigDecimal> cached = rates.get(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        long startedGeneration;
+        synchronized (this) {
+            startedGeneration = generation;
+        }
+        Optional<BigDecimal> loaded = loader.get();
+        synchronized (this) {
+            if (generation == startedGeneration) {
+                if (rates.size() >= maxEntries) {
+                    rates.clear();
+                }
+                rates.put(key, loaded);
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * Сбрасывает кеш при сохранении курса (локально или на другом экземпляре).
+     */
+    @EventListener
+    public void onCacheInvalidation(CacheInvalidationEvent event) {
+        if (event.topic() != CacheInvalidationEvent.Topic.RATES) {
+            return;
+        }
+        synchronized (this) {
+            generation++;
+            rates.clear();
+        }
+        log.debug("Кеш курсов сброшен ({})", event.isFullReset() ? "полностью" : event.key());
+    }
+
+    private record RateKey(String from, String to, LocalDate date) {
+    }
+}
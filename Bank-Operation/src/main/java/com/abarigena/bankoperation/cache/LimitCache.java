@@ -0,0 +1,127 @@
+package com.abarigena.bankoperation.cache;
+
+import com.abarigena.bankoperation.event.CacheInvalidationEvent;
+import com.abarigena.bankoperation.store.entity.ExpenseLimit;
+import com.abarigena.bankoperation.store.entity.Transaction;
+import com.abarigena.bankoperation.store.repository.ExpenseLimitRepository;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Кеш истории лимитов расходов по категориям.
+ * <p>
+ * История категории загружается целиком при первом обращении; действующий на момент транзакции
+ * лимит определяется поиском в памяти вместо запроса к БД на каждую транзакцию.
+ * Категория сбрасывается по {@link CacheInvalidationEvent} с типом LIMITS — после коммита
+ * нового лимита на этом экземпляре или по оповещению от другого (см. {@link CacheInvalidationBus}).
+ */
+@Component
+@RequiredArgsConstructor
+public class LimitCache {
+
+    private static final Logger log = LoggerFactory.getLogger(LimitCache.class);
+
+    private final ExpenseLimitRepository expenseLimitRepository;
+
+    private final ConcurrentMap<Transaction.ExpenseCategory, NavigableMap<Instant, ExpenseLimit>> limitsByCategory =
+            new ConcurrentHashMap<>();
+    // Версия категории увеличивается при каждом сбросе: история, загруженная до сброса, не попадет в кеш
+    private final Map<Transaction.ExpenseCategory, AtomicLong> versions = createVersions();
+
+    /**
+     * Находит лимит, действовавший для категории в указанный момент времени:
+     * последний лимит, установленный не позже dateTime.
+     *
+     * @param category Категория расходов.
+     * @param dateTime Момент времени.
+     * @return Optional с копией лимита или пустой Optional, если лимит к этому моменту не устанавливался.
+     */
+    public Optional<ExpenseLimit> findLimitValidAt(Transaction.ExpenseCategory category, ZonedDateTime dateTime) {
+        Map.Entry<Instant, ExpenseLimit> entry = limits(category).floorEntry(dateTime.toInstant());
+        return entry != null ? Optional.of(entry.getValue()) : Optional.empty();
+    }
+
+    private NavigableMap<Instant, ExpenseLimit> limits(Transaction.ExpenseCategory category) {
+        NavigableMap<Instant, ExpenseLimit> cached = limitsByCategory.get(category);
+        if (cached != null) {
+            return cached;
+        }
+
+        AtomicLong version = versions.get(category);
+        long startedVersion = version.get();
+        NavigableMap<Instant, ExpenseLimit> loaded = load(category);
+        synchronized (version) {
+            if (version.get() == startedVersion) {
+                limitsByCategory.put(category, loaded);
+            }
+        }
+        return loaded;
+    }
+
+    private NavigableMap<Instant, ExpenseLimit> load(Transaction.ExpenseCategory category) {
+        TreeMap<Instant, ExpenseLimit> limits = new TreeMap<>();
+        for (ExpenseLimit limit : expenseLimitRepository.findByExpenseCategoryOrderByLimitDateTimeAsc(category)) {
+            // Копия, а не управляемая сущность: объект разделяется между потоками и транзакциями
+            limits.put(limit.getLimitDateTime().toInstant(), new ExpenseLimit(
+                    limit.getId(),
+                    limit.getLimitSum(),
+                    limit.getLimitDateTime(),
+                    limit.getLimitCurrencyShortname(),
+                    limit.getExpenseCategory()));
+        }
+        log.debug("Загружена история лимитов категории {}: {} записей", category, limits.size());
+        return Collections.unmodifiableNavigableMap(limits);
+    }
+
+    /**
+     * Сбрасывает закешированную историю лимитов.
+     */
+    @EventListener
+    public void onCacheInvalidation(CacheInvalidationEvent event) {
+        if (event.topic() != CacheInvalidationEvent.Topic.LIMITS) {
+            return;
+        }
+        if (event.isFullReset()) {
+            versions.keySet().forEach(this::invalidate);
+            log.info("Кеш лимитов сброшен целиком");
+            return;
+        }
+        try {
+            invalidate(Transaction.ExpenseCategory.valueOf(event.key()));
+            log.debug("Кеш лимитов категории {} сброшен", event.key());
+        } catch (IllegalArgumentException e) {
+            log.warn("Сброс кеша лимитов для неизвестной категории {}", event.key());
+        }
+    }
+
+    private void invalidate(Transaction.ExpenseCategory category) {
+        AtomicLong version = versions.get(category);
+        synchronized (version) {
+            version.incrementAndGet();
+            limitsByCategory.remove(category);
+        }
+    }
+
+    private static Map<Transaction.ExpenseCategory, AtomicLong> createVersions() {
+        Map<Transaction.ExpenseCategory, AtomicLong> versions = new EnumMap<>(Transaction.ExpenseCategory.class);
+        for (Transaction.ExpenseCategory category : Transaction.ExpenseCategory.values()) {
+            versions.put(category, new AtomicLong());
+        }
+        return versions;
+    }
+}
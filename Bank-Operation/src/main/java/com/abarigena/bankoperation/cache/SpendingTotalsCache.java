@@ -0,0 +1,106 @@
+package com.abarigena.bankoperation.cache;
+
+import com.abarigena.bankoperation.event.TransactionRecordedEvent;
+import com.abarigena.bankoperation.store.entity.SpendingRollup;
+import com.abarigena.bankoperation.store.entity.Transaction;
+import com.abarigena.bankoperation.store.repository.SpendingRollupRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.YearMonth;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongSupplier;
+
+/**
+ * Кеш месячных сумм расходов по категориям (копия строк spending_rollups в памяти).
+ * <p>
+ * Транзакции этого экземпляра добавляются к сумме сразу после коммита. Транзакции других экземпляров
+ * попадают в сумму при обновлении из spending_rollups: запись старше app.limits.remaining.refresh-interval
+ * перечитывается одним запросом по первичному ключу. Пока идет обновление, остальные запросы получают
+ * прежнее значение, поэтому чтение из кеша не ждет БД (кроме первого обращения к месяцу).
+ * Расхождение с БД ограничено интервалом обновления.
+ */
+@Component
+public class SpendingTotalsCache {
+
+    private static final Logger log = LoggerFactory.getLogger(SpendingTotalsCache.class);
+
+    // Запросы обычно касаются текущего месяца; предел защищает от запросов по произвольным месяцам
+    private static final int MAX_ENTRIES = 1000;
+
+    private final SpendingRollupRepository spendingRollupRepository;
+    private final long refreshIntervalNanos;
+    private final LongSupplier nanoClock;
+    private final ConcurrentMap<SpendingRollup.Key, Entry> entries = new ConcurrentHashMap<>();
+
+    @Autowired
+    public SpendingTotalsCache(SpendingRollupRepository spendingRollupRepository,
+                               @Value("${app.limits.remaining.refresh-interval:1s}") Duration refreshInterval) {
+        this(spendingRollupRepository, refreshInterval, System::nanoTime);
+    }
+
+    SpendingTotalsCache(SpendingRollupRepository spendingRollupRepository, Duration refreshInterval,
+                        LongSupplier nanoClock) {
+        this.spendingRollupRepository = spendingRollupRepository;
+        this.refreshIntervalNanos = refreshInterval.toNanos();
+        this.nanoClock = nanoClock;
+    }
+
+    private record Entry(BigDecimal total, long loadedAt, AtomicBoolean refreshing) {
+    }
+
+    /**
+     * Сумма расходов категории за месяц в USD.
+     *
+     * @param category Категория расходов.
+     * @param month    Месяц.
+     * @return Сумма или 0, если в месяце не было транзакций.
+     */
+    public BigDecimal monthTotal(Transaction.ExpenseCategory category, YearMonth month) {
+        SpendingRollup.Key key = new SpendingRollup.Key(category, month.atDay(1));
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return load(key);
+        }
+        if (nanoClock.getAsLong() - entry.loadedAt() >= refreshIntervalNanos && entry.refreshing().compareAndSet(false, true)) {
+            try {
+                return load(key);
+            } finally {
+                entry.refreshing().set(false);
+            }
+        }
+        return entry.total();
+    }
+
+    /**
+     * Добавляет транзакцию этого экземпляра к сумме месяца после коммита.
+     * Если месяц еще не в кеше, он будет прочитан из БД при первом обращении.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onTransactionRecorded(TransactionRecordedEvent event) {
+        entries.computeIfPresent(new SpendingRollup.Key(event.category(), event.monthStart()),
+                (key, entry) -> new Entry(entry.total().add(event.amountInUsd()), entry.loadedAt(), entry.refreshing()));
+    }
+
+    private BigDecimal load(SpendingRollup.Key key) {
+        long loadedAt = nanoClock.getAsLong();
+        BigDecimal total = spendingRollupRepository.findById(key)
+                .map(SpendingRollup::getTotalSpentUsd)
+                .orElse(BigDecimal.ZERO);
+        if (entries.size() >= MAX_ENTRIES) {
+            log.debug("Кеш сумм расходов достиг {} записей и очищен", MAX_ENTRIES);
+            entries.clear();
+        }
+        entries.put(key, new Entry(total, loadedAt, new AtomicBoolean()));
+        return total;
+    }
+}
@@ -0,0 +1,175 @@
+package com.abarigena.bankoperation.cache;
+
+import com.abarigena.bankoperation.dto.ExchangeRateDTO;
+import com.abarigena.bankoperation.event.CacheInvalidationEvent;
+import com.abarigena.bankoperation.service.ExchangeRateService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.aot.hint.annotation.RegisterReflectionForBinding;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.support.CronExpression;
+import org.springframework.stereotype.Component;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZonedDateTime;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Кеш сериализованного ответа GET /api/rates/today.
+ * <p>
+ * Курсы на сегодня меняются только при сохранении нового курса, поэтому ответ сериализуется один раз
+ * и хранится в памяти вместе с сильным ETag (SHA-256 тела). Запись сбрасывается
+ * по {@link CacheInvalidationEvent} с типом RATES (новый курс на этом или другом экземпляре) и при смене даты.
+ * <p>
+ * Last-Modified — самое позднее время сохранения курса на сегодня (колонка saved_at), оно одинаково на всех
+ * экземплярах. Ответ считается полным, когда есть курсы для всех пар app.exchange.currencies: до этого курсы
+ * еще могут появиться, и клиентам нельзя кешировать ответ до следующего планового обновления.
+ */
+@RegisterReflectionForBinding(ExchangeRateDTO.class) // Тело ответа сериализуется заранее
+@Component
+public class TodaysRatesResponseCache {
+
+    private static final Logger log = LoggerFactory.getLogger(TodaysRatesResponseCache.class);
+
+    private final ExchangeRateService exchangeRateService;
+    private final ObjectMapper objectMapper;
+    private final CronExpression refreshCron;
+    private final List<String> currencies;
+    private final Clock clock;
+
+    private volatile CachedResponse current;
+    // Увеличивается при каждом сбросе: ответ, собранный до сброса, не попадет в кеш
+    private long generation;
+
+    @Autowired
+    public TodaysRatesResponseCache(ExchangeRateService exchangeRateService,
+                                    ObjectMapper objectMapper,
+                                    @Value("${app.exchange.refresh-cron:0 0 8 * * MON-SUN}") String refreshCron,
+                                    @Value("${app.exchange.currencies:EUR/USD,RUB/USD}") List<String> currencies) {
+        this(exchangeRateService, objectMapper, refreshCron, currencies, Clock.systemDefaultZone());
+    }
+
+    TodaysRatesResponseCache(ExchangeRateService exchangeRateService, ObjectMapper objectMapper,
+                             String refreshCron, List<String> currencies, Clock clock) {
+        this.exchangeRateService = exchangeRateService;
+        this.objectMapper = objectMapper;
+        this.refreshCron = CronExpression.parse(refreshCron);
+        this.currencies = List.copyOf(currencies);
+        this.clock = clock;
+    }
+
+    /**
+     * Возвращает ответ из кеша, при необходимости собирая его заново.
+     *
+     * @return Сериализованный список курсов на сегодня с ETag и Last-Modified.
+     */
+    public CachedResponse get() {
+        LocalDate today = LocalDate.now(clock);
+        CachedResponse cached = current;
+        if (cached != null && cached.date().equals(today)) {
+            return cached;
+        }
+        return rebuild(today);
+    }
+
+    private CachedResponse rebuild(LocalDate today) {
+        long startedGeneration;
+        synchronized (this) {
+            CachedResponse cached = current;
+            if (cached != null && cached.date().equals(today)) {
+                return cached;
+            }
+            startedGeneration = generation;
+        }
+
+        // Чтение из Cassandra вне блокировки
+        ExchangeRateService.TodaysRates todaysRates = exchangeRateService.findTodaysRates();
+        List<ExchangeRateDTO> rates = todaysRates.rates();
+        byte[] body;
+        try {
+            body = objectMapper.writeValueAsBytes(rates);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Не удалось сериализовать курсы на " + today, e);
+        }
+        CachedResponse response = new CachedResponse(today, body, etag(body), todaysRates.lastSavedAt(), isComplete(rates));
+
+        synchronized (this) {
+            if (generation == startedGeneration) {
+                current = response;
+                log.info("Кеш курсов на {} обновлен: {} курсов, ETag {}", today, rates.size(), response.etag());
+            }
+        }
+        return response;
+    }
+
+    /**
+     * Сбрасывает кеш при сохранении нового курса.
+     */
+    @EventListener
+    public void onCacheInvalidation(CacheInvalidationEvent event) {
+        if (event.topic() != CacheInvalidationEvent.Topic.RATES) {
+            return;
+        }
+        synchronized (this) {
+            generation++;
+            current = null;
+        }
+        log.debug("Кеш курсов на сегодня сброшен ({})", event.isFullReset() ? "полностью" : event.key());
+    }
+
+    /**
+     * Время, в течение которого клиент может использовать ответ без повторного запроса:
+     * до ближайшего планового обновления курсов или до полуночи (смена даты), что наступит раньше.
+     *
+     * @return Неотрицательная длительность.
+     */
+    public Duration timeToNextRefresh() {
+        ZonedDateTime now = ZonedDateTime.now(clock);
+        ZonedDateTime nextMidnight = now.toLocalDate().plusDays(1).atStartOfDay(now.getZone());
+        ZonedDateTime nextRefresh = refreshCron.next(now);
+        ZonedDateTime expiresAt = nextRefresh != null && nextRefresh.isBefore(nextMidnight) ? nextRefresh : nextMidnight;
+        Duration remaining = Duration.between(now, expiresAt);
+        return remaining.isNegative() ? Duration.ZERO : remaining;
+    }
+
+    private boolean isComplete(List<ExchangeRateDTO> rates) {
+        Set<String> stored = new HashSet<>();
+        for (ExchangeRateDTO rate : rates) {
+            stored.add(rate.getFromCurrency() + "/" + rate.getToCurrency());
+        }
+        return stored.containsAll(currencies);
+    }
+
+    private static String etag(byte[] body) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(body);
+            return "\"" + Base64.getUrlEncoder().withoutPadding().encodeToString(digest) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 недоступен", e);
+        }
+    }
+
+    /**
+     * Сериализованный ответ.
+     *
+     * @param date Дата, для которой собраны курсы.
+     * @param body Тело ответа (JSON).
+     * @param etag Сильный ETag в кавычках.
+     * @param lastModified Самое позднее время сохранения курса; null, если курсов нет или время не записано.
+     * @param complete Есть ли курсы для всех сконфигурированных пар.
+     */
+    public record CachedResponse(LocalDate date, byte[] body, String etag, Instant lastModified, boolean complete) {
+    }
+}
@@ -0,0 +1,241 @@
+package com.abarigena.bankoperation.client;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongSupplier;
+
+/**
+ * Автоматический выключатель (circuit breaker) вокруг источника курсов.
+ * <p>
+ * В закрытом состоянии запросы идут в источник, исходы последних window-size запросов запоминаются. Если среди них
+ * не меньше min-calls и доля ошибок достигла failure-rate-threshold, выключатель размыкается: в течение open-duration
+ * запросы сразу завершаются {@link CircuitOpenException}, не занимая соединений. Затем пропускаются half-open-calls
+ * пробных запросов: если все успешны, выключатель замыкается, при первой ошибке снова размыкается.
+ * <p>
+ * Ошибка — любой сбой запроса, включая таймауты и отказ пула соединений. Пустой ответ (у источника нет пары) —
+ * успех. Отмененный запрос (например, проигравший подстраховочному в {@link HedgingRateProvider}) не учитывается.
+ * <p>
+ * Метрики: {@code rate.provider.circuit.state} (1 для текущего состояния, теги provider и state)
+ * и {@code rate.provider.calls} (теги provider и outcome: success, failure, rejected).
+ */
+public class CircuitBreakingRateProvider implements RateProvider {
+
+    private static final Logger log = LoggerFactory.getLogger(CircuitBreakingRateProvider.class);
+
+    enum State {CLOSED, OPEN, HALF_OPEN}
+
+    private final RateProvider delegate;
+    private final double failureRateThreshold;
+    private final int minCalls;
+    private final long openNanos;
+    private final int halfOpenCalls;
+    private final LongSupplier nanoClock;
+
+    private final Counter successes;
+    private final Counter failures;
+    private final Counter rejections;
+
+    // Состояние изменяется под монитором this
+    private final boolean[] outcomes;
+    private int nextOutcome;
+    private int recordedOutcomes;
+    private int failedOutcomes;
+    private State state = State.CLOSED;
+    private long epoch;
+    private long openedAt;
+    private int halfOpenPermits;
+    private int halfOpenSucceeded;
+
+    /**
+     * @param delegate             Источник курсов.
+     * @param failureRateThreshold Доля ошибок (0, 1], при которой выключатель размыкается.
+     * @param windowSize           Сколько последних исходов учитывается.
+     * @param minCalls             Минимальное число исходов для решения о размыкании.
+     * @param openDuration         Сколько выключатель остается разомкнутым.
+     * @param halfOpenCalls        Число пробных запросов после размыкания.
+     * @param meterRegistry        Реестр метрик.
+     * @param nanoClock            Источник монотонного времени в наносекундах.
+     */
+    public CircuitBreakingRateProvider(RateProvider delegate, double failureRateThreshold, int windowSize, int minCalls,
+                                       Duration openDuration, int halfOpenCalls, MeterRegistry meterRegistry,
+                                       LongSupplier nanoClock) {
+        if (failureRateThreshold <= 0 || failureRateThreshold > 1 || windowSize < 1 || minCalls < 1
+                || minCalls > windowSize || halfOpenCalls < 1) {
+            throw new IllegalArgumentException("Некорректные параметры выключателя источника курсов " + delegate.name());
+        }
+        this.delegate = delegate;
+        this.failureRateThreshold = failureRateThreshold;
+        this.outcomes = new boolean[windowSize];
+        this.minCalls = minCalls;
+        this.openNanos = openDuration.toNanos();
+        this.halfOpenCalls = halfOpenCalls;
+        this.nanoClock = nanoClock;
+
+        this.successes = callCounter(meterRegistry, "success");
+        this.failures = callCounter(meterRegistry, "failure");
+        this.rejections = callCounter(meterRegistry, "rejected");
+        for (State gaugeState : State.values()) {
+            Gauge.builder("rate.provider.circuit.state", this, p -> p.state() == gaugeState ? 1 : 0)
+                    .tag("provider", delegate.name())
+                    .tag("state", gaugeState.name().toLowerCase())
+                    .register(meterRegistry);
+        }
+    }
+
+    private Counter callCounter(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("rate.provider.calls")
+                .tag("provider", delegate.name())
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Запрос отклонен разомкнутым выключателем, источник не вызывался.
+     */
+    public static class CircuitOpenException extends RuntimeException {
+
+        public CircuitOpenException(String providerName) {
+            super("Источник курсов " + providerName + " временно отключен (circuit breaker)");
+        }
+    }
+
+    @Override
+    public String name() {
+        return delegate.name();
+    }
+
+    @Override
+    public Mono<RateQuote> fetchLatestClose(String fromCurrency, String toCurrency) {
+        return Mono.defer(() -> {
+            long permittedEpoch = tryAcquirePermission();
+            if (permittedEpoch < 0) {
+                rejections.increment();
+                return Mono.error(new CircuitOpenException(delegate.name()));
+            }
+            AtomicBoolean recorded = new AtomicBoolean();
+            return delegate.fetchLatestClose(fromCurrency, toCurrency)
+                    .doOnSuccess(quote -> {
+                        if (recorded.compareAndSet(false, true)) {
+                            successes.increment();
+                            onSuccess(permittedEpoch);
+                        }
+                    })
+                    .doOnError(e -> {
+                        if (recorded.compareAndSet(false, true)) {
+                            failures.increment();
+                            onFailure(permittedEpoch);
+                        }
+                    })
+                    .doOnCancel(() -> {
+                        if (recorded.compareAndSet(false, true)) {
+                            onCancel(permittedEpoch);
+                        }
+                    });
+        });
+    }
+
+    synchronized State state() {
+        return state;
+    }
+
+    /**
+     * @return Эпоха состояния, в которой выдано разрешение, или -1, если запрос не пропущен.
+     */
+    private synchronized long tryAcquirePermission() {
+        if (state == State.OPEN && nanoClock.getAsLong() - openedAt >= openNanos) {
+            transitionTo(State.HALF_OPEN);
+        }
+        return switch (state) {
+            case CLOSED -> epoch;
+            case OPEN -> -1;
+            case HALF_OPEN -> {
+                if (halfOpenPermits == 0) {
+                    yield -1;
+                }
+                halfOpenPermits--;
+                yield epoch;
+            }
+        };
+    }
+
+    // Исходы запросов, начатых до смены состояния, не учитываются
+
+    private synchronized void onSuccess(long callEpoch) {
+        if (callEpoch != epoch) {
+            return;
+        }
+        if (state == State.HALF_OPEN) {
+            if (++halfOpenSucceeded >= halfOpenCalls) {
+                transitionTo(State.CLOSED);
+            }
+        } else if (state == State.CLOSED) {
+            record(false);
+        }
+    }
+
+    private synchronized void onFailure(long callEpoch) {
+        if (callEpoch != epoch) {
+            return;
+        }
+        if (state == State.HALF_OPEN) {
+            transitionTo(State.OPEN);
+        } else if (state == State.CLOSED) {
+            record(true);
+            if (recordedOutcomes >= minCalls && failedOutcomes >= failureRateThreshold * recordedOutcomes) {
+                transitionTo(State.OPEN);
+            }
+        }
+    }
+
+    private synchronized void onCancel(long callEpoch) {
+        if (callEpoch == epoch && state == State.HALF_OPEN) {
+            halfOpenPermits++;
+        }
+    }
+
+    private void record(boolean failed) {
+        if (recordedOutcomes == outcomes.length) {
+            if (outcomes[nextOutcome]) {
+                failedOutcomes--;
+            }
+        } else {
+            recordedOutcomes++;
+        }
+        outcomes[nextOutcome] = failed;
+        if (failed) {
+            failedOutcomes++;
+        }
+        nextOutcome = (nextOutcome + 1) % outcomes.length;
+    }
+
+    private void transitionTo(State target) {
+        State previous = state;
+        state = target;
+        epoch++;
+        switch (target) {
+            case OPEN -> openedAt = nanoClock.getAsLong();
+            case HALF_OPEN -> {
+                halfOpenPermits = halfOpenCalls;
+                halfOpenSucceeded = 0;
+            }
+            case CLOSED -> {
+                nextOutcome = 0;
+                recordedOutcomes = 0;
+                failedOutcomes = 0;
+            }
+        }
+        if (target == State.OPEN) {
+            log.warn("Выключатель источника курсов {}: {} -> {}, запросы отклоняются {} мс",
+                    delegate.name(), previous, target, Duration.ofNanos(openNanos).toMillis());
+        } else {
+            log.info("Выключатель источника курсов {}: {} -> {}", delegate.name(), previous, target);
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.abarigena.bankoperation.client;
+
+import com.abarigena.bankoperation.dto.ExchangeRateDTO;
+import com.abarigena.bankoperation.service.ExchangeRateService;
+import com.abarigena.bankoperation.store.entity.ExchangeRate;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Загружает дневные курсы сконфигурированных пар из источника курсов ({@link RateProvider}) и сохраняет новые.
+ */
+@Component
+@RequiredArgsConstructor
+@DependsOn("legacyExchangeRateMigration") // Старые курсы должны быть перенесены до первой загрузки
+public class ExchangeRateUpdater {
+    private final RateProvider rateProvider;
+    private final ExchangeRateService exchangeRateService;
+
+    private static final Logger log = LoggerFactory.getLogger(ExchangeRateUpdater.class);
+
+    @Value("${app.exchange.currencies:EUR/USD,RUB/USD}")
+    private List<String> currencies;
+
+    @Value("${app.exchange.refresh-timeout:5m}")
+    private Duration refreshTimeout;
+
+    /**
+     * Загружает курсы для всех сконфигурированных пар и сохраняет новые.
+     * Возвращает управление только после завершения загрузки, чтобы аренда задачи
+     * (см. ExchangeRateRefreshJob) удерживалась на все время обновления.
+     *
+     * @throws IllegalStateException если хотя бы для одной пары источник курса не дал: полученные курсы
+     *                               сохранены, а запуск должен быть повторен.
+     */
+    public void updateExchangeRates() {
+
+        log.info("Начало обновления курсов валют для {} пар", currencies.size());
+
+        List<ExchangeRate> rates = Flux.fromIterable(currencies)
+                .flatMap(pair -> {
+                    String[] currencyPair = pair.split("/");
+                    log.debug("Загрузка курса для валютной пары: {}", pair);
+                    return fetchExchangeRate(currencyPair[0], currencyPair[1]);
+                })
+                .collectList()
+                .block(refreshTimeout);
+
+        // Запись в Cassandra выполняется в вызывающем потоке, а не в потоке обработки HTTP-ответов
+        int savedCount = 0;
+        Set<String> received = new HashSet<>();
+        for (ExchangeRate exchangeRate : rates != null ? rates : List.<ExchangeRate>of()) {
+            received.add(exchangeRate.getFromCurrency() + "/" + exchangeRate.getToCurrency());
+            if (exchangeRateService.saveExchangeRateIfNotExists(exchangeRate)) {
+                savedCount++;
+                log.info("Новый курс сохранен для пары {}/{}", exchangeRate.getFromCurrency(), exchangeRate.getToCurrency());
+            }
+        }
+
+        log.info("Завершено обновление курсов валют, сохранено новых курсов: {}", savedCount);
+        List<String> missing = currencies.stream().filter(pair -> !received.contains(pair)).toList();
+        if (!missing.isEmpty()) {
+            throw new IllegalStateException("Источник " + rateProvider.name() + " не вернул курсы для пар " + missing);
+        }
+    }
+
+    /**
+     * Проверяет, есть ли в хранилище курсы на сегодня для всех сконфигурированных пар.
+     *
+     * @return true, если хотя бы для одной пары курса на сегодня нет.
+     */
+    public boolean isTodaysRatesMissing() {
+        Set<String> stored = new HashSet<>();
+        for (ExchangeRateDTO rate : exchangeRateService.getTodaysExchangeRates()) {
+            stored.add(rate.getFromCurrency() + "/" + rate.getToCurrency());
+        }
+        return !stored.containsAll(currencies);
+    }
+
+    /**
+     * Запрашивает курс пары у источника. Если источник курса не дал, результат пустой: последний
+     * сохраненный курс на сегодня не копируется (при чтении он и так используется, см.
+     * ExchangeRateService#findRateOptional), чтобы повторный запуск мог сохранить настоящий курс.
+     */
+    Mono<ExchangeRate> fetchExchangeRate(String fromCurrency, String toCurrency) {
+        log.debug("Запрос курса для {} -> {}", fromCurrency, toCurrency);
+
+        return rateProvider.fetchLatestClose(fromCurrency, toCurrency)
+                .map(quote -> {
+                    // Получаем предыдущий курс для previousClosePrice, используя findRateOptional
+                    BigDecimal previousClosePrice = exchangeRateService.findRateOptional(
+                                    fromCurrency,
+                                    toCurrency,
+                                    LocalDate.now().minusDays(1)
+                            )
+                            .orElse(quote.closePrice()); // Если не найден, используем текущий
+
+                    ExchangeRate rate = ExchangeRate.builder()
+                            .fromCurrency(fromCurrency)
+                            .toCurrency(toCurrency)
+                            .date(LocalDate.now())
+                            .closePrice(quote.closePrice())
+                            .previousClosePrice(previousClosePrice)
+                            .build();
+
+                    log.info("Получен курс от {} для {} -> {}: закрытие={}, предыдущее закрытие={}",
+                            quote.provider(), fromCurrency, toCurrency, rate.getClosePrice(), rate.getPreviousClosePrice());
+                    return rate;
+                })
+                .switchIfEmpty(Mono.defer(() -> {
+                    log.warn("Источник {} не вернул курс для {} -> {}", rateProvider.name(), fromCurrency, toCurrency);
+                    return Mono.empty();
+                }))
+                .onErrorResume(ex -> {
+                    log.error("Ошибка при получении курса: {}", ex.getMessage());
+                    return Mono.empty();
+                });
+    }
+}
@@ -0,0 +1,66 @@
+package com.abarigena.bankoperation.client;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+
+/**
+ * Курсы из локального файла app.exchange.providers.file.path в формате properties: {@code EUR/USD=1.0825}.
+ * Файл перечитывается при каждом запросе, поэтому курсы можно менять без перезапуска.
+ * Используется как резервный источник и как заглушка в тестах и на стендах без доступа к внешнему API.
+ */
+@Component
+@ConditionalOnProperty("app.exchange.providers.file.path")
+public class FileRateProvider implements RateProvider {
+
+    private static final Logger log = LoggerFactory.getLogger(FileRateProvider.class);
+
+    static final String NAME = "file";
+
+    private final Path path;
+
+    public FileRateProvider(@Value("${app.exchange.providers.file.path}") Path path) {
+        this.path = path;
+    }
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public Mono<RateQuote> fetchLatestClose(String fromCurrency, String toCurrency) {
+        return Mono.fromCallable(() -> {
+                    String close = load().getProperty(fromCurrency + "/" + toCurrency);
+                    if (close == null) {
+                        log.debug("В файле курсов {} нет пары {}/{}", path, fromCurrency, toCurrency);
+                        return null;
+                    }
+                    return new RateQuote(NAME, new BigDecimal(close.trim()));
+                })
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private Properties load() {
+        Properties rates = new Properties();
+        try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            rates.load(reader);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось прочитать файл курсов " + path, e);
+        }
+        return rates;
+    }
+}
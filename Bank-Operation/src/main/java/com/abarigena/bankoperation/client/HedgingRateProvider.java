@@ -0,0 +1,146 @@
+package com.abarigena.bankoperation.client;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Источник курсов, опрашивающий несколько источников с подстраховкой (hedged requests).
+ * <p>
+ * Запрос идет к первому источнику. Если тот не ответил за свой перцентиль задержки (app.exchange.providers.hedge.percentile
+ * по последним успешным ответам, но не меньше min-delay), параллельно отправляется запрос к следующему; если источник
+ * ответил ошибкой или без курса, следующий опрашивается сразу. Берется первый полученный курс, остальные запросы
+ * отменяются. Пока ответов источника меньше min-samples, порогом служит initial-delay.
+ */
+public class HedgingRateProvider implements RateProvider {
+
+    private static final Logger log = LoggerFactory.getLogger(HedgingRateProvider.class);
+
+    private final List<RateProvider> providers;
+    private final Map<String, LatencyWindow> latencies = new HashMap<>();
+    private final double percentile;
+    private final Duration minDelay;
+    private final Duration initialDelay;
+    private final int minSamples;
+
+    public HedgingRateProvider(List<RateProvider> providers, double percentile, Duration minDelay,
+                               Duration initialDelay, int minSamples, int windowSize) {
+        if (providers.isEmpty()) {
+            throw new IllegalArgumentException("Не задан ни один источник курсов");
+        }
+        if (percentile <= 0 || percentile > 1) {
+            throw new IllegalArgumentException("app.exchange.providers.hedge.percentile должен быть в (0, 1]: " + percentile);
+        }
+        this.providers = List.copyOf(providers);
+        this.percentile = percentile;
+        this.minDelay = minDelay;
+        this.initialDelay = initialDelay;
+        this.minSamples = minSamples;
+        for (RateProvider provider : providers) {
+            latencies.put(provider.name(), new LatencyWindow(windowSize));
+        }
+    }
+
+    @Override
+    public String name() {
+        return providers.stream().map(RateProvider::name).collect(Collectors.joining(",", "hedged(", ")"));
+    }
+
+    @Override
+    public Mono<RateQuote> fetchLatestClose(String fromCurrency, String toCurrency) {
+        return fetchFrom(0, fromCurrency, toCurrency);
+    }
+
+    private Mono<RateQuote> fetchFrom(int index, String fromCurrency, String toCurrency) {
+        RateProvider provider = providers.get(index);
+        Mono<RateQuote> attempt = attempt(provider, fromCurrency, toCurrency);
+        if (index == providers.size() - 1) {
+            return attempt;
+        }
+
+        // Следующий источник стартует по порогу задержки или сразу, если этот закончил без курса
+        Sinks.Empty<Void> finished = Sinks.empty();
+        Duration delay = hedgeDelay(provider);
+        Mono<Void> trigger = Mono.firstWithSignal(Mono.delay(delay).then(), finished.asMono());
+        Mono<RateQuote> next = trigger.then(Mono.defer(() -> {
+            log.debug("Подстраховочный запрос курса {}/{}: {} не ответил за {}",
+                    fromCurrency, toCurrency, provider.name(), delay);
+            return fetchFrom(index + 1, fromCurrency, toCurrency);
+        }));
+
+        return Flux.merge(attempt.doFinally(signal -> finished.tryEmitEmpty()), next).next();
+    }
+
+    /**
+     * Запрос к одному источнику: ошибка и пустой ответ означают «курса нет», время успешных ответов учитывается.
+     */
+    private Mono<RateQuote> attempt(RateProvider provider, String fromCurrency, String toCurrency) {
+        return Mono.defer(() -> {
+            long started = System.nanoTime();
+            return provider.fetchLatestClose(fromCurrency, toCurrency)
+                    .filter(quote -> quote.closePrice() != null && quote.closePrice().signum() > 0)
+                    .doOnNext(quote -> recordLatency(provider.name(), Duration.ofNanos(System.nanoTime() - started)))
+                    .onErrorResume(CircuitBreakingRateProvider.CircuitOpenException.class, e -> {
+                        log.debug("{}: пара {}/{} запрошена у следующего источника", e.getMessage(), fromCurrency, toCurrency);
+                        return Mono.empty();
+                    })
+                    .onErrorResume(e -> {
+                        log.warn("Источник курсов {} не ответил для {}/{}: {}",
+                                provider.name(), fromCurrency, toCurrency, e.getMessage());
+                        return Mono.empty();
+                    });
+        });
+    }
+
+    void recordLatency(String providerName, Duration latency) {
+        latencies.get(providerName).add(latency.toNanos());
+    }
+
+    /**
+     * Порог, после которого к запросу в источник добавляется запрос к следующему.
+     */
+    Duration hedgeDelay(RateProvider provider) {
+        LatencyWindow window = latencies.get(provider.name());
+        long[] samples = window.snapshot();
+        if (samples.length < minSamples) {
+            return initialDelay;
+        }
+        Arrays.sort(samples);
+        int rank = (int) Math.ceil(percentile * samples.length) - 1;
+        Duration observed = Duration.ofNanos(samples[Math.max(rank, 0)]);
+        return observed.compareTo(minDelay) > 0 ? observed : minDelay;
+    }
+
+    /**
+     * Последние windowSize задержек успешных ответов источника.
+     */
+    private static final class LatencyWindow {
+
+        private final long[] samples;
+        private int next;
+        private int size;
+
+        private LatencyWindow(int windowSize) {
+            this.samples = new long[windowSize];
+        }
+
+        synchronized void add(long nanos) {
+            samples[next] = nanos;
+            next = (next + 1) % samples.length;
+            size = Math.min(size + 1, samples.length);
+        }
+
+        synchronized long[] snapshot() {
+            return Arrays.copyOf(samples, size);
+        }
+    }
+}
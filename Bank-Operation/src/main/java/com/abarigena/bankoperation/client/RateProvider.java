@@ -0,0 +1,25 @@
+package com.abarigena.bankoperation.client;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Источник дневных курсов валют для обновления курсов (см. {@link ExchangeRateUpdater}).
+ * Реализации: {@link TwelveDataRateProvider}, {@link FileRateProvider}; несколько источников
+ * объединяет {@link HedgingRateProvider}.
+ */
+public interface RateProvider {
+
+    /**
+     * @return Имя источника в app.exchange.providers.order и в журнале.
+     */
+    String name();
+
+    /**
+     * Запрашивает последний курс закрытия пары.
+     *
+     * @param fromCurrency Валюта, из которой конвертируют.
+     * @param toCurrency   Валюта, в которую конвертируют.
+     * @return Курс; пустой Mono, если источник не знает курса пары; Mono.error при сбое запроса.
+     */
+    Mono<RateQuote> fetchLatestClose(String fromCurrency, String toCurrency);
+}
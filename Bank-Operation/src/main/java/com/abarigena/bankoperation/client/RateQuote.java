@@ -0,0 +1,12 @@
+package com.abarigena.bankoperation.client;
+
+import java.math.BigDecimal;
+
+/**
+ * Курс закрытия, полученный от источника курсов.
+ *
+ * @param provider   Имя источника, ответ которого использован.
+ * @param closePrice Курс закрытия (сколько единиц второй валюты за 1 единицу первой).
+ */
+public record RateQuote(String provider, BigDecimal closePrice) {
+}
@@ -0,0 +1,65 @@
+package com.abarigena.bankoperation.client;
+
+import com.abarigena.bankoperation.dto.TwelveDataExchangeRateDTO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.aot.hint.annotation.RegisterReflectionForBinding;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+
+/**
+ * Курсы из API Twelve Data (/time_series, дневной интервал).
+ */
+@RegisterReflectionForBinding(TwelveDataExchangeRateDTO.class) // Ответ API читается вне контроллеров
+@Component
+public class TwelveDataRateProvider implements RateProvider {
+
+    private static final Logger log = LoggerFactory.getLogger(TwelveDataRateProvider.class);
+
+    static final String NAME = "twelve-data";
+
+    private final WebClient webClient;
+    private final String apiKey;
+
+    public TwelveDataRateProvider(WebClient webClient, @Value("${twelvedata.api.key}") String apiKey) {
+        this.webClient = webClient;
+        this.apiKey = apiKey;
+    }
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public Mono<RateQuote> fetchLatestClose(String fromCurrency, String toCurrency) {
+        log.debug("Запрос курса Twelve Data для {} -> {}", fromCurrency, toCurrency);
+
+        return webClient.get()
+                .uri(uriBuilder -> uriBuilder
+                        .path("/time_series")
+                        .queryParam("symbol", fromCurrency + "/" + toCurrency)
+                        .queryParam("interval", "1day")
+                        .queryParam("outputsize", "1")
+                        .queryParam("apikey", apiKey)
+                        .build())
+                .retrieve()
+                .bodyToMono(TwelveDataExchangeRateDTO.class)
+                .flatMap(dto -> {
+                    if (dto.getValues() == null || dto.getValues().isEmpty()) {
+                        log.warn("API Twelve Data не вернуло данных для {} -> {}", fromCurrency, toCurrency);
+                        return Mono.empty();
+                    }
+                    TwelveDataExchangeRateDTO.Value value = dto.getValues().get(0);
+                    if (value.getClose() == null) {
+                        log.error("API Twelve Data вернуло запись, но поле 'close' равно null для {} -> {}", fromCurrency, toCurrency);
+                        return Mono.empty();
+                    }
+                    return Mono.just(new RateQuote(NAME, new BigDecimal(value.getClose())));
+                });
+    }
+}
@@ -0,0 +1,84 @@
+package com.abarigena.bankoperation.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.task.ThreadPoolTaskExecutorBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Пулы потоков для фоновых и параллельных операций приложения.
+ */
+@Configuration
+@EnableAsync
+public class AsyncConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(AsyncConfig.class);
+
+    /**
+     * Общий пул приложения (асинхронные запросы Spring MVC, @Async без имени пула).
+     * Spring Boot не создает его сам, если в контексте есть другие Executor, поэтому объявлен явно
+     * с настройками spring.task.execution.
+     */
+    @Bean(name = {"applicationTaskExecutor", "taskExecutor"})
+    public ThreadPoolTaskExecutor applicationTaskExecutor(ThreadPoolTaskExecutorBuilder builder) {
+        return builder.build();
+    }
+
+    /**
+     * Пул для параллельного поиска курсов при пакетной конвертации.
+     * Размер ограничен, чтобы большой пакет не занял все соединения к Cassandra.
+     */
+    @Bean(name = "rateLookupExecutor")
+    public ThreadPoolTaskExecutor rateLookupExecutor(@Value("${app.rates.lookup-concurrency:8}") int concurrency) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(concurrency);
+        executor.setMaxPoolSize(concurrency);
+        executor.setThreadNamePrefix("rate-lookup-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+
+    /**
+     * Пул для асинхронной записи проекций (read model) после коммита транзакции.
+     * При заполненной очереди запись выполняется в вызывающем потоке: событие не теряется.
+     */
+    @Bean(name = "projectionExecutor")
+    public ThreadPoolTaskExecutor projectionExecutor(@Value("${app.exceeded-projection.writer-threads:2}") int threads,
+                                                     @Value("${app.exceeded-projection.queue-capacity:10000}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setThreadNamePrefix("projection-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+
+    /**
+     * Пул для отправки превышений лимита другим экземплярам (см. CacheInvalidationBus) после коммита.
+     * При заполненной очереди оповещение отбрасывается: поток вызывающего держит соединение завершенной
+     * транзакции, а подписчики SSE пропуск допускают.
+     */
+    @Bean(name = "busNotifyExecutor")
+    public ThreadPoolTaskExecutor busNotifyExecutor(@Value("${app.cache-bus.notify-queue-capacity:10000}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setRejectedExecutionHandler((task, pool) ->
+                log.warn("Очередь отправки превышений другим экземплярам заполнена, оповещение пропущено"));
+        executor.setThreadNamePrefix("bus-notify-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+}
@@ -0,0 +1,22 @@
+package com.abarigena.bankoperation.config;
+
+import com.datastax.oss.driver.api.core.CqlSessionBuilder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Сессия Cassandra вместо сессии Spring Boot: с теми же настройками spring.cassandra.*,
+ * но переоткрываемая вокруг checkpoint/restore (см. {@link ReconnectableCqlSession}).
+ */
+@Configuration
+public class CassandraSessionConfig {
+
+    /**
+     * Каждое открытие берет новый CqlSessionBuilder (prototype) из автоконфигурации Spring Boot.
+     */
+    @Bean
+    public ReconnectableCqlSession cassandraSession(ObjectProvider<CqlSessionBuilder> sessionBuilder) {
+        return new ReconnectableCqlSession(() -> sessionBuilder.getObject().build());
+    }
+}
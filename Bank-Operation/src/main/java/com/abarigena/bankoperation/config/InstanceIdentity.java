@@ -0,0 +1,75 @@
+package com.abarigena.bankoperation.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+
+/**
+ * Идентификатор экземпляра приложения в кластере.
+ * Используется шиной сброса кешей и арендами плановых задач:
+ * значение из app.instance-id или, если оно не задано, имя хоста со случайным суффиксом.
+ * <p>
+ * Сгенерированный идентификатор вычисляется заново после restore из checkpoint (CRaC):
+ * экземпляры, восстановленные из одного снимка, не должны считать друг друга собой.
+ */
+@Component
+public class InstanceIdentity implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(InstanceIdentity.class);
+
+    private final boolean configured;
+    private volatile String id;
+    private volatile boolean running;
+    private volatile boolean stopped;
+
+    public InstanceIdentity(@Value("${app.instance-id:}") String configuredId) {
+        this.configured = configuredId != null && !configuredId.isBlank();
+        this.id = configured ? configuredId : generate();
+    }
+
+    private static String generate() {
+        String host = System.getenv("HOSTNAME");
+        String suffix = UUID.randomUUID().toString().substring(0, 8);
+        return host != null && !host.isBlank() ? host + "-" + suffix : suffix;
+    }
+
+    /**
+     * @return Идентификатор экземпляра.
+     */
+    public String getId() {
+        return id;
+    }
+
+    @Override
+    public void start() {
+        if (stopped && !configured) {
+            // Повторный запуск контекста — восстановление из checkpoint
+            id = generate();
+            log.info("Новый идентификатор экземпляра после восстановления: {}", id);
+        }
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        stopped = true;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Запускается раньше компонентов, которые используют идентификатор.
+     */
+    @Override
+    public int getPhase() {
+        return Integer.MIN_VALUE;
+    }
+}
@@ -0,0 +1,77 @@
+package com.abarigena.bankoperation.config;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.http.client.ReactorResourceFactory;
+import org.springframework.http.client.reactive.ClientHttpConnector;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+import reactor.netty.resources.LoopResources;
+
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Собственные пул соединений и event loop Reactor Netty для одного внешнего API, отдельные от общих ресурсов
+ * WebClient Spring Boot: сбой внешнего API не занимает чужие соединения и потоки.
+ * <p>
+ * Ресурсы закрываются при остановке контекста и создаются заново при запуске, в том числе вокруг
+ * checkpoint/restore (CRaC). Класс не является {@link ReactorResourceFactory} или {@link ClientHttpConnector}
+ * в контексте, чтобы не заменять ими общие бины Spring Boot.
+ */
+public class IsolatedHttpResources implements SmartLifecycle, DisposableBean {
+
+    private final ReactorResourceFactory resourceFactory;
+    private final ReactorClientHttpConnector connector;
+
+    /**
+     * @param name               Имя пула и префикс потоков event loop.
+     * @param eventLoopThreads   Число потоков event loop.
+     * @param connectionProvider Создает пул соединений (при каждом запуске заново).
+     * @param httpClientMapper   Настройка HttpClient (таймауты).
+     */
+    public IsolatedHttpResources(String name, int eventLoopThreads, Supplier<ConnectionProvider> connectionProvider,
+                                 Function<HttpClient, HttpClient> httpClientMapper) {
+        this.resourceFactory = new ReactorResourceFactory();
+        this.resourceFactory.setUseGlobalResources(false);
+        this.resourceFactory.setConnectionProviderSupplier(connectionProvider);
+        this.resourceFactory.setLoopResourcesSupplier(() -> LoopResources.create(name, eventLoopThreads, true));
+        this.resourceFactory.afterPropertiesSet();
+        this.connector = new ReactorClientHttpConnector(resourceFactory, httpClientMapper);
+    }
+
+    /**
+     * @return Коннектор для WebClient.Builder#clientConnector.
+     */
+    public ClientHttpConnector connector() {
+        return connector;
+    }
+
+    @Override
+    public void start() {
+        resourceFactory.start();
+        connector.start();
+    }
+
+    @Override
+    public void stop() {
+        connector.stop();
+        resourceFactory.stop();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return resourceFactory.isRunning();
+    }
+
+    @Override
+    public int getPhase() {
+        return resourceFactory.getPhase();
+    }
+
+    @Override
+    public void destroy() {
+        resourceFactory.destroy();
+    }
+}
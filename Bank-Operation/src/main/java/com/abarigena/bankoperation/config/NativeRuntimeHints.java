@@ -0,0 +1,75 @@
+package com.abarigena.bankoperation.config;
+
+import ch.qos.logback.classic.AsyncAppender;
+import ch.qos.logback.classic.filter.ThresholdFilter;
+import ch.qos.logback.core.rolling.RollingFileAppender;
+import ch.qos.logback.core.rolling.SizeAndTimeBasedRollingPolicy;
+import com.abarigena.bankoperation.dto.LimitExceededTransactionDTO;
+import com.abarigena.bankoperation.logging.LogSamplingTurboFilter;
+import com.abarigena.bankoperation.store.entity.Transaction;
+import com.abarigena.bankoperation.store.migration.SpendingRollupZoneBackfill;
+import liquibase.change.AddColumnConfig;
+import liquibase.change.ColumnConfig;
+import liquibase.change.ConstraintsConfig;
+import liquibase.change.core.AddColumnChange;
+import liquibase.change.core.AddPrimaryKeyChange;
+import liquibase.change.core.AddUniqueConstraintChange;
+import liquibase.change.core.CreateIndexChange;
+import liquibase.change.core.CreateTableChange;
+import liquibase.change.core.ModifyDataTypeChange;
+import liquibase.change.core.RawSQLChange;
+import liquibase.change.custom.CustomChangeWrapper;
+import liquibase.precondition.core.DBMSPrecondition;
+import liquibase.precondition.core.PreconditionContainer;
+import net.logstash.logback.encoder.LogstashEncoder;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+
+/**
+ * Метаданные доступности для сборки native-image (профиль native), которые не выводятся автоматически.
+ * <p>
+ * Spring AOT сам регистрирует сущности JPA и Cassandra, репозитории, прокси @Transactional/@Async,
+ * сгенерированные MapStruct мапперы (обычные компоненты) и типы из сигнатур контроллеров. Lombok
+ * генерирует код на этапе компиляции и отражения во время выполнения не требует. Драйвер Cassandra
+ * и springdoc поставляют собственные метаданные. DTO, которые Jackson читает или пишет вне контроллеров,
+ * помечены {@link org.springframework.aot.hint.annotation.RegisterReflectionForBinding} по месту использования.
+ * <p>
+ * Здесь остается то, что создается по имени из строк: changelog Liquibase и его элементы,
+ * конструкторы из выражений {@code SELECT new ...} в JPQL и классы из logback-spring.xml.
+ */
+public class NativeRuntimeHints implements RuntimeHintsRegistrar {
+
+    static final String CHANGELOG_PATTERN = "db/changelog/*.xml";
+
+    @Override
+    public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+        // Liquibase: changelog, XSD для проверки схемы и классы элементов changelog (заполняются через сеттеры)
+        hints.resources()
+                .registerPattern(CHANGELOG_PATTERN)
+                .registerPattern("www.liquibase.org/xml/ns/dbchangelog/*.xsd")
+                .registerPattern("liquibase.build.properties");
+        for (Class<?> type : new Class<?>[]{
+                CreateTableChange.class, AddColumnChange.class, AddPrimaryKeyChange.class,
+                AddUniqueConstraintChange.class, CreateIndexChange.class, ModifyDataTypeChange.class,
+                RawSQLChange.class, ColumnConfig.class, AddColumnConfig.class, ConstraintsConfig.class,
+                PreconditionContainer.class, DBMSPrecondition.class, CustomChangeWrapper.class,
+                SpendingRollupZoneBackfill.class}) {
+            hints.reflection().registerType(type, MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS,
+                    MemberCategory.INVOKE_PUBLIC_METHODS, MemberCategory.DECLARED_FIELDS);
+        }
+
+        // Hibernate вызывает конструкторы из SELECT new ... через отражение
+        hints.reflection()
+                .registerType(LimitExceededTransactionDTO.class, MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS)
+                .registerType(Transaction.class, MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS);
+
+        // logback-spring.xml: Joran создает классы по имени и настраивает их через сеттеры
+        for (Class<?> type : new Class<?>[]{
+                LogSamplingTurboFilter.class, LogstashEncoder.class, RollingFileAppender.class,
+                SizeAndTimeBasedRollingPolicy.class, AsyncAppender.class, ThresholdFilter.class}) {
+            hints.reflection().registerType(type, MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS,
+                    MemberCategory.INVOKE_PUBLIC_METHODS);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.abarigena.bankoperation.config;
+
+import com.abarigena.bankoperation.client.CircuitBreakingRateProvider;
+import com.abarigena.bankoperation.client.HedgingRateProvider;
+import com.abarigena.bankoperation.client.RateProvider;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Источник курсов для обновления курсов: источники из app.exchange.providers.order, опрашиваемые по порядку
+ * с подстраховкой ({@link HedgingRateProvider}). Каждый источник обернут своим выключателем
+ * ({@link CircuitBreakingRateProvider}), поэтому отказавший источник сразу пропускается.
+ */
+@Configuration
+public class RateProviderConfig {
+
+    /**
+     * @param available Все источники курсов в контексте (Twelve Data и, если задан app.exchange.providers.file.path, файл).
+     */
+    @Bean
+    @Primary
+    public HedgingRateProvider rateProvider(List<RateProvider> available,
+                                            @Value("${app.exchange.providers.order:twelve-data}") List<String> order,
+                                            @Value("${app.exchange.providers.hedge.percentile:0.95}") double percentile,
+                                            @Value("${app.exchange.providers.hedge.min-delay:200ms}") Duration minDelay,
+                                            @Value("${app.exchange.providers.hedge.initial-delay:2s}") Duration initialDelay,
+                                            @Value("${app.exchange.providers.hedge.min-samples:20}") int minSamples,
+                                            @Value("${app.exchange.providers.hedge.window-size:256}") int windowSize,
+                                            @Value("${app.exchange.providers.circuit-breaker.failure-rate-threshold:0.5}") double failureRateThreshold,
+                                            @Value("${app.exchange.providers.circuit-breaker.window-size:20}") int breakerWindowSize,
+                                            @Value("${app.exchange.providers.circuit-breaker.min-calls:6}") int minCalls,
+                                            @Value("${app.exchange.providers.circuit-breaker.open-duration:1m}") Duration openDuration,
+                                            @Value("${app.exchange.providers.circuit-breaker.half-open-calls:2}") int halfOpenCalls,
+                                            MeterRegistry meterRegistry) {
+        Map<String, RateProvider> byName = new LinkedHashMap<>();
+        for (RateProvider provider : available) {
+            byName.put(provider.name(), provider);
+        }
+        List<RateProvider> ordered = new ArrayList<>();
+        for (String name : order) {
+            RateProvider provider = byName.get(name.trim());
+            if (provider == null) {
+                throw new IllegalStateException("Источник курсов '" + name.trim() + "' из app.exchange.providers.order "
+                        + "не найден; доступны: " + byName.keySet());
+            }
+            ordered.add(new CircuitBreakingRateProvider(provider, failureRateThreshold, breakerWindowSize, minCalls,
+                    openDuration, halfOpenCalls, meterRegistry, System::nanoTime));
+        }
+        return new HedgingRateProvider(ordered, percentile, minDelay, initialDelay, minSamples, windowSize);
+    }
+}
@@ -0,0 +1,190 @@
+package com.abarigena.bankoperation.config;
+
+import com.datastax.oss.driver.api.core.CqlIdentifier;
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.context.DriverContext;
+import com.datastax.oss.driver.api.core.metadata.Metadata;
+import com.datastax.oss.driver.api.core.metrics.Metrics;
+import com.datastax.oss.driver.api.core.session.Request;
+import com.datastax.oss.driver.api.core.type.reflect.GenericType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Supplier;
+
+/**
+ * Сессия Cassandra, которую можно закрыть и открыть заново, не пересоздавая бины, которые ее используют.
+ * <p>
+ * Драйвер не умеет переживать checkpoint/restore (CRaC): соединения с узлами после восстановления недействительны.
+ * Spring останавливает бины {@link SmartLifecycle} перед checkpoint и запускает после restore, поэтому
+ * {@link #stop()} закрывает текущую сессию, а {@link #start()} открывает новую. Запросы между ними
+ * открывают сессию сами. Подготовленные запросы не переносятся: драйвер подготавливает их заново
+ * в новой сессии при первом выполнении.
+ * <p>
+ * Сессия открывается при первом обращении — как и бин сессии Spring Boot, ее использует создание схемы
+ * (spring.cassandra.schema-action) до запуска Lifecycle-бинов.
+ */
+public class ReconnectableCqlSession implements CqlSession, SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(ReconnectableCqlSession.class);
+
+    /**
+     * Запускается раньше и останавливается позже веб-сервера и планировщиков, которые обращаются к Cassandra.
+     */
+    static final int PHASE = SmartLifecycle.DEFAULT_PHASE - 4096;
+
+    private final Supplier<CqlSession> connector;
+    private final CompletableFuture<Void> closeFuture = new CompletableFuture<>();
+
+    private volatile CqlSession delegate;
+    private volatile boolean running;
+    private volatile boolean closed;
+
+    public ReconnectableCqlSession(Supplier<CqlSession> connector) {
+        this.connector = connector;
+    }
+
+    /**
+     * @return Открытая сессия; при необходимости открывается новая.
+     * @throws IllegalStateException если сессия закрыта окончательно.
+     */
+    CqlSession delegate() {
+        CqlSession current = delegate;
+        if (current != null) {
+            return current;
+        }
+        synchronized (this) {
+            if (closed) {
+                throw new IllegalStateException("Сессия Cassandra закрыта");
+            }
+            if (delegate == null) {
+                delegate = connector.get();
+                log.info("Открыта сессия Cassandra {}", delegate.getName());
+            }
+            return delegate;
+        }
+    }
+
+    @Override
+    public void start() {
+        if (!closed) {
+            // После restore соединения открываются сразу, а не на первом запросе
+            delegate();
+            running = true;
+        }
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        CqlSession current;
+        synchronized (this) {
+            current = delegate;
+            delegate = null;
+        }
+        if (current != null) {
+            current.close();
+            log.info("Сессия Cassandra {} закрыта до следующего запуска", current.getName());
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return PHASE;
+    }
+
+    // --- Session ---
+
+    @Override
+    public String getName() {
+        return delegate().getName();
+    }
+
+    @Override
+    public Metadata getMetadata() {
+        return delegate().getMetadata();
+    }
+
+    @Override
+    public boolean isSchemaMetadataEnabled() {
+        return delegate().isSchemaMetadataEnabled();
+    }
+
+    @Override
+    public CompletionStage<Metadata> setSchemaMetadataEnabled(Boolean newValue) {
+        return delegate().setSchemaMetadataEnabled(newValue);
+    }
+
+    @Override
+    public CompletionStage<Metadata> refreshSchemaAsync() {
+        return delegate().refreshSchemaAsync();
+    }
+
+    @Override
+    public CompletionStage<Boolean> checkSchemaAgreementAsync() {
+        return delegate().checkSchemaAgreementAsync();
+    }
+
+    @Override
+    public DriverContext getContext() {
+        return delegate().getContext();
+    }
+
+    @Override
+    public Optional<CqlIdentifier> getKeyspace() {
+        return delegate().getKeyspace();
+    }
+
+    @Override
+    public Optional<Metrics> getMetrics() {
+        return delegate().getMetrics();
+    }
+
+    @Override
+    public <RequestT extends Request, ResultT> ResultT execute(RequestT request, GenericType<ResultT> resultType) {
+        return delegate().execute(request, resultType);
+    }
+
+    // --- Окончательное закрытие (остановка приложения) ---
+
+    @Override
+    public CompletionStage<Void> closeFuture() {
+        return closeFuture;
+    }
+
+    @Override
+    public CompletionStage<Void> closeAsync() {
+        return closeFinally(false);
+    }
+
+    @Override
+    public CompletionStage<Void> forceCloseAsync() {
+        return closeFinally(true);
+    }
+
+    private CompletionStage<Void> closeFinally(boolean force) {
+        CqlSession current;
+        synchronized (this) {
+            closed = true;
+            running = false;
+            current = delegate;
+            delegate = null;
+        }
+        if (current == null) {
+            closeFuture.complete(null);
+        } else {
+            (force ? current.forceCloseAsync() : current.closeAsync())
+                    .whenComplete((ignored, error) -> closeFuture.complete(null));
+        }
+        return closeFuture;
+    }
+}
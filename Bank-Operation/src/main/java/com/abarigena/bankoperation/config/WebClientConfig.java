@@ -1,19 +1,56 @@
 package com.abarigena.bankoperation.config;
 
+import io.netty.channel.ChannelOption;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
 
 @Configuration
 public class WebClientConfig {
     @Value("${twelvedata.api.base-url}")
     private String baseUrl;
 
+    /**
+     * Пул соединений и потоки для Twelve Data, отдельные от общих ресурсов Reactor Netty.
+     * Когда все max-connections заняты, запрос ждет соединения не дольше pending-acquire-timeout, а в очереди
+     * ожидания не больше pending-acquire-max запросов; остальные сразу завершаются ошибкой.
+     */
+    @Bean
+    public IsolatedHttpResources twelveDataHttpResources(
+            @Value("${twelvedata.http.connect-timeout:2s}") Duration connectTimeout,
+            @Value("${twelvedata.http.read-timeout:5s}") Duration readTimeout,
+            @Value("${twelvedata.http.max-connections:8}") int maxConnections,
+            @Value("${twelvedata.http.pending-acquire-max:16}") int pendingAcquireMax,
+            @Value("${twelvedata.http.pending-acquire-timeout:2s}") Duration pendingAcquireTimeout,
+            @Value("${twelvedata.http.max-idle-time:30s}") Duration maxIdleTime,
+            @Value("${twelvedata.http.event-loop-threads:2}") int eventLoopThreads) {
+        return new IsolatedHttpResources("twelve-data", eventLoopThreads,
+                () -> ConnectionProvider.builder("twelve-data")
+                        .maxConnections(maxConnections)
+                        .pendingAcquireMaxCount(pendingAcquireMax)
+                        .pendingAcquireTimeout(pendingAcquireTimeout)
+                        .maxIdleTime(maxIdleTime)
+                        .metrics(true)
+                        .build(),
+                httpClient -> httpClient
+                        .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, Math.toIntExact(connectTimeout.toMillis()))
+                        // Максимальный интервал между чтениями ответа, начиная с отправки запроса
+                        .responseTimeout(readTimeout));
+    }
+
+    /**
+     * Клиент строится из WebClient.Builder Spring Boot, но с собственным коннектором {@link IsolatedHttpResources}:
+     * его соединения и event loop закрываются и заново открываются вокруг checkpoint/restore (CRaC).
+     */
     @Bean
-    public WebClient webClient(){
-        return WebClient.builder()
+    public WebClient webClient(WebClient.Builder builder, IsolatedHttpResources twelveDataHttpResources){
+        return builder
                 .baseUrl(baseUrl)
+                .clientConnector(twelveDataHttpResources.connector())
                 .build();
     }
 }
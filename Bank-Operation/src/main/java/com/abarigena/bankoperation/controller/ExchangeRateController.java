@@ -1,17 +1,34 @@
 package com.abarigena.bankoperation.controller;
 
+import com.abarigena.bankoperation.cache.TodaysRatesResponseCache;
 import com.abarigena.bankoperation.dto.ExchangeRateDTO;
-import com.abarigena.bankoperation.service.ExchangeRateService;
+import com.abarigena.bankoperation.dto.ExchangeRateHistoryDTO;
+import com.abarigena.bankoperation.dto.RateConversionItemDTO;
+import com.abarigena.bankoperation.dto.RateConversionResponseDTO;
+import com.abarigena.bankoperation.service.ExchangeRateHistoryService;
+import com.abarigena.bankoperation.service.RateConversionService;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.time.LocalDate;
 import java.util.List;
 
 /**
@@ -24,28 +41,113 @@ import java.util.List;
 public class ExchangeRateController {
 
     private static final Logger log = LoggerFactory.getLogger(ExchangeRateController.class);
-    private final ExchangeRateService exchangeRateService;
+    private final TodaysRatesResponseCache todaysRatesResponseCache;
+    private final RateConversionService rateConversionService;
+    private final ExchangeRateHistoryService exchangeRateHistoryService;
 
     /**
      * GET /api/rates/today
      * Возвращает список всех доступных курсов обмена на сегодняшний день.
+     * Ответ берется из кеша и содержит ETag и Last-Modified; на условный запрос (If-None-Match,
+     * If-Modified-Since) с актуальным значением Spring MVC отвечает 304 без тела.
+     * Пока курсы на сегодня есть не для всех пар, ответ отдается с no-cache: клиент проверяет его по ETag
+     * при каждом использовании.
      *
-     * @return ResponseEntity со списком ExchangeRateDTO или пустой список.
+     * @return ResponseEntity с JSON-списком ExchangeRateDTO или пустым списком.
      */
     @Operation(summary = "Получить курсы валют на сегодня",
-            description = "Возвращает список всех доступных курсов обмена, актуальных на текущий день.")
-    @GetMapping("/today")
-    public ResponseEntity<List<ExchangeRateDTO>> getTodaysRates() {
-        log.info("Получен запрос на получение сегодняшних курсов валют.");
+            description = "Возвращает список всех доступных курсов обмена, актуальных на текущий день. " +
+                    "Поддерживает условные запросы (ETag / If-None-Match, Last-Modified / If-Modified-Since); " +
+                    "Cache-Control действует до следующего планового обновления курсов, " +
+                    "пока курсы на сегодня загружены не для всех пар — no-cache.")
+    @ApiResponse(responseCode = "200", content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+            array = @ArraySchema(schema = @Schema(implementation = ExchangeRateDTO.class))))
+    @ApiResponse(responseCode = "304", description = "Курсы не изменились с момента, указанного клиентом")
+    @GetMapping(value = "/today", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<byte[]> getTodaysRates() {
+        log.debug("Получен запрос на получение сегодняшних курсов валют.");
         try {
-            List<ExchangeRateDTO> rates = exchangeRateService.getTodaysExchangeRates();
-            if (rates.isEmpty()) {
-                log.warn("Сегодняшние курсы не найдены.");
+            TodaysRatesResponseCache.CachedResponse response = todaysRatesResponseCache.get();
+            CacheControl cacheControl = response.complete()
+                    ? CacheControl.maxAge(todaysRatesResponseCache.timeToNextRefresh()).cachePublic()
+                    : CacheControl.noCache().cachePublic();
+            ResponseEntity.BodyBuilder builder = ResponseEntity.ok()
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .eTag(response.etag())
+                    .cacheControl(cacheControl);
+            if (response.lastModified() != null) {
+                builder.lastModified(response.lastModified());
             }
-            return ResponseEntity.ok(rates);
+            return builder.body(response.body());
         } catch (Exception e) {
             log.error("Ошибка при получении сегодняшних курсов валют", e);
             return ResponseEntity.internalServerError().build();
         }
     }
+
+    /**
+     * POST /api/rates/convert
+     * Конвертирует набор сумм в USD по курсам на указанные даты за один запрос.
+     *
+     * @param items Суммы с валютой и датой курса.
+     * @return ResponseEntity с результатами по каждой позиции (в порядке запроса).
+     */
+    @Operation(summary = "Пакетная конвертация сумм в USD",
+            description = "Принимает список сумм (сумма, валюта, дата) и возвращает их эквивалент в USD. " +
+                    "Курс для каждой различной пары (валюта, дата) определяется один раз. " +
+                    "Позиции, которые не удалось сконвертировать, содержат поле error.")
+    @PostMapping("/convert")
+    public ResponseEntity<RateConversionResponseDTO> convert(@RequestBody List<RateConversionItemDTO> items) {
+        log.info("Получен запрос на пакетную конвертацию {} сумм.", items != null ? items.size() : 0);
+        try {
+            return ResponseEntity.ok(rateConversionService.convertAll(items));
+        } catch (IllegalArgumentException e) {
+            log.warn("Некорректный запрос на пакетную конвертацию: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (Exception e) {
+            log.error("Ошибка при пакетной конвертации сумм", e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    /**
+     * GET /api/rates/history
+     * Возвращает историю курсов пары за период постранично, по убыванию даты.
+     *
+     * @param pair   Валютная пара, например EUR/USD.
+     * @param from   Начальная дата периода (включительно).
+     * @param to     Конечная дата периода (исключительно); по умолчанию — завтра, то есть включая сегодня,
+     *               а при запросе по курсору — конец периода первой страницы.
+     * @param size   Размер страницы.
+     * @param cursor Курсор следующей страницы из предыдущего ответа.
+     * @return ResponseEntity со страницей курсов или 400, если параметры некорректны.
+     */
+    @Operation(summary = "История курсов валютной пары",
+            description = "Возвращает курсы пары за период [from, to) по убыванию даты, не больше size на странице. " +
+                    "Если в ответе есть nextCursor, следующая страница запрашивается с теми же pair, from и to " +
+                    "и параметром cursor. Если to не задан, курсор продолжает период первой страницы. " +
+                    "Период ограничен app.rates.history.max-years календарными годами.")
+    @GetMapping("/history")
+    public ResponseEntity<ExchangeRateHistoryDTO> getHistory(
+            @Parameter(description = "Валютная пара", example = "EUR/USD")
+            @RequestParam String pair,
+            @Parameter(description = "Начальная дата периода (включительно)", example = "2024-01-01")
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @Parameter(description = "Конечная дата периода (исключительно)", example = "2025-04-01")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @Parameter(description = "Размер страницы", example = "100")
+            @RequestParam(defaultValue = "100") int size,
+            @Parameter(description = "Курсор следующей страницы из предыдущего ответа")
+            @RequestParam(required = false) String cursor) {
+        log.debug("Получен запрос истории курсов {} за [{}, {}), размер страницы {}", pair, from, to, size);
+        try {
+            return ResponseEntity.ok(exchangeRateHistoryService.getHistory(pair, from, to, size, cursor));
+        } catch (IllegalArgumentException e) {
+            log.warn("Некорректный запрос истории курсов: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (Exception e) {
+            log.error("Ошибка при получении истории курсов {}", pair, e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
 }
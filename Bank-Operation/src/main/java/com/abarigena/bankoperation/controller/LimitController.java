@@ -1,9 +1,12 @@
 package com.abarigena.bankoperation.controller;
 
 import com.abarigena.bankoperation.dto.LimitDTO;
+import com.abarigena.bankoperation.dto.RemainingBudgetDTO;
 import com.abarigena.bankoperation.service.LimitService;
 import com.abarigena.bankoperation.store.entity.ExpenseLimit;
+import com.abarigena.bankoperation.store.entity.Transaction;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
@@ -11,9 +14,11 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 /**
@@ -40,7 +45,8 @@ public class LimitController {
                     "Старые лимиты не удаляются, система всегда использует последний установленный лимит для категории на момент транзакции.")
     @PostMapping
     public ResponseEntity<ExpenseLimit> setNewLimit(@Valid @RequestBody LimitDTO limitDTO) {
-        log.info("Получен запрос на установку нового лимита: {}", limitDTO);
+        log.info("Получен запрос на установку нового лимита для категории {}", limitDTO.getExpenseCategory());
+        log.debug("Данные лимита: {}", limitDTO);
         try {
             ExpenseLimit savedLimit = limitService.setNewLimit(limitDTO);
             log.info("Новый лимит успешно установлен: {}", savedLimit.getId());
@@ -50,4 +56,29 @@ public class LimitController {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
         }
     }
+
+    /**
+     * GET /api/limits/remaining
+     * Возвращает остаток месячного лимита категории на текущий момент.
+     *
+     * @param category Категория расходов.
+     * @return ResponseEntity с RemainingBudgetDTO.
+     */
+    @Operation(summary = "Получить остаток месячного лимита",
+            description = "Возвращает действующий лимит, сумму расходов за текущий месяц и остаток лимита в USD. " +
+                    "Транзакция на сумму не больше остатка не будет отмечена как превысившая лимит. " +
+                    "Ответ формируется из данных в памяти; траты других экземпляров учитываются " +
+                    "с задержкой не больше app.limits.remaining.refresh-interval.")
+    @GetMapping("/remaining")
+    public ResponseEntity<RemainingBudgetDTO> getRemainingBudget(
+            @Parameter(description = "Категория расходов", example = "PRODUCT")
+            @RequestParam Transaction.ExpenseCategory category) {
+        log.debug("Получен запрос остатка лимита для категории {}", category);
+        try {
+            return ResponseEntity.ok(limitService.getRemainingBudget(category));
+        } catch (Exception e) {
+            log.error("Ошибка при расчете остатка лимита для категории {}", category, e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
+        }
+    }
 }
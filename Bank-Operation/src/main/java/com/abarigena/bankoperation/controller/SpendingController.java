@@ -0,0 +1,61 @@
+package com.abarigena.bankoperation.controller;
+
+import com.abarigena.bankoperation.dto.SpendingSummaryDTO;
+import com.abarigena.bankoperation.service.SpendingSummaryService;
+import com.abarigena.bankoperation.store.entity.Transaction;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.YearMonth;
+import java.util.List;
+
+/**
+ * Контроллер для получения сводной статистики расходов.
+ */
+@RestController
+@RequestMapping("/api/spending")
+@RequiredArgsConstructor
+@Tag(name = "Spending", description = "API для получения сводок расходов по категориям")
+public class SpendingController {
+
+    private static final Logger log = LoggerFactory.getLogger(SpendingController.class);
+    private final SpendingSummaryService spendingSummaryService;
+
+    /**
+     * GET /api/spending/summary
+     * Возвращает сводку расходов за месяц по категории (или по всем категориям).
+     *
+     * @param month    Месяц в формате yyyy-MM. Если не указан, используется текущий месяц.
+     * @param category Категория расходов. Если не указана, возвращаются все категории.
+     * @return ResponseEntity со списком SpendingSummaryDTO.
+     */
+    @Operation(summary = "Получить сводку расходов за месяц",
+            description = "Возвращает сумму расходов в USD, количество транзакций, количество превышений " +
+                    "и процент использования лимита по категориям за месяц. Данные берутся из предрасчитанных агрегатов.")
+    @GetMapping("/summary")
+    public ResponseEntity<List<SpendingSummaryDTO>> getSummary(
+            @Parameter(description = "Месяц в формате yyyy-MM", example = "2025-03")
+            @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM") YearMonth month,
+            @Parameter(description = "Категория расходов", example = "SERVICE")
+            @RequestParam(required = false) Transaction.ExpenseCategory category) {
+        YearMonth requestedMonth = month != null ? month : YearMonth.now();
+        log.debug("Получен запрос сводки расходов за {} для категории {}", requestedMonth, category);
+        try {
+            return ResponseEntity.ok(spendingSummaryService.getMonthlySummary(requestedMonth, category));
+        } catch (Exception e) {
+            log.error("Ошибка при получении сводки расходов", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
+        }
+    }
+}
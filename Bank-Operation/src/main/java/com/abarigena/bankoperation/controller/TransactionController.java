@@ -1,20 +1,40 @@
 package com.abarigena.bankoperation.controller;
 
+import com.abarigena.bankoperation.admission.TransactionAdmissionControl;
 import com.abarigena.bankoperation.dto.LimitExceededTransactionDTO;
+import com.abarigena.bankoperation.dto.TransactionCheckResultDTO;
 import com.abarigena.bankoperation.dto.TransactionDTO;
+import com.abarigena.bankoperation.exception.DuplicateTransactionException;
+import com.abarigena.bankoperation.service.ExceededTransactionExportService;
+import com.abarigena.bankoperation.service.LimitExceededBroadcaster;
+import com.abarigena.bankoperation.service.StreamingJsonArrayWriter;
 import com.abarigena.bankoperation.service.TransactionService;
 import com.abarigena.bankoperation.store.entity.Transaction;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.util.List;
+import java.time.LocalDate;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * Контроллер для обработки HTTP-запросов, связанных с банковскими транзакциями.
@@ -27,25 +47,71 @@ public class TransactionController {
 
     private static final Logger log = LoggerFactory.getLogger(TransactionController.class);
     private final TransactionService transactionService;
+    private final ExceededTransactionExportService exceededTransactionExportService;
+    private final LimitExceededBroadcaster limitExceededBroadcaster;
+    private final TransactionAdmissionControl transactionAdmissionControl;
+    private final StreamingJsonArrayWriter streamingJsonArrayWriter;
+
+    private static final MediaType GZIP_MEDIA_TYPE = MediaType.parseMediaType("application/gzip");
+    private static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    private static final String IDEMPOTENT_REPLAYED_HEADER = "Idempotent-Replayed";
+    private static final int MAX_IDEMPOTENCY_KEY_LENGTH = 255;
 
     /**
      * Обрабатывает POST-запрос для регистрации новой транзакции.
      * Валидирует входящие данные {@link TransactionDTO}. Конвертирует сумму в USD,
      * проверяет на превышение месячного лимита и сохраняет транзакцию.
      *
+     * Если передан заголовок Idempotency-Key и транзакция с таким ключом уже сохранена,
+     * новая транзакция не создается, а возвращается исходная со статусом 200.
+     *
+     * При превышении частоты запросов со счета или общей частоты, а также при перегрузке
+     * возвращается 429 с заголовком Retry-After (см. {@link TransactionAdmissionControl}).
+     *
      * @param transactionDTO DTO с данными новой транзакции, полученный из тела запроса.
+     * @param idempotencyKey Необязательный ключ идемпотентности для безопасных повторов запроса.
      * @return ResponseEntity с сохраненной сущностью транзакции.
      */
     @Operation(summary = "Зарегистрировать новую транзакцию",
-            description = "Принимает данные о новой транзакции, конвертирует сумму в USD, проверяет на превышение месячного лимита и сохраняет.")
+            description = "Принимает данные о новой транзакции, конвертирует сумму в USD, проверяет на превышение месячного лимита и сохраняет. " +
+                    "Повтор запроса с тем же заголовком Idempotency-Key возвращает ранее сохраненную транзакцию (200) " +
+                    "с заголовком Idempotent-Replayed: true. При превышении частоты запросов со счета accountFrom, " +
+                    "общей частоты или при перегрузке возвращается 429 с заголовком Retry-After.")
     @PostMapping
-    public ResponseEntity<Transaction> receiveTransaction(@Valid @RequestBody TransactionDTO transactionDTO){
-        log.info("Получен запрос на регистрацию транзакции: {}", transactionDTO);
-        try {
-            Transaction savedTransaction = transactionService.processAndSaveTransaction(transactionDTO);
+    public ResponseEntity<Transaction> receiveTransaction(
+            @Valid @RequestBody TransactionDTO transactionDTO,
+            @Parameter(description = "Ключ идемпотентности (например, UUID), уникальный для каждой логической транзакции")
+            @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey){
+        log.info("Получен запрос на регистрацию транзакции, категория {}", transactionDTO.getExpenseCategory());
+        log.debug("Данные транзакции: {}", transactionDTO);
+        String key = (idempotencyKey == null || idempotencyKey.isBlank()) ? null : idempotencyKey.trim();
+        if (key != null && key.length() > MAX_IDEMPOTENCY_KEY_LENGTH) {
+            log.warn("Ключ идемпотентности длиннее {} символов", MAX_IDEMPOTENCY_KEY_LENGTH);
+            return ResponseEntity.badRequest().body(null);
+        }
+        TransactionAdmissionControl.Admission admission = transactionAdmissionControl.tryAdmit(transactionDTO.getAccountFrom());
+        if (!admission.isAdmitted()) {
+            log.warn("Транзакция со счета {} отклонена: {}", transactionDTO.getAccountFrom(), admission.getReason());
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(admission.getRetryAfterSeconds()))
+                    .build();
+        }
+        try (admission) {
+            Transaction savedTransaction = transactionService.processAndSaveTransaction(transactionDTO, key);
             log.info("Транзакция успешно обработана и сохранена: {}", savedTransaction.getId());
 
             return ResponseEntity.status(HttpStatus.CREATED).body(savedTransaction);
+        } catch (DuplicateTransactionException e) {
+            return replayed(e.getExistingTransaction());
+        } catch (DataIntegrityViolationException e) {
+            // Параллельный запрос с тем же ключом успел сохранить транзакцию раньше
+            Optional<Transaction> existing = key != null ? transactionService.findByIdempotencyKey(key) : Optional.empty();
+            if (existing.isPresent()) {
+                log.info("Конкурентный повтор транзакции с ключом идемпотентности {}", key);
+                return replayed(existing.get());
+            }
+            log.error("Ошибка целостности данных при сохранении транзакции", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
         } catch (IllegalArgumentException e) {
             log.error("Ошибка обработки транзакции: {}", e.getMessage());
             return ResponseEntity.badRequest().body(null);
@@ -55,25 +121,137 @@ public class TransactionController {
         }
     }
 
+    /**
+     * POST /api/transactions/check
+     * Проверяет, превысила бы транзакция месячный лимит, ничего не сохраняя.
+     * Рассчитан на частые вызовы (например, при вводе суммы): курсы, лимиты и траты за месяц берутся из кешей.
+     *
+     * @param transactionDTO DTO с данными проверяемой транзакции.
+     * @return ResponseEntity с результатом проверки или 400, если не найден курс валют.
+     */
+    @Operation(summary = "Проверить транзакцию по лимиту без сохранения",
+            description = "Возвращает сумму в USD, действующий лимит, траты в категории за месяц транзакции и признак " +
+                    "того, что транзакция превысила бы лимит. Транзакция не сохраняется и не учитывается в тратах. " +
+                    "Траты за месяц обновляются с задержкой не больше app.limits.remaining.refresh-interval " +
+                    "для транзакций, сохраненных на других экземплярах.")
+    @PostMapping("/check")
+    public ResponseEntity<TransactionCheckResultDTO> checkTransaction(@Valid @RequestBody TransactionDTO transactionDTO) {
+        log.debug("Получен запрос на проверку транзакции: {}", transactionDTO);
+        try {
+            return ResponseEntity.ok(transactionService.checkTransaction(transactionDTO));
+        } catch (IllegalArgumentException e) {
+            log.warn("Ошибка проверки транзакции: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(null);
+        } catch (Exception e) {
+            log.error("Непредвиденная ошибка при проверке транзакции", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
+        }
+    }
+
+    private ResponseEntity<Transaction> replayed(Transaction existingTransaction) {
+        return ResponseEntity.ok()
+                .header(IDEMPOTENT_REPLAYED_HEADER, "true")
+                .body(existingTransaction);
+    }
+
     /**
      * GET /api/transactions/exceeded
      * Получает все транзакции, превысившие месячный лимит,
      * включая детали лимита, который действовал на момент транзакции.
      *
-     * @return ResponseEntity, содержащий список LimitExceededTransactionDTO или ошибку.
+     * Список не собирается в памяти: элементы пишутся в ответ по мере чтения из проекции.
+     *
+     * @return ResponseEntity с потоковым JSON-массивом LimitExceededTransactionDTO или ошибкой.
      */
     @Operation(summary = "Получить транзакции, превысившие лимит",
             description = "Возвращает список всех транзакций, которые были помечены как превысившие месячный лимит, " +
-                    "вместе с деталями лимита, который действовал на момент совершения каждой транзакции.")
-    @GetMapping("/exceeded")
-    public ResponseEntity<List<LimitExceededTransactionDTO>> getExceededTransactions() {
+                    "вместе с деталями лимита, который действовал на момент совершения каждой транзакции. " +
+                    "Массив передается потоково, от новых транзакций к старым.")
+    @ApiResponse(responseCode = "200", content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+            array = @ArraySchema(schema = @Schema(implementation = LimitExceededTransactionDTO.class))))
+    @GetMapping(value = "/exceeded", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> getExceededTransactions() {
         log.info("Получен запрос на получение транзакций, превышающих лимиты.");
         try {
-            List<LimitExceededTransactionDTO> transactions = transactionService.getExceededTransactionsWithLimitDetails();
-            return ResponseEntity.ok(transactions);
+            // Открываем поток здесь, чтобы ошибка чтения проекции вернулась как 500, а не как оборванный ответ
+            Stream<LimitExceededTransactionDTO> transactions = transactionService.streamExceededTransactionsWithLimitDetails();
+            return ResponseEntity.ok()
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(streamingJsonArrayWriter.body(() -> transactions));
         } catch (Exception e) {
             log.error("Ошибка при получении транзакций, превысивших лимит", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
         }
     }
+
+    /**
+     * GET /api/transactions/exceeded/stream
+     * Поток Server-Sent Events с транзакциями, превысившими лимит, в момент их сохранения.
+     *
+     * @param lastEventId Идентификатор последнего полученного события для продолжения после переподключения.
+     * @return ResponseEntity с SseEmitter, 400 при некорректном Last-Event-ID или 503 при превышении числа подписчиков.
+     */
+    @Operation(summary = "Подписаться на транзакции, превысившие лимит (SSE)",
+            description = "Отправляет событие limit-exceeded с LimitExceededTransactionDTO сразу после сохранения транзакции, " +
+                    "превысившей лимит. При переподключении с заголовком Last-Event-ID пропущенные события " +
+                    "отправляются повторно, пока они хранятся в буфере. Если часть событий не была доставлена, " +
+                    "клиент получает событие lag с их количеством. Поток содержит транзакции всех экземпляров; " +
+                    "если Last-Event-ID выдан другим экземпляром или пропущенное восстановить нельзя, " +
+                    "клиент получает событие reset и должен перечитать GET /api/transactions/exceeded.")
+    @GetMapping(value = "/exceeded/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamExceededTransactions(
+            @Parameter(description = "Идентификатор последнего полученного события")
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        log.info("Получен запрос на подписку на поток превышений, Last-Event-ID: {}", lastEventId);
+        Long resumeFrom;
+        try {
+            resumeFrom = lastEventId == null || lastEventId.isBlank() ? null : Long.valueOf(lastEventId.trim());
+        } catch (NumberFormatException e) {
+            log.warn("Некорректный Last-Event-ID: {}", lastEventId);
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            return ResponseEntity.ok()
+                    // Отключаем буферизацию ответа в nginx, чтобы события доходили сразу
+                    .header("X-Accel-Buffering", "no")
+                    .body(limitExceededBroadcaster.subscribe(resumeFrom));
+        } catch (IllegalStateException e) {
+            log.warn("Подписка отклонена: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+    }
+
+    /**
+     * GET /api/transactions/exceeded/export
+     * Выгружает транзакции, превысившие лимит, в CSV, сжатый gzip.
+     * Данные передаются клиенту по мере чтения из курсора БД, без накопления в памяти.
+     *
+     * @param from Начальная дата периода (включительно), необязательна.
+     * @param to   Конечная дата периода (исключительно), необязательна.
+     * @return ResponseEntity с потоковым телом ответа или 400, если период задан некорректно.
+     */
+    @Operation(summary = "Выгрузить транзакции, превысившие лимит, в CSV (gzip)",
+            description = "Потоково выгружает транзакции, превысившие лимит, вместе с деталями лимита. " +
+                    "Период задается параметрами from (включительно) и to (исключительно), " +
+                    "что позволяет выгружать разные месяцы параллельно.")
+    @GetMapping(value = "/exceeded/export", produces = "application/gzip")
+    public ResponseEntity<StreamingResponseBody> exportExceededTransactions(
+            @Parameter(description = "Начальная дата периода (включительно)", example = "2025-03-01")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @Parameter(description = "Конечная дата периода (исключительно)", example = "2025-04-01")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        log.info("Получен запрос на выгрузку транзакций, превысивших лимит, за период [{}, {})", from, to);
+        if (from != null && to != null && !from.isBefore(to)) {
+            log.warn("Некорректный период выгрузки: from={} не раньше to={}", from, to);
+            return ResponseEntity.badRequest().build();
+        }
+
+        String fileName = "exceeded-transactions_" + (from != null ? from : "start") + "_" + (to != null ? to : "end") + ".csv.gz";
+        StreamingResponseBody body = output -> exceededTransactionExportService.exportCsvGzip(from, to, output);
+
+        return ResponseEntity.ok()
+                .contentType(GZIP_MEDIA_TYPE)
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(fileName).build().toString())
+                .body(body);
+    }
 }
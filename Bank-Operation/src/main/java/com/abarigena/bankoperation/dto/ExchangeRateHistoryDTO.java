@@ -0,0 +1,25 @@
+package com.abarigena.bankoperation.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * DTO для страницы истории курсов валютной пары.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Страница истории курсов валютной пары")
+public class ExchangeRateHistoryDTO {
+
+    @Schema(description = "Курсы пары по убыванию даты")
+    private List<ExchangeRateDTO> rates;
+
+    @Schema(description = "Курсор следующей страницы (передается в параметре cursor); null, если страниц больше нет",
+            example = "AAAAAQAAB-kAAAAQ")
+    private String nextCursor;
+}
@@ -0,0 +1,30 @@
+package com.abarigena.bankoperation.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Одна сумма для пакетной конвертации в USD.
+ * Поля не валидируются аннотациями: некорректная позиция получает ошибку в результате,
+ * а не отклоняет весь пакет.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Сумма для конвертации в USD")
+public class RateConversionItemDTO {
+
+    @Schema(description = "Сумма в исходной валюте", requiredMode = Schema.RequiredMode.REQUIRED, example = "150000.50")
+    private BigDecimal amount;
+
+    @Schema(description = "Код исходной валюты", requiredMode = Schema.RequiredMode.REQUIRED, example = "KZT")
+    private String currency;
+
+    @Schema(description = "Дата курса. Если не указана, используется текущая дата", nullable = true, example = "2025-03-28")
+    private LocalDate date;
+}
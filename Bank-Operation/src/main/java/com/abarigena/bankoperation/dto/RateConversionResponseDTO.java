@@ -0,0 +1,27 @@
+package com.abarigena.bankoperation.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Ответ пакетной конвертации сумм в USD.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Результаты пакетной конвертации в USD")
+public class RateConversionResponseDTO {
+
+    @Schema(description = "Результаты в порядке позиций запроса")
+    private List<RateConversionResultDTO> results;
+
+    @Schema(description = "Количество различных пар (валюта, дата), для которых запрашивались курсы", example = "12")
+    private int distinctRates;
+
+    @Schema(description = "Количество позиций, которые не удалось сконвертировать", example = "0")
+    private int failed;
+}
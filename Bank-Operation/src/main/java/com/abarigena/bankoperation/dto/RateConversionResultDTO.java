@@ -0,0 +1,39 @@
+package com.abarigena.bankoperation.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Результат конвертации одной суммы. Порядок результатов совпадает с порядком запроса.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@Schema(description = "Результат конвертации одной суммы в USD")
+public class RateConversionResultDTO {
+
+    @Schema(description = "Сумма в исходной валюте", example = "150000.50")
+    private BigDecimal amount;
+
+    @Schema(description = "Код исходной валюты", example = "KZT")
+    private String currency;
+
+    @Schema(description = "Дата курса", example = "2025-03-28")
+    private LocalDate date;
+
+    @Schema(description = "Примененный курс (USD за единицу исходной валюты)", example = "0.00197")
+    private BigDecimal rate;
+
+    @Schema(description = "Сумма в USD", example = "295.50")
+    private BigDecimal amountInUsd;
+
+    @Schema(description = "Причина, по которой сумму не удалось сконвертировать", example = "Курс обмена не найден для JPY/USD на 2025-03-28")
+    private String error;
+}
@@ -0,0 +1,42 @@
+package com.abarigena.bankoperation.dto;
+
+import com.abarigena.bankoperation.store.entity.Transaction;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.YearMonth;
+
+/**
+ * DTO остатка месячного лимита по категории.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Остаток месячного лимита расходов по категории на текущий момент")
+public class RemainingBudgetDTO {
+
+    @Schema(description = "Категория расходов", example = "PRODUCT")
+    private Transaction.ExpenseCategory expenseCategory;
+
+    @Schema(description = "Текущий месяц", example = "2025-03", type = "string")
+    private YearMonth month;
+
+    @Schema(description = "Действующий лимит", example = "1500.00")
+    private BigDecimal limitSum;
+
+    @Schema(description = "Валюта лимита", example = "USD")
+    private String limitCurrencyShortname;
+
+    @Schema(description = "Потрачено в месяце в USD", example = "1250.40")
+    private BigDecimal spentUsd;
+
+    @Schema(description = "Остаток лимита в USD (не меньше 0). Транзакция на сумму не больше остатка не превысит лимит",
+            example = "249.60")
+    private BigDecimal remainingUsd;
+
+    @Schema(description = "Лимит уже превышен", example = "false")
+    private boolean limitExceeded;
+}
@@ -0,0 +1,41 @@
+package com.abarigena.bankoperation.dto;
+
+import com.abarigena.bankoperation.store.entity.Transaction;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.YearMonth;
+
+/**
+ * DTO сводки расходов по категории за месяц.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Сводка расходов по категории за календарный месяц")
+public class SpendingSummaryDTO {
+
+    @Schema(description = "Категория расходов", example = "SERVICE")
+    private Transaction.ExpenseCategory expenseCategory;
+
+    @Schema(description = "Месяц сводки", example = "2025-03", type = "string")
+    private YearMonth month;
+
+    @Schema(description = "Сумма расходов за месяц в USD", example = "1250.40")
+    private BigDecimal totalSpentUsd;
+
+    @Schema(description = "Количество транзакций за месяц", example = "42")
+    private long transactionCount;
+
+    @Schema(description = "Количество транзакций, превысивших лимит", example = "3")
+    private long exceededCount;
+
+    @Schema(description = "Лимит (в USD), действующий на конец месяца или на текущий момент", example = "2000.00")
+    private BigDecimal limitSum;
+
+    @Schema(description = "Использование лимита в процентах", example = "62.52")
+    private BigDecimal limitUtilizationPercent;
+}
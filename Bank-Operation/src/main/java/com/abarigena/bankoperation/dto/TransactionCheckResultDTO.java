@@ -0,0 +1,44 @@
+package com.abarigena.bankoperation.dto;
+
+import com.abarigena.bankoperation.store.entity.Transaction;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.YearMonth;
+
+/**
+ * DTO результата предварительной проверки транзакции по лимиту (без сохранения).
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Результат проверки транзакции по месячному лимиту без ее сохранения")
+public class TransactionCheckResultDTO {
+
+    @Schema(description = "Категория расходов", example = "PRODUCT")
+    private Transaction.ExpenseCategory expenseCategory;
+
+    @Schema(description = "Месяц транзакции", example = "2025-03", type = "string")
+    private YearMonth month;
+
+    @Schema(description = "Сумма транзакции в USD", example = "300.00")
+    private BigDecimal sumInUsd;
+
+    @Schema(description = "Лимит, действующий на момент транзакции", example = "1500.00")
+    private BigDecimal limitSum;
+
+    @Schema(description = "Валюта лимита", example = "USD")
+    private String limitCurrencyShortname;
+
+    @Schema(description = "Потрачено в месяце в USD без учета этой транзакции", example = "1250.40")
+    private BigDecimal spentUsd;
+
+    @Schema(description = "Остаток лимита в USD после этой транзакции (не меньше 0)", example = "0.00")
+    private BigDecimal remainingUsd;
+
+    @Schema(description = "Транзакция превысила бы лимит", example = "true")
+    private boolean limitExceeded;
+}
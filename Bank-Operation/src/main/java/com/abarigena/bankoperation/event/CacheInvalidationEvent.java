@@ -0,0 +1,36 @@
+package com.abarigena.bankoperation.event;
+
+/**
+ * Событие приложения: данные, закешированные в памяти, устарели.
+ * Публикуется после коммита локального изменения, по оповещению от другого экземпляра
+ * и при полной ресинхронизации после потери соединения с шиной.
+ *
+ * @param topic Вид данных.
+ * @param key   Ключ устаревшей записи (например, категория лимита или архивированный месяц) или null, если устарело все.
+ *              Для {@link Topic#EXCEEDED_STREAM} — само событие.
+ */
+public record CacheInvalidationEvent(Topic topic, String key) {
+
+    /**
+     * Сбрасывает все записи данного вида.
+     */
+    public static CacheInvalidationEvent all(Topic topic) {
+        return new CacheInvalidationEvent(topic, null);
+    }
+
+    /**
+     * @return true, если нужно сбросить все записи данного вида.
+     */
+    public boolean isFullReset() {
+        return key == null;
+    }
+
+    public enum Topic {
+        LIMITS, RATES, ARCHIVE,
+        /**
+         * Транзакция другого экземпляра превысила лимит: key — JSON {@link com.abarigena.bankoperation.dto.LimitExceededTransactionDTO}.
+         * Полный сброс означает, что часть таких оповещений могла быть пропущена.
+         */
+        EXCEEDED_STREAM
+    }
+}
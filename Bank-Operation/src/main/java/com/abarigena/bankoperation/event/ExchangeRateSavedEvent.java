@@ -0,0 +1,13 @@
+package com.abarigena.bankoperation.event;
+
+import java.time.LocalDate;
+
+/**
+ * Событие приложения: в хранилище сохранен новый курс обмена.
+ *
+ * @param fromCurrency Валюта, из которой конвертируют.
+ * @param toCurrency   Валюта, в которую конвертируют.
+ * @param date         Дата курса.
+ */
+public record ExchangeRateSavedEvent(String fromCurrency, String toCurrency, LocalDate date) {
+}
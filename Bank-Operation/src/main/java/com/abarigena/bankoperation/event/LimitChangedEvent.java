@@ -0,0 +1,12 @@
+package com.abarigena.bankoperation.event;
+
+import com.abarigena.bankoperation.store.entity.Transaction;
+
+/**
+ * Событие приложения: установлен новый лимит расходов.
+ * Публикуется внутри транзакции БД; оповещение других экземпляров отправляется в той же транзакции.
+ *
+ * @param category Категория, для которой изменился лимит.
+ */
+public record LimitChangedEvent(Transaction.ExpenseCategory category) {
+}
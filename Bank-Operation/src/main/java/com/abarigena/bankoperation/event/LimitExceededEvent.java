@@ -0,0 +1,12 @@
+package com.abarigena.bankoperation.event;
+
+import com.abarigena.bankoperation.dto.LimitExceededTransactionDTO;
+
+/**
+ * Событие приложения: сохранена транзакция, превысившая месячный лимит.
+ * Публикуется внутри транзакции БД; слушатели получают его после коммита.
+ *
+ * @param transaction Транзакция с деталями превышенного лимита.
+ */
+public record LimitExceededEvent(LimitExceededTransactionDTO transaction) {
+}
@@ -0,0 +1,18 @@
+package com.abarigena.bankoperation.event;
+
+import com.abarigena.bankoperation.store.entity.Transaction;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Событие приложения: транзакция сохранена и учтена в месячном агрегате spending_rollups.
+ * Публикуется внутри транзакции БД; слушатели обрабатывают его после коммита.
+ *
+ * @param category    Категория расходов.
+ * @param monthStart  Первый день месяца транзакции (ключ агрегата).
+ * @param amountInUsd Сумма транзакции в USD.
+ */
+public record TransactionRecordedEvent(Transaction.ExpenseCategory category, LocalDate monthStart,
+                                       BigDecimal amountInUsd) {
+}
@@ -0,0 +1,13 @@
+package com.abarigena.bankoperation.event;
+
+import java.time.YearMonth;
+
+/**
+ * Событие приложения: транзакции месяца перенесены из PostgreSQL в архив.
+ * Публикуется внутри транзакции БД, удаляющей архивированные строки; оповещение других экземпляров
+ * отправляется в той же транзакции.
+ *
+ * @param month Архивированный месяц.
+ */
+public record TransactionsArchivedEvent(YearMonth month) {
+}
@@ -0,0 +1,19 @@
+package com.abarigena.bankoperation.exception;
+
+import com.abarigena.bankoperation.store.entity.Transaction;
+import lombok.Getter;
+
+/**
+ * Выбрасывается, когда транзакция с таким же ключом идемпотентности уже была сохранена.
+ * Содержит ранее сохраненную транзакцию, чтобы клиент получил исходный ответ.
+ */
+@Getter
+public class DuplicateTransactionException extends RuntimeException {
+
+    private final Transaction existingTransaction;
+
+    public DuplicateTransactionException(String idempotencyKey, Transaction existingTransaction) {
+        super("Транзакция с ключом идемпотентности " + idempotencyKey + " уже обработана: " + existingTransaction.getId());
+        this.existingTransaction = existingTransaction;
+    }
+}
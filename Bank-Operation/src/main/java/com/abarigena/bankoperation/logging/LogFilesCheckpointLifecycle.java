@@ -0,0 +1,142 @@
+package com.abarigena.bankoperation.logging;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.FileAppender;
+import ch.qos.logback.core.rolling.RollingFileAppender;
+import ch.qos.logback.core.spi.AppenderAttachable;
+import org.slf4j.ILoggerFactory;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Закрывает файлы журнала перед checkpoint (CRaC) и открывает их после restore:
+ * checkpoint не выполняется, пока в процессе открыты файлы.
+ * <p>
+ * Останавливаются только файловые аппендеры (в том числе вложенные в асинхронные): поток асинхронного
+ * аппендера после остановки не перезапускается. Записи, сделанные между остановкой и запуском,
+ * в файл не попадают — в это время приложение не обслуживает запросы. При обычном старте и остановке
+ * приложения ничего не делает: файлы открывает и закрывает logback.
+ */
+@Component
+public class LogFilesCheckpointLifecycle implements SmartLifecycle {
+
+    private static final org.slf4j.Logger log = LoggerFactory.getLogger(LogFilesCheckpointLifecycle.class);
+
+    private final LoggerContext loggerContext;
+    private final List<FileAppender<ILoggingEvent>> suspended = new ArrayList<>();
+    private volatile boolean running;
+    private volatile boolean closing;
+
+    public LogFilesCheckpointLifecycle() {
+        this(loggerContext(LoggerFactory.getILoggerFactory()));
+    }
+
+    LogFilesCheckpointLifecycle(LoggerContext loggerContext) {
+        this.loggerContext = loggerContext;
+    }
+
+    private static LoggerContext loggerContext(ILoggerFactory factory) {
+        return factory instanceof LoggerContext context ? context : null;
+    }
+
+    @Override
+    public synchronized void start() {
+        for (FileAppender<ILoggingEvent> appender : suspended) {
+            if (appender instanceof RollingFileAppender<ILoggingEvent> rolling) {
+                // RollingFileAppender.stop() останавливает и политики, а без них аппендер не запускается
+                if (rolling.getRollingPolicy() != null) {
+                    rolling.getRollingPolicy().start();
+                }
+                if (rolling.getTriggeringPolicy() != null && !rolling.getTriggeringPolicy().isStarted()) {
+                    rolling.getTriggeringPolicy().start();
+                }
+            }
+            appender.start();
+        }
+        if (!suspended.isEmpty()) {
+            log.info("Файлы журнала открыты заново: {}", suspended.size());
+        }
+        suspended.clear();
+        running = true;
+    }
+
+    /**
+     * Контекст закрывается: Lifecycle-бины останавливаются перед остановкой приложения, а не перед checkpoint,
+     * и записи остановки должны попасть в файл.
+     */
+    @EventListener
+    public void onContextClosed(ContextClosedEvent event) {
+        closing = true;
+    }
+
+    @Override
+    public synchronized void stop() {
+        running = false;
+        if (loggerContext == null || closing) {
+            return;
+        }
+        List<FileAppender<ILoggingEvent>> appenders = fileAppenders();
+        if (appenders.isEmpty()) {
+            return;
+        }
+        log.info("Закрытие файлов журнала: {}", appenders.size());
+        for (FileAppender<ILoggingEvent> appender : appenders) {
+            appender.stop();
+            suspended.add(appender);
+        }
+    }
+
+    /**
+     * Останавливаются последними, после всех компонентов, которые пишут в журнал.
+     */
+    @Override
+    public int getPhase() {
+        return Integer.MIN_VALUE;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private List<FileAppender<ILoggingEvent>> fileAppenders() {
+        Set<Appender<ILoggingEvent>> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        List<FileAppender<ILoggingEvent>> result = new ArrayList<>();
+        for (Logger logger : loggerContext.getLoggerList()) {
+            collect(logger.iteratorForAppenders(), seen, result);
+        }
+        return result;
+    }
+
+    private static void collect(Iterator<Appender<ILoggingEvent>> appenders, Set<Appender<ILoggingEvent>> seen,
+                                List<FileAppender<ILoggingEvent>> result) {
+        while (appenders.hasNext()) {
+            Appender<ILoggingEvent> appender = appenders.next();
+            if (!seen.add(appender)) {
+                continue;
+            }
+            if (appender instanceof FileAppender<ILoggingEvent> file) {
+                if (file.isStarted()) {
+                    result.add(file);
+                }
+            } else if (appender instanceof AppenderAttachable<?> attachable) {
+                @SuppressWarnings("unchecked")
+                Iterator<Appender<ILoggingEvent>> nested = ((AppenderAttachable<ILoggingEvent>) attachable).iteratorForAppenders();
+                collect(nested, seen, result);
+            }
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.abarigena.bankoperation.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import org.slf4j.Marker;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Ограничивает частоту записей указанных логгеров на горячем пути.
+ * В каждую секунду пропускаются первые {@code maxPerSecond} событий логгера,
+ * сверх лимита — каждое {@code sampleEvery}-е (0 — отбрасывать все).
+ * WARN и ERROR не ограничиваются никогда.
+ * <p>
+ * Решение принимается до создания события, поэтому отброшенная запись не форматируется
+ * и не попадает в очередь асинхронного аппендера.
+ */
+public class LogSamplingTurboFilter extends TurboFilter {
+
+    private static final Window UNLIMITED = new Window();
+
+    private final List<String> loggerNames = new ArrayList<>();
+    private final ConcurrentMap<String, Window> windows = new ConcurrentHashMap<>();
+    private final LongAdder suppressed = new LongAdder();
+    private LongSupplier clock = System::currentTimeMillis;
+    private long maxPerSecond = 100;
+    private long sampleEvery = 100;
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params, Throwable t) {
+        // format == null — это проверка isXxxEnabled(), а не запись; ее не учитываем
+        if (!isStarted() || format == null || level.isGreaterOrEqual(Level.WARN)
+                || level.toInt() < logger.getEffectiveLevel().toInt()) {
+            return FilterReply.NEUTRAL;
+        }
+        Window window = windows.computeIfAbsent(logger.getName(), this::windowFor);
+        if (window == UNLIMITED) {
+            return FilterReply.NEUTRAL;
+        }
+
+        long second = clock.getAsLong() / 1000;
+        long start = window.second.get();
+        if (second != start && window.second.compareAndSet(start, second)) {
+            window.count.set(0);
+        }
+        long n = window.count.incrementAndGet();
+        if (n <= maxPerSecond || (sampleEvery > 0 && (n - maxPerSecond) % sampleEvery == 0)) {
+            return FilterReply.NEUTRAL;
+        }
+        suppressed.increment();
+        return FilterReply.DENY;
+    }
+
+    private Window windowFor(String name) {
+        for (String configured : loggerNames) {
+            if (name.equals(configured) || name.startsWith(configured + ".")) {
+                return new Window();
+            }
+        }
+        return UNLIMITED;
+    }
+
+    /**
+     * Добавляет логгер (вместе с дочерними), записи которого ограничиваются.
+     * В конфигурации задается повторяющимся элементом {@code <loggerName>}.
+     */
+    public void addLoggerName(String loggerName) {
+        loggerNames.add(loggerName.trim());
+        windows.clear();
+    }
+
+    public void setMaxPerSecond(long maxPerSecond) {
+        this.maxPerSecond = maxPerSecond;
+    }
+
+    public void setSampleEvery(long sampleEvery) {
+        this.sampleEvery = sampleEvery;
+    }
+
+    /**
+     * @return Количество записей, отброшенных фильтром с момента запуска.
+     */
+    public long getSuppressedCount() {
+        return suppressed.sum();
+    }
+
+    void setClock(LongSupplier clock) {
+        this.clock = clock;
+    }
+
+    @Override
+    public void start() {
+        if (loggerNames.isEmpty()) {
+            addWarn("Не указан ни один loggerName, фильтр не будет ограничивать записи");
+        }
+        super.start();
+    }
+
+    private static final class Window {
+        private final AtomicLong second = new AtomicLong(-1);
+        private final AtomicLong count = new AtomicLong();
+    }
+}
@@ -23,6 +23,7 @@ public interface TransactionMapper {
     @Mapping(target = "id", ignore = true) // ID генерируется базой данных
     @Mapping(target = "sumInUsd", ignore = true) // Рассчитывается в сервисе
     @Mapping(target = "limitExceeded", ignore = true) // Рассчитывается в сервисе
+    @Mapping(target = "idempotencyKey", ignore = true) // Передается заголовком запроса
     @Mapping(target = "dateTime", source = "dateTime", qualifiedByName = "mapDateTime") // Используем кастомный маппинг времени
     Transaction toEntity(TransactionDTO dto);
 
@@ -0,0 +1,119 @@
+package com.abarigena.bankoperation.scheduling;
+
+import com.abarigena.bankoperation.service.ExceededTransactionProjection;
+import com.abarigena.bankoperation.store.entity.SchedulerLease;
+import com.abarigena.bankoperation.store.repository.SchedulerLeaseRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.support.CronExpression;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZonedDateTime;
+import java.util.Optional;
+
+/**
+ * Плановая сверка проекции превышений в Cassandra с PostgreSQL, выполняемая одним экземпляром кластера.
+ * <p>
+ * Запись в проекцию асинхронная: при остановке экземпляра или ошибке Cassandra строка теряется. Каждый запуск
+ * дописывает превышения, записанные с предыдущего выполненного запуска (с запасом overlap), и полностью сверяет
+ * последние months месяцев, удаляя лишние строки. Плановый момент устроен так же, как в {@link ExchangeRateRefreshJob}.
+ */
+@Component
+public class ExceededProjectionReconcileJob {
+
+    private static final Logger log = LoggerFactory.getLogger(ExceededProjectionReconcileJob.class);
+
+    static final String JOB_NAME = "exceeded-projection-reconcile";
+
+    private final SchedulerLeaseService schedulerLeaseService;
+    private final SchedulerLeaseRepository schedulerLeaseRepository;
+    private final ExceededTransactionProjection projection;
+    private final boolean enabled;
+    private final CronExpression reconcileCron;
+    private final int months;
+    private final Duration overlap;
+    private final Clock clock;
+
+    @Autowired
+    public ExceededProjectionReconcileJob(SchedulerLeaseService schedulerLeaseService,
+                                          SchedulerLeaseRepository schedulerLeaseRepository,
+                                          ExceededTransactionProjection projection,
+                                          @Value("${app.exceeded-projection.reconcile.enabled:true}") boolean enabled,
+                                          @Value("${app.exceeded-projection.reconcile.cron:0 */10 * * * *}") String reconcileCron,
+                                          @Value("${app.exceeded-projection.reconcile.months:2}") int months,
+                                          @Value("${app.exceeded-projection.reconcile.overlap:5m}") Duration overlap) {
+        this(schedulerLeaseService, schedulerLeaseRepository, projection, enabled, reconcileCron, months, overlap,
+                Clock.systemDefaultZone());
+    }
+
+    ExceededProjectionReconcileJob(SchedulerLeaseService schedulerLeaseService,
+                                   SchedulerLeaseRepository schedulerLeaseRepository,
+                                   ExceededTransactionProjection projection, boolean enabled, String reconcileCron,
+                                   int months, Duration overlap, Clock clock) {
+        this.schedulerLeaseService = schedulerLeaseService;
+        this.schedulerLeaseRepository = schedulerLeaseRepository;
+        this.projection = projection;
+        this.enabled = enabled;
+        this.reconcileCron = CronExpression.parse(reconcileCron);
+        this.months = months;
+        this.overlap = overlap;
+        this.clock = clock;
+    }
+
+    /**
+     * Запуск по расписанию.
+     */
+    @Scheduled(cron = "${app.exceeded-projection.reconcile.cron:0 */10 * * * *}")
+    public void onSchedule() {
+        if (enabled) {
+            runCurrentSlot();
+        }
+    }
+
+    /**
+     * Проверка пропущенных запусков: при старте и далее с интервалом app.scheduler.catch-up-interval.
+     */
+    @Scheduled(initialDelayString = "${app.scheduler.catch-up-initial-delay:5s}",
+            fixedDelayString = "${app.scheduler.catch-up-interval:1m}")
+    public void catchUp() {
+        if (enabled) {
+            runCurrentSlot();
+        }
+    }
+
+    /**
+     * Выполняет сверку для текущего планового момента, если ее еще не выполнил ни один экземпляр.
+     *
+     * @return Результат попытки.
+     */
+    public SchedulerLeaseService.RunOutcome runCurrentSlot() {
+        Optional<Instant> currentSlot = ExchangeRateRefreshJob.currentSlot(reconcileCron, ZonedDateTime.now(clock));
+        if (currentSlot.isEmpty()) {
+            return SchedulerLeaseService.RunOutcome.ALREADY_DONE;
+        }
+        Instant slot = currentSlot.get();
+        try {
+            Optional<Instant> previous = schedulerLeaseRepository.findById(JOB_NAME).map(SchedulerLease::getLastRunSlot);
+            return schedulerLeaseService.runExclusively(JOB_NAME, slot, () -> reconcile(previous));
+        } catch (Exception e) {
+            log.error("Не удалось запустить сверку проекции превышений для {}: {}", slot, e.getMessage());
+            return SchedulerLeaseService.RunOutcome.FAILED;
+        }
+    }
+
+    private void reconcile(Optional<Instant> previous) {
+        // Месяцы старше сверяемых дописываются по диапазону времени записи; первый запуск сверяет только месяцы
+        previous.ifPresent(from -> projection.catchUp(from.minus(overlap), clock.instant()));
+        YearMonth current = YearMonth.now(clock);
+        for (int i = 0; i < months; i++) {
+            projection.reconcileMonth(current.minusMonths(i));
+        }
+    }
+}
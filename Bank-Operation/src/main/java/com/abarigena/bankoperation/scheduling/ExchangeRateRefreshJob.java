@@ -0,0 +1,149 @@
+package com.abarigena.bankoperation.scheduling;
+
+import com.abarigena.bankoperation.client.ExchangeRateUpdater;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.support.CronExpression;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Плановое обновление курсов валют, выполняемое одним экземпляром кластера.
+ * <p>
+ * Плановый момент (slot) — последний запуск по расписанию app.exchange.refresh-cron. Запуск считается
+ * выполненным, только если курсы получены для всех пар; иначе он повторяется при следующей проверке.
+ * <p>
+ * Загрузка при старте отдельная (задача {@value #STARTUP_JOB_NAME}, плановый момент — начало суток): она нужна,
+ * только если курсов на сегодня еще нет, и выполняется один раз на кластер за сутки.
+ * <p>
+ * Помимо запуска по расписанию каждый экземпляр периодически проверяет, выполнен ли текущий плановый момент.
+ * Так запуск подхватывается при старте и после остановки экземпляра, который выполнял его.
+ */
+@Component
+public class ExchangeRateRefreshJob {
+
+    private static final Logger log = LoggerFactory.getLogger(ExchangeRateRefreshJob.class);
+
+    static final String JOB_NAME = "exchange-rate-refresh";
+    static final String STARTUP_JOB_NAME = "exchange-rate-startup-load";
+    // Ограничение на случай расписания с очень частыми запусками
+    private static final int MAX_SLOTS_PER_DAY = 100_000;
+    // Насколько далеко назад ищется последний запуск по расписанию
+    private static final int MAX_LOOKBACK_DAYS = 366;
+
+    private final SchedulerLeaseService schedulerLeaseService;
+    private final ExchangeRateUpdater exchangeRateUpdater;
+    private final CronExpression refreshCron;
+    private final Clock clock;
+    // Сбрасывается, когда курсы на сегодня есть или загрузка при старте выполнена
+    private final AtomicBoolean startupCheckPending = new AtomicBoolean(true);
+
+    @Autowired
+    public ExchangeRateRefreshJob(SchedulerLeaseService schedulerLeaseService,
+                                  ExchangeRateUpdater exchangeRateUpdater,
+                                  @Value("${app.exchange.refresh-cron:0 0 8 * * MON-SUN}") String refreshCron) {
+        this(schedulerLeaseService, exchangeRateUpdater, refreshCron, Clock.systemDefaultZone());
+    }
+
+    ExchangeRateRefreshJob(SchedulerLeaseService schedulerLeaseService, ExchangeRateUpdater exchangeRateUpdater,
+                           String refreshCron, Clock clock) {
+        this.schedulerLeaseService = schedulerLeaseService;
+        this.exchangeRateUpdater = exchangeRateUpdater;
+        this.refreshCron = CronExpression.parse(refreshCron);
+        this.clock = clock;
+    }
+
+    /**
+     * Запуск по расписанию.
+     */
+    @Scheduled(cron = "${app.exchange.refresh-cron:0 0 8 * * MON-SUN}")
+    public void onSchedule() {
+        runCurrentSlot();
+    }
+
+    /**
+     * Проверка пропущенных запусков: при старте и далее с интервалом app.scheduler.catch-up-interval.
+     */
+    @Scheduled(initialDelayString = "${app.scheduler.catch-up-initial-delay:5s}",
+            fixedDelayString = "${app.scheduler.catch-up-interval:1m}")
+    public void catchUp() {
+        runCurrentSlot();
+        if (startupCheckPending.get()) {
+            runStartupLoad();
+        }
+    }
+
+    /**
+     * Выполняет обновление курсов для текущего планового момента, если его еще не выполнил ни один экземпляр.
+     *
+     * @return Результат попытки.
+     */
+    public SchedulerLeaseService.RunOutcome runCurrentSlot() {
+        Optional<Instant> slot = currentSlot(refreshCron, ZonedDateTime.now(clock));
+        if (slot.isEmpty()) {
+            return SchedulerLeaseService.RunOutcome.ALREADY_DONE;
+        }
+        try {
+            return schedulerLeaseService.runExclusively(JOB_NAME, slot.get(), exchangeRateUpdater::updateExchangeRates);
+        } catch (Exception e) {
+            // Например, PostgreSQL недоступен: повторим при следующей проверке
+            log.error("Не удалось запустить обновление курсов для {}: {}", slot.get(), e.getMessage());
+            return SchedulerLeaseService.RunOutcome.FAILED;
+        }
+    }
+
+    /**
+     * Загрузка при старте: курсы загружаются до первого запуска по расписанию, только если на сегодня
+     * их еще нет. Повторяется при каждой проверке, пока курсы не появятся или загрузка не будет выполнена.
+     *
+     * @return Результат попытки.
+     */
+    SchedulerLeaseService.RunOutcome runStartupLoad() {
+        ZonedDateTime now = ZonedDateTime.now(clock);
+        try {
+            if (!exchangeRateUpdater.isTodaysRatesMissing()) {
+                startupCheckPending.set(false);
+                return SchedulerLeaseService.RunOutcome.ALREADY_DONE;
+            }
+            SchedulerLeaseService.RunOutcome outcome = schedulerLeaseService.runExclusively(STARTUP_JOB_NAME,
+                    now.toLocalDate().atStartOfDay(now.getZone()).toInstant(), exchangeRateUpdater::updateExchangeRates);
+            if (outcome == SchedulerLeaseService.RunOutcome.COMPLETED
+                    || outcome == SchedulerLeaseService.RunOutcome.ALREADY_DONE) {
+                startupCheckPending.set(false);
+            }
+            return outcome;
+        } catch (Exception e) {
+            log.error("Не удалось проверить курсы на сегодня при старте: {}", e.getMessage());
+            return SchedulerLeaseService.RunOutcome.FAILED;
+        }
+    }
+
+    /**
+     * Последний запуск по расписанию не позже now; пусто, если за MAX_LOOKBACK_DAYS суток запусков не было.
+     */
+    static Optional<Instant> currentSlot(CronExpression cron, ZonedDateTime now) {
+        ZonedDateTime today = now.toLocalDate().atStartOfDay(now.getZone());
+        for (int day = 0; day <= MAX_LOOKBACK_DAYS; day++) {
+            ZonedDateTime dayStart = today.minusDays(day);
+            ZonedDateTime dayEnd = day == 0 ? now : dayStart.plusDays(1).minusNanos(1);
+            ZonedDateTime last = null;
+            ZonedDateTime next = cron.next(dayStart.minusNanos(1));
+            for (int i = 0; next != null && !next.isAfter(dayEnd) && i < MAX_SLOTS_PER_DAY; i++) {
+                last = next;
+                next = cron.next(next);
+            }
+            if (last != null) {
+                return Optional.of(last.toInstant());
+            }
+        }
+        return Optional.empty();
+    }
+}
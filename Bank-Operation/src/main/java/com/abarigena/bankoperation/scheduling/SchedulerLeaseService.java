@@ -0,0 +1,156 @@
+package com.abarigena.bankoperation.scheduling;
+
+import com.abarigena.bankoperation.config.InstanceIdentity;
+import com.abarigena.bankoperation.store.entity.SchedulerLease;
+import com.abarigena.bankoperation.store.repository.SchedulerLeaseRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Выполняет плановые задачи так, чтобы каждый плановый запуск в кластере выполнил ровно один экземпляр.
+ * <p>
+ * Перед запуском экземпляр захватывает аренду в таблице scheduler_leases и продлевает ее, пока задача
+ * выполняется. Если экземпляр остановился посреди запуска, аренда истекает, запуск остается не отмеченным,
+ * и его выполняет другой экземпляр при следующей проверке. Выполненный плановый момент (slot)
+ * записывается в аренду, поэтому повторный вызов для того же момента ничего не делает.
+ * <p>
+ * Метрики: scheduler.job.runs (теги job, instance, outcome) и scheduler.job.duration (теги job, instance).
+ */
+@Service
+public class SchedulerLeaseService {
+
+    private static final Logger log = LoggerFactory.getLogger(SchedulerLeaseService.class);
+
+    private final SchedulerLeaseRepository schedulerLeaseRepository;
+    private final MeterRegistry meterRegistry;
+    private final InstanceIdentity instanceIdentity;
+    private final Duration leaseTtl;
+    private final ScheduledExecutorService renewalExecutor;
+
+    public SchedulerLeaseService(SchedulerLeaseRepository schedulerLeaseRepository,
+                                 MeterRegistry meterRegistry,
+                                 InstanceIdentity instanceIdentity,
+                                 @Value("${app.scheduler.lease-ttl:2m}") Duration leaseTtl) {
+        this.schedulerLeaseRepository = schedulerLeaseRepository;
+        this.meterRegistry = meterRegistry;
+        this.instanceIdentity = instanceIdentity;
+        this.leaseTtl = leaseTtl;
+        this.renewalExecutor = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("scheduler-lease-renewal").daemon(true).factory());
+    }
+
+    /**
+     * Выполняет задачу для планового момента, если он еще не выполнен и аренда свободна.
+     *
+     * @param jobName Имя задачи (имя аренды).
+     * @param slot    Плановый момент запуска.
+     * @param job     Задача; выполняется в вызывающем потоке.
+     * @return Результат попытки.
+     */
+    public RunOutcome runExclusively(String jobName, Instant slot, Runnable job) {
+        // Идентификатор меняется после restore из checkpoint, но в пределах запуска постоянен
+        String holder = instanceIdentity.getId();
+        if (isCompleted(jobName, slot)) {
+            return record(jobName, holder, RunOutcome.ALREADY_DONE);
+        }
+        if (schedulerLeaseRepository.tryAcquire(jobName, holder, leaseTtl.toSeconds()) == 0) {
+            log.debug("Задача {} ({}) выполняется другим экземпляром", jobName, slot);
+            return record(jobName, holder, RunOutcome.HELD_BY_OTHER);
+        }
+        Instant startedAt = Instant.now();
+        // Другой экземпляр мог завершить этот запуск между проверкой и захватом аренды
+        if (isCompleted(jobName, slot)) {
+            schedulerLeaseRepository.completeRun(jobName, holder, slot, startedAt);
+            return record(jobName, holder, RunOutcome.ALREADY_DONE);
+        }
+
+        log.info("Экземпляр {} выполняет задачу {} для запуска {}", holder, jobName, slot);
+        AtomicBoolean leaseLost = new AtomicBoolean();
+        long renewEveryMillis = Math.max(leaseTtl.toMillis() / 3, 1);
+        ScheduledFuture<?> renewal = renewalExecutor.scheduleAtFixedRate(
+                () -> renew(jobName, holder, leaseLost), renewEveryMillis, renewEveryMillis, TimeUnit.MILLISECONDS);
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try {
+            job.run();
+        } catch (RuntimeException e) {
+            renewal.cancel(false);
+            schedulerLeaseRepository.releaseAfterFailure(jobName, holder, startedAt);
+            log.error("Задача {} для запуска {} завершилась с ошибкой; запуск будет повторен", jobName, slot, e);
+            return record(jobName, holder, RunOutcome.FAILED);
+        } finally {
+            renewal.cancel(false);
+            sample.stop(Timer.builder("scheduler.job.duration")
+                    .tag("job", jobName)
+                    .tag("instance", holder)
+                    .register(meterRegistry));
+        }
+        schedulerLeaseRepository.completeRun(jobName, holder, slot, startedAt);
+        if (leaseLost.get()) {
+            log.warn("Аренда задачи {} была потеряна во время запуска {}: задачу мог выполнить и другой экземпляр",
+                    jobName, slot);
+        }
+        log.info("Задача {} для запуска {} выполнена экземпляром {}", jobName, slot, holder);
+        return record(jobName, holder, RunOutcome.COMPLETED);
+    }
+
+    private boolean isCompleted(String jobName, Instant slot) {
+        return schedulerLeaseRepository.findById(jobName)
+                .map(SchedulerLease::getLastRunSlot)
+                .filter(lastSlot -> !lastSlot.isBefore(slot))
+                .isPresent();
+    }
+
+    private void renew(String jobName, String holder, AtomicBoolean leaseLost) {
+        try {
+            if (schedulerLeaseRepository.renew(jobName, holder, leaseTtl.toSeconds()) == 0 && leaseLost.compareAndSet(false, true)) {
+                log.warn("Аренда задачи {} перехвачена другим экземпляром", jobName);
+            }
+        } catch (Exception e) {
+            // Следующая попытка продления будет через треть срока аренды
+            log.warn("Не удалось продлить аренду задачи {}: {}", jobName, e.getMessage());
+        }
+    }
+
+    private RunOutcome record(String jobName, String holder, RunOutcome outcome) {
+        Counter.builder("scheduler.job.runs")
+                .tag("job", jobName)
+                .tag("instance", holder)
+                .tag("outcome", outcome.name().toLowerCase())
+                .register(meterRegistry)
+                .increment();
+        return outcome;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        renewalExecutor.shutdownNow();
+    }
+
+    /**
+     * Результат попытки выполнить задачу.
+     */
+    public enum RunOutcome {
+        /** Задача выполнена этим экземпляром. */
+        COMPLETED,
+        /** Плановый запуск уже выполнен. */
+        ALREADY_DONE,
+        /** Аренду держит другой экземпляр. */
+        HELD_BY_OTHER,
+        /** Задача завершилась с ошибкой, аренда освобождена. */
+        FAILED
+    }
+}
@@ -0,0 +1,90 @@
+package com.abarigena.bankoperation.scheduling;
+
+import com.abarigena.bankoperation.archive.TransactionArchiver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.support.CronExpression;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.util.Optional;
+
+/**
+ * Плановая архивация закрытых месяцев таблицы transactions, выполняемая одним экземпляром кластера.
+ * Плановый момент и проверка пропущенных запусков устроены так же, как в {@link ExchangeRateRefreshJob}.
+ */
+@Component
+public class TransactionArchivalJob {
+
+    private static final Logger log = LoggerFactory.getLogger(TransactionArchivalJob.class);
+
+    static final String JOB_NAME = "transaction-archival";
+
+    private final SchedulerLeaseService schedulerLeaseService;
+    private final TransactionArchiver transactionArchiver;
+    private final boolean enabled;
+    private final CronExpression archiveCron;
+    private final Clock clock;
+
+    @Autowired
+    public TransactionArchivalJob(SchedulerLeaseService schedulerLeaseService,
+                                  TransactionArchiver transactionArchiver,
+                                  @Value("${app.archive.enabled:true}") boolean enabled,
+                                  @Value("${app.archive.cron:0 30 2 * * *}") String archiveCron) {
+        this(schedulerLeaseService, transactionArchiver, enabled, archiveCron, Clock.systemDefaultZone());
+    }
+
+    TransactionArchivalJob(SchedulerLeaseService schedulerLeaseService, TransactionArchiver transactionArchiver,
+                           boolean enabled, String archiveCron, Clock clock) {
+        this.schedulerLeaseService = schedulerLeaseService;
+        this.transactionArchiver = transactionArchiver;
+        this.enabled = enabled;
+        this.archiveCron = CronExpression.parse(archiveCron);
+        this.clock = clock;
+    }
+
+    /**
+     * Запуск по расписанию.
+     */
+    @Scheduled(cron = "${app.archive.cron:0 30 2 * * *}")
+    public void onSchedule() {
+        if (enabled) {
+            runCurrentSlot();
+        }
+    }
+
+    /**
+     * Проверка пропущенных запусков: при старте и далее с интервалом app.scheduler.catch-up-interval.
+     */
+    @Scheduled(initialDelayString = "${app.scheduler.catch-up-initial-delay:5s}",
+            fixedDelayString = "${app.scheduler.catch-up-interval:1m}")
+    public void catchUp() {
+        if (enabled) {
+            runCurrentSlot();
+        }
+    }
+
+    /**
+     * Выполняет архивацию для текущего планового момента, если ее еще не выполнил ни один экземпляр.
+     *
+     * @return Результат попытки.
+     */
+    public SchedulerLeaseService.RunOutcome runCurrentSlot() {
+        Optional<Instant> currentSlot = ExchangeRateRefreshJob.currentSlot(archiveCron, ZonedDateTime.now(clock));
+        if (currentSlot.isEmpty()) {
+            return SchedulerLeaseService.RunOutcome.ALREADY_DONE;
+        }
+        Instant slot = currentSlot.get();
+        try {
+            return schedulerLeaseService.runExclusively(JOB_NAME, slot, transactionArchiver::archiveClosedMonths);
+        } catch (Exception e) {
+            log.error("Не удалось запустить архивацию транзакций для {}: {}", slot, e.getMessage());
+            return SchedulerLeaseService.RunOutcome.FAILED;
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.abarigena.bankoperation.service;
+
+import com.abarigena.bankoperation.archive.TransactionArchive;
+import com.abarigena.bankoperation.dto.LimitExceededTransactionDTO;
+import com.abarigena.bankoperation.store.repository.TransactionRepository;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Iterator;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+@Service
+@RequiredArgsConstructor
+public class ExceededTransactionExportService {
+
+    private static final Logger log = LoggerFactory.getLogger(ExceededTransactionExportService.class);
+
+    private final TransactionRepository transactionRepository;
+    private final TransactionArchive transactionArchive;
+
+    // Границы периода по умолчанию, если клиент не указал from/to
+    static final LocalDate DEFAULT_PERIOD_START = LocalDate.of(1970, 1, 1);
+    static final LocalDate DEFAULT_PERIOD_END = LocalDate.of(9999, 12, 31);
+
+    private static final String CSV_HEADER = "transaction_id,account_from,account_to,currency_shortname,sum,sum_in_usd," +
+            "expense_category,transaction_datetime,limit_sum,limit_datetime,limit_currency_shortname";
+    private static final int GZIP_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Выгружает транзакции, превысившие лимит, за период [from, to) в CSV, сжатый gzip.
+     * Строки читаются из серверного курсора PostgreSQL и сразу пишутся в выходной поток,
+     * поэтому потребление памяти постоянно и не зависит от объема выгрузки.
+     * Непересекающиеся периоды (например, по месяцам) можно выгружать параллельно.
+     * Архивированные месяцы читаются из файлов архива и выгружаются перед строками из PostgreSQL.
+     *
+     * @param from   Начальная дата периода (включительно), null — без нижней границы.
+     * @param to     Конечная дата периода (исключительно), null — без верхней границы.
+     * @param output Поток, в который пишется gzip-архив. Не закрывается методом.
+     * @return Количество выгруженных строк.
+     * @throws UncheckedIOException если запись в поток не удалась (например, клиент разорвал соединение).
+     */
+    @Transactional(readOnly = true)
+    public long exportCsvGzip(LocalDate from, LocalDate to, OutputStream output) {
+        ZoneId zone = ZoneId.systemDefault();
+        ZonedDateTime periodStart = (from != null ? from : DEFAULT_PERIOD_START).atStartOfDay(zone);
+        ZonedDateTime periodEnd = (to != null ? to : DEFAULT_PERIOD_END).atStartOfDay(zone);
+        log.info("Начало выгрузки превысивших лимит транзакций за период [{}, {})", periodStart, periodEnd);
+
+        long rows = 0;
+        try (Stream<LimitExceededTransactionDTO> stream = Stream.concat(
+                transactionArchive.streamExceeded(periodStart, periodEnd),
+                transactionRepository.streamExceededTransactionsWithLimitDetails(periodStart, periodEnd))) {
+            GZIPOutputStream gzip = new GZIPOutputStream(output, GZIP_BUFFER_SIZE);
+            Writer writer = new BufferedWriter(new OutputStreamWriter(gzip, StandardCharsets.UTF_8));
+            writer.write(CSV_HEADER);
+            writer.write('\n');
+
+            Iterator<LimitExceededTransactionDTO> iterator = stream.iterator();
+            while (iterator.hasNext()) {
+                writeRow(writer, iterator.next());
+                rows++;
+            }
+
+            writer.flush();
+            gzip.finish();
+        } catch (IOException e) {
+            log.warn("Выгрузка прервана после {} строк: {}", rows, e.getMessage());
+            throw new UncheckedIOException(e);
+        }
+
+        log.info("Выгрузка завершена: {} строк за период [{}, {})", rows, periodStart, periodEnd);
+        return rows;
+    }
+
+    private void writeRow(Writer writer, LimitExceededTransactionDTO dto) throws IOException {
+        writer.write(csv(dto.getTransactionId()));
+        writer.write(',');
+        writer.write(csv(dto.getAccountFrom()));
+        writer.write(',');
+        writer.write(csv(dto.getAccountTo()));
+        writer.write(',');
+        writer.write(csv(dto.getCurrencyShortname()));
+        writer.write(',');
+        writer.write(csv(dto.getSum() != null ? dto.getSum().toPlainString() : null));
+        writer.write(',');
+        writer.write(csv(dto.getSumInUsd() != null ? dto.getSumInUsd().toPlainString() : null));
+        writer.write(',');
+        writer.write(csv(dto.getExpenseCategory()));
+        writer.write(',');
+        writer.write(csv(dto.getTransactionDateTime() != null ? dto.getTransactionDateTime().toOffsetDateTime() : null));
+        writer.write(',');
+        writer.write(csv(dto.getLimitSum() != null ? dto.getLimitSum().toPlainString() : null));
+        writer.write(',');
+        writer.write(csv(dto.getLimitSetDateTime() != null ? dto.getLimitSetDateTime().toOffsetDateTime() : null));
+        writer.write(',');
+        writer.write(csv(dto.getLimitCurrencyShortname()));
+        writer.write('\n');
+    }
+
+    /**
+     * Экранирует значение по RFC 4180: поля с запятыми, кавычками или переводами строк берутся в кавычки.
+     */
+    static String csv(Object value) {
+        if (value == null) {
+            return "";
+        }
+        String text = value.toString();
+        boolean needsQuoting = text.indexOf(',') >= 0 || text.indexOf('"') >= 0
+                || text.indexOf('\n') >= 0 || text.indexOf('\r') >= 0;
+        if (!needsQuoting) {
+            return text;
+        }
+        return '"' + text.replace("\"", "\"\"") + '"';
+    }
+}
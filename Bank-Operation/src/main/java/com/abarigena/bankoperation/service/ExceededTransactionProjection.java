@@ -0,0 +1,384 @@
+package com.abarigena.bankoperation.service;
+
+import com.abarigena.bankoperation.archive.TransactionArchive;
+import com.abarigena.bankoperation.dto.LimitExceededTransactionDTO;
+import com.abarigena.bankoperation.event.LimitExceededEvent;
+import com.abarigena.bankoperation.store.entity.ExceededTransactionMonth;
+import com.abarigena.bankoperation.store.entity.ExceededTransactionView;
+import com.abarigena.bankoperation.store.entity.Transaction;
+import com.abarigena.bankoperation.store.repository.ExceededTransactionMonthRepository;
+import com.abarigena.bankoperation.store.repository.ExceededTransactionViewRepository;
+import com.abarigena.bankoperation.store.repository.TransactionRepository;
+import com.abarigena.bankoperation.util.UuidV7;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Проекция транзакций, превысивших лимит, в Cassandra (read model).
+ * <p>
+ * Запись выполняется асинхронно после коммита транзакции, поэтому не добавляет задержку к приему транзакций.
+ * Чтение API превышений обслуживается только из проекции и не нагружает таблицу transactions.
+ * Проекция отстает от PostgreSQL на время асинхронной записи (обычно миллисекунды).
+ * Записи идемпотентны (ключ включает ID транзакции), поэтому проекцию можно безопасно перестроить.
+ * <p>
+ * Асинхронная запись теряется при остановке экземпляра или ошибке Cassandra. Источником истины остается
+ * PostgreSQL: {@link #catchUp(Instant, Instant)} дописывает превышения, записанные в таблицу за период,
+ * а {@link #reconcileMonth(YearMonth)} приводит месяц проекции в точное соответствие с таблицей и архивом.
+ * Оба метода плановым порядком вызывает ExceededProjectionReconcileJob.
+ * <p>
+ * Месяц партиции определяется в часовом поясе приложения ({@link TransactionArchive#zone()}),
+ * как в spending_rollups и архиве.
+ */
+@Service
+public class ExceededTransactionProjection {
+
+    private static final Logger log = LoggerFactory.getLogger(ExceededTransactionProjection.class);
+
+    // Границы периода для полного перестроения: все транзакции
+    private static final ZonedDateTime REBUILD_FROM = ZonedDateTime.of(1970, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+    private static final ZonedDateTime REBUILD_TO = ZonedDateTime.of(9999, 12, 31, 0, 0, 0, 0, ZoneOffset.UTC);
+    private static final int REBUILD_BATCH_SIZE = 500;
+    // Сверка месяца не удаляет строки транзакций, записанных позже этого срока до ее начала
+    private static final Duration RECENT_WRITE_MARGIN = Duration.ofMinutes(5);
+
+    private final ExceededTransactionViewRepository viewRepository;
+    private final ExceededTransactionMonthRepository monthRepository;
+    private final TransactionRepository transactionRepository;
+    private final TransactionArchive transactionArchive;
+    private final TransactionTemplate readOnlyTransaction;
+    private final boolean rebuildIfEmpty;
+
+    public ExceededTransactionProjection(ExceededTransactionViewRepository viewRepository,
+                                         ExceededTransactionMonthRepository monthRepository,
+                                         TransactionRepository transactionRepository,
+                                         TransactionArchive transactionArchive,
+                                         PlatformTransactionManager transactionManager,
+                                         @Value("${app.exceeded-projection.rebuild-if-empty:true}") boolean rebuildIfEmpty) {
+        this.viewRepository = viewRepository;
+        this.monthRepository = monthRepository;
+        this.transactionRepository = transactionRepository;
+        this.transactionArchive = transactionArchive;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.rebuildIfEmpty = rebuildIfEmpty;
+    }
+
+    /**
+     * Записывает транзакцию в проекцию после коммита. Выполняется в отдельном пуле потоков.
+     */
+    @Async("projectionExecutor")
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onLimitExceeded(LimitExceededEvent event) {
+        LimitExceededTransactionDTO transaction = event.transaction();
+        try {
+            save(List.of(transaction));
+            log.debug("Транзакция {} добавлена в проекцию превышений", transaction.getTransactionId());
+        } catch (Exception e) {
+            // Транзакция уже сохранена в PostgreSQL; ее допишет плановая сверка (catchUp)
+            log.error("Не удалось записать транзакцию {} в проекцию превышений", transaction.getTransactionId(), e);
+        }
+    }
+
+    /**
+     * Возвращает все транзакции, превысившие лимит, от новых к старым.
+     * Читает только нужные партиции Cassandra: список месяцев берется из exceeded_transaction_months.
+     *
+     * @return Список LimitExceededTransactionDTO.
+     */
+    public List<LimitExceededTransactionDTO> findAll() {
+        try (Stream<LimitExceededTransactionDTO> rows = stream()) {
+            return rows.toList();
+        }
+    }
+
+    /**
+     * Потоково читает все транзакции, превысившие лимит, от новых к старым — в том же порядке, что и {@link #findAll()}.
+     * Партиции месяца открываются, когда обход до него доходит, и читаются постранично,
+     * поэтому в памяти одновременно находятся только текущие страницы. Stream нужно закрыть после чтения.
+     *
+     * @return Поток LimitExceededTransactionDTO.
+     */
+    public Stream<LimitExceededTransactionDTO> stream() {
+        // Месяц -> категории, в которых за этот месяц есть превышения; от новых месяцев к старым
+        Map<LocalDate, List<String>> categoriesByMonth = new TreeMap<>(Comparator.reverseOrder());
+        for (Transaction.ExpenseCategory category : Transaction.ExpenseCategory.values()) {
+            for (ExceededTransactionMonth month : monthRepository.findByCategory(category.name())) {
+                categoriesByMonth.computeIfAbsent(month.getMonthStart(), m -> new ArrayList<>()).add(category.name());
+            }
+        }
+
+        ZoneId zone = transactionArchive.zone();
+        return categoriesByMonth.entrySet().stream()
+                .flatMap(entry -> monthRows(entry.getKey(), entry.getValue()))
+                .map(row -> toDto(row, zone));
+    }
+
+    /**
+     * Строки месяца по всем его категориям от новых к старым.
+     * Партиции уже отсортированы; при нескольких категориях они сливаются по времени без сортировки в памяти.
+     */
+    private Stream<ExceededTransactionView> monthRows(LocalDate monthStart, List<String> categories) {
+        if (categories.size() == 1) {
+            return viewRepository.streamByCategoryAndMonth(categories.get(0), monthStart);
+        }
+        List<Stream<ExceededTransactionView>> partitions = categories.stream()
+                .map(category -> viewRepository.streamByCategoryAndMonth(category, monthStart))
+                .toList();
+        Iterator<ExceededTransactionView> merged = new NewestFirstMerge(partitions.stream().map(Stream::iterator).toList());
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(merged, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(() -> partitions.forEach(Stream::close));
+    }
+
+    /**
+     * Слияние отсортированных от новых к старым партиций.
+     */
+    private static final class NewestFirstMerge implements Iterator<ExceededTransactionView> {
+
+        private final PriorityQueue<Head> heads = new PriorityQueue<>(
+                Comparator.comparing((Head head) -> head.row.getTransactionDateTime()).reversed());
+
+        private record Head(ExceededTransactionView row, Iterator<ExceededTransactionView> rest) {
+        }
+
+        private NewestFirstMerge(List<Iterator<ExceededTransactionView>> partitions) {
+            partitions.forEach(this::advance);
+        }
+
+        private void advance(Iterator<ExceededTransactionView> partition) {
+            if (partition.hasNext()) {
+                heads.add(new Head(partition.next(), partition));
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !heads.isEmpty();
+        }
+
+        @Override
+        public ExceededTransactionView next() {
+            Head head = heads.poll();
+            if (head == null) {
+                throw new NoSuchElementException();
+            }
+            advance(head.rest());
+            return head.row();
+        }
+    }
+
+    /**
+     * Перестраивает проекцию по данным PostgreSQL и архива при старте, если она пуста
+     * (первый запуск или новый кластер Cassandra).
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildIfEmpty() {
+        if (!rebuildIfEmpty) {
+            return;
+        }
+        boolean empty = true;
+        for (Transaction.ExpenseCategory category : Transaction.ExpenseCategory.values()) {
+            if (!monthRepository.findByCategory(category.name()).isEmpty()) {
+                empty = false;
+                break;
+            }
+        }
+        if (empty) {
+            log.info("Проекция превышений пуста, выполняется перестроение из PostgreSQL");
+            rebuild();
+        }
+    }
+
+    /**
+     * Заново записывает в проекцию все транзакции, превысившие лимит, включая архивированные месяцы.
+     *
+     * @return Количество записанных транзакций.
+     */
+    public long rebuild() {
+        Long written = readOnlyTransaction.execute(status -> {
+            try (Stream<LimitExceededTransactionDTO> rows = Stream.concat(
+                    transactionArchive.streamExceeded(REBUILD_FROM, REBUILD_TO),
+                    transactionRepository.streamExceededTransactionsWithLimitDetails(REBUILD_FROM, REBUILD_TO))) {
+                return saveInBatches(rows);
+            }
+        });
+        log.info("Проекция превышений перестроена, записано {} транзакций", written);
+        return written != null ? written : 0;
+    }
+
+    /**
+     * Дописывает в проекцию превышения, записанные в PostgreSQL за период (по времени записи, а не совершения),
+     * в том числе те, чья асинхронная запись не дошла до Cassandra.
+     *
+     * @param recordedFrom Начало периода записи (включительно).
+     * @param recordedTo   Конец периода записи (исключительно).
+     * @return Количество записанных в проекцию транзакций.
+     */
+    public long catchUp(Instant recordedFrom, Instant recordedTo) {
+        UUID fromId = UuidV7.lowerBound(recordedFrom.toEpochMilli());
+        UUID toId = UuidV7.lowerBound(recordedTo.toEpochMilli());
+        Long written = readOnlyTransaction.execute(status -> {
+            try (Stream<LimitExceededTransactionDTO> rows =
+                         transactionRepository.streamExceededTransactionsRecordedBetween(fromId, toId)) {
+                return saveInBatches(rows);
+            }
+        });
+        long count = written != null ? written : 0;
+        log.debug("Сверка проекции превышений: за {} — {} дописано {} транзакций", recordedFrom, recordedTo, count);
+        return count;
+    }
+
+    /**
+     * Приводит месяц проекции в соответствие с PostgreSQL и архивом: записывает все превышения месяца
+     * и удаляет из его партиций строки, которых в источнике за этот месяц нет (например, записанные
+     * в партицию другого месяца при прежнем правиле часового пояса).
+     *
+     * @param month Месяц в часовом поясе приложения.
+     * @return Сколько строк записано и сколько удалено.
+     */
+    public Reconciliation reconcileMonth(YearMonth month) {
+        ZonedDateTime periodStart = month.atDay(1).atStartOfDay(transactionArchive.zone());
+        ZonedDateTime periodEnd = month.plusMonths(1).atDay(1).atStartOfDay(transactionArchive.zone());
+        // Транзакции, записанные во время сверки, источник мог не увидеть, а асинхронная запись уже добавить
+        long recentFrom = Instant.now().minus(RECENT_WRITE_MARGIN).toEpochMilli();
+        Set<UUID> expected = new HashSet<>();
+        Long written = readOnlyTransaction.execute(status -> {
+            try (Stream<LimitExceededTransactionDTO> rows = Stream.concat(
+                    transactionArchive.streamExceeded(periodStart, periodEnd),
+                    transactionRepository.streamExceededTransactionsWithLimitDetails(periodStart, periodEnd))) {
+                return saveInBatches(rows.peek(row -> expected.add(row.getTransactionId())));
+            }
+        });
+
+        List<ExceededTransactionView> stale = new ArrayList<>();
+        for (Transaction.ExpenseCategory category : Transaction.ExpenseCategory.values()) {
+            try (Stream<ExceededTransactionView> rows = viewRepository.streamByCategoryAndMonth(category.name(), month.atDay(1))) {
+                rows.filter(row -> !expected.contains(row.getTransactionId()))
+                        .filter(row -> !recordedSince(row.getTransactionId(), recentFrom))
+                        .forEach(stale::add);
+            }
+        }
+        if (!stale.isEmpty()) {
+            viewRepository.deleteAll(stale);
+        }
+        Reconciliation result = new Reconciliation(written != null ? written : 0, stale.size());
+        if (result.deleted() > 0) {
+            log.info("Сверка проекции превышений за {}: записано {}, удалено лишних строк {}",
+                    month, result.written(), result.deleted());
+        }
+        return result;
+    }
+
+    private static boolean recordedSince(UUID transactionId, long epochMillis) {
+        // Идентификаторы старых транзакций — не UUID v7; такие строки записаны давно
+        return transactionId.version() == 7 && UuidV7.timestampMillis(transactionId) >= epochMillis;
+    }
+
+    /**
+     * Итог сверки месяца.
+     *
+     * @param written Сколько строк записано (перезаписано) из источника.
+     * @param deleted Сколько лишних строк удалено из проекции.
+     */
+    public record Reconciliation(long written, long deleted) {
+    }
+
+    private long saveInBatches(Stream<LimitExceededTransactionDTO> rows) {
+        long count = 0;
+        List<LimitExceededTransactionDTO> batch = new ArrayList<>(REBUILD_BATCH_SIZE);
+        for (LimitExceededTransactionDTO row : (Iterable<LimitExceededTransactionDTO>) rows::iterator) {
+            batch.add(row);
+            if (batch.size() == REBUILD_BATCH_SIZE) {
+                save(batch);
+                count += batch.size();
+                batch.clear();
+            }
+        }
+        save(batch);
+        return count + batch.size();
+    }
+
+    private void save(List<LimitExceededTransactionDTO> transactions) {
+        if (transactions.isEmpty()) {
+            return;
+        }
+        ZoneId zone = transactionArchive.zone();
+        List<ExceededTransactionView> rows = new ArrayList<>(transactions.size());
+        Set<ExceededTransactionMonthKey> months = new HashSet<>();
+        for (LimitExceededTransactionDTO transaction : transactions) {
+            ExceededTransactionView row = toView(transaction, zone);
+            rows.add(row);
+            months.add(new ExceededTransactionMonthKey(row.getExpenseCategory(), row.getMonthStart()));
+        }
+        viewRepository.saveAll(rows);
+        monthRepository.saveAll(months.stream()
+                .map(month -> new ExceededTransactionMonth(month.category(), month.monthStart()))
+                .toList());
+    }
+
+    static ExceededTransactionView toView(LimitExceededTransactionDTO dto, ZoneId zone) {
+        return ExceededTransactionView.builder()
+                .expenseCategory(dto.getExpenseCategory().name())
+                // Месяц в часовом поясе приложения — так же, как в spending_rollups, независимо от пояса в DTO
+                .monthStart(dto.getTransactionDateTime().withZoneSameInstant(zone).toLocalDate().withDayOfMonth(1))
+                .transactionDateTime(dto.getTransactionDateTime().toInstant())
+                .transactionId(dto.getTransactionId())
+                .accountFrom(dto.getAccountFrom())
+                .accountTo(dto.getAccountTo())
+                .currencyShortname(dto.getCurrencyShortname())
+                .sum(dto.getSum())
+                .sumInUsd(dto.getSumInUsd())
+                .limitSum(dto.getLimitSum())
+                .limitDateTime(dto.getLimitSetDateTime() != null ? dto.getLimitSetDateTime().toInstant() : null)
+                .limitCurrencyShortname(dto.getLimitCurrencyShortname())
+                .build();
+    }
+
+    static LimitExceededTransactionDTO toDto(ExceededTransactionView row, ZoneId zone) {
+        return new LimitExceededTransactionDTO(
+                row.getTransactionId(),
+                row.getAccountFrom(),
+                row.getAccountTo(),
+                row.getCurrencyShortname(),
+                row.getSum(),
+                row.getSumInUsd(),
+                Transaction.ExpenseCategory.valueOf(row.getExpenseCategory()),
+                row.getTransactionDateTime().atZone(zone),
+                row.getLimitSum(),
+                row.getLimitDateTime() != null ? row.getLimitDateTime().atZone(zone) : null,
+                row.getLimitCurrencyShortname());
+    }
+
+    private record ExceededTransactionMonthKey(String category, LocalDate monthStart) {
+    }
+}
@@ -0,0 +1,177 @@
+package com.abarigena.bankoperation.service;
+
+import com.abarigena.bankoperation.dto.ExchangeRateHistoryDTO;
+import com.abarigena.bankoperation.mapper.ExchangeRateMapper;
+import com.abarigena.bankoperation.store.entity.ExchangeRate;
+import com.abarigena.bankoperation.store.repository.ExchangeRateRepository;
+import com.abarigena.bankoperation.store.repository.ExchangeRateRepositoryCustom;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.nio.ByteBuffer;
+import java.time.Clock;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+
+/**
+ * История курсов валютной пары постранично.
+ * <p>
+ * Курсы читаются по партициям года (daily_exchange_rates), начиная с года конца периода: каждый запрос — диапазон
+ * по кластерному ключу date внутри одной партиции, в порядке хранения (по убыванию даты), поэтому
+ * Cassandra не сортирует и не пропускает строки. Страница может захватывать несколько лет.
+ * <p>
+ * Период ограничен app.rates.history.max-years календарными годами: пустые партиции тоже читаются
+ * по одной, и без ограничения запрос с from=0001-01-01 выполнил бы тысячи запросов к Cassandra.
+ * <p>
+ * Курсор следующей страницы — Base64 (URL-safe) от отпечатка запроса, конца периода, года партиции
+ * и состояния страниц (paging state) Cassandra. Курсор действителен только для той же пары и того же периода.
+ * Конец периода хранится в курсоре, поэтому продолжение запроса без to не зависит от смены даты.
+ */
+@Service
+public class ExchangeRateHistoryService {
+
+    private static final Logger log = LoggerFactory.getLogger(ExchangeRateHistoryService.class);
+
+    private final ExchangeRateRepository exchangeRateRepository;
+    private final ExchangeRateMapper exchangeRateMapper;
+    private final int maxPageSize;
+    private final int maxYears;
+    private final Clock clock;
+
+    @Autowired
+    public ExchangeRateHistoryService(ExchangeRateRepository exchangeRateRepository,
+                                      ExchangeRateMapper exchangeRateMapper,
+                                      @Value("${app.rates.history.max-page-size:1000}") int maxPageSize,
+                                      @Value("${app.rates.history.max-years:10}") int maxYears) {
+        this(exchangeRateRepository, exchangeRateMapper, maxPageSize, maxYears, Clock.systemDefaultZone());
+    }
+
+    ExchangeRateHistoryService(ExchangeRateRepository exchangeRateRepository, ExchangeRateMapper exchangeRateMapper,
+                               int maxPageSize, int maxYears, Clock clock) {
+        this.exchangeRateRepository = exchangeRateRepository;
+        this.exchangeRateMapper = exchangeRateMapper;
+        this.maxPageSize = maxPageSize;
+        this.maxYears = maxYears;
+        this.clock = clock;
+    }
+
+    /**
+     * Позиция чтения: конец периода запроса, партиция года и продолжение внутри нее (null — с начала партиции).
+     */
+    record Cursor(int fingerprint, LocalDate to, int year, ByteBuffer pagingState) {
+
+        private static final int HEADER_BYTES = 2 * Integer.BYTES + Long.BYTES;
+
+        String encode() {
+            int stateLength = pagingState != null ? pagingState.remaining() : 0;
+            ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + stateLength)
+                    .putInt(fingerprint)
+                    .putLong(to.toEpochDay())
+                    .putInt(year);
+            if (pagingState != null) {
+                buffer.put(pagingState.duplicate());
+            }
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(buffer.array());
+        }
+
+        static Cursor decode(String value) {
+            byte[] bytes;
+            try {
+                bytes = Base64.getUrlDecoder().decode(value);
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Некорректный курсор истории курсов");
+            }
+            if (bytes.length < HEADER_BYTES) {
+                throw new IllegalArgumentException("Некорректный курсор истории курсов");
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            int fingerprint = buffer.getInt();
+            LocalDate to;
+            try {
+                to = LocalDate.ofEpochDay(buffer.getLong());
+            } catch (DateTimeException e) {
+                throw new IllegalArgumentException("Некорректный курсор истории курсов");
+            }
+            int year = buffer.getInt();
+            return new Cursor(fingerprint, to, year, buffer.hasRemaining() ? buffer.slice() : null);
+        }
+    }
+
+    /**
+     * Возвращает страницу истории курсов пары за период [from, to).
+     *
+     * @param pair   Пара в виде "EUR/USD".
+     * @param from   Начало периода (включительно).
+     * @param to     Конец периода (исключительно); null — конец периода из курсора, а для первой страницы — завтра
+     *               (включая сегодня).
+     * @param size   Размер страницы (1..app.rates.history.max-page-size).
+     * @param cursor Курсор из предыдущей страницы или null для первой.
+     * @return Курсы по убыванию даты и курсор следующей страницы.
+     * @throws IllegalArgumentException если пара, период, размер или курсор некорректны.
+     */
+    public ExchangeRateHistoryDTO getHistory(String pair, LocalDate from, LocalDate to, int size, String cursor) {
+        String[] currencies = parsePair(pair);
+        Cursor position = cursor != null && !cursor.isBlank() ? Cursor.decode(cursor) : null;
+        if (to == null) {
+            to = position != null ? position.to() : LocalDate.now(clock).plusDays(1);
+        }
+        if (from == null || !from.isBefore(to)) {
+            throw new IllegalArgumentException("Период должен быть непустым: from=" + from + ", to=" + to);
+        }
+        LocalDate last = to.minusDays(1);
+        if (last.getYear() - from.getYear() >= maxYears) {
+            throw new IllegalArgumentException("Период должен укладываться в " + maxYears
+                    + " календарных лет: from=" + from + ", to=" + to);
+        }
+        if (size < 1 || size > maxPageSize) {
+            throw new IllegalArgumentException("Размер страницы должен быть от 1 до " + maxPageSize + ": " + size);
+        }
+        int fingerprint = Objects.hash(currencies[0], currencies[1], from, to);
+
+        if (position == null) {
+            position = new Cursor(fingerprint, to, last.getYear(), null);
+        }
+        if (position.fingerprint() != fingerprint || !position.to().equals(to)
+                || position.year() < from.getYear() || position.year() > last.getYear()) {
+            throw new IllegalArgumentException("Курсор относится к другому запросу истории курсов");
+        }
+
+        List<ExchangeRate> rates = new ArrayList<>(Math.min(size, 64));
+        int year = position.year();
+        ByteBuffer pagingState = position.pagingState();
+        while (rates.size() < size && year >= from.getYear()) {
+            LocalDate start = year == from.getYear() ? from : LocalDate.of(year, 1, 1);
+            LocalDate end = year == last.getYear() ? to : LocalDate.of(year + 1, 1, 1);
+            ExchangeRateRepositoryCustom.HistorySlice slice = exchangeRateRepository.findHistorySlice(
+                    currencies[0], currencies[1], year, start, end, size - rates.size(), pagingState);
+            rates.addAll(slice.rates());
+            if (slice.pagingState() != null) {
+                pagingState = slice.pagingState();
+            } else {
+                year--;
+                pagingState = null;
+            }
+        }
+
+        String nextCursor = year >= from.getYear() ? new Cursor(fingerprint, to, year, pagingState).encode() : null;
+        log.debug("История курсов {}/{} за [{}, {}): {} курсов, следующая страница: {}",
+                currencies[0], currencies[1], from, to, rates.size(), nextCursor != null);
+        return new ExchangeRateHistoryDTO(exchangeRateMapper.toDtoList(rates), nextCursor);
+    }
+
+    private static String[] parsePair(String pair) {
+        String[] currencies = pair != null ? pair.trim().toUpperCase(Locale.ROOT).split("/") : new String[0];
+        if (currencies.length != 2 || currencies[0].isBlank() || currencies[1].isBlank()) {
+            throw new IllegalArgumentException("Пара должна быть задана в виде EUR/USD: " + pair);
+        }
+        return currencies;
+    }
+}
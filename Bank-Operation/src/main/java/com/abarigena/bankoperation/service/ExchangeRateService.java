@@ -1,26 +1,33 @@
 package com.abarigena.bankoperation.service;
 
+import com.abarigena.bankoperation.cache.ExchangeRateCache;
 import com.abarigena.bankoperation.dto.ExchangeRateDTO;
+import com.abarigena.bankoperation.event.ExchangeRateSavedEvent;
 import com.abarigena.bankoperation.mapper.ExchangeRateMapper;
 import com.abarigena.bankoperation.store.entity.ExchangeRate;
 import com.abarigena.bankoperation.store.repository.ExchangeRateRepository;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.time.Instant;
 import java.time.LocalDate;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
-import java.util.UUID;
 
 @Service
 @RequiredArgsConstructor
 public class ExchangeRateService {
     private final ExchangeRateRepository exchangeRateRepository;
     private final ExchangeRateMapper exchangeRateMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ExchangeRateCache exchangeRateCache;
 
 
     private static final Logger log = LoggerFactory.getLogger(ExchangeRateService.class);
@@ -30,20 +37,17 @@ public class ExchangeRateService {
 
     /**
      * Сохраняет курс обмена, если для данной валютной пары и даты его еще нет.
+     * Проверка и запись выполняются одним запросом INSERT ... IF NOT EXISTS, поэтому
+     * при параллельных обновлениях курс на дату записывается ровно один раз вместе со временем сохранения.
      *
      * @param rate Курс для сохранения.
      * @return true, если курс был сохранен, false, если он уже существовал.
      */
     public boolean saveExchangeRateIfNotExists(ExchangeRate rate) {
-        // Проверяем существование записи для данной валютной пары и даты
-        Optional<ExchangeRate> existingRate = exchangeRateRepository
-                .findByFromCurrencyAndToCurrencyAndDate(
-                        rate.getFromCurrency(),
-                        rate.getToCurrency(),
-                        rate.getDate()
-                );
-
-        if (existingRate.isPresent()) {
+        if (rate.getSavedAt() == null) {
+            rate.setSavedAt(Instant.now());
+        }
+        if (!exchangeRateRepository.insertIfNotExists(rate)) {
             log.info("Курс для {} -> {} на дату {} уже существует",
                     rate.getFromCurrency(),
                     rate.getToCurrency(),
@@ -51,12 +55,12 @@ public class ExchangeRateService {
             return false;
         }
 
-        // Если записи нет, сохраняем новую
-        exchangeRateRepository.save(rate);
         log.info("Сохранен курс валют: валютная пара {} -> {}, курс: {}",
                 rate.getFromCurrency(),
                 rate.getToCurrency(),
                 rate.getClosePrice());
+        // Сбрасывает кеши курсов на этом и других экземплярах (см. CacheInvalidationBus)
+        eventPublisher.publishEvent(new ExchangeRateSavedEvent(rate.getFromCurrency(), rate.getToCurrency(), rate.getDate()));
         return true;
     }
 
@@ -124,6 +128,7 @@ public class ExchangeRateService {
     /**
      * Вспомогательный метод для поиска курса.
      * Сначала ищет на точную дату, потом последний доступный (fallback).
+     * Результат кешируется до сохранения следующего курса (см. ExchangeRateCache).
      *
      * @param from Валюта ИЗ
      * @param to   Валюта В
@@ -131,6 +136,10 @@ public class ExchangeRateService {
      * @return Optional с курсом или пустой Optional.
      */
     public Optional<BigDecimal> findRateOptional(String from, String to, LocalDate date) {
+        return exchangeRateCache.get(from, to, date, () -> loadRateOptional(from, to, date));
+    }
+
+    private Optional<BigDecimal> loadRateOptional(String from, String to, LocalDate date) {
         // Ищем на конкретную дату
         Optional<ExchangeRate> rateOnDate = exchangeRateRepository.findByFromCurrencyAndToCurrencyAndDate(from, to, date);
         if (rateOnDate.isPresent()) {
@@ -164,7 +173,6 @@ public class ExchangeRateService {
                                      BigDecimal calculatedRate, BigDecimal intermediateRate1, BigDecimal intermediateRate2){
         try {
             ExchangeRate rateToCache = ExchangeRate.builder()
-                    .id(UUID.randomUUID())
                     .fromCurrency(fromCurrency)
                     .toCurrency(toCurrency)
                     .date(date)
@@ -188,6 +196,15 @@ public class ExchangeRateService {
      * @return Список DTO курсов обмена на сегодня.
      */
     public List<ExchangeRateDTO> getTodaysExchangeRates(){
+        return findTodaysRates().rates();
+    }
+
+    /**
+     * Получает курсы на сегодня вместе с самым поздним временем их сохранения.
+     *
+     * @return Курсы на сегодня.
+     */
+    public TodaysRates findTodaysRates() {
         LocalDate today = LocalDate.now();
         log.info("Запрос всех курсов обмена на дату: {}", today);
 
@@ -195,11 +212,25 @@ public class ExchangeRateService {
 
         if (ratesEntities.isEmpty()) {
             log.warn("Курсы на дату {} не найдены.", today);
-            return List.of();
+            return new TodaysRates(List.of(), null);
         }
 
         log.info("Найдено {} курсов на дату {}", ratesEntities.size(), today);
 
-        return exchangeRateMapper.toDtoList(ratesEntities);
+        Instant lastSavedAt = ratesEntities.stream()
+                .map(ExchangeRate::getSavedAt)
+                .filter(Objects::nonNull)
+                .max(Comparator.naturalOrder())
+                .orElse(null);
+        return new TodaysRates(exchangeRateMapper.toDtoList(ratesEntities), lastSavedAt);
+    }
+
+    /**
+     * Курсы на сегодня.
+     *
+     * @param rates       Курсы.
+     * @param lastSavedAt Самое позднее время сохранения курса; null, если курсов нет или время не записано.
+     */
+    public record TodaysRates(List<ExchangeRateDTO> rates, Instant lastSavedAt) {
     }
 }
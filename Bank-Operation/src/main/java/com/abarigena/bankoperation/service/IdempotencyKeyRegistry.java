@@ -0,0 +1,65 @@
+package com.abarigena.bankoperation.service;
+
+import com.abarigena.bankoperation.util.RotatingBloomFilter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Реестр ключей идемпотентности, обработанных этим экземпляром сервиса.
+ * Фильтр Блума позволяет без обращения к БД подтвердить, что ключ новый (основной случай),
+ * а ограниченный кеш последних ключей — без поиска по индексу найти исходную транзакцию повтора.
+ * Окончательным арбитром остается уникальное ограничение на transactions.idempotency_key.
+ */
+@Component
+public class IdempotencyKeyRegistry {
+
+    private static final Logger log = LoggerFactory.getLogger(IdempotencyKeyRegistry.class);
+
+    private final RotatingBloomFilter seenKeys;
+    private final Map<String, UUID> recentKeys;
+
+    public IdempotencyKeyRegistry(
+            @Value("${app.idempotency.expected-keys:1000000}") long expectedKeys,
+            @Value("${app.idempotency.false-positive-probability:0.01}") double falsePositiveProbability,
+            @Value("${app.idempotency.recent-keys-cache-size:100000}") int recentKeysCacheSize) {
+        this.seenKeys = new RotatingBloomFilter(expectedKeys, falsePositiveProbability);
+        this.recentKeys = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, false) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, UUID> eldest) {
+                return size() > recentKeysCacheSize;
+            }
+        });
+        log.info("Фильтр ключей идемпотентности: {} бит, {} хеш-функций, кеш последних ключей на {} записей",
+                seenKeys.getNumBits(), seenKeys.getNumHashFunctions(), recentKeysCacheSize);
+    }
+
+    /**
+     * @return false, если ключ точно не встречался (проверка в БД не нужна).
+     */
+    public boolean mightContain(String idempotencyKey) {
+        return seenKeys.mightContain(idempotencyKey);
+    }
+
+    /**
+     * @return ID транзакции, сохраненной с этим ключом, если ключ есть в кеше последних ключей.
+     */
+    public Optional<UUID> findRecentTransactionId(String idempotencyKey) {
+        return Optional.ofNullable(recentKeys.get(idempotencyKey));
+    }
+
+    /**
+     * Запоминает ключ и ID сохраненной с ним транзакции.
+     */
+    public void register(String idempotencyKey, UUID transactionId) {
+        seenKeys.put(idempotencyKey);
+        recentKeys.put(idempotencyKey, transactionId);
+    }
+}
@@ -0,0 +1,306 @@
+package com.abarigena.bankoperation.service;
+
+import com.abarigena.bankoperation.dto.LimitExceededTransactionDTO;
+import com.abarigena.bankoperation.event.CacheInvalidationEvent;
+import com.abarigena.bankoperation.event.LimitExceededEvent;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.aot.hint.annotation.RegisterReflectionForBinding;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Рассылает подписчикам SSE транзакции, превысившие лимит, сразу после коммита.
+ * <p>
+ * Транзакции этого экземпляра приходят событием приложения после коммита, транзакции других экземпляров —
+ * через {@link com.abarigena.bankoperation.cache.CacheInvalidationBus}, поэтому каждый экземпляр отдает события
+ * всего кластера.
+ * <p>
+ * Каждое событие получает возрастающий идентификатор и хранится в кольцевом буфере,
+ * поэтому клиент может переподключиться с заголовком Last-Event-ID и получить пропущенное.
+ * Идентификаторы выдаются экземпляром и действуют только на нем до перезапуска. Если Last-Event-ID
+ * выдан не им (переподключение к другому экземпляру, перезапуск) или после него оповещения шины могли
+ * быть потеряны, повтор невозможен: клиент получает событие {@code reset} и должен перечитать
+ * GET /api/transactions/exceeded.
+ * У каждого подписчика своя ограниченная очередь и свой поток записи: медленный клиент
+ * не задерживает ни транзакцию, ни других подписчиков. Если очередь переполнена,
+ * новые события для него отбрасываются, а перед следующим отправленным событием
+ * клиент получает событие {@code lag} с числом пропущенных.
+ */
+@RegisterReflectionForBinding({LimitExceededTransactionDTO.class, LimitExceededBroadcaster.LagNotice.class,
+        LimitExceededBroadcaster.ResetNotice.class}) // Данные событий SSE
+@Component
+public class LimitExceededBroadcaster {
+
+    private static final Logger log = LoggerFactory.getLogger(LimitExceededBroadcaster.class);
+
+    static final String EVENT_NAME = "limit-exceeded";
+    static final String LAG_EVENT_NAME = "lag";
+    static final String RESET_EVENT_NAME = "reset";
+
+    private final ObjectMapper objectMapper;
+    private final int replayBufferSize;
+    private final int subscriberBufferSize;
+    private final int maxSubscribers;
+    private final Duration heartbeatInterval;
+    private final Duration emitterTimeout;
+
+    private final Object lock = new Object();
+    private final ArrayDeque<StreamEvent> replayBuffer;
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    // Идентификаторы начинаются с текущего времени, чтобы оставаться возрастающими после перезапуска
+    private final AtomicLong sequence = new AtomicLong(System.currentTimeMillis() * 1000);
+    // Продолжить поток можно только после события с большим идентификатором: более ранние выданы
+    // не этим запуском или предшествуют возможной потере оповещений шины
+    private long resumableAfter = sequence.get();
+
+    public LimitExceededBroadcaster(ObjectMapper objectMapper,
+                                    @Value("${app.exceeded-stream.replay-buffer-size:1000}") int replayBufferSize,
+                                    @Value("${app.exceeded-stream.subscriber-buffer-size:256}") int subscriberBufferSize,
+                                    @Value("${app.exceeded-stream.max-subscribers:1000}") int maxSubscribers,
+                                    @Value("${app.exceeded-stream.heartbeat-interval:15s}") Duration heartbeatInterval,
+                                    @Value("${app.exceeded-stream.emitter-timeout:30m}") Duration emitterTimeout) {
+        this.objectMapper = objectMapper;
+        this.replayBufferSize = replayBufferSize;
+        this.subscriberBufferSize = subscriberBufferSize;
+        this.maxSubscribers = maxSubscribers;
+        this.heartbeatInterval = heartbeatInterval;
+        this.emitterTimeout = emitterTimeout;
+        this.replayBuffer = new ArrayDeque<>(replayBufferSize);
+    }
+
+    /**
+     * Принимает событие после коммита транзакции (или сразу, если транзакции нет).
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onLimitExceeded(LimitExceededEvent event) {
+        publish(event.transaction());
+    }
+
+    /**
+     * Принимает события других экземпляров из шины. Полный сброс означает, что часть оповещений могла быть
+     * потеряна: подключенные клиенты получают reset, а продолжить поток с более ранних событий больше нельзя.
+     */
+    @EventListener
+    public void onClusterEvent(CacheInvalidationEvent event) {
+        if (event.topic() != CacheInvalidationEvent.Topic.EXCEEDED_STREAM) {
+            return;
+        }
+        if (event.isFullReset()) {
+            synchronized (lock) {
+                resumableAfter = sequence.get();
+                for (Subscriber subscriber : subscribers) {
+                    subscriber.requestReset();
+                }
+            }
+            return;
+        }
+        try {
+            publish(objectMapper.readValue(event.key(), LimitExceededTransactionDTO.class));
+        } catch (JsonProcessingException e) {
+            log.warn("Некорректное событие превышения от другого экземпляра: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Присваивает событию идентификатор, сохраняет его для повторной выдачи и раздает подписчикам.
+     * Не блокируется: очереди подписчиков только пополняются.
+     */
+    void publish(LimitExceededTransactionDTO transaction) {
+        synchronized (lock) {
+            StreamEvent event = new StreamEvent(sequence.incrementAndGet(), transaction);
+            if (replayBuffer.size() == replayBufferSize) {
+                replayBuffer.removeFirst();
+            }
+            replayBuffer.addLast(event);
+            for (Subscriber subscriber : subscribers) {
+                subscriber.offer(event);
+            }
+        }
+    }
+
+    /**
+     * Регистрирует нового подписчика.
+     *
+     * @param lastEventId Идентификатор последнего полученного клиентом события или null.
+     * @return SseEmitter подписчика.
+     * @throws IllegalStateException если достигнут предел числа подписчиков.
+     */
+    public SseEmitter subscribe(Long lastEventId) {
+        if (subscribers.size() >= maxSubscribers) {
+            throw new IllegalStateException("Достигнуто максимальное число подписчиков: " + maxSubscribers);
+        }
+        SseEmitter emitter = new SseEmitter(emitterTimeout.toMillis());
+        Subscriber subscriber = new Subscriber(emitter, subscriberBufferSize);
+
+        synchronized (lock) {
+            // Повтор и регистрация под одной блокировкой: событие не теряется и не дублируется
+            if (lastEventId != null) {
+                replay(subscriber, lastEventId);
+            }
+            subscribers.add(subscriber);
+        }
+
+        emitter.onCompletion(subscriber::close);
+        emitter.onTimeout(subscriber::close);
+        emitter.onError(e -> subscriber.close());
+        Thread.ofVirtual()
+                .name("sse-limit-exceeded-", subscriber.hashCode())
+                .start(() -> writeLoop(subscriber));
+        log.info("Новый подписчик потока превышений, всего: {}", subscribers.size());
+        return emitter;
+    }
+
+    private void replay(Subscriber subscriber, long lastEventId) {
+        if (lastEventId <= resumableAfter || lastEventId > sequence.get()) {
+            // Идентификатор выдан не этим запуском или до потери оповещений: что пропущено, неизвестно
+            subscriber.requestReset();
+            return;
+        }
+        StreamEvent oldest = replayBuffer.peekFirst();
+        if (oldest != null && lastEventId < oldest.id() - 1) {
+            // Часть событий уже вытеснена из буфера: сообщаем клиенту о разрыве
+            subscriber.addDropped(oldest.id() - 1 - lastEventId);
+        }
+        for (StreamEvent event : replayBuffer) {
+            if (event.id() > lastEventId) {
+                subscriber.offer(event);
+            }
+        }
+    }
+
+    /**
+     * Поток записи подписчика: отправляет события из очереди, а при простое — heartbeat-комментарий,
+     * чтобы прокси не закрывали соединение.
+     */
+    private void writeLoop(Subscriber subscriber) {
+        try {
+            while (!subscriber.closed) {
+                // reset отправляется до ожидания очереди: при подписке он может быть единственным событием
+                if (subscriber.takeReset()) {
+                    subscriber.emitter.send(SseEmitter.event()
+                            .name(RESET_EVENT_NAME)
+                            .data(new ResetNotice("/api/transactions/exceeded"), MediaType.APPLICATION_JSON));
+                }
+                StreamEvent event = subscriber.queue.poll(heartbeatInterval.toMillis(), TimeUnit.MILLISECONDS);
+                long dropped = subscriber.takeDropped();
+                if (dropped > 0) {
+                    subscriber.emitter.send(SseEmitter.event()
+                            .name(LAG_EVENT_NAME)
+                            .data(new LagNotice(dropped), MediaType.APPLICATION_JSON));
+                }
+                if (event != null) {
+                    subscriber.emitter.send(SseEmitter.event()
+                            .id(String.valueOf(event.id()))
+                            .name(EVENT_NAME)
+                            .data(event.transaction(), MediaType.APPLICATION_JSON));
+                } else if (dropped == 0) {
+                    subscriber.emitter.send(SseEmitter.event().comment("heartbeat"));
+                }
+            }
+        } catch (IOException | IllegalStateException e) {
+            // Клиент отключился или emitter уже завершен
+            log.debug("Подписчик потока превышений отключен: {}", e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            subscriber.close();
+            subscriber.emitter.complete();
+            if (subscribers.remove(subscriber)) {
+                log.info("Подписчик потока превышений отключен, осталось: {}", subscribers.size());
+            }
+        }
+    }
+
+    /**
+     * @return Количество активных подписчиков.
+     */
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        List<Subscriber> active = new ArrayList<>(subscribers);
+        active.forEach(Subscriber::close);
+        active.forEach(subscriber -> subscriber.emitter.complete());
+    }
+
+    record StreamEvent(long id, LimitExceededTransactionDTO transaction) {
+    }
+
+    /**
+     * Содержимое события lag.
+     *
+     * @param dropped Сколько событий не было доставлено клиенту.
+     */
+    record LagNotice(long dropped) {
+    }
+
+    /**
+     * Содержимое события reset: пропущенные события восстановить нельзя.
+     *
+     * @param reload Откуда перечитать текущее состояние.
+     */
+    record ResetNotice(String reload) {
+    }
+
+    private static final class Subscriber {
+        private final SseEmitter emitter;
+        private final BlockingQueue<StreamEvent> queue;
+        private final AtomicLong dropped = new AtomicLong();
+        private final AtomicBoolean reset = new AtomicBoolean();
+        private volatile boolean closed;
+
+        private Subscriber(SseEmitter emitter, int capacity) {
+            this.emitter = emitter;
+            this.queue = new ArrayBlockingQueue<>(capacity);
+        }
+
+        private void offer(StreamEvent event) {
+            if (!closed && !queue.offer(event)) {
+                dropped.incrementAndGet();
+            }
+        }
+
+        private void addDropped(long count) {
+            dropped.addAndGet(count);
+        }
+
+        private long takeDropped() {
+            return dropped.getAndSet(0);
+        }
+
+        private void requestReset() {
+            reset.set(true);
+        }
+
+        private boolean takeReset() {
+            return reset.getAndSet(false);
+        }
+
+        private void close() {
+            closed = true;
+        }
+    }
+}
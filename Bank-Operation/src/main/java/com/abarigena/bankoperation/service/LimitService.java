@@ -1,16 +1,25 @@
 package com.abarigena.bankoperation.service;
 
+import com.abarigena.bankoperation.cache.LimitCache;
+import com.abarigena.bankoperation.cache.SpendingTotalsCache;
 import com.abarigena.bankoperation.dto.LimitDTO;
+import com.abarigena.bankoperation.dto.RemainingBudgetDTO;
+import com.abarigena.bankoperation.event.LimitChangedEvent;
 import com.abarigena.bankoperation.mapper.LimitMapper;
 import com.abarigena.bankoperation.store.entity.ExpenseLimit;
+import com.abarigena.bankoperation.store.entity.Transaction;
 import com.abarigena.bankoperation.store.repository.ExpenseLimitRepository;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.math.BigDecimal;
+import java.time.YearMonth;
 import java.time.ZonedDateTime;
+import java.util.Optional;
 
 @Service
 @RequiredArgsConstructor
@@ -19,11 +28,15 @@ public class LimitService {
     private static final Logger log = LoggerFactory.getLogger(LimitService.class);
     private final ExpenseLimitRepository expenseLimitRepository;
     private final LimitMapper limitMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final LimitCache limitCache;
+    private final SpendingTotalsCache spendingTotalsCache;
 
     /**
      * Устанавливает новый лимит расходов для указанной категории.
      * Использует LimitMapper для преобразования DTO в сущность.
      * Текущая дата и время устанавливаются автоматически.
+     * Кеши лимитов на всех экземплярах сбрасываются после коммита (см. CacheInvalidationBus).
      *
      * @param dto DTO с данными нового лимита (сумма и категория).
      * @return Сохраненная сущность ExpenseLimit.
@@ -38,7 +51,36 @@ public class LimitService {
         ExpenseLimit savedLimit = expenseLimitRepository.save(newLimit);
         log.info("Новый лимит {} для категории {} сохранен с ID {}",
                 savedLimit.getLimitSum(), savedLimit.getExpenseCategory(), savedLimit.getId());
+        eventPublisher.publishEvent(new LimitChangedEvent(savedLimit.getExpenseCategory()));
 
         return savedLimit;
     }
+
+    /**
+     * Возвращает остаток месячного лимита категории на текущий момент.
+     * Лимит определяется так же, как при обработке транзакции: последний установленный лимит
+     * или лимит по умолчанию. Траты берутся из месячного агрегата в памяти (см. {@link SpendingTotalsCache}),
+     * поэтому запрос обычно не обращается к БД.
+     *
+     * @param category Категория расходов.
+     * @return Остаток лимита.
+     */
+    public RemainingBudgetDTO getRemainingBudget(Transaction.ExpenseCategory category) {
+        ZonedDateTime now = ZonedDateTime.now();
+        YearMonth month = YearMonth.from(now);
+
+        Optional<ExpenseLimit> limit = limitCache.findLimitValidAt(category, now);
+        BigDecimal limitSum = limit.map(ExpenseLimit::getLimitSum).orElse(TransactionService.DEFAULT_MONTHLY_LIMIT_USD);
+        BigDecimal spent = spendingTotalsCache.monthTotal(category, month);
+        BigDecimal remaining = limitSum.subtract(spent);
+
+        return new RemainingBudgetDTO(
+                category,
+                month,
+                limitSum,
+                limit.map(ExpenseLimit::getLimitCurrencyShortname).orElse("USD"),
+                spent,
+                remaining.signum() > 0 ? remaining : BigDecimal.ZERO.setScale(limitSum.scale()),
+                spent.compareTo(limitSum) > 0);
+    }
 }
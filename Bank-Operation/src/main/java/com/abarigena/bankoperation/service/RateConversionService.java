@@ -0,0 +1,167 @@
+package com.abarigena.bankoperation.service;
+
+import com.abarigena.bankoperation.dto.RateConversionItemDTO;
+import com.abarigena.bankoperation.dto.RateConversionResponseDTO;
+import com.abarigena.bankoperation.dto.RateConversionResultDTO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+/**
+ * Пакетная конвертация сумм в USD.
+ * Различные пары (валюта, дата) определяются один раз, курсы для них ищутся параллельно,
+ * после чего все суммы пересчитываются за один проход.
+ */
+@Service
+public class RateConversionService {
+
+    private static final Logger log = LoggerFactory.getLogger(RateConversionService.class);
+
+    private static final String TARGET_CURRENCY = "USD";
+    // Те же точность и округление, что и при расчете sumInUsd транзакции
+    private static final int USD_SCALE = 2;
+    private static final RoundingMode USD_ROUNDING_MODE = RoundingMode.HALF_UP;
+
+    private final ExchangeRateService exchangeRateService;
+    private final Executor rateLookupExecutor;
+    private final int maxItems;
+
+    public RateConversionService(ExchangeRateService exchangeRateService,
+                                 @Qualifier("rateLookupExecutor") Executor rateLookupExecutor,
+                                 @Value("${app.rates.max-convert-items:500000}") int maxItems) {
+        this.exchangeRateService = exchangeRateService;
+        this.rateLookupExecutor = rateLookupExecutor;
+        this.maxItems = maxItems;
+    }
+
+    /**
+     * Конвертирует суммы в USD по курсам на указанные даты.
+     *
+     * @param items Суммы для конвертации.
+     * @return Результаты в порядке позиций запроса; ошибки указываются для каждой позиции отдельно.
+     * @throws IllegalArgumentException если пакет пустой или превышает допустимый размер.
+     */
+    public RateConversionResponseDTO convertAll(List<RateConversionItemDTO> items) {
+        if (items == null || items.isEmpty()) {
+            throw new IllegalArgumentException("Список сумм для конвертации пуст");
+        }
+        if (items.size() > maxItems) {
+            throw new IllegalArgumentException("Слишком много сумм в одном запросе: " + items.size() + " (максимум " + maxItems + ")");
+        }
+        LocalDate today = LocalDate.now();
+
+        // 1. Нормализуем позиции и собираем различные ключи (валюта, дата)
+        List<RateKey> keys = new ArrayList<>(items.size());
+        Map<RateKey, CompletableFuture<RateLookup>> lookups = new HashMap<>();
+        for (RateConversionItemDTO item : items) {
+            // Для некорректных позиций курс не ищем
+            RateKey key = validate(item) == null ? toKey(item, today) : null;
+            keys.add(key);
+            if (key != null) {
+                lookups.computeIfAbsent(key, this::lookupAsync);
+            }
+        }
+        log.info("Пакетная конвертация: {} сумм, {} различных курсов", items.size(), lookups.size());
+
+        // 2. Пересчитываем суммы за один проход по найденным курсам
+        List<RateConversionResultDTO> results = new ArrayList<>(items.size());
+        int failed = 0;
+        for (int i = 0; i < items.size(); i++) {
+            RateConversionItemDTO item = items.get(i);
+            RateKey key = keys.get(i);
+            RateConversionResultDTO result = new RateConversionResultDTO();
+            if (item != null) {
+                result.setAmount(item.getAmount());
+                result.setCurrency(key != null ? key.currency() : item.getCurrency());
+                result.setDate(key != null ? key.date() : item.getDate());
+            }
+
+            String error = validate(item);
+            if (error == null) {
+                RateLookup lookup = lookups.get(key).join();
+                if (lookup.rate() != null) {
+                    result.setRate(lookup.rate());
+                    result.setAmountInUsd(item.getAmount().multiply(lookup.rate()).setScale(USD_SCALE, USD_ROUNDING_MODE));
+                } else {
+                    error = lookup.error();
+                }
+            }
+            if (error != null) {
+                result.setError(error);
+                failed++;
+            }
+            results.add(result);
+        }
+
+        if (failed > 0) {
+            log.warn("Пакетная конвертация: {} из {} сумм не сконвертированы", failed, items.size());
+        }
+        return new RateConversionResponseDTO(results, lookups.size(), failed);
+    }
+
+    private CompletableFuture<RateLookup> lookupAsync(RateKey key) {
+        return CompletableFuture.supplyAsync(() -> lookup(key), rateLookupExecutor)
+                .exceptionally(e -> {
+                    // Пул переполнен или остановлен: ошибка относится только к позициям с этим ключом
+                    Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                    log.error("Не удалось запустить поиск курса {}/{} на {}", key.currency(), TARGET_CURRENCY, key.date(), cause);
+                    return new RateLookup(null, "Ошибка при получении курса обмена");
+                });
+    }
+
+    private RateLookup lookup(RateKey key) {
+        try {
+            BigDecimal rate = exchangeRateService.getExchangeRate(key.currency(), TARGET_CURRENCY, key.date());
+            if (rate == null || rate.compareTo(BigDecimal.ZERO) < 0) {
+                return new RateLookup(null, "Невалидный курс обмена для " + key.currency() + " на " + key.date());
+            }
+            return new RateLookup(rate, null);
+        } catch (IllegalArgumentException e) {
+            return new RateLookup(null, e.getMessage());
+        } catch (Exception e) {
+            log.error("Ошибка при получении курса {}/{} на {}", key.currency(), TARGET_CURRENCY, key.date(), e);
+            return new RateLookup(null, "Ошибка при получении курса обмена");
+        }
+    }
+
+    private static RateKey toKey(RateConversionItemDTO item, LocalDate today) {
+        String currency = item.getCurrency().trim().toUpperCase(Locale.ROOT);
+        return new RateKey(currency, item.getDate() != null ? item.getDate() : today);
+    }
+
+    private static String validate(RateConversionItemDTO item) {
+        if (item == null) {
+            return "Позиция не заполнена";
+        }
+        if (item.getAmount() == null) {
+            return "Сумма должна быть указана";
+        }
+        if (item.getAmount().signum() < 0) {
+            return "Сумма не может быть отрицательной";
+        }
+        if (item.getCurrency() == null || item.getCurrency().trim().length() != 3) {
+            return "Код валюты должен состоять из 3 символов";
+        }
+        return null;
+    }
+
+    private record RateKey(String currency, LocalDate date) {
+    }
+
+    private record RateLookup(BigDecimal rate, String error) {
+    }
+}
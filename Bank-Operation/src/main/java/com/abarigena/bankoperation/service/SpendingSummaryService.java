@@ -0,0 +1,91 @@
+package com.abarigena.bankoperation.service;
+
+import com.abarigena.bankoperation.dto.SpendingSummaryDTO;
+import com.abarigena.bankoperation.store.entity.ExpenseLimit;
+import com.abarigena.bankoperation.store.entity.SpendingRollup;
+import com.abarigena.bankoperation.store.entity.Transaction;
+import com.abarigena.bankoperation.store.repository.ExpenseLimitRepository;
+import com.abarigena.bankoperation.store.repository.SpendingRollupRepository;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@Service
+@RequiredArgsConstructor
+public class SpendingSummaryService {
+
+    private static final Logger log = LoggerFactory.getLogger(SpendingSummaryService.class);
+
+    private final SpendingRollupRepository spendingRollupRepository;
+    private final ExpenseLimitRepository expenseLimitRepository;
+
+    private static final BigDecimal HUNDRED = new BigDecimal("100");
+    private static final int PERCENT_SCALE = 2;
+
+    /**
+     * Возвращает сводку расходов за месяц по одной или по всем категориям.
+     * Данные берутся из агрегатов spending_rollups, таблица transactions не читается.
+     * Для категорий без транзакций в месяце возвращается нулевая сводка.
+     *
+     * @param month    Месяц сводки.
+     * @param category Категория расходов или null для всех категорий.
+     * @return Список сводок, по одной на категорию.
+     */
+    @Transactional(readOnly = true)
+    public List<SpendingSummaryDTO> getMonthlySummary(YearMonth month, Transaction.ExpenseCategory category) {
+        LocalDate monthStart = month.atDay(1);
+        log.debug("Запрос сводки расходов за {} для категории {}", month, category != null ? category : "ALL");
+
+        Map<Transaction.ExpenseCategory, SpendingRollup> rollups = spendingRollupRepository.findByIdMonthStart(monthStart)
+                .stream()
+                .collect(Collectors.toMap(rollup -> rollup.getId().getExpenseCategory(), Function.identity()));
+
+        List<Transaction.ExpenseCategory> categories = category != null
+                ? List.of(category)
+                : List.of(Transaction.ExpenseCategory.values());
+
+        List<SpendingSummaryDTO> summaries = new ArrayList<>(categories.size());
+        for (Transaction.ExpenseCategory current : categories) {
+            SpendingRollup rollup = rollups.get(current);
+            BigDecimal totalSpent = rollup != null ? rollup.getTotalSpentUsd() : BigDecimal.ZERO;
+            BigDecimal limitSum = findLimitForMonth(current, month);
+
+            summaries.add(new SpendingSummaryDTO(
+                    current,
+                    month,
+                    totalSpent,
+                    rollup != null ? rollup.getTransactionCount() : 0,
+                    rollup != null ? rollup.getExceededCount() : 0,
+                    limitSum,
+                    totalSpent.multiply(HUNDRED).divide(limitSum, PERCENT_SCALE, RoundingMode.HALF_UP)
+            ));
+        }
+        return summaries;
+    }
+
+    /**
+     * Лимит, действующий на конец месяца, а для текущего и будущих месяцев — на текущий момент.
+     */
+    private BigDecimal findLimitForMonth(Transaction.ExpenseCategory category, YearMonth month) {
+        ZonedDateTime now = ZonedDateTime.now();
+        ZonedDateTime monthEnd = month.plusMonths(1).atDay(1).atStartOfDay(now.getZone()).minusNanos(1);
+        ZonedDateTime pointInTime = monthEnd.isBefore(now) ? monthEnd : now;
+
+        return expenseLimitRepository.findLimitValidAtDateTime(category, pointInTime)
+                .map(ExpenseLimit::getLimitSum)
+                .orElse(TransactionService.DEFAULT_MONTHLY_LIMIT_USD);
+    }
+}
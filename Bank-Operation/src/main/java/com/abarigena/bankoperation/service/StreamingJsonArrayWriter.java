@@ -0,0 +1,92 @@
+package com.abarigena.bankoperation.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Потоковая запись списка в ответ в виде JSON-массива: элементы сериализуются по мере чтения из источника,
+ * и весь список в памяти не собирается.
+ * <p>
+ * Ответ сбрасывается клиенту каждые app.streaming.flush-every элементов. Если клиент разорвал соединение,
+ * очередной сброс завершается ошибкой, запись прекращается и источник закрывается — вместе с ним
+ * прекращается чтение из базы.
+ */
+@Component
+public class StreamingJsonArrayWriter {
+
+    private static final Logger log = LoggerFactory.getLogger(StreamingJsonArrayWriter.class);
+
+    private final ObjectMapper objectMapper;
+    private final ObjectWriter elementWriter;
+    private final int flushEvery;
+
+    public StreamingJsonArrayWriter(ObjectMapper objectMapper,
+                                    @Value("${app.streaming.flush-every:100}") int flushEvery) {
+        if (flushEvery < 1) {
+            throw new IllegalArgumentException("app.streaming.flush-every должен быть не меньше 1: " + flushEvery);
+        }
+        this.objectMapper = objectMapper;
+        // Сбрасываем сами, раз в flushEvery элементов, а не после каждого
+        this.elementWriter = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        this.flushEvery = flushEvery;
+    }
+
+    /**
+     * Тело ответа, которое при записи открывает источник и пишет его элементы JSON-массивом.
+     *
+     * @param source Открывает поток элементов; поток закрывается после записи или при ее прерывании.
+     * @return StreamingResponseBody для ResponseEntity.
+     */
+    public <T> StreamingResponseBody body(Supplier<? extends Stream<? extends T>> source) {
+        return output -> write(source, output);
+    }
+
+    /**
+     * Пишет элементы источника в поток JSON-массивом.
+     *
+     * @param source Открывает поток элементов; поток закрывается методом.
+     * @param output Поток, в который пишется массив. Не закрывается методом.
+     * @return Количество записанных элементов.
+     * @throws UncheckedIOException если запись в поток не удалась (например, клиент разорвал соединение).
+     */
+    public <T> long write(Supplier<? extends Stream<? extends T>> source, OutputStream output) {
+        long written = 0;
+        // Источник открывается до первого байта ответа: ошибка чтения из базы еще может стать ответом 500
+        try (Stream<? extends T> elements = source.get();
+             JsonGenerator generator = objectMapper.getFactory().createGenerator(output)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            // При ошибке источника генератор не дописывает закрывающие скобки: оборванный ответ должен
+            // остаться некорректным JSON, а не выглядеть полным массивом
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_JSON_CONTENT);
+            generator.writeStartArray();
+            Iterator<? extends T> iterator = elements.iterator();
+            while (iterator.hasNext()) {
+                elementWriter.writeValue(generator, iterator.next());
+                if (++written % flushEvery == 0) {
+                    generator.flush();
+                }
+            }
+            // Остаток сбрасывается при закрытии генератора
+            generator.writeEndArray();
+        } catch (IOException e) {
+            log.warn("Потоковая запись JSON прервана после {} элементов: {}", written, e.getMessage());
+            throw new UncheckedIOException(e);
+        }
+        log.debug("Потоковая запись JSON завершена: {} элементов", written);
+        return written;
+    }
+}
@@ -1,15 +1,26 @@
 package com.abarigena.bankoperation.service;
 
+import com.abarigena.bankoperation.archive.TransactionArchive;
+import com.abarigena.bankoperation.cache.LimitCache;
+import com.abarigena.bankoperation.cache.SpendingTotalsCache;
 import com.abarigena.bankoperation.dto.LimitExceededTransactionDTO;
+import com.abarigena.bankoperation.dto.TransactionCheckResultDTO;
 import com.abarigena.bankoperation.dto.TransactionDTO;
+import com.abarigena.bankoperation.event.LimitExceededEvent;
+import com.abarigena.bankoperation.event.TransactionRecordedEvent;
+import com.abarigena.bankoperation.exception.DuplicateTransactionException;
 import com.abarigena.bankoperation.mapper.TransactionMapper;
 import com.abarigena.bankoperation.store.entity.ExpenseLimit;
 import com.abarigena.bankoperation.store.entity.Transaction;
-import com.abarigena.bankoperation.store.repository.ExpenseLimitRepository;
+import com.abarigena.bankoperation.store.repository.SpendingRollupRepository;
 import com.abarigena.bankoperation.store.repository.TransactionRepository;
+import com.abarigena.bankoperation.store.repository.TransactionRepositoryCustom;
+import com.abarigena.bankoperation.util.UuidV7;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -17,10 +28,12 @@ import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.LocalDate;
 import java.time.LocalTime;
+import java.time.YearMonth;
 import java.time.ZonedDateTime;
 import java.time.temporal.TemporalAdjusters;
-import java.util.List;
 import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
@@ -30,10 +43,16 @@ public class TransactionService {
 
     private final TransactionRepository transactionRepository;
     private final ExchangeRateService exchangeRateService;
-    private final ExpenseLimitRepository expenseLimitRepository;
+    private final LimitCache limitCache;
+    private final SpendingRollupRepository spendingRollupRepository;
+    private final IdempotencyKeyRegistry idempotencyKeyRegistry;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ExceededTransactionProjection exceededTransactionProjection;
+    private final TransactionArchive transactionArchive;
+    private final SpendingTotalsCache spendingTotalsCache;
 
     // Константа для дефолтного лимита
-    private static final BigDecimal DEFAULT_MONTHLY_LIMIT_USD = new BigDecimal("1000.00");
+    static final BigDecimal DEFAULT_MONTHLY_LIMIT_USD = new BigDecimal("1000.00");
     // Константа для базовой валюты лимитов
     private static final String LIMIT_CURRENCY = "USD";
     // Масштаб и округление для операций с USD
@@ -41,6 +60,19 @@ public class TransactionService {
     private static final RoundingMode USD_ROUNDING_MODE = RoundingMode.HALF_UP;
     private final TransactionMapper transactionMapper;
 
+    /**
+     * Способ записи транзакции в PostgreSQL.
+     */
+    public enum IngestMode {
+        /** Лимит из кеша, сумма трат, вставка и агрегат — отдельными запросами через JPA. */
+        JPA,
+        /** Все в одном SQL-запросе (CTE с INSERT ... SELECT), одно обращение к БД. */
+        SINGLE_STATEMENT
+    }
+
+    @Value("${app.ingest.mode:jpa}")
+    private IngestMode ingestMode = IngestMode.JPA;
+
     /**
      * Обрабатывает входящую транзакцию: конвертирует в USD, проверяет лимит и сохраняет.
      * Использует TransactionMapper для преобразования DTO в сущность.
@@ -51,9 +83,37 @@ public class TransactionService {
      */
     @Transactional
     public Transaction processAndSaveTransaction(TransactionDTO dto) {
+        return processAndSaveTransaction(dto, null);
+    }
+
+    /**
+     * Обрабатывает входящую транзакцию с ключом идемпотентности.
+     * Повтор запроса с тем же ключом не создает новую транзакцию и не учитывается в лимите повторно.
+     * Для нового ключа (основной случай) дополнительного обращения к БД нет: это подтверждает
+     * фильтр в {@link IdempotencyKeyRegistry}. При гонке двух одинаковых запросов
+     * вставку второго отклонит уникальное ограничение на idempotency_key.
+     *
+     * @param dto            Данные транзакции из запроса.
+     * @param idempotencyKey Ключ идемпотентности или null, если клиент его не передал.
+     * @return Сохраненная сущность транзакции.
+     * @throws DuplicateTransactionException если транзакция с этим ключом уже сохранена.
+     * @throws IllegalArgumentException если не найден курс валют.
+     */
+    @Transactional
+    public Transaction processAndSaveTransaction(TransactionDTO dto, String idempotencyKey) {
         log.debug("Начало обработки транзакции для счета {}", dto.getAccountFrom());
 
+        if (idempotencyKey != null) {
+            Optional<Transaction> duplicate = findDuplicate(idempotencyKey);
+            if (duplicate.isPresent()) {
+                log.info("Повтор транзакции с ключом идемпотентности {}: возвращается {}",
+                        idempotencyKey, duplicate.get().getId());
+                throw new DuplicateTransactionException(idempotencyKey, duplicate.get());
+            }
+        }
+
         Transaction transaction = transactionMapper.toEntity(dto);
+        transaction.setIdempotencyKey(idempotencyKey);
         log.debug("Транзакция DTO смаплена в сущность: {}", transaction);
 
         LocalDate transactionDate = transaction.getDateTime().toLocalDate();
@@ -63,16 +123,28 @@ public class TransactionService {
         transaction.setSumInUsd(sumInUsd);
         log.debug("Сумма в USD рассчитана: {}", sumInUsd);
 
+        // Месяц считается в часовом поясе приложения, как в архиве и в заполнении агрегатов миграцией,
+        // а не в поясе, который прислал клиент. От него зависят и окно лимита, и блокировка: платеж
+        // 2025-04-01T03:00+06:00 при поясе приложения UTC считается в лимите за март
+        ZonedDateTime monthStart = transaction.getDateTime().withZoneSameInstant(transactionArchive.zone())
+                .with(TemporalAdjusters.firstDayOfMonth()).with(LocalTime.MIN);
+        // Параллельные транзакции категории за месяц иначе не видят друг друга при подсчете трат
+        // и могут вместе превысить лимит, не получив флаг
+        transactionRepository.lockSpendingMonth(transaction.getExpenseCategory(), YearMonth.from(monthStart));
+        if (ingestMode == IngestMode.SINGLE_STATEMENT) {
+            return insertInSingleStatement(transaction, monthStart);
+        }
+
         // Определяем действующий лимит на момент транзакции
-        BigDecimal applicableLimit = findApplicableLimit(transaction.getExpenseCategory(), transaction.getDateTime());
+        Optional<ExpenseLimit> limit = findApplicableLimit(transaction.getExpenseCategory(), transaction.getDateTime());
+        BigDecimal applicableLimit = limit
+                .map(ExpenseLimit::getLimitSum) // Если лимит найден, берем его сумму
+                .orElse(DEFAULT_MONTHLY_LIMIT_USD); // Иначе используем дефолтное значение
         log.debug("Действующий лимит на момент транзакции: {} USD", applicableLimit);
 
         // Рассчитываем траты за месяц до текущей транзакции
-        ZonedDateTime monthStart = transaction.getDateTime().with(TemporalAdjusters.firstDayOfMonth()).with(LocalTime.MIN);
-        ZonedDateTime currentTransactionTime = transaction.getDateTime();
-
         log.debug("Расчет трат для категории {} за период с {} по {}",
-                transaction.getExpenseCategory(), monthStart, currentTransactionTime);
+                transaction.getExpenseCategory(), monthStart, transaction.getDateTime());
 
         // Берем начало текущего месяца и время начала транзакции dto.getDatetime()
         BigDecimal spentInMonthBeforeCurrent = transactionRepository.calculateSpendingInUsdForPeriod(
@@ -80,6 +152,10 @@ public class TransactionService {
                 monthStart,
                 transaction.getDateTime() // Суммируем все ДО момента текущей транзакции
         );
+        // Транзакция задним числом в архивированный месяц: часть трат уже перенесена из таблицы в архив.
+        // Для неархивированных месяцев файлы не читаются
+        spentInMonthBeforeCurrent = spentInMonthBeforeCurrent.add(transactionArchive.sumInUsd(
+                transaction.getExpenseCategory(), monthStart, transaction.getDateTime()));
         log.debug("Потрачено в текущем месяце до этой транзакции: {} USD", spentInMonthBeforeCurrent);
 
         // Проверяем превышение лимита
@@ -91,10 +167,126 @@ public class TransactionService {
         Transaction savedTransaction = transactionRepository.save(transaction);
         log.info("Транзакция {} сохранена с флагом limitExceeded={}", savedTransaction.getId(), limitExceeded);
 
+        // Обновляем месячный агрегат в той же транзакции БД, чтобы сводка не расходилась с данными
+        spendingRollupRepository.addTransaction(
+                transaction.getExpenseCategory().name(),
+                monthStart.toLocalDate(),
+                sumInUsd,
+                limitExceeded ? 1 : 0
+        );
+        afterSave(savedTransaction, idempotencyKey, monthStart, limit.orElse(null));
         return savedTransaction;
 
     }
 
+    /**
+     * Режим app.ingest.mode=single-statement: действующий лимит, траты месяца, вставка и обновление агрегата
+     * выполняются одним SQL-запросом после блокировки категории за месяц.
+     * Лимит берется из таблицы expense_limits в том же запросе, а не из кеша.
+     */
+    private Transaction insertInSingleStatement(Transaction transaction, ZonedDateTime monthStart) {
+        // Идентификатор назначаем сами: вставка идет мимо Hibernate
+        transaction.setId(UuidV7.generate());
+        // Архив читается из файлов, а не из БД; для неархивированных месяцев файлы не открываются
+        BigDecimal archivedSpent = transactionArchive.sumInUsd(
+                transaction.getExpenseCategory(), monthStart, transaction.getDateTime());
+
+        TransactionRepositoryCustom.LimitCheckedInsert inserted = transactionRepository.insertCheckingLimit(
+                transaction, monthStart, archivedSpent, DEFAULT_MONTHLY_LIMIT_USD);
+        transaction.setLimitExceeded(inserted.limitExceeded());
+        log.info("Транзакция {} сохранена одним запросом с флагом limitExceeded={}",
+                transaction.getId(), inserted.limitExceeded());
+
+        afterSave(transaction, transaction.getIdempotencyKey(), monthStart, inserted.limit());
+        return transaction;
+    }
+
+    /**
+     * Общие шаги после записи транзакции: регистрация ключа идемпотентности и события,
+     * которые подписчики получат после коммита.
+     */
+    private void afterSave(Transaction savedTransaction, String idempotencyKey, ZonedDateTime monthStart,
+                           ExpenseLimit limit) {
+        if (idempotencyKey != null) {
+            idempotencyKeyRegistry.register(idempotencyKey, savedTransaction.getId());
+        }
+
+        // Кеш месячных сумм (остаток лимита) обновится после коммита
+        eventPublisher.publishEvent(new TransactionRecordedEvent(
+                savedTransaction.getExpenseCategory(), monthStart.toLocalDate(), savedTransaction.getSumInUsd()));
+
+        if (Boolean.TRUE.equals(savedTransaction.getLimitExceeded())) {
+            // Подписчики потока превышений получат событие только после коммита
+            eventPublisher.publishEvent(new LimitExceededEvent(toExceededDto(savedTransaction, limit)));
+        }
+    }
+
+    /**
+     * Проверяет, превысила бы транзакция месячный лимит, не сохраняя ее.
+     * Конвертация и выбор лимита те же, что в {@link #processAndSaveTransaction(TransactionDTO, String)},
+     * но траты за месяц берутся из {@link SpendingTotalsCache}, а не суммированием по таблице,
+     * поэтому транзакция БД не открывается и в основном случае обращений к БД нет вовсе.
+     * Траты учитываются за весь месяц транзакции: для прошедшего месяца это оценка сверху.
+     *
+     * @param dto Данные транзакции из запроса.
+     * @return Сумма в USD, действующий лимит, траты за месяц и признак превышения.
+     * @throws IllegalArgumentException если не найден курс валют.
+     */
+    public TransactionCheckResultDTO checkTransaction(TransactionDTO dto) {
+        ZonedDateTime dateTime = transactionMapper.mapDateTime(dto.getDateTime());
+        Transaction.ExpenseCategory category = dto.getExpenseCategory();
+
+        BigDecimal sumInUsd = convertToUsd(dto.getSum(), dto.getCurrencyShortname(), dateTime.toLocalDate());
+        Optional<ExpenseLimit> limit = findApplicableLimit(category, dateTime);
+        BigDecimal applicableLimit = limit.map(ExpenseLimit::getLimitSum).orElse(DEFAULT_MONTHLY_LIMIT_USD);
+        String limitCurrency = limit.map(ExpenseLimit::getLimitCurrencyShortname).orElse(LIMIT_CURRENCY);
+
+        // Месяц в часовом поясе приложения — так же, как month_start в агрегате
+        YearMonth month = YearMonth.from(dateTime.withZoneSameInstant(transactionArchive.zone()));
+        BigDecimal spent = spendingTotalsCache.monthTotal(category, month);
+        BigDecimal total = spent.add(sumInUsd);
+        boolean limitExceeded = total.compareTo(applicableLimit) > 0;
+        BigDecimal remaining = applicableLimit.subtract(total).max(BigDecimal.ZERO).setScale(USD_SCALE, USD_ROUNDING_MODE);
+        log.debug("Проверка транзакции категории {}: {} USD, потрачено {}, лимит {}, превышение {}",
+                category, sumInUsd, spent, applicableLimit, limitExceeded);
+
+        return new TransactionCheckResultDTO(category, month, sumInUsd, applicableLimit, limitCurrency,
+                spent, remaining, limitExceeded);
+    }
+
+    /**
+     * Находит транзакцию по ключу идемпотентности напрямую в БД, минуя фильтр.
+     * Используется после отказа уникального ограничения, когда дубликат точно существует.
+     *
+     * @param idempotencyKey Ключ идемпотентности.
+     * @return Optional с ранее сохраненной транзакцией.
+     */
+    @Transactional(readOnly = true)
+    public Optional<Transaction> findByIdempotencyKey(String idempotencyKey) {
+        return transactionRepository.findByIdempotencyKey(idempotencyKey);
+    }
+
+    /**
+     * Ищет ранее сохраненную транзакцию с тем же ключом.
+     * Если фильтр подтверждает, что ключ новый, к БД не обращаемся.
+     */
+    private Optional<Transaction> findDuplicate(String idempotencyKey) {
+        if (!idempotencyKeyRegistry.mightContain(idempotencyKey)) {
+            return Optional.empty();
+        }
+
+        Optional<UUID> recentId = idempotencyKeyRegistry.findRecentTransactionId(idempotencyKey);
+        if (recentId.isPresent()) {
+            Optional<Transaction> recent = transactionRepository.findById(recentId.get());
+            if (recent.isPresent()) {
+                return recent;
+            }
+        }
+
+        // Ложноположительный ответ фильтра или ключ вытеснен из кеша: проверяем по индексу
+        return transactionRepository.findByIdempotencyKey(idempotencyKey);
+    }
+
     /**
      * Конвертирует сумму из указанной валюты в USD по курсу на заданную дату.
      */
@@ -129,29 +321,43 @@ public class TransactionService {
     }
 
     /**
-     * Находит лимит расходов в USD, действующий для данной категории на указанную дату и время.
-     * Возвращает DEFAULT_MONTHLY_LIMIT_USD, если лимит не установлен.
+     * Находит лимит расходов, действующий для данной категории на указанную дату и время.
+     * Пустой Optional означает, что лимит не установлен и действует DEFAULT_MONTHLY_LIMIT_USD.
+     * История лимитов берется из кеша, согласованного между экземплярами.
      */
-    private BigDecimal findApplicableLimit(Transaction.ExpenseCategory category, ZonedDateTime dateTime) {
-        Optional<ExpenseLimit> limitOptional = expenseLimitRepository
-                .findLimitValidAtDateTime(category, dateTime);
+    private Optional<ExpenseLimit> findApplicableLimit(Transaction.ExpenseCategory category, ZonedDateTime dateTime) {
+        return limitCache.findLimitValidAt(category, dateTime);
+    }
 
-        return limitOptional
-                .map(ExpenseLimit::getLimitSum) // Если лимит найден, берем его сумму
-                .orElse(DEFAULT_MONTHLY_LIMIT_USD); // Иначе используем дефолтное значение
+    /**
+     * Собирает DTO превышения в том же виде, что и запрос findExceededTransactionsWithLimitDetails:
+     * при отсутствии установленного лимита поля лимита пустые.
+     */
+    private static LimitExceededTransactionDTO toExceededDto(Transaction transaction, ExpenseLimit limit) {
+        return new LimitExceededTransactionDTO(
+                transaction.getId(),
+                transaction.getAccountFrom(),
+                transaction.getAccountTo(),
+                transaction.getCurrencyShortname(),
+                transaction.getSum(),
+                transaction.getSumInUsd(),
+                transaction.getExpenseCategory(),
+                transaction.getDateTime(),
+                limit != null ? limit.getLimitSum() : null,
+                limit != null ? limit.getLimitDateTime() : null,
+                limit != null ? limit.getLimitCurrencyShortname() : null);
     }
 
     /**
      * Получает список транзакций, превысивших свой лимит расходов,
      * вместе с деталями лимита, который был превышен.
+     * Данные читаются из проекции в Cassandra, а не из таблицы transactions, постранично по мере обхода.
+     * Stream нужно закрыть после чтения.
      *
-     * @return Список LimitExceededTransactionDTO
+     * @return Поток LimitExceededTransactionDTO от новых к старым
      */
-    @Transactional(readOnly = true)
-    public List<LimitExceededTransactionDTO> getExceededTransactionsWithLimitDetails(){
+    public Stream<LimitExceededTransactionDTO> streamExceededTransactionsWithLimitDetails(){
         log.info("Запрос транзакций, превысивших лимиты, с деталями их лимитов.");
-        List<LimitExceededTransactionDTO> exceededTransactions = transactionRepository.findExceededTransactionsWithLimitDetails();
-        log.info("Найдено {} транзакций, превысивших лимиты.", exceededTransactions.size());
-        return exceededTransactions;
+        return exceededTransactionProjection.stream();
     }
 }
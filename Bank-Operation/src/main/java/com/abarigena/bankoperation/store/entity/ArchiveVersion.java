@@ -0,0 +1,33 @@
+package com.abarigena.bankoperation.store.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+import java.time.LocalDate;
+
+/**
+ * Последняя версия файла архива месяца (см. TransactionArchive).
+ * Пишется в транзакции переноса месяца, поэтому экземпляр, взявший блокировку трат месяца после коммита
+ * переноса, видит новую версию до оповещения ARCHIVE.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@EqualsAndHashCode
+@ToString
+@Entity
+@Table(name = "archive_versions")
+public class ArchiveVersion {
+
+    // Первый день месяца в часовом поясе приложения
+    @Id
+    @Column(name = "month_start")
+    private LocalDate monthStart;
+
+    private long version;
+
+    @Column(name = "archived_at")
+    private Instant archivedAt;
+}
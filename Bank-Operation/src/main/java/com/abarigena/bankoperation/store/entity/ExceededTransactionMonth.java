@@ -0,0 +1,26 @@
+package com.abarigena.bankoperation.store.entity;
+
+import lombok.*;
+import org.springframework.data.cassandra.core.cql.Ordering;
+import org.springframework.data.cassandra.core.cql.PrimaryKeyType;
+import org.springframework.data.cassandra.core.mapping.PrimaryKeyColumn;
+import org.springframework.data.cassandra.core.mapping.Table;
+
+import java.time.LocalDate;
+
+/**
+ * Список месяцев, для которых в проекции {@link ExceededTransactionView} есть записи по категории.
+ * Позволяет читать партиции проекции без сканирования всей таблицы.
+ */
+@Table(value = "exceeded_transaction_months")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ExceededTransactionMonth {
+    @PrimaryKeyColumn(name = "expense_category", type = PrimaryKeyType.PARTITIONED)
+    private String expenseCategory;
+
+    @PrimaryKeyColumn(name = "month_start", type = PrimaryKeyType.CLUSTERED, ordinal = 0, ordering = Ordering.DESCENDING)
+    private LocalDate monthStart;
+}
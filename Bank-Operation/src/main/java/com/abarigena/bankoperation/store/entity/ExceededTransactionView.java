@@ -0,0 +1,60 @@
+package com.abarigena.bankoperation.store.entity;
+
+import lombok.*;
+import org.springframework.data.cassandra.core.cql.Ordering;
+import org.springframework.data.cassandra.core.cql.PrimaryKeyType;
+import org.springframework.data.cassandra.core.mapping.*;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.UUID;
+
+/**
+ * Денормализованная проекция транзакций, превысивших лимит, для чтения без запросов к PostgreSQL.
+ * Партиция — категория и месяц, внутри партиции записи отсортированы по времени транзакции (новые первыми),
+ * поэтому выдача не требует ни соединений, ни сортировки.
+ */
+@Table(value = "exceeded_transactions_by_month")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ExceededTransactionView {
+    @PrimaryKeyColumn(name = "expense_category", type = PrimaryKeyType.PARTITIONED, ordinal = 0)
+    private String expenseCategory;
+
+    @PrimaryKeyColumn(name = "month_start", type = PrimaryKeyType.PARTITIONED, ordinal = 1)
+    private LocalDate monthStart;
+
+    @PrimaryKeyColumn(name = "transaction_datetime", type = PrimaryKeyType.CLUSTERED, ordinal = 2, ordering = Ordering.DESCENDING)
+    private Instant transactionDateTime;
+
+    @PrimaryKeyColumn(name = "transaction_id", type = PrimaryKeyType.CLUSTERED, ordinal = 3)
+    private UUID transactionId;
+
+    @Column("account_from")
+    private String accountFrom;
+
+    @Column("account_to")
+    private String accountTo;
+
+    @Column("currency_shortname")
+    private String currencyShortname;
+
+    @Column("sum")
+    private BigDecimal sum;
+
+    @Column("sum_in_usd")
+    private BigDecimal sumInUsd;
+
+    @Column("limit_sum")
+    private BigDecimal limitSum;
+
+    @Column("limit_datetime")
+    private Instant limitDateTime;
+
+    @Column("limit_currency_shortname")
+    private String limitCurrencyShortname;
+}
@@ -1,35 +1,66 @@
 package com.abarigena.bankoperation.store.entity;
 
 import lombok.*;
+import org.springframework.data.cassandra.core.cql.Ordering;
 import org.springframework.data.cassandra.core.cql.PrimaryKeyType;
 import org.springframework.data.cassandra.core.mapping.*;
 
 import java.math.BigDecimal;
+import java.time.Instant;
 import java.time.LocalDate;
-import java.util.UUID;
 
-@Table(value = "exchange_rates")
+/**
+ * Курс обмена валютной пары на дату.
+ * Первичный ключ детерминирован: (from_currency, to_currency, year) — партиция, date — кластерный ключ,
+ * поэтому для пары и даты существует ровно одна строка. Партиция ограничена годом и не растет бесконечно.
+ * Год вычисляется из даты автоматически (в сеттере и билдере).
+ */
+@Table(value = "daily_exchange_rates")
 @Getter
 @Setter
 @NoArgsConstructor
-@AllArgsConstructor
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
 @Builder
 public class ExchangeRate {
-    @PrimaryKeyColumn(name = "from_currency", type = PrimaryKeyType.PARTITIONED)
+    @PrimaryKeyColumn(name = "from_currency", type = PrimaryKeyType.PARTITIONED, ordinal = 0)
     private String fromCurrency;
 
-    @PrimaryKeyColumn(name = "to_currency", type = PrimaryKeyType.PARTITIONED)
+    @PrimaryKeyColumn(name = "to_currency", type = PrimaryKeyType.PARTITIONED, ordinal = 1)
     private String toCurrency;
 
-    @PrimaryKeyColumn(name = "date", type = PrimaryKeyType.CLUSTERED, ordinal = 0)
-    private LocalDate date;
+    @Setter(AccessLevel.NONE)
+    @PrimaryKeyColumn(name = "year", type = PrimaryKeyType.PARTITIONED, ordinal = 2)
+    private int year;
 
-    @PrimaryKeyColumn(name = "id", type = PrimaryKeyType.CLUSTERED, ordinal = 1)
-    private UUID id;
+    @PrimaryKeyColumn(name = "date", type = PrimaryKeyType.CLUSTERED, ordinal = 3, ordering = Ordering.DESCENDING)
+    private LocalDate date;
 
     @Column("close_price")
     private BigDecimal closePrice;
 
     @Column("previous_close_price")
     private BigDecimal previousClosePrice;
+
+    // Время сохранения курса (Last-Modified ответа /api/rates/today); у перенесенных из старой таблицы — null
+    @Column("saved_at")
+    private Instant savedAt;
+
+    public void setDate(LocalDate date) {
+        this.date = date;
+        this.year = date != null ? date.getYear() : 0;
+    }
+
+    public static class ExchangeRateBuilder {
+        public ExchangeRateBuilder date(LocalDate date) {
+            this.date = date;
+            this.year = date != null ? date.getYear() : 0;
+            return this;
+        }
+
+        // Год задается только через дату
+        private ExchangeRateBuilder year(int year) {
+            this.year = year;
+            return this;
+        }
+    }
 }
@@ -1,5 +1,6 @@
 package com.abarigena.bankoperation.store.entity;
 
+import com.abarigena.bankoperation.store.id.UuidV7Generator;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Positive;
@@ -22,7 +23,7 @@ public class ExpenseLimit {
 
     @Id
     @GeneratedValue(generator = "UUID")
-    @UuidGenerator
+    @UuidGenerator(algorithm = UuidV7Generator.class) // Упорядоченные по времени UUID v7
     private UUID id;
 
     @NotNull(message = "Сумма лимита не должна быть пустой")
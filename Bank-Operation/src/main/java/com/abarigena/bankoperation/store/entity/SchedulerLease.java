@@ -0,0 +1,53 @@
+package com.abarigena.bankoperation.store.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+/**
+ * Аренда плановой задачи в кластере.
+ * Задачу выполняет только экземпляр, указанный в holder, пока не истекло expires_at.
+ * Поля last_run_* хранят, какой экземпляр и когда последним выполнил задачу.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@EqualsAndHashCode
+@ToString
+@Entity
+@Table(name = "scheduler_leases")
+public class SchedulerLease {
+
+    @Id
+    @Column(name = "lease_name")
+    private String leaseName;
+
+    private String holder;
+
+    @Column(name = "acquired_at")
+    private Instant acquiredAt;
+
+    @Column(name = "expires_at")
+    private Instant expiresAt;
+
+    // Плановый момент запуска, для которого задача выполнена последней
+    @Column(name = "last_run_slot")
+    private Instant lastRunSlot;
+
+    @Column(name = "last_run_by")
+    private String lastRunBy;
+
+    @Column(name = "last_run_started_at")
+    private Instant lastRunStartedAt;
+
+    @Column(name = "last_run_finished_at")
+    private Instant lastRunFinishedAt;
+
+    @Column(name = "last_run_status")
+    private String lastRunStatus;
+
+    @Column(name = "run_count")
+    private long runCount;
+}
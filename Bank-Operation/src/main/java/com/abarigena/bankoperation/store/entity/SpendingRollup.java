@@ -0,0 +1,56 @@
+package com.abarigena.bankoperation.store.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Агрегат расходов по категории за календарный месяц.
+ * Поддерживается инкрементально при сохранении каждой транзакции,
+ * поэтому сводные отчеты не обращаются к таблице transactions.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@EqualsAndHashCode
+@ToString
+@Entity
+@Table(name = "spending_rollups")
+public class SpendingRollup {
+
+    @EmbeddedId
+    private Key id;
+
+    @Column(name = "total_spent_usd")
+    private BigDecimal totalSpentUsd;
+
+    @Column(name = "transaction_count")
+    private long transactionCount;
+
+    @Column(name = "exceeded_count")
+    private long exceededCount;
+
+    /**
+     * Составной ключ агрегата: категория расходов и первый день месяца.
+     */
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @EqualsAndHashCode
+    @ToString
+    @Embeddable
+    public static class Key implements Serializable {
+
+        @Enumerated(EnumType.STRING)
+        @Column(name = "expense_category")
+        private Transaction.ExpenseCategory expenseCategory;
+
+        @Column(name = "month_start")
+        private LocalDate monthStart;
+    }
+}
@@ -1,5 +1,6 @@
 package com.abarigena.bankoperation.store.entity;
 
+import com.abarigena.bankoperation.store.id.UuidV7Generator;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
@@ -24,7 +25,7 @@ public class Transaction {
 
     @Id
     @GeneratedValue(generator = "UUID")
-    @UuidGenerator
+    @UuidGenerator(algorithm = UuidV7Generator.class) // Упорядоченные по времени UUID v7
     private UUID id;
 
     @NotBlank(message = "Банковский счет клиента не может быть пустым")
@@ -54,6 +55,9 @@ public class Transaction {
 
     private Boolean limitExceeded;
 
+    @Column(name = "idempotency_key", unique = true)
+    private String idempotencyKey;
+
     public enum ExpenseCategory {
         PRODUCT,SERVICE
     }
@@ -0,0 +1,19 @@
+package com.abarigena.bankoperation.store.id;
+
+import com.abarigena.bankoperation.util.UuidV7;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.uuid.UuidValueGenerator;
+
+import java.util.UUID;
+
+/**
+ * Алгоритм для {@link org.hibernate.annotations.UuidGenerator}, выдающий упорядоченные по времени UUID версии 7.
+ * Колонка остается типа uuid, существующие случайные идентификаторы продолжают работать.
+ */
+public class UuidV7Generator implements UuidValueGenerator {
+
+    @Override
+    public UUID generateUuid(SharedSessionContractImplementor session) {
+        return UuidV7.generate();
+    }
+}
@@ -0,0 +1,56 @@
+package com.abarigena.bankoperation.store.migration;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.cassandra.core.CassandraOperations;
+import org.springframework.data.cassandra.core.cql.CqlOperations;
+import org.springframework.stereotype.Component;
+
+/**
+ * Добавляет колонку saved_at в таблицу daily_exchange_rates, созданную до ее появления.
+ * <p>
+ * spring.cassandra.schema-action=create_if_not_exists создает только отсутствующие таблицы и не меняет
+ * существующие. Колонка добавляется при старте до первой записи курса; если ее одновременно добавил
+ * другой экземпляр, ошибка ALTER TABLE пропускается.
+ */
+@Component
+public class ExchangeRateSavedAtMigration {
+
+    private static final Logger log = LoggerFactory.getLogger(ExchangeRateSavedAtMigration.class);
+
+    static final String TABLE = "daily_exchange_rates";
+    static final String COLUMN = "saved_at";
+
+    private final CqlOperations cqlOperations;
+    private final String keyspace;
+
+    public ExchangeRateSavedAtMigration(CassandraOperations cassandraOperations,
+                                        @Value("${spring.cassandra.keyspace-name}") String keyspace) {
+        this.cqlOperations = cassandraOperations.getCqlOperations();
+        this.keyspace = keyspace;
+    }
+
+    @PostConstruct
+    public void migrate() {
+        if (columnExists()) {
+            return;
+        }
+        try {
+            cqlOperations.execute("ALTER TABLE " + TABLE + " ADD " + COLUMN + " timestamp");
+            log.info("В таблицу {} добавлена колонка {}", TABLE, COLUMN);
+        } catch (RuntimeException e) {
+            if (!columnExists()) {
+                throw e;
+            }
+            log.debug("Колонку {} добавил другой экземпляр", COLUMN);
+        }
+    }
+
+    private boolean columnExists() {
+        return !cqlOperations.queryForList(
+                "SELECT column_name FROM system_schema.columns WHERE keyspace_name = ? AND table_name = ? AND column_name = ?",
+                String.class, keyspace, TABLE, COLUMN).isEmpty();
+    }
+}
@@ -0,0 +1,99 @@
+package com.abarigena.bankoperation.store.migration;
+
+import com.abarigena.bankoperation.scheduling.SchedulerLeaseService;
+import com.abarigena.bankoperation.store.entity.ExchangeRate;
+import com.abarigena.bankoperation.store.repository.ExchangeRateRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.data.cassandra.core.CassandraOperations;
+import org.springframework.data.cassandra.core.cql.CqlOperations;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Переносит курсы из старой таблицы exchange_rates (ключ со случайным UUID) в daily_exchange_rates.
+ * <p>
+ * Перенос выполняется один раз на кластер: при старте до первой загрузки курсов под арендой
+ * {@link SchedulerLeaseService} с постоянным плановым моментом. Отметка о завершении хранится в аренде
+ * (scheduler_leases), поэтому следующие запуски читают одну строку PostgreSQL и к старой таблице не обращаются.
+ * Пока перенос выполняет другой экземпляр, этот экземпляр его не ждет. После ошибки отметка не ставится,
+ * и перенос повторяется при следующем старте.
+ * <p>
+ * Перенос идемпотентен: строки пишутся через INSERT ... IF NOT EXISTS, из дубликатов на одну дату
+ * остается первый прочитанный. После переноса старую таблицу можно удалить вручную.
+ */
+@Component
+@DependsOn("exchangeRateSavedAtMigration") // Курсы пишутся с колонкой saved_at
+public class LegacyExchangeRateMigration {
+
+    private static final Logger log = LoggerFactory.getLogger(LegacyExchangeRateMigration.class);
+
+    static final String LEGACY_TABLE = "exchange_rates";
+    static final String JOB_NAME = "legacy-exchange-rate-migration";
+    // Перенос выполняется один раз, поэтому плановый момент постоянный
+    static final Instant SLOT = Instant.EPOCH;
+
+    private final SchedulerLeaseService schedulerLeaseService;
+    private final CqlOperations cqlOperations;
+    private final ExchangeRateRepository exchangeRateRepository;
+    private final String keyspace;
+    private final boolean enabled;
+
+    public LegacyExchangeRateMigration(SchedulerLeaseService schedulerLeaseService,
+                                       CassandraOperations cassandraOperations,
+                                       ExchangeRateRepository exchangeRateRepository,
+                                       @Value("${spring.cassandra.keyspace-name}") String keyspace,
+                                       @Value("${app.exchange.migrate-legacy-table:true}") boolean enabled) {
+        this.schedulerLeaseService = schedulerLeaseService;
+        this.cqlOperations = cassandraOperations.getCqlOperations();
+        this.exchangeRateRepository = exchangeRateRepository;
+        this.keyspace = keyspace;
+        this.enabled = enabled;
+    }
+
+    @PostConstruct
+    public void migrate() {
+        if (!enabled) {
+            return;
+        }
+        // Ошибки переноса перехватывает SchedulerLeaseService: запуск приложения не прерывается,
+        // старые курсы нужны только для fallback
+        SchedulerLeaseService.RunOutcome outcome = schedulerLeaseService.runExclusively(JOB_NAME, SLOT, this::copyLegacyRates);
+        log.debug("Перенос курсов из таблицы {}: {}", LEGACY_TABLE, outcome);
+    }
+
+    void copyLegacyRates() {
+        boolean legacyExists = !cqlOperations.queryForList(
+                "SELECT table_name FROM system_schema.tables WHERE keyspace_name = ? AND table_name = ?",
+                String.class, keyspace, LEGACY_TABLE).isEmpty();
+        if (!legacyExists) {
+            return;
+        }
+
+        log.info("Найдена таблица {}, перенос курсов в daily_exchange_rates", LEGACY_TABLE);
+        AtomicLong read = new AtomicLong();
+        AtomicLong inserted = new AtomicLong();
+        // Строки читаются постранично драйвером, без загрузки всей таблицы в память
+        cqlOperations.query("SELECT from_currency, to_currency, date, close_price, previous_close_price FROM " + LEGACY_TABLE,
+                row -> {
+                    read.incrementAndGet();
+                    ExchangeRate rate = ExchangeRate.builder()
+                            .fromCurrency(row.getString("from_currency"))
+                            .toCurrency(row.getString("to_currency"))
+                            .date(row.getLocalDate("date"))
+                            .closePrice(row.getBigDecimal("close_price"))
+                            .previousClosePrice(row.getBigDecimal("previous_close_price"))
+                            .build();
+                    if (exchangeRateRepository.insertIfNotExists(rate)) {
+                        inserted.incrementAndGet();
+                    }
+                });
+        log.info("Перенос курсов завершен: прочитано {}, добавлено {}. Таблица {} больше не читается, ее можно удалить",
+                read.get(), inserted.get(), LEGACY_TABLE);
+    }
+}
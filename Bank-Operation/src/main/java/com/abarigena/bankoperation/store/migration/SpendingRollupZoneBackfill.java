@@ -0,0 +1,117 @@
+package com.abarigena.bankoperation.store.migration;
+
+import com.abarigena.bankoperation.archive.TransactionArchive;
+import liquibase.change.custom.CustomSqlChange;
+import liquibase.database.Database;
+import liquibase.exception.ValidationErrors;
+import liquibase.resource.ResourceAccessor;
+import liquibase.statement.SqlStatement;
+import liquibase.statement.core.RawParameterizedSqlStatement;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Path;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Пересчитывает агрегаты spending_rollups по транзакциям из таблицы, определяя месяц в часовом поясе приложения
+ * (часовой пояс JVM, как в {@link TransactionArchive#zone()}).
+ * <p>
+ * Первое заполнение агрегатов брало месяц через date_trunc в часовом поясе сессии БД, а запись транзакции —
+ * в поясе, который прислал клиент, поэтому транзакции на границе месяца могли попасть в разные месяцы.
+ * <p>
+ * Пересчитываются только месяцы без файла в архиве (параметр archiveDir — app.archive.dir): все их строки
+ * есть в таблице. Агрегаты архивированных месяцев остаются как есть, даже если в таблице есть записанные
+ * задним числом строки этих месяцев: из одной таблицы их сумму не пересчитать. Месяцы старше самого
+ * старого месяца таблицы (за вычетом одного — туда могли попасть строки с границы) не затрагиваются.
+ */
+public class SpendingRollupZoneBackfill implements CustomSqlChange {
+
+    private static final Logger log = LoggerFactory.getLogger(SpendingRollupZoneBackfill.class);
+
+    private static final String MONTH_START = "CAST(date_trunc('month', datetime AT TIME ZONE %s) AS date)";
+
+    private String archiveDir;
+
+    /**
+     * Каталог архива; задается параметром changeSet из spring.liquibase.parameters.archiveDir.
+     */
+    public void setArchiveDir(String archiveDir) {
+        this.archiveDir = archiveDir;
+    }
+
+    @Override
+    public SqlStatement[] generateStatements(Database database) {
+        ZoneId zone = ZoneId.systemDefault();
+        String monthStart = MONTH_START.formatted(zoneExpression(zone));
+        Object zoneParameter = zoneParameter(zone);
+        String archivedMonths = toDateArray(archivedMonths());
+        return new SqlStatement[]{
+                new RawParameterizedSqlStatement("DELETE FROM spending_rollups "
+                        + "WHERE month_start >= (SELECT MIN(" + monthStart + ") FROM transactions) - INTERVAL '1 month' "
+                        + "AND month_start <> ALL (CAST(? AS date[]))", zoneParameter, archivedMonths),
+                new RawParameterizedSqlStatement("INSERT INTO spending_rollups "
+                        + "(expense_category, month_start, total_spent_usd, transaction_count, exceeded_count) "
+                        + "SELECT expense_category, month_start, SUM(sum_in_usd), COUNT(*), "
+                        + "COUNT(*) FILTER (WHERE limit_exceeded) "
+                        + "FROM (SELECT expense_category, " + monthStart + " AS month_start, sum_in_usd, limit_exceeded "
+                        + "FROM transactions) t "
+                        + "WHERE month_start <> ALL (CAST(? AS date[])) "
+                        + "GROUP BY expense_category, month_start", zoneParameter, archivedMonths)
+        };
+    }
+
+    private Set<YearMonth> archivedMonths() {
+        // Без подстановки Liquibase оставляет имя параметра как есть
+        if (archiveDir == null || archiveDir.isBlank() || archiveDir.startsWith("${")) {
+            log.warn("Каталог архива не задан: агрегаты пересчитываются без учета архивированных месяцев");
+            return Set.of();
+        }
+        return TransactionArchive.archivedMonthsIn(Path.of(archiveDir));
+    }
+
+    /**
+     * Массив дат начала месяцев в текстовом виде PostgreSQL: {2025-01-01,2025-02-01}.
+     */
+    static String toDateArray(Set<YearMonth> months) {
+        return months.stream().sorted().map(month -> month.atDay(1).toString())
+                .collect(Collectors.joining(",", "{", "}"));
+    }
+
+    /**
+     * Пояс для AT TIME ZONE. Фиксированное смещение передается интервалом: строку вида '+03:00'
+     * PostgreSQL понимает как POSIX-пояс с обратным знаком.
+     */
+    static String zoneExpression(ZoneId zone) {
+        return zone.normalized() instanceof ZoneOffset ? "CAST(? AS interval)" : "?";
+    }
+
+    static Object zoneParameter(ZoneId zone) {
+        if (zone.normalized() instanceof ZoneOffset offset) {
+            return offset.getTotalSeconds() + " seconds";
+        }
+        return zone.getId();
+    }
+
+    @Override
+    public String getConfirmationMessage() {
+        return "Агрегаты spending_rollups пересчитаны в часовом поясе " + ZoneId.systemDefault().getId();
+    }
+
+    @Override
+    public void setUp() {
+    }
+
+    @Override
+    public void setFileOpener(ResourceAccessor resourceAccessor) {
+    }
+
+    @Override
+    public ValidationErrors validate(Database database) {
+        return new ValidationErrors();
+    }
+}
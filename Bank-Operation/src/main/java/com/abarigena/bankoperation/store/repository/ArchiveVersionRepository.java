@@ -0,0 +1,34 @@
+package com.abarigena.bankoperation.store.repository;
+
+import com.abarigena.bankoperation.store.entity.ArchiveVersion;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Репозиторий версий файлов архива по месяцам (ArchiveVersion).
+ */
+public interface ArchiveVersionRepository extends JpaRepository<ArchiveVersion, LocalDate> {
+
+    /**
+     * Записывает версию файла месяца. Выполняется в транзакции переноса месяца.
+     *
+     * @param monthStart Первый день месяца.
+     * @param version    Версия файла.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO archive_versions (month_start, version, archived_at) " +
+            "VALUES (:monthStart, :version, now()) " +
+            "ON CONFLICT (month_start) DO UPDATE SET version = EXCLUDED.version, archived_at = EXCLUDED.archived_at",
+            nativeQuery = true)
+    void recordVersion(@Param("monthStart") LocalDate monthStart, @Param("version") long version);
+
+    /**
+     * @return Версии архивированных месяцев с first по last включительно.
+     */
+    List<ArchiveVersion> findByMonthStartBetween(LocalDate first, LocalDate last);
+}
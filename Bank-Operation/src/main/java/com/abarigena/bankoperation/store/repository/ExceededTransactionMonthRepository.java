@@ -0,0 +1,19 @@
+package com.abarigena.bankoperation.store.repository;
+
+import com.abarigena.bankoperation.store.entity.ExceededTransactionMonth;
+import org.springframework.data.cassandra.repository.CassandraRepository;
+import org.springframework.data.cassandra.repository.Query;
+
+import java.util.List;
+
+/**
+ * Репозиторий списка месяцев проекции превышений в Apache Cassandra.
+ */
+public interface ExceededTransactionMonthRepository extends CassandraRepository<ExceededTransactionMonth, String> {
+    /**
+     * @param expenseCategory Категория расходов (имя enum).
+     * @return Месяцы с превышениями по категории, от новых к старым.
+     */
+    @Query("SELECT * FROM exceeded_transaction_months WHERE expense_category = ?0")
+    List<ExceededTransactionMonth> findByCategory(String expenseCategory);
+}
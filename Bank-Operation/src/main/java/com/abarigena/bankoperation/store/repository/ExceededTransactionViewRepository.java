@@ -0,0 +1,25 @@
+package com.abarigena.bankoperation.store.repository;
+
+import com.abarigena.bankoperation.store.entity.ExceededTransactionView;
+import org.springframework.data.cassandra.repository.CassandraRepository;
+import org.springframework.data.cassandra.repository.Query;
+
+import java.time.LocalDate;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Репозиторий проекции транзакций, превысивших лимит, в Apache Cassandra.
+ */
+public interface ExceededTransactionViewRepository extends CassandraRepository<ExceededTransactionView, UUID> {
+    /**
+     * Возвращает все записи одной партиции (категория, месяц) в порядке кластеризации —
+     * от новых транзакций к старым.
+     *
+     * @param expenseCategory Категория расходов (имя enum).
+     * @param monthStart      Первый день месяца.
+     * @return Поток записей проекции; страницы читаются из Cassandra по мере обхода.
+     */
+    @Query("SELECT * FROM exceeded_transactions_by_month WHERE expense_category = ?0 AND month_start = ?1")
+    Stream<ExceededTransactionView> streamByCategoryAndMonth(String expenseCategory, LocalDate monthStart);
+}
@@ -1,48 +1,69 @@
 package com.abarigena.bankoperation.store.repository;
 
 import com.abarigena.bankoperation.store.entity.ExchangeRate;
+import org.springframework.data.cassandra.core.mapping.MapId;
 import org.springframework.data.cassandra.repository.CassandraRepository;
 import org.springframework.data.cassandra.repository.Query;
-import org.springframework.data.repository.query.Param;
 
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
-import java.util.UUID;
 
 /**
  * Репозиторий для управления сущностями Курсов Валют (ExchangeRate),
  * хранящимися в базе данных Apache Cassandra.
  * Использует Spring Data Cassandra.
+ * Партиция таблицы — (from_currency, to_currency, year), поэтому запросы по дате
+ * сначала определяют год.
  */
-public interface ExchangeRateRepository extends CassandraRepository<ExchangeRate, UUID> {
+public interface ExchangeRateRepository extends CassandraRepository<ExchangeRate, MapId>, ExchangeRateRepositoryCustom {
+
+    /**
+     * На сколько лет назад искать последний доступный курс, если в текущем году курсов нет.
+     */
+    int LATEST_RATE_LOOKBACK_YEARS = 5;
+
     /**
      * Находит самый последний доступный курс обмена для указанной валютной пары.
-     * Осуществляет поиск по ключам партиционирования (from_currency, to_currency)
-     * и сортирует результаты по кластерному ключу date в порядке убывания,
-     * возвращая только первую (самую свежую) запись.
+     * Просматривает партиции по годам, начиная с текущего; внутри партиции
+     * строки уже отсортированы по date в порядке убывания.
      *
      * @param fromCurrency Код исходной валюты (например, "RUB").
      * @param toCurrency   Код целевой валюты (например, "USD").
      * @return Optional, содержащий самый свежий курс обмена для пары, или пустой Optional, если для этой пары нет ни одной записи.
      */
-    @Query("SELECT * FROM exchange_rates WHERE from_currency = ?0 AND to_currency = ?1 ORDER BY date DESC LIMIT 1")
-    Optional<ExchangeRate> findLatestRateForCurrencyPair(String fromCurrency, String toCurrency);
+    default Optional<ExchangeRate> findLatestRateForCurrencyPair(String fromCurrency, String toCurrency) {
+        int currentYear = LocalDate.now().getYear();
+        for (int year = currentYear; year >= currentYear - LATEST_RATE_LOOKBACK_YEARS; year--) {
+            Optional<ExchangeRate> latest = findLatestRateInYear(fromCurrency, toCurrency, year);
+            if (latest.isPresent()) {
+                return latest;
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Находит самый последний курс пары в партиции одного года.
+     */
+    @Query("SELECT * FROM daily_exchange_rates WHERE from_currency = ?0 AND to_currency = ?1 AND year = ?2 LIMIT 1")
+    Optional<ExchangeRate> findLatestRateInYear(String fromCurrency, String toCurrency, int year);
 
     /**
      * Находит курс обмена для указанной валютной пары на конкретную дату.
-     * Осуществляет поиск по ключам партиционирования (from_currency, to_currency)
-     * и кластерному ключу date.
-     * Использует LIMIT 1, так как теоретически могут быть дубликаты,
-     * для гарантии возврата только одного результата.
+     * Ключ (пара, дата) уникален, поэтому запрос читает не больше одной строки.
      *
      * @param fromCurrency Код исходной валюты (например, "RUB").
      * @param toCurrency   Код целевой валюты (например, "USD").
      * @param date         Конкретная дата, на которую ищется курс.
      * @return Optional, содержащий курс обмена на указанную дату, или пустой Optional, если запись на эту дату не найдена.
      */
-    @Query("SELECT * FROM exchange_rates WHERE from_currency = ?0 AND to_currency = ?1 AND date = ?2 LIMIT 1")
-    Optional<ExchangeRate> findByFromCurrencyAndToCurrencyAndDate(String fromCurrency, String toCurrency, LocalDate date);
+    default Optional<ExchangeRate> findByFromCurrencyAndToCurrencyAndDate(String fromCurrency, String toCurrency, LocalDate date) {
+        return findByKey(fromCurrency, toCurrency, date.getYear(), date);
+    }
+
+    @Query("SELECT * FROM daily_exchange_rates WHERE from_currency = ?0 AND to_currency = ?1 AND year = ?2 AND date = ?3")
+    Optional<ExchangeRate> findByKey(String fromCurrency, String toCurrency, int year, LocalDate date);
 
     /**
      * Находит все курсы, сохраненные на указанную дату.
@@ -50,6 +71,10 @@ public interface ExchangeRateRepository extends CassandraRepository<ExchangeRate
      * @param date Дата, на которую нужны курсы.
      * @return Список курсов на указанную дату.
      */
-    @Query("SELECT * FROM exchange_rates WHERE date = :rateDate ALLOW FILTERING")
-    List<ExchangeRate> findAllByDate(@Param("rateDate") LocalDate date);
+    default List<ExchangeRate> findAllByDate(LocalDate date) {
+        return findAllByYearAndDate(date.getYear(), date);
+    }
+
+    @Query("SELECT * FROM daily_exchange_rates WHERE year = ?0 AND date = ?1 ALLOW FILTERING")
+    List<ExchangeRate> findAllByYearAndDate(int year, LocalDate date);
 }
@@ -0,0 +1,41 @@
+package com.abarigena.bankoperation.store.repository;
+
+import com.abarigena.bankoperation.store.entity.ExchangeRate;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Дополнительные операции репозитория курсов, которые не выражаются производными запросами Spring Data.
+ */
+public interface ExchangeRateRepositoryCustom {
+
+    /**
+     * Атомарно сохраняет курс, если для пары и даты его еще нет
+     * (INSERT ... IF NOT EXISTS, один запрос к Cassandra).
+     *
+     * @param rate Курс для сохранения.
+     * @return true, если курс сохранен; false, если курс на эту дату уже существовал.
+     */
+    boolean insertIfNotExists(ExchangeRate rate);
+
+    /**
+     * Страница курсов пары из партиции одного года.
+     *
+     * @param rates       Курсы по убыванию даты.
+     * @param pagingState Состояние страниц Cassandra для продолжения чтения партиции; null, если партиция прочитана.
+     */
+    record HistorySlice(List<ExchangeRate> rates, ByteBuffer pagingState) {
+    }
+
+    /**
+     * Читает курсы пары за диапазон дат [start, end) в партиции года year: один запрос с диапазоном
+     * по кластерному ключу date, строки в порядке хранения (по убыванию даты).
+     *
+     * @param pagingState Продолжение предыдущей страницы этого же запроса или null для первой страницы.
+     * @param size        Максимальное число строк на странице.
+     */
+    HistorySlice findHistorySlice(String fromCurrency, String toCurrency, int year,
+                                  LocalDate start, LocalDate end, int size, ByteBuffer pagingState);
+}
@@ -0,0 +1,48 @@
+package com.abarigena.bankoperation.store.repository;
+
+import com.abarigena.bankoperation.store.entity.ExchangeRate;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.cassandra.core.CassandraOperations;
+import org.springframework.data.cassandra.core.InsertOptions;
+import org.springframework.data.cassandra.core.query.CassandraPageRequest;
+import org.springframework.data.cassandra.core.query.Query;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+
+import static org.springframework.data.cassandra.core.query.Criteria.where;
+
+/**
+ * Реализация {@link ExchangeRateRepositoryCustom} на CassandraOperations.
+ */
+@RequiredArgsConstructor
+class ExchangeRateRepositoryCustomImpl implements ExchangeRateRepositoryCustom {
+
+    private static final InsertOptions IF_NOT_EXISTS = InsertOptions.builder().withIfNotExists().build();
+
+    private final CassandraOperations cassandraOperations;
+
+    @Override
+    public boolean insertIfNotExists(ExchangeRate rate) {
+        return cassandraOperations.insert(rate, IF_NOT_EXISTS).wasApplied();
+    }
+
+    @Override
+    public HistorySlice findHistorySlice(String fromCurrency, String toCurrency, int year,
+                                         LocalDate start, LocalDate end, int size, ByteBuffer pagingState) {
+        Query query = Query.query(
+                        where("fromCurrency").is(fromCurrency),
+                        where("toCurrency").is(toCurrency),
+                        where("year").is(year),
+                        where("date").gte(start),
+                        where("date").lt(end))
+                .pageRequest(pagingState != null
+                        ? CassandraPageRequest.of(PageRequest.of(0, size), pagingState)
+                        : CassandraPageRequest.first(size));
+        Slice<ExchangeRate> slice = cassandraOperations.slice(query, ExchangeRate.class);
+        ByteBuffer next = slice.hasNext() ? ((CassandraPageRequest) slice.nextPageable()).getPagingState() : null;
+        return new HistorySlice(slice.getContent(), next);
+    }
+}
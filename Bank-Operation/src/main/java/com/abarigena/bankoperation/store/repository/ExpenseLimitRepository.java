@@ -7,6 +7,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
 import java.time.ZonedDateTime;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -31,4 +32,12 @@ public interface ExpenseLimitRepository extends JpaRepository<ExpenseLimit, UUID
             @Param("category") Transaction.ExpenseCategory category,
             @Param("datetime") ZonedDateTime datetime
     );
+
+    /**
+     * Возвращает всю историю лимитов категории от старых к новым (для кеша лимитов).
+     *
+     * @param category Категория расходов.
+     * @return Список лимитов в порядке установки.
+     */
+    List<ExpenseLimit> findByExpenseCategoryOrderByLimitDateTimeAsc(Transaction.ExpenseCategory category);
 }
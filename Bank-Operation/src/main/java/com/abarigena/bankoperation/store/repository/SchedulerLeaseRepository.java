@@ -0,0 +1,84 @@
+package com.abarigena.bankoperation.store.repository;
+
+import com.abarigena.bankoperation.store.entity.SchedulerLease;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+
+/**
+ * Репозиторий аренд плановых задач (SchedulerLease).
+ * Время аренды считается по часам PostgreSQL (now()), поэтому расхождение часов экземпляров не влияет на результат.
+ */
+public interface SchedulerLeaseRepository extends JpaRepository<SchedulerLease, String> {
+
+    /**
+     * Захватывает аренду, если она свободна, истекла или уже принадлежит этому экземпляру.
+     * Выполняется одним INSERT ... ON CONFLICT DO UPDATE ... WHERE, поэтому из конкурирующих экземпляров
+     * аренду получает ровно один.
+     *
+     * @param leaseName  Имя аренды (задачи).
+     * @param holder     Идентификатор экземпляра.
+     * @param ttlSeconds Срок аренды в секундах.
+     * @return 1, если аренда получена, иначе 0.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO scheduler_leases (lease_name, holder, acquired_at, expires_at) " +
+            "VALUES (:leaseName, :holder, now(), now() + make_interval(secs => :ttlSeconds)) " +
+            "ON CONFLICT (lease_name) DO UPDATE SET " +
+            "holder = EXCLUDED.holder, acquired_at = EXCLUDED.acquired_at, expires_at = EXCLUDED.expires_at " +
+            "WHERE scheduler_leases.expires_at < now() OR scheduler_leases.holder = EXCLUDED.holder",
+            nativeQuery = true)
+    int tryAcquire(@Param("leaseName") String leaseName,
+                   @Param("holder") String holder,
+                   @Param("ttlSeconds") long ttlSeconds);
+
+    /**
+     * Продлевает аренду, пока она принадлежит этому экземпляру.
+     *
+     * @return 1, если аренда продлена, 0 — если ее уже захватил другой экземпляр.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE scheduler_leases SET expires_at = now() + make_interval(secs => :ttlSeconds) " +
+            "WHERE lease_name = :leaseName AND holder = :holder",
+            nativeQuery = true)
+    int renew(@Param("leaseName") String leaseName,
+              @Param("holder") String holder,
+              @Param("ttlSeconds") long ttlSeconds);
+
+    /**
+     * Отмечает плановый запуск выполненным и освобождает аренду (если она еще принадлежит этому экземпляру).
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE scheduler_leases SET " +
+            "last_run_slot = GREATEST(COALESCE(last_run_slot, :slot), :slot), last_run_by = :holder, " +
+            "last_run_started_at = :startedAt, last_run_finished_at = now(), last_run_status = 'SUCCEEDED', " +
+            "run_count = run_count + 1, " +
+            "expires_at = CASE WHEN holder = :holder THEN now() ELSE expires_at END " +
+            "WHERE lease_name = :leaseName",
+            nativeQuery = true)
+    int completeRun(@Param("leaseName") String leaseName,
+                    @Param("holder") String holder,
+                    @Param("slot") Instant slot,
+                    @Param("startedAt") Instant startedAt);
+
+    /**
+     * Фиксирует неудачный запуск и освобождает аренду: запуск повторит любой экземпляр при следующей проверке.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE scheduler_leases SET " +
+            "last_run_by = :holder, last_run_started_at = :startedAt, last_run_finished_at = now(), " +
+            "last_run_status = 'FAILED', expires_at = now() " +
+            "WHERE lease_name = :leaseName AND holder = :holder",
+            nativeQuery = true)
+    int releaseAfterFailure(@Param("leaseName") String leaseName,
+                            @Param("holder") String holder,
+                            @Param("startedAt") Instant startedAt);
+}
@@ -0,0 +1,51 @@
+package com.abarigena.bankoperation.store.repository;
+
+import com.abarigena.bankoperation.store.entity.SpendingRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Репозиторий для месячных агрегатов расходов (SpendingRollup).
+ */
+public interface SpendingRollupRepository extends JpaRepository<SpendingRollup, SpendingRollup.Key> {
+
+    /**
+     * Атомарно добавляет транзакцию в агрегат категории за месяц.
+     * Если строки агрегата еще нет, она создается (INSERT ... ON CONFLICT DO UPDATE),
+     * поэтому конкурентные вставки не теряют слагаемые.
+     *
+     * @param category   Категория расходов (имя enum).
+     * @param monthStart Первый день месяца транзакции.
+     * @param amountUsd  Сумма транзакции в USD.
+     * @param exceeded   1, если транзакция превысила лимит, иначе 0.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO spending_rollups " +
+            "(expense_category, month_start, total_spent_usd, transaction_count, exceeded_count) " +
+            "VALUES (:category, :monthStart, :amountUsd, 1, :exceeded) " +
+            "ON CONFLICT (expense_category, month_start) DO UPDATE SET " +
+            "total_spent_usd = spending_rollups.total_spent_usd + EXCLUDED.total_spent_usd, " +
+            "transaction_count = spending_rollups.transaction_count + 1, " +
+            "exceeded_count = spending_rollups.exceeded_count + EXCLUDED.exceeded_count",
+            nativeQuery = true)
+    void addTransaction(
+            @Param("category") String category,
+            @Param("monthStart") LocalDate monthStart,
+            @Param("amountUsd") BigDecimal amountUsd,
+            @Param("exceeded") int exceeded
+    );
+
+    /**
+     * Возвращает агрегаты всех категорий за указанный месяц.
+     *
+     * @param monthStart Первый день месяца.
+     * @return Список агрегатов (пустой, если в месяце не было транзакций).
+     */
+    List<SpendingRollup> findByIdMonthStart(LocalDate monthStart);
+}
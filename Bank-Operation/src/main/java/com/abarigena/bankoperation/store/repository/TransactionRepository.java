@@ -3,18 +3,33 @@ package com.abarigena.bankoperation.store.repository;
 import com.abarigena.bankoperation.dto.LimitExceededTransactionDTO;
 import com.abarigena.bankoperation.store.entity.Transaction;
 import org.springframework.data.jpa.repository.JpaRepository;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
 import java.math.BigDecimal;
+import java.time.YearMonth;
 import java.time.ZonedDateTime;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 /**
  * Репозиторий для управления сущностями Транзакций (Transaction).
  */
-public interface TransactionRepository extends JpaRepository<Transaction, UUID> {
+public interface TransactionRepository extends JpaRepository<Transaction, UUID>, TransactionRepositoryCustom {
+
+    /**
+     * Находит транзакцию, сохраненную с указанным ключом идемпотентности.
+     *
+     * @param idempotencyKey Ключ идемпотентности из заголовка Idempotency-Key.
+     * @return Optional с транзакцией или пустой Optional, если ключ не встречался.
+     */
+    Optional<Transaction> findByIdempotencyKey(String idempotencyKey);
 
     /**
      * Рассчитывает общую сумму расходов (в USD) для указанной категории
@@ -61,4 +76,153 @@ public interface TransactionRepository extends JpaRepository<Transaction, UUID>
             ") " +
             "ORDER BY t.dateTime DESC")
     List<LimitExceededTransactionDTO> findExceededTransactionsWithLimitDetails();
+
+    /**
+     * Потоково возвращает транзакции, превысившие лимит, за указанный период
+     * (включая начальную дату, исключая конечную) вместе с деталями лимита.
+     * Строки читаются через серверный курсор PostgreSQL порциями по FETCH_SIZE,
+     * поэтому потребление памяти не зависит от размера выборки.
+     * Метод должен вызываться внутри транзакции, а Stream — закрываться после чтения.
+     *
+     * @param periodStart Начало периода (включительно).
+     * @param periodEnd   Конец периода (исключительно).
+     * @return Stream DTO, отсортированный по времени транзакции в порядке возрастания.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + EXPORT_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT new com.abarigena.bankoperation.dto.LimitExceededTransactionDTO(" +
+            "t.id, t.accountFrom, t.accountTo, t.currencyShortname, t.sum, t.sumInUsd, t.expenseCategory, t.dateTime, " +
+            "el.limitSum, el.limitDateTime, el.limitCurrencyShortname) " +
+            "FROM Transaction t " +
+            "LEFT JOIN ExpenseLimit el ON t.expenseCategory = el.expenseCategory AND el.limitDateTime <= t.dateTime " +
+            "WHERE t.limitExceeded = true " +
+            "AND t.dateTime >= :periodStart AND t.dateTime < :periodEnd " +
+            "AND NOT EXISTS (" +
+            "  SELECT el2 FROM ExpenseLimit el2 " +
+            "  WHERE el2.expenseCategory = el.expenseCategory " +
+            "  AND el2.limitDateTime <= t.dateTime " +
+            "  AND el2.limitDateTime > el.limitDateTime" +
+            ") " +
+            "ORDER BY t.dateTime ASC")
+    Stream<LimitExceededTransactionDTO> streamExceededTransactionsWithLimitDetails(
+            @Param("periodStart") ZonedDateTime periodStart,
+            @Param("periodEnd") ZonedDateTime periodEnd
+    );
+
+    /**
+     * Потоково читает транзакции, превысившие лимит, с примененным лимитом (как
+     * {@link #streamExceededTransactionsWithLimitDetails}), но отбирает их по времени записи, а не совершения:
+     * идентификаторы — UUID версии 7, поэтому диапазон идентификаторов читается по первичному ключу
+     * и включает транзакции, записанные задним числом.
+     * Метод должен вызываться внутри транзакции, а Stream — закрываться после чтения.
+     *
+     * @param fromId Нижняя граница идентификатора (включительно), см. {@link com.abarigena.bankoperation.util.UuidV7#lowerBound}.
+     * @param toId   Верхняя граница идентификатора (исключительно).
+     * @return Stream DTO в порядке записи.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + EXPORT_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT new com.abarigena.bankoperation.dto.LimitExceededTransactionDTO(" +
+            "t.id, t.accountFrom, t.accountTo, t.currencyShortname, t.sum, t.sumInUsd, t.expenseCategory, t.dateTime, " +
+            "el.limitSum, el.limitDateTime, el.limitCurrencyShortname) " +
+            "FROM Transaction t " +
+            "LEFT JOIN ExpenseLimit el ON t.expenseCategory = el.expenseCategory AND el.limitDateTime <= t.dateTime " +
+            "WHERE t.limitExceeded = true " +
+            "AND t.id >= :fromId AND t.id < :toId " +
+            "AND NOT EXISTS (" +
+            "  SELECT el2 FROM ExpenseLimit el2 " +
+            "  WHERE el2.expenseCategory = el.expenseCategory " +
+            "  AND el2.limitDateTime <= t.dateTime " +
+            "  AND el2.limitDateTime > el.limitDateTime" +
+            ") " +
+            "ORDER BY t.id ASC")
+    Stream<LimitExceededTransactionDTO> streamExceededTransactionsRecordedBetween(
+            @Param("fromId") UUID fromId,
+            @Param("toId") UUID toId
+    );
+
+    /**
+     * Время самой ранней транзакции, совершенной раньше указанного момента.
+     * Используется архивацией для поиска самого старого месяца, оставшегося в таблице.
+     *
+     * @param before Граница (исключительно).
+     * @return Optional со временем транзакции или пустой Optional, если таких транзакций нет.
+     */
+    @Query("SELECT MIN(t.dateTime) FROM Transaction t WHERE t.dateTime < :before")
+    Optional<ZonedDateTime> findOldestDateTimeBefore(@Param("before") ZonedDateTime before);
+
+    /**
+     * Потоково возвращает все транзакции периода (включая начальную дату, исключая конечную)
+     * по возрастанию времени для переноса в архив. Возвращаются неуправляемые копии сущностей,
+     * поэтому контекст персистентности не растет с размером выборки.
+     * Метод должен вызываться внутри транзакции, а Stream — закрываться после чтения.
+     *
+     * @param periodStart Начало периода (включительно).
+     * @param periodEnd   Конец периода (исключительно).
+     * @return Stream транзакций, отсортированный по времени.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + EXPORT_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT new com.abarigena.bankoperation.store.entity.Transaction(" +
+            "t.id, t.accountFrom, t.accountTo, t.currencyShortname, t.sum, t.sumInUsd, t.expenseCategory, t.dateTime, " +
+            "t.limitExceeded, t.idempotencyKey) " +
+            "FROM Transaction t " +
+            "WHERE t.dateTime >= :periodStart AND t.dateTime < :periodEnd " +
+            "ORDER BY t.dateTime ASC")
+    Stream<Transaction> streamForArchive(
+            @Param("periodStart") ZonedDateTime periodStart,
+            @Param("periodEnd") ZonedDateTime periodEnd
+    );
+
+    /**
+     * Удаляет транзакции периода (включая начальную дату, исключая конечную).
+     * В транзакции REPEATABLE READ удаляются только строки, видимые в ее снимке,
+     * то есть ровно те, что были прочитаны streamForArchive в той же транзакции.
+     *
+     * @return Количество удаленных строк.
+     */
+    @Modifying
+    @Query("DELETE FROM Transaction t WHERE t.dateTime >= :periodStart AND t.dateTime < :periodEnd")
+    int deleteByPeriod(
+            @Param("periodStart") ZonedDateTime periodStart,
+            @Param("periodEnd") ZonedDateTime periodEnd
+    );
+
+    /**
+     * Берет транзакционную advisory-блокировку категории за месяц: транзакции одной категории и месяца
+     * проверяют лимит и записываются по очереди, поэтому каждая видит траты всех предыдущих.
+     * Блокировка снимается при коммите или откате; категории и месяцы друг друга не ждут.
+     * Перенос месяца в архив берет ее по всем категориям до удаления строк.
+     *
+     * @param category Категория расходов.
+     * @param month    Месяц транзакции в часовом поясе приложения (TransactionArchive.zone()),
+     *                 а не в поясе, который прислал клиент: тот же месяц, за который считается лимит.
+     */
+    default void lockSpendingMonth(Transaction.ExpenseCategory category, YearMonth month) {
+        acquireAdvisoryXactLock(SPENDING_LOCK_CLASS + category.ordinal(), month.getYear() * 12 + month.getMonthValue() - 1);
+    }
+
+    /**
+     * Ждет advisory-блокировку (pg_advisory_xact_lock) с ключом из двух чисел до конца транзакции.
+     *
+     * @return Всегда 1.
+     */
+    @Query(value = "SELECT 1 FROM (SELECT pg_advisory_xact_lock(:lockClass, :lockKey)) AS acquired", nativeQuery = true)
+    int acquireAdvisoryXactLock(@Param("lockClass") int lockClass, @Param("lockKey") int lockKey);
+
+    /**
+     * Первое число ключа блокировок трат по категориям (к нему прибавляется порядковый номер категории).
+     */
+    int SPENDING_LOCK_CLASS = 0x53500000;
+
+    /**
+     * Размер порции, которую драйвер PostgreSQL получает из курсора за один запрос при экспорте.
+     */
+    int EXPORT_FETCH_SIZE = 1000;
 }
@@ -0,0 +1,38 @@
+package com.abarigena.bankoperation.store.repository;
+
+import com.abarigena.bankoperation.store.entity.ExpenseLimit;
+import com.abarigena.bankoperation.store.entity.Transaction;
+
+import java.math.BigDecimal;
+import java.time.ZonedDateTime;
+
+/**
+ * Дополнительные операции репозитория транзакций, которые не выражаются производными запросами Spring Data.
+ */
+public interface TransactionRepositoryCustom {
+
+    /**
+     * Результат вставки с проверкой лимита.
+     *
+     * @param limitExceeded Флаг limit_exceeded, записанный в строку транзакции.
+     * @param limit         Лимит, действовавший на момент транзакции, или null, если применен лимит по умолчанию.
+     */
+    record LimitCheckedInsert(boolean limitExceeded, ExpenseLimit limit) {
+    }
+
+    /**
+     * Вставляет транзакцию и вычисляет ее флаг limit_exceeded одним SQL-запросом (CTE с INSERT ... SELECT):
+     * в том же запросе выбирается действующий лимит категории, суммируются траты месяца до транзакции
+     * и обновляется месячный агрегат spending_rollups. Запись занимает одно обращение к PostgreSQL.
+     * Траты считаются по снимку начала запроса, поэтому перед вызовом нужно взять
+     * {@link TransactionRepository#lockSpendingMonth} в той же транзакции.
+     *
+     * @param transaction      Транзакция с заполненными id и sumInUsd; флаг limitExceeded не используется.
+     * @param monthStart       Начало месяца транзакции в часовом поясе приложения.
+     * @param archivedSpentUsd Траты месяца до транзакции, уже перенесенные в архив (0 для неархивированных месяцев).
+     * @param defaultLimitUsd  Лимит, если для категории не установлен ни один.
+     * @return Записанный флаг и действующий лимит.
+     */
+    LimitCheckedInsert insertCheckingLimit(Transaction transaction, ZonedDateTime monthStart,
+                                           BigDecimal archivedSpentUsd, BigDecimal defaultLimitUsd);
+}
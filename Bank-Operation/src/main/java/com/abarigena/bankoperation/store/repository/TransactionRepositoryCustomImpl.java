@@ -0,0 +1,85 @@
+package com.abarigena.bankoperation.store.repository;
+
+import com.abarigena.bankoperation.store.entity.ExpenseLimit;
+import com.abarigena.bankoperation.store.entity.Transaction;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.query.NativeQuery;
+import org.hibernate.type.StandardBasicTypes;
+
+import java.math.BigDecimal;
+import java.time.ZonedDateTime;
+import java.util.UUID;
+
+/**
+ * Реализация {@link TransactionRepositoryCustom} на нативном SQL PostgreSQL.
+ */
+@RequiredArgsConstructor
+class TransactionRepositoryCustomImpl implements TransactionRepositoryCustom {
+
+    // Изменяющие CTE выполняются все, даже если основной запрос на них не ссылается;
+    // агрегат видит флаг через RETURNING вставки. Траты считаются по снимку запроса, как и в пути через JPA
+    private static final String INSERT_CHECKING_LIMIT = "WITH applicable_limit AS (" +
+            "  SELECT id, limit_sum, limit_datetime, limit_currency_shortname FROM expense_limits " +
+            "  WHERE expense_category = :category AND limit_datetime <= :dateTime " +
+            "  ORDER BY limit_datetime DESC LIMIT 1" +
+            "), spent AS (" +
+            "  SELECT COALESCE(SUM(sum_in_usd), 0) AS total FROM transactions " +
+            "  WHERE expense_category = :category AND datetime >= :monthStart AND datetime < :dateTime" +
+            "), inserted AS (" +
+            "  INSERT INTO transactions (id, account_from, account_to, currency_shortname, sum, sum_in_usd, " +
+            "    expense_category, datetime, limit_exceeded, idempotency_key) " +
+            "  SELECT :id, :accountFrom, :accountTo, :currency, :sum, :sumInUsd, :category, :dateTime, " +
+            "    spent.total + :archivedSpent + :sumInUsd > " +
+            "      COALESCE((SELECT limit_sum FROM applicable_limit), :defaultLimit), " +
+            "    CAST(:idempotencyKey AS varchar) " +
+            "  FROM spent " +
+            "  RETURNING limit_exceeded" +
+            "), rollup AS (" +
+            "  INSERT INTO spending_rollups " +
+            "    (expense_category, month_start, total_spent_usd, transaction_count, exceeded_count) " +
+            "  SELECT :category, CAST(:monthStartDate AS date), :sumInUsd, 1, CASE WHEN limit_exceeded THEN 1 ELSE 0 END " +
+            "  FROM inserted " +
+            "  ON CONFLICT (expense_category, month_start) DO UPDATE SET " +
+            "    total_spent_usd = spending_rollups.total_spent_usd + EXCLUDED.total_spent_usd, " +
+            "    transaction_count = spending_rollups.transaction_count + 1, " +
+            "    exceeded_count = spending_rollups.exceeded_count + EXCLUDED.exceeded_count" +
+            ") " +
+            "SELECT inserted.limit_exceeded, l.id AS limit_id, l.limit_sum, l.limit_datetime, l.limit_currency_shortname " +
+            "FROM inserted LEFT JOIN applicable_limit l ON true";
+
+    private final EntityManager entityManager;
+
+    @Override
+    public LimitCheckedInsert insertCheckingLimit(Transaction transaction, ZonedDateTime monthStart,
+                                                  BigDecimal archivedSpentUsd, BigDecimal defaultLimitUsd) {
+        Object[] row = (Object[]) entityManager.createNativeQuery(INSERT_CHECKING_LIMIT)
+                .setParameter("id", transaction.getId())
+                .setParameter("accountFrom", transaction.getAccountFrom())
+                .setParameter("accountTo", transaction.getAccountTo())
+                .setParameter("currency", transaction.getCurrencyShortname())
+                .setParameter("sum", transaction.getSum())
+                .setParameter("sumInUsd", transaction.getSumInUsd())
+                .setParameter("category", transaction.getExpenseCategory().name())
+                .setParameter("dateTime", transaction.getDateTime())
+                .setParameter("monthStart", monthStart)
+                .setParameter("monthStartDate", monthStart.toLocalDate())
+                .setParameter("archivedSpent", archivedSpentUsd)
+                .setParameter("defaultLimit", defaultLimitUsd)
+                .setParameter("idempotencyKey", transaction.getIdempotencyKey())
+                .unwrap(NativeQuery.class)
+                .addScalar("limit_exceeded", StandardBasicTypes.BOOLEAN)
+                .addScalar("limit_id", StandardBasicTypes.UUID)
+                .addScalar("limit_sum", StandardBasicTypes.BIG_DECIMAL)
+                .addScalar("limit_datetime", StandardBasicTypes.ZONED_DATE_TIME)
+                .addScalar("limit_currency_shortname", StandardBasicTypes.STRING)
+                .getSingleResult();
+
+        ExpenseLimit limit = null;
+        if (row[1] != null) {
+            limit = new ExpenseLimit((UUID) row[1], (BigDecimal) row[2], (ZonedDateTime) row[3], (String) row[4],
+                    transaction.getExpenseCategory());
+        }
+        return new LimitCheckedInsert((Boolean) row[0], limit);
+    }
+}
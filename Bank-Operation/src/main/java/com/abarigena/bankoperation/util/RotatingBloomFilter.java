@@ -0,0 +1,134 @@
+package com.abarigena.bankoperation.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Потокобезопасный фильтр Блума с ограниченным объемом памяти.
+ * Состоит из двух поколений: текущего и предыдущего. Когда в текущее поколение
+ * добавлено expectedInsertions элементов, предыдущее отбрасывается, а текущее становится предыдущим.
+ * Так вероятность ложноположительного ответа не растет со временем, а память остается постоянной.
+ * Ложноотрицательных ответов нет для последних expectedInsertions..2*expectedInsertions элементов.
+ */
+public class RotatingBloomFilter {
+
+    private final long expectedInsertions;
+    private final int numBits;
+    private final int numHashFunctions;
+
+    private volatile Generation current;
+    private volatile Generation previous;
+
+    /**
+     * @param expectedInsertions     Количество элементов в одном поколении.
+     * @param falsePositiveProbability Допустимая вероятность ложноположительного ответа (0..1).
+     */
+    public RotatingBloomFilter(long expectedInsertions, double falsePositiveProbability) {
+        if (expectedInsertions <= 0) {
+            throw new IllegalArgumentException("expectedInsertions должен быть положительным");
+        }
+        if (falsePositiveProbability <= 0 || falsePositiveProbability >= 1) {
+            throw new IllegalArgumentException("falsePositiveProbability должна быть в интервале (0, 1)");
+        }
+        this.expectedInsertions = expectedInsertions;
+        long bits = (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveProbability) / (Math.log(2) * Math.log(2)));
+        // Округляем до целого числа 64-битных слов
+        this.numBits = (int) Math.min(Integer.MAX_VALUE - 63, Math.max(64, (bits + 63) / 64 * 64));
+        this.numHashFunctions = Math.max(1, (int) Math.round((double) numBits / expectedInsertions * Math.log(2)));
+        this.current = new Generation(numBits);
+        this.previous = new Generation(numBits);
+    }
+
+    /**
+     * Добавляет ключ в текущее поколение, при необходимости ротируя поколения.
+     */
+    public void put(String key) {
+        long[] hashes = hash(key);
+        Generation generation = current;
+        if (generation.insertions.incrementAndGet() > expectedInsertions) {
+            generation = rotate(generation);
+            generation.insertions.incrementAndGet();
+        }
+        generation.set(hashes[0], hashes[1], numHashFunctions, numBits);
+    }
+
+    /**
+     * @return false, если ключ точно не добавлялся в последние поколения; true, если ключ, возможно, уже был.
+     */
+    public boolean mightContain(String key) {
+        long[] hashes = hash(key);
+        return current.contains(hashes[0], hashes[1], numHashFunctions, numBits)
+                || previous.contains(hashes[0], hashes[1], numHashFunctions, numBits);
+    }
+
+    public int getNumBits() {
+        return numBits;
+    }
+
+    public int getNumHashFunctions() {
+        return numHashFunctions;
+    }
+
+    private synchronized Generation rotate(Generation full) {
+        // Другой поток мог уже выполнить ротацию
+        if (current != full) {
+            return current;
+        }
+        previous = full;
+        current = new Generation(numBits);
+        return current;
+    }
+
+    private static long[] hash(String key) {
+        // FNV-1a по байтам UTF-8 с финальным перемешиванием (как в MurmurHash3 fmix64)
+        long h = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b;
+            h *= 0x100000001b3L;
+        }
+        long h1 = mix64(h);
+        long h2 = mix64(h1 ^ 0x9E3779B97F4A7C15L) | 1L; // нечетный шаг для двойного хеширования
+        return new long[]{h1, h2};
+    }
+
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+        z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return z ^ (z >>> 33);
+    }
+
+    private static final class Generation {
+        private final AtomicLongArray words;
+        private final AtomicLong insertions = new AtomicLong();
+
+        private Generation(int numBits) {
+            this.words = new AtomicLongArray(numBits / 64);
+        }
+
+        private void set(long h1, long h2, int k, int numBits) {
+            for (int i = 0; i < k; i++) {
+                int bit = (int) Long.remainderUnsigned(h1 + i * h2, numBits);
+                int index = bit >>> 6;
+                long mask = 1L << bit;
+                long word;
+                do {
+                    word = words.get(index);
+                    if ((word & mask) != 0) {
+                        break;
+                    }
+                } while (!words.compareAndSet(index, word, word | mask));
+            }
+        }
+
+        private boolean contains(long h1, long h2, int k, int numBits) {
+            for (int i = 0; i < k; i++) {
+                int bit = (int) Long.remainderUnsigned(h1 + i * h2, numBits);
+                if ((words.get(bit >>> 6) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.abarigena.bankoperation.util;
+
+import java.security.SecureRandom;
+import java.util.UUID;
+
+/**
+ * Генератор UUID версии 7 (RFC 9562): старшие 48 бит — время Unix в миллисекундах,
+ * далее 12-битный счетчик внутри миллисекунды и 62 случайных бита.
+ * Значения монотонно возрастают в пределах JVM, поэтому новые строки попадают
+ * в правый край B-tree индекса, а не в случайные страницы.
+ */
+public final class UuidV7 {
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+    private static final int COUNTER_BITS = 12;
+    private static final int MAX_COUNTER = (1 << COUNTER_BITS) - 1;
+
+    private static long lastMillis = -1;
+    private static int counter;
+
+    private UuidV7() {
+    }
+
+    public static UUID generate() {
+        long millis;
+        int sequence;
+        synchronized (UuidV7.class) {
+            long now = System.currentTimeMillis();
+            if (now > lastMillis) {
+                lastMillis = now;
+                // Случайное начало счетчика в нижней половине диапазона оставляет запас для инкрементов
+                counter = RANDOM.nextInt(MAX_COUNTER / 2);
+            } else if (counter < MAX_COUNTER) {
+                // Тот же миллисекундный интервал (или часы пошли назад): сохраняем порядок счетчиком
+                counter++;
+            } else {
+                // Счетчик исчерпан: заимствуем следующую миллисекунду
+                lastMillis++;
+                counter = 0;
+            }
+            millis = lastMillis;
+            sequence = counter;
+        }
+
+        long mostSigBits = (millis << 16) | (0x7L << 12) | sequence;
+        long leastSigBits = (RANDOM.nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+        return new UUID(mostSigBits, leastSigBits);
+    }
+
+    /**
+     * Наименьший UUID версии 7 с данным временем: все UUID, созданные в эту миллисекунду и позже,
+     * не меньше него при побайтовом сравнении (порядок типа uuid в PostgreSQL).
+     */
+    public static UUID lowerBound(long timestampMillis) {
+        return new UUID((timestampMillis << 16) | (0x7L << 12), 0x8000000000000000L);
+    }
+
+    /**
+     * @return Время создания UUID версии 7 в миллисекундах Unix.
+     */
+    public static long timestampMillis(UUID uuid) {
+        if (uuid.version() != 7) {
+            throw new IllegalArgumentException("Ожидается UUID версии 7: " + uuid);
+        }
+        return uuid.getMostSignificantBits() >>> 16;
+    }
+}
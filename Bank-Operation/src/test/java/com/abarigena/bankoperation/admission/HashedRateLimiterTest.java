@@ -0,0 +1,97 @@
+package com.abarigena.bankoperation.admission;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class HashedRateLimiterTest {
+
+    private final AtomicLong nanos = new AtomicLong(1_000_000L);
+
+    @Test
+    @DisplayName("После простоя должна пропускаться пачка burst запросов, затем — с заданной частотой")
+    void tryAcquire_shouldAllowBurstThenRate() {
+        // Arrange: 10 запросов в секунду, пачка 3
+        HashedRateLimiter limiter = new HashedRateLimiter(1024, 2, 10, 3, nanos::get);
+
+        // Act & Assert
+        assertThat(limiter.tryAcquire("ACC-1")).isZero();
+        assertThat(limiter.tryAcquire("ACC-1")).isZero();
+        assertThat(limiter.tryAcquire("ACC-1")).isZero();
+        long wait = limiter.tryAcquire("ACC-1");
+        assertThat(wait).isEqualTo(TimeUnit.MILLISECONDS.toNanos(100));
+
+        // Через 100 мс появляется ровно один токен
+        nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(100));
+        assertThat(limiter.tryAcquire("ACC-1")).isZero();
+        assertThat(limiter.tryAcquire("ACC-1")).isPositive();
+    }
+
+    @Test
+    @DisplayName("Исчерпание лимита одним счетом не должно ограничивать другие счета")
+    void tryAcquire_shouldIsolateKeys() {
+        // Arrange
+        HashedRateLimiter limiter = new HashedRateLimiter(1 << 16, 2, 1, 5, nanos::get);
+        for (int i = 0; i < 5; i++) {
+            assertThat(limiter.tryAcquire("ACC-HOT")).isZero();
+        }
+        assertThat(limiter.tryAcquire("ACC-HOT")).isPositive();
+
+        // Act
+        int admitted = 0;
+        for (int i = 0; i < 1000; i++) {
+            if (limiter.tryAcquire("ACC-" + i) == 0) {
+                admitted++;
+            }
+        }
+
+        // Assert: при 65536 ячейках и двух хешах на ключ ни один из 1000 счетов не должен пострадать
+        assertThat(admitted).isEqualTo(1000);
+    }
+
+    @Test
+    @DisplayName("Отклоненный запрос не должен расходовать токены")
+    void tryAcquire_shouldNotConsumeTokensOnRejection() {
+        // Arrange: 1 запрос в секунду, пачка 1
+        HashedRateLimiter limiter = new HashedRateLimiter(1024, 2, 1, 1, nanos::get);
+        limiter.tryAcquire("ACC-1");
+        for (int i = 0; i < 10; i++) {
+            limiter.tryAcquire("ACC-1");
+        }
+
+        // Act: через секунду токен должен появиться, несмотря на отклоненные попытки
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(1));
+
+        // Assert
+        assertThat(limiter.tryAcquire("ACC-1")).isZero();
+    }
+
+    @Test
+    @DisplayName("release должен возвращать полученный токен ключа")
+    void release_shouldReturnAcquiredToken() {
+        // Arrange: 1 запрос в секунду, пачка 1
+        HashedRateLimiter limiter = new HashedRateLimiter(1024, 2, 1, 1, nanos::get);
+        assertThat(limiter.tryAcquire("ACC-1")).isZero();
+        assertThat(limiter.tryAcquire("ACC-1")).isPositive();
+
+        // Act
+        limiter.release("ACC-1");
+
+        // Assert: токен снова доступен сразу, следующий — только через секунду
+        assertThat(limiter.tryAcquire("ACC-1")).isZero();
+        assertThat(limiter.tryAcquire("ACC-1")).isEqualTo(TimeUnit.SECONDS.toNanos(1));
+    }
+
+    @Test
+    @DisplayName("Некорректные параметры должны отклоняться")
+    void constructor_shouldRejectInvalidParameters() {
+        assertThrows(IllegalArgumentException.class, () -> new HashedRateLimiter(0, 2, 1, 1, nanos::get));
+        assertThrows(IllegalArgumentException.class, () -> new HashedRateLimiter(16, 2, 0, 1, nanos::get));
+        assertThrows(IllegalArgumentException.class, () -> new HashedRateLimiter(16, 2, 1, 0, nanos::get));
+    }
+}
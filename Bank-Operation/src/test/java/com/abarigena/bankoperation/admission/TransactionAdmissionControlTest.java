@@ -0,0 +1,156 @@
+package com.abarigena.bankoperation.admission;
+
+import com.abarigena.bankoperation.controller.TransactionController;
+import com.abarigena.bankoperation.service.ExceededTransactionExportService;
+import com.abarigena.bankoperation.service.LimitExceededBroadcaster;
+import com.abarigena.bankoperation.service.StreamingJsonArrayWriter;
+import com.abarigena.bankoperation.service.TransactionService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class TransactionAdmissionControlTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicLong nanos = new AtomicLong();
+
+    private TransactionAdmissionControl admissionControl(double accountRate, int accountBurst,
+                                                         double globalRate, int globalBurst, int maxConcurrent) {
+        return new TransactionAdmissionControl(meterRegistry, true,
+                new HashedRateLimiter(1024, 2, accountRate, accountBurst, nanos::get),
+                new HashedRateLimiter(1, 1, globalRate, globalBurst, nanos::get),
+                maxConcurrent, Duration.ZERO);
+    }
+
+    private double rejected(String reason) {
+        return meterRegistry.counter("transactions.admission.rejected", "reason", reason).count();
+    }
+
+    @Test
+    @DisplayName("Счет, превысивший частоту, должен получать отказ с временем до следующего токена")
+    void tryAdmit_shouldRejectAccountOverRate() {
+        // Arrange: 2 запроса в секунду со счета, пачка 1
+        TransactionAdmissionControl control = admissionControl(2, 1, 1000, 1000, 10);
+        control.tryAdmit("ACC-1").close();
+
+        // Act
+        TransactionAdmissionControl.Admission rejected = control.tryAdmit("ACC-1");
+        TransactionAdmissionControl.Admission otherAccount = control.tryAdmit("ACC-2");
+
+        // Assert
+        assertThat(rejected.isAdmitted()).isFalse();
+        assertThat(rejected.getReason()).isEqualTo(TransactionAdmissionControl.RejectReason.ACCOUNT_RATE);
+        assertThat(rejected.getRetryAfter()).isEqualTo(Duration.ofMillis(500));
+        assertThat(rejected.getRetryAfterSeconds()).isEqualTo(1);
+        assertThat(otherAccount.isAdmitted()).isTrue();
+        assertThat(rejected("account_rate")).isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("Общий лимит частоты должен действовать для всех счетов")
+    void tryAdmit_shouldRejectOverGlobalRate() {
+        // Arrange: общий лимит — 2 запроса
+        TransactionAdmissionControl control = admissionControl(100, 100, 1, 2, 10);
+        control.tryAdmit("ACC-1").close();
+        control.tryAdmit("ACC-2").close();
+
+        // Act
+        TransactionAdmissionControl.Admission rejected = control.tryAdmit("ACC-3");
+
+        // Assert
+        assertThat(rejected.isAdmitted()).isFalse();
+        assertThat(rejected.getReason()).isEqualTo(TransactionAdmissionControl.RejectReason.GLOBAL_RATE);
+    }
+
+    @Test
+    @DisplayName("Сверх предела одновременных транзакций запрос должен отклоняться до освобождения места")
+    void tryAdmit_shouldShedLoadOverConcurrencyLimit() {
+        // Arrange
+        TransactionAdmissionControl control = admissionControl(100, 100, 1000, 1000, 2);
+        TransactionAdmissionControl.Admission first = control.tryAdmit("ACC-1");
+        TransactionAdmissionControl.Admission second = control.tryAdmit("ACC-2");
+
+        // Act
+        TransactionAdmissionControl.Admission shed = control.tryAdmit("ACC-3");
+        first.close();
+        first.close(); // Повторное закрытие не должно освобождать лишнее место
+        TransactionAdmissionControl.Admission afterRelease = control.tryAdmit("ACC-4");
+        TransactionAdmissionControl.Admission stillFull = control.tryAdmit("ACC-5");
+
+        // Assert
+        assertThat(second.isAdmitted()).isTrue();
+        assertThat(shed.isAdmitted()).isFalse();
+        assertThat(shed.getReason()).isEqualTo(TransactionAdmissionControl.RejectReason.CONCURRENCY);
+        assertThat(afterRelease.isAdmitted()).isTrue();
+        assertThat(stillFull.isAdmitted()).isFalse();
+        assertThat(meterRegistry.get("transactions.admission.in-flight").gauge().value()).isEqualTo(2.0);
+    }
+
+    @Test
+    @DisplayName("Отказ по общему лимиту должен возвращать токен счета")
+    void tryAdmit_shouldReleaseAccountToken_whenGlobalRateRejects() {
+        // Arrange: один запрос со счета и один запрос на экземпляр за секунду
+        TransactionAdmissionControl control = admissionControl(1, 1, 1, 1, 10);
+        control.tryAdmit("ACC-1").close();
+        assertThat(control.tryAdmit("ACC-2").getReason())
+                .isEqualTo(TransactionAdmissionControl.RejectReason.GLOBAL_RATE);
+
+        // Act: через секунду общий токен появился, токен ACC-2 не был израсходован отказом
+        nanos.addAndGet(Duration.ofSeconds(1).toNanos());
+        TransactionAdmissionControl.Admission retried = control.tryAdmit("ACC-2");
+
+        // Assert
+        assertThat(retried.isAdmitted()).isTrue();
+    }
+
+    @Test
+    @DisplayName("Отказ по числу одновременных транзакций должен возвращать токены счета и общего лимита")
+    void tryAdmit_shouldReleaseRateTokens_whenConcurrencyRejects() {
+        // Arrange: одна одновременная транзакция, один запрос со счета и два на экземпляр за секунду
+        TransactionAdmissionControl control = admissionControl(1, 1, 1, 2, 1);
+        TransactionAdmissionControl.Admission busy = control.tryAdmit("ACC-1");
+        TransactionAdmissionControl.Admission shed = control.tryAdmit("ACC-2");
+        busy.close();
+
+        // Act: без возврата токенов ACC-2 получил бы ACCOUNT_RATE, а общий лимит был бы исчерпан
+        TransactionAdmissionControl.Admission retried = control.tryAdmit("ACC-2");
+
+        // Assert
+        assertThat(shed.getReason()).isEqualTo(TransactionAdmissionControl.RejectReason.CONCURRENCY);
+        assertThat(retried.isAdmitted()).isTrue();
+        assertThat(control.tryAdmit("ACC-3").getReason())
+                .isEqualTo(TransactionAdmissionControl.RejectReason.GLOBAL_RATE);
+    }
+
+    @Test
+    @DisplayName("POST /api/transactions должен отвечать 429 с Retry-After и не обращаться к сервису")
+    void receiveTransaction_shouldReturn429WithRetryAfter() throws Exception {
+        // Arrange: один запрос со счета за 3 секунды
+        TransactionAdmissionControl control = admissionControl(1.0 / 3, 1, 1000, 1000, 10);
+        TransactionService transactionService = mock(TransactionService.class);
+        MockMvc mockMvc = MockMvcBuilders.standaloneSetup(new TransactionController(transactionService,
+                mock(ExceededTransactionExportService.class), mock(LimitExceededBroadcaster.class), control,
+                mock(StreamingJsonArrayWriter.class))).build();
+        String body = "{\"account_from\":\"0000000123\",\"account_to\":\"9999999999\",\"currency_shortname\":\"USD\"," +
+                "\"sum\":10.00,\"expense_category\":\"PRODUCT\",\"datetime\":\"2025-03-28T10:00:00+00:00\"}";
+        control.tryAdmit("0000000123").close();
+
+        // Act & Assert
+        mockMvc.perform(post("/api/transactions").contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string("Retry-After", "3"));
+        verifyNoInteractions(transactionService);
+    }
+}
@@ -0,0 +1,244 @@
+package com.abarigena.bankoperation.archive;
+
+import com.abarigena.bankoperation.cache.LimitCache;
+import com.abarigena.bankoperation.dto.LimitExceededTransactionDTO;
+import com.abarigena.bankoperation.event.CacheInvalidationEvent;
+import com.abarigena.bankoperation.store.entity.ArchiveVersion;
+import com.abarigena.bankoperation.store.entity.ExpenseLimit;
+import com.abarigena.bankoperation.store.entity.Transaction;
+import com.abarigena.bankoperation.store.repository.ArchiveVersionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class TransactionArchiveTest {
+
+    @TempDir
+    Path directory;
+    @Mock
+    private LimitCache limitCache;
+    @Mock
+    private ArchiveVersionRepository archiveVersionRepository;
+
+    private TransactionArchive archive;
+    private final ZoneId zone = ZoneId.systemDefault();
+    private final YearMonth month = YearMonth.of(2024, 1);
+
+    @BeforeEach
+    void setUp() {
+        archive = new TransactionArchive(directory, limitCache, archiveVersionRepository);
+    }
+
+    @Test
+    @DisplayName("Файл архива: строки читаются обратно без потерь, включая пустые значения")
+    void stream_shouldReturnWrittenRows() throws IOException {
+        // Arrange
+        List<Transaction> rows = rows(10);
+        rows.get(3).setIdempotencyKey(null);
+        rows.get(4).setLimitExceeded(null);
+        write(month, 1, rows, 4);
+
+        // Act
+        archive.reload();
+        List<Transaction> read;
+        try (Stream<Transaction> stream = archive.stream(ArchiveQuery.period(
+                month.atDay(1).atStartOfDay(zone).toInstant(), month.plusMonths(1).atDay(1).atStartOfDay(zone).toInstant()))) {
+            read = stream.toList();
+        }
+
+        // Assert
+        assertThat(read).hasSize(10);
+        for (int i = 0; i < rows.size(); i++) {
+            Transaction expected = rows.get(i);
+            Transaction actual = read.get(i);
+            assertThat(actual.getId()).isEqualTo(expected.getId());
+            assertThat(actual.getAccountFrom()).isEqualTo(expected.getAccountFrom());
+            assertThat(actual.getSumInUsd()).isEqualTo(expected.getSumInUsd());
+            assertThat(actual.getExpenseCategory()).isEqualTo(expected.getExpenseCategory());
+            assertThat(actual.getDateTime().toInstant()).isEqualTo(expected.getDateTime().toInstant());
+            assertThat(actual.getLimitExceeded()).isEqualTo(expected.getLimitExceeded());
+            assertThat(actual.getIdempotencyKey()).isEqualTo(expected.getIdempotencyKey());
+        }
+    }
+
+    @Test
+    @DisplayName("sumInUsd: суммирует только категорию и период условия")
+    void sumInUsd_shouldFilterByCategoryAndPeriod() throws IOException {
+        // Arrange: строки через час, четные — PRODUCT по 10 USD, нечетные — SERVICE по 1 USD
+        write(month, 1, rows(48), 8);
+        archive.reload();
+        ZonedDateTime from = month.atDay(1).atStartOfDay(zone);
+
+        // Act
+        BigDecimal product = archive.sumInUsd(Transaction.ExpenseCategory.PRODUCT, from, from.plusHours(10));
+        BigDecimal service = archive.sumInUsd(Transaction.ExpenseCategory.SERVICE, from, from.plusHours(10));
+        BigDecimal otherMonth = archive.sumInUsd(Transaction.ExpenseCategory.PRODUCT,
+                from.plusMonths(1), from.plusMonths(1).plusDays(3));
+
+        // Assert: часы 0..9 — 5 строк каждой категории
+        assertThat(product).isEqualByComparingTo("50.00");
+        assertThat(service).isEqualByComparingTo("5.00");
+        assertThat(otherMonth).isEqualByComparingTo("0");
+    }
+
+    @Test
+    @DisplayName("Метаданные групп: группы вне периода и без превышений пропускаются без чтения")
+    void rowGroup_shouldBePrunedByMetadata() throws IOException {
+        // Arrange: 4 группы по 6 строк, превышения только в третьей группе
+        List<Transaction> rows = rows(24);
+        rows.forEach(row -> row.setLimitExceeded(false));
+        rows.get(14).setLimitExceeded(true);
+        Path path = write(month, 1, rows, 6);
+        ZonedDateTime from = month.atDay(1).atStartOfDay(zone);
+        ArchiveQuery exceeded = new ArchiveQuery(from.toInstant(), from.plusMonths(1).toInstant(), null, true);
+        ArchiveQuery firstHours = ArchiveQuery.period(from.toInstant(), from.plusHours(3).toInstant());
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ColumnarTransactionFile.Footer footer = ColumnarTransactionFile.readFooter(channel);
+
+            // Act
+            List<Boolean> exceededGroups = footer.rowGroups().stream().map(g -> g.mayMatch(exceeded)).toList();
+            List<Boolean> periodGroups = footer.rowGroups().stream().map(g -> g.mayMatch(firstHours)).toList();
+            BitSet matches = ColumnarTransactionFile.filter(channel, footer.rowGroups().get(2), exceeded);
+
+            // Assert
+            assertThat(footer.rowCount()).isEqualTo(24);
+            assertThat(exceededGroups).containsExactly(false, false, true, false);
+            assertThat(periodGroups).containsExactly(true, false, false, false);
+            assertThat(matches.stream().toArray()).containsExactly(2);
+        }
+    }
+
+    @Test
+    @DisplayName("streamExceeded: дополняет строки действовавшим лимитом из кеша")
+    void streamExceeded_shouldAttachLimit() throws IOException {
+        // Arrange
+        List<Transaction> rows = rows(3);
+        rows.forEach(row -> row.setLimitExceeded(false));
+        rows.get(2).setLimitExceeded(true);
+        write(month, 1, rows, 10);
+        archive.reload();
+        ExpenseLimit limit = new ExpenseLimit();
+        limit.setLimitSum(new BigDecimal("700.00"));
+        limit.setLimitDateTime(month.atDay(1).atStartOfDay(zone).minusDays(1));
+        limit.setLimitCurrencyShortname("USD");
+        when(limitCache.findLimitValidAt(eq(Transaction.ExpenseCategory.PRODUCT), any())).thenReturn(Optional.of(limit));
+
+        // Act
+        List<LimitExceededTransactionDTO> exceeded;
+        try (Stream<LimitExceededTransactionDTO> stream = archive.streamExceeded(
+                month.atDay(1).atStartOfDay(zone), month.plusMonths(1).atDay(1).atStartOfDay(zone))) {
+            exceeded = stream.toList();
+        }
+
+        // Assert
+        assertThat(exceeded).hasSize(1);
+        assertThat(exceeded.get(0).getTransactionId()).isEqualTo(rows.get(2).getId());
+        assertThat(exceeded.get(0).getLimitSum()).isEqualByComparingTo("700.00");
+    }
+
+    @Test
+    @DisplayName("Каталог: читается последняя версия месяца, поврежденный файл пропускается, сброс ARCHIVE перечитывает каталог")
+    void reload_shouldUseLatestVersionAndSkipCorruptFiles() throws IOException {
+        // Arrange
+        write(month, 1, rows(2), 10);
+        write(month, 2, rows(5), 10);
+        Files.write(archive.pathFor(month.plusMonths(1), 1), new byte[]{1, 2, 3});
+
+        // Act
+        archive.onCacheInvalidation(CacheInvalidationEvent.all(CacheInvalidationEvent.Topic.ARCHIVE));
+
+        // Assert
+        assertThat(archive.archivedMonths()).containsExactly(month);
+        assertThat(archive.find(month).orElseThrow().version()).isEqualTo(2);
+        assertThat(archive.find(month).orElseThrow().footer().rowCount()).isEqualTo(5);
+    }
+
+    @Test
+    @DisplayName("sumInUsd: более новая версия месяца в archive_versions перечитывает каталог до оповещения ARCHIVE")
+    void sumInUsd_shouldReloadCatalog_whenArchiveVersionIsNewer() throws IOException {
+        // Arrange: каталог видит версию 1, другой экземпляр закоммитил перенос версии 2
+        write(month, 1, rows(2), 10);
+        archive.reload();
+        write(month, 2, rows(6), 10);
+        when(archiveVersionRepository.findByMonthStartBetween(month.atDay(1), month.atDay(1)))
+                .thenReturn(List.of(new ArchiveVersion(month.atDay(1), 2, null)));
+        ZonedDateTime from = month.atDay(1).atStartOfDay(zone);
+
+        // Act
+        BigDecimal product = archive.sumInUsd(Transaction.ExpenseCategory.PRODUCT, from, from.plusDays(1));
+
+        // Assert: часы 0, 2, 4 по 10 USD из новой версии
+        assertThat(product).isEqualByComparingTo("30.00");
+        assertThat(archive.find(month).orElseThrow().version()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("sumInUsd: если файла записанной версии нет в каталоге, траты не считаются по старому файлу")
+    void sumInUsd_shouldFail_whenRecordedVersionIsMissing() throws IOException {
+        // Arrange
+        write(month, 1, rows(2), 10);
+        archive.reload();
+        when(archiveVersionRepository.findByMonthStartBetween(month.atDay(1), month.atDay(1)))
+                .thenReturn(List.of(new ArchiveVersion(month.atDay(1), 2, null)));
+        ZonedDateTime from = month.atDay(1).atStartOfDay(zone);
+
+        // Act & Assert
+        assertThatThrownBy(() -> archive.sumInUsd(Transaction.ExpenseCategory.PRODUCT, from, from.plusDays(1)))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    /**
+     * Строки месяца через час: четные — PRODUCT по 10 USD, нечетные — SERVICE по 1 USD.
+     */
+    private List<Transaction> rows(int count) {
+        List<Transaction> rows = new ArrayList<>();
+        ZonedDateTime start = month.atDay(1).atStartOfDay(zone);
+        for (int i = 0; i < count; i++) {
+            boolean product = i % 2 == 0;
+            rows.add(new Transaction(UUID.randomUUID(), "acc-" + i, "to-" + i, product ? "RUB" : "USD",
+                    new BigDecimal(product ? "900.50" : "1"), new BigDecimal(product ? "10.00" : "1.00"),
+                    product ? Transaction.ExpenseCategory.PRODUCT : Transaction.ExpenseCategory.SERVICE,
+                    start.plusHours(i).plusNanos(123_000), i % 3 == 0, "key-" + i));
+        }
+        return rows;
+    }
+
+    private Path write(YearMonth month, long version, List<Transaction> rows, int rowGroupSize) throws IOException {
+        Files.createDirectories(directory);
+        Path path = archive.pathFor(month, version);
+        try (ColumnarTransactionFile.Writer writer = new ColumnarTransactionFile.Writer(path, rowGroupSize)) {
+            for (Transaction row : rows) {
+                writer.append(row);
+            }
+        }
+        return path;
+    }
+}
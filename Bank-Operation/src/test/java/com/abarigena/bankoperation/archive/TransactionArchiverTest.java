@@ -0,0 +1,192 @@
+package com.abarigena.bankoperation.archive;
+
+import com.abarigena.bankoperation.cache.LimitCache;
+import com.abarigena.bankoperation.event.TransactionsArchivedEvent;
+import com.abarigena.bankoperation.store.entity.Transaction;
+import com.abarigena.bankoperation.store.repository.ArchiveVersionRepository;
+import com.abarigena.bankoperation.store.repository.TransactionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TransactionArchiverTest {
+
+    @TempDir
+    Path directory;
+    @Mock
+    private TransactionRepository transactionRepository;
+    @Mock
+    private LimitCache limitCache;
+    @Mock
+    private ArchiveVersionRepository archiveVersionRepository;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionArchive archive;
+    private TransactionArchiver archiver;
+    private final ZoneId zone = ZoneId.systemDefault();
+    private final YearMonth month = YearMonth.of(2024, 1);
+    private final ZonedDateTime monthStart = month.atDay(1).atStartOfDay(zone);
+    private final ZonedDateTime monthEnd = month.plusMonths(1).atDay(1).atStartOfDay(zone);
+
+    @BeforeEach
+    void setUp() {
+        archive = new TransactionArchive(directory, limitCache, archiveVersionRepository);
+        // Сейчас 15 мая 2024: при hot-months=3 в PostgreSQL остаются март, апрель и май
+        Clock clock = Clock.fixed(ZonedDateTime.of(2024, 5, 15, 12, 0, 0, 0, zone).toInstant(), zone);
+        archiver = new TransactionArchiver(transactionRepository, archive, archiveVersionRepository, eventPublisher, transactionManager,
+                3, 12, 4, clock);
+    }
+
+    @Test
+    @DisplayName("archiveMonth: пишет файл месяца, удаляет строки из таблицы и публикует событие")
+    void archiveMonth_shouldWriteFileAndDeleteRows() {
+        // Arrange
+        List<Transaction> rows = rows(0, 10);
+        when(transactionRepository.streamForArchive(monthStart, monthEnd)).thenReturn(rows.stream());
+        when(transactionRepository.deleteByPeriod(monthStart, monthEnd)).thenReturn(10);
+
+        // Act
+        long moved = archiver.archiveMonth(month);
+        archive.reload();
+
+        // Assert
+        assertThat(moved).isEqualTo(10);
+        assertThat(archive.find(month).orElseThrow().footer().rowCount()).isEqualTo(10);
+        assertThat(archive.sumInUsd(Transaction.ExpenseCategory.PRODUCT, monthStart, monthEnd))
+                .isEqualByComparingTo("100.00");
+        verify(eventPublisher).publishEvent(new TransactionsArchivedEvent(month));
+    }
+
+    @Test
+    @DisplayName("archiveMonth: до удаления строк берет блокировки трат месяца по всем категориям и видит новый файл")
+    void archiveMonth_shouldLockSpendingMonthBeforeDelete() {
+        // Arrange
+        when(transactionRepository.streamForArchive(monthStart, monthEnd)).thenReturn(rows(0, 3).stream());
+        when(transactionRepository.deleteByPeriod(monthStart, monthEnd)).thenAnswer(invocation -> {
+            // Каталог еще старый: файл становится виден после удаления, пока блокировки держатся
+            assertThat(archive.find(month)).isEmpty();
+            return 3;
+        });
+
+        // Act
+        archiver.archiveMonth(month);
+
+        // Assert
+        InOrder inOrder = inOrder(transactionRepository);
+        for (Transaction.ExpenseCategory category : Transaction.ExpenseCategory.values()) {
+            inOrder.verify(transactionRepository).lockSpendingMonth(category, month);
+        }
+        inOrder.verify(transactionRepository).streamForArchive(monthStart, monthEnd);
+        inOrder.verify(transactionRepository).deleteByPeriod(monthStart, monthEnd);
+        assertThat(archive.find(month).orElseThrow().footer().rowCount()).isEqualTo(3);
+        verify(archiveVersionRepository).recordVersion(month.atDay(1), archive.find(month).orElseThrow().version());
+    }
+
+    @Test
+    @DisplayName("archiveMonth: доархивация объединяет месяц без повторов строк, уже попавших в архив")
+    void archiveMonth_shouldMergeWithPreviousVersionWithoutDuplicates() {
+        // Arrange: первый запуск архивировал 10 строк
+        List<Transaction> first = rows(0, 10);
+        when(transactionRepository.streamForArchive(monthStart, monthEnd)).thenReturn(first.stream());
+        when(transactionRepository.deleteByPeriod(monthStart, monthEnd)).thenReturn(10);
+        archiver.archiveMonth(month);
+        archive.reload();
+
+        // Второй запуск: в таблице строка задним числом и повтор строки после сбоя
+        List<Transaction> second = new ArrayList<>(rows(10, 1));
+        second.add(0, first.get(4));
+        second.sort((a, b) -> a.getDateTime().compareTo(b.getDateTime()));
+        when(transactionRepository.streamForArchive(monthStart, monthEnd)).thenReturn(second.stream());
+        when(transactionRepository.deleteByPeriod(monthStart, monthEnd)).thenReturn(2);
+
+        // Act
+        long moved = archiver.archiveMonth(month);
+        archive.reload();
+
+        // Assert
+        assertThat(moved).isEqualTo(2);
+        List<UUID> ids;
+        try (Stream<Transaction> stream = archive.stream(ArchiveQuery.period(monthStart.toInstant(), monthEnd.toInstant()))) {
+            ids = stream.map(Transaction::getId).toList();
+        }
+        assertThat(ids).hasSize(11).doesNotHaveDuplicates();
+        assertThat(archive.find(month).orElseThrow().version()).isGreaterThan(1);
+    }
+
+    @Test
+    @DisplayName("archiveMonth: при расхождении числа удаленных строк новый файл удаляется, транзакция откатывается")
+    void archiveMonth_shouldRemoveFileWhenDeleteCountDiffers() throws Exception {
+        // Arrange
+        when(transactionRepository.streamForArchive(monthStart, monthEnd)).thenReturn(rows(0, 3).stream());
+        when(transactionRepository.deleteByPeriod(monthStart, monthEnd)).thenReturn(2);
+
+        // Act & Assert
+        assertThatThrownBy(() -> archiver.archiveMonth(month)).isInstanceOf(IllegalStateException.class);
+        try (Stream<Path> files = Files.list(directory)) {
+            assertThat(files).isEmpty();
+        }
+        verify(eventPublisher, never()).publishEvent(any(TransactionsArchivedEvent.class));
+        verify(archiveVersionRepository, never()).recordVersion(any(), anyLong());
+        verify(transactionManager).rollback(any());
+    }
+
+    @Test
+    @DisplayName("archiveClosedMonths: переносит месяцы старше горячего окна, начиная с самого старого")
+    void archiveClosedMonths_shouldArchiveMonthsBeforeCutoff() {
+        // Arrange
+        ZonedDateTime cutoff = ZonedDateTime.of(2024, 3, 1, 0, 0, 0, 0, zone);
+        when(transactionRepository.findOldestDateTimeBefore(cutoff))
+                .thenReturn(Optional.of(monthStart.plusDays(3)), Optional.empty());
+        when(transactionRepository.streamForArchive(monthStart, monthEnd)).thenReturn(rows(0, 2).stream());
+        when(transactionRepository.deleteByPeriod(monthStart, monthEnd)).thenReturn(2);
+
+        // Act
+        int archived = archiver.archiveClosedMonths();
+
+        // Assert
+        assertThat(archiver.cutoff()).isEqualTo(cutoff);
+        assertThat(archived).isEqualTo(1);
+        verify(transactionRepository).deleteByPeriod(eq(monthStart), eq(monthEnd));
+    }
+
+    private List<Transaction> rows(int firstHour, int count) {
+        List<Transaction> rows = new ArrayList<>();
+        for (int i = firstHour; i < firstHour + count; i++) {
+            rows.add(new Transaction(UUID.randomUUID(), "acc", "to", "USD", new BigDecimal("10.00"),
+                    new BigDecimal("10.00"), Transaction.ExpenseCategory.PRODUCT,
+                    monthStart.plusHours(i), false, null));
+        }
+        return rows;
+    }
+}
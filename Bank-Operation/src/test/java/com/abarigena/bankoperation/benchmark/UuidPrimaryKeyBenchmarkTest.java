@@ -0,0 +1,114 @@
+package com.abarigena.bankoperation.benchmark;
+
+import com.abarigena.bankoperation.util.UuidV7;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/**
+ * Сравнение случайных UUID v4 и упорядоченных по времени UUID v7 в качестве первичного ключа
+ * на таблице с миллионами строк: пропускная способность вставки, размер индекса и его фрагментация.
+ * Запускается только в профиле benchmark (нужен Docker):
+ * <pre>
+ * mvn -P benchmark test -Dbenchmark.rows=5000000
+ * </pre>
+ */
+@Tag("benchmark")
+@Testcontainers
+class UuidPrimaryKeyBenchmarkTest {
+
+    private static final int ROWS = Integer.getInteger("benchmark.rows", 3_000_000);
+    private static final int BATCH_SIZE = Integer.getInteger("benchmark.batch-size", 1_000);
+
+    @Container
+    static final PostgreSQLContainer<?> postgresContainer = new PostgreSQLContainer<>("postgres:latest")
+            // Небольшой shared_buffers, чтобы индекс не помещался в кеш целиком, как на больших таблицах в проде
+            .withCommand("postgres", "-c", "shared_buffers=64MB");
+
+    @Test
+    void compareRandomAndTimeOrderedKeys() throws SQLException {
+        String url = postgresContainer.getJdbcUrl() + "&reWriteBatchedInserts=true";
+        try (Connection connection = DriverManager.getConnection(url, postgresContainer.getUsername(), postgresContainer.getPassword())) {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("CREATE EXTENSION IF NOT EXISTS pgstattuple");
+            }
+            StringBuilder report = new StringBuilder(String.format(Locale.ROOT,
+                    "UUID primary key benchmark: %,d rows, batch %d%n", ROWS, BATCH_SIZE));
+            report.append(String.format(Locale.ROOT, "%-10s %14s %18s %14s %16s %14s%n",
+                    "keys", "rows/s", "rows/s last 10%", "index MB", "leaf density %", "fragmentation %"));
+            report.append(run(connection, "uuid_v4", UUID::randomUUID));
+            report.append(run(connection, "uuid_v7", UuidV7::generate));
+            System.out.println(report);
+        }
+    }
+
+    private String run(Connection connection, String name, Supplier<UUID> keys) throws SQLException {
+        String table = "bench_" + name;
+        try (Statement statement = connection.createStatement()) {
+            // Структура повторяет transactions
+            statement.execute("CREATE TABLE " + table + " (id uuid PRIMARY KEY, account_from varchar(255) NOT NULL, " +
+                    "account_to varchar(255) NOT NULL, currency_shortname varchar(10) NOT NULL, sum decimal(19,2) NOT NULL, " +
+                    "sum_in_usd decimal(19,2) NOT NULL, expense_category varchar(50) NOT NULL, " +
+                    "datetime timestamp with time zone NOT NULL, limit_exceeded boolean)");
+        }
+
+        connection.setAutoCommit(false);
+        long start = System.nanoTime();
+        long lastSegmentStart = start;
+        int lastSegmentFrom = ROWS - ROWS / 10;
+        try (PreparedStatement insert = connection.prepareStatement("INSERT INTO " + table +
+                " (id, account_from, account_to, currency_shortname, sum, sum_in_usd, expense_category, datetime, limit_exceeded) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)")) {
+            for (int i = 0; i < ROWS; i++) {
+                if (i == lastSegmentFrom) {
+                    lastSegmentStart = System.nanoTime();
+                }
+                insert.setObject(1, keys.get());
+                insert.setString(2, String.format("%010d", i % 100_000));
+                insert.setString(3, "9999999999");
+                insert.setString(4, "RUB");
+                insert.setBigDecimal(5, BigDecimal.valueOf(10_000 + i % 5_000, 2));
+                insert.setBigDecimal(6, BigDecimal.valueOf(110 + i % 50, 2));
+                insert.setString(7, i % 2 == 0 ? "PRODUCT" : "SERVICE");
+                insert.setTimestamp(8, Timestamp.from(Instant.now()));
+                insert.setBoolean(9, false);
+                insert.addBatch();
+                if ((i + 1) % BATCH_SIZE == 0) {
+                    insert.executeBatch();
+                    connection.commit();
+                }
+            }
+            insert.executeBatch();
+            connection.commit();
+        }
+        long end = System.nanoTime();
+        connection.setAutoCommit(true);
+
+        double rowsPerSecond = ROWS / ((end - start) / 1e9);
+        double lastSegmentRowsPerSecond = (ROWS - lastSegmentFrom) / ((end - lastSegmentStart) / 1e9);
+
+        try (Statement statement = connection.createStatement();
+             ResultSet index = statement.executeQuery("SELECT pg_relation_size('" + table + "_pkey'), " +
+                     "avg_leaf_density, leaf_fragmentation FROM pgstatindex('" + table + "_pkey')")) {
+            index.next();
+            return String.format(Locale.ROOT, "%-10s %,14.0f %,18.0f %14.1f %16.1f %14.1f%n",
+                    name, rowsPerSecond, lastSegmentRowsPerSecond, index.getLong(1) / (1024.0 * 1024.0),
+                    index.getDouble(2), index.getDouble(3));
+        }
+    }
+}
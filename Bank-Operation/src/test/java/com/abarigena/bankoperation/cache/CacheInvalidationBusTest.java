@@ -0,0 +1,182 @@
+package com.abarigena.bankoperation.cache;
+
+import com.abarigena.bankoperation.config.InstanceIdentity;
+import com.abarigena.bankoperation.event.CacheInvalidationEvent;
+import com.abarigena.bankoperation.event.ExchangeRateSavedEvent;
+import com.abarigena.bankoperation.dto.LimitExceededTransactionDTO;
+import com.abarigena.bankoperation.event.LimitChangedEvent;
+import com.abarigena.bankoperation.event.LimitExceededEvent;
+import com.abarigena.bankoperation.store.entity.Transaction;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZonedDateTime;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CacheInvalidationBusTest {
+
+    private static final String INSTANCE_ID = "node-a";
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    private final ObjectMapper objectMapper = JsonMapper.builder().findAndAddModules().build();
+    private CacheInvalidationBus bus;
+
+    @BeforeEach
+    void setUp() {
+        bus = new CacheInvalidationBus(jdbcTemplate, new DataSourceProperties(), eventPublisher,
+                new InstanceIdentity(INSTANCE_ID), objectMapper, true, Duration.ofSeconds(10), Duration.ofSeconds(30));
+    }
+
+    @Test
+    @DisplayName("Новый лимит должен отправляться через pg_notify с идентификатором экземпляра и категорией")
+    void notifyLimitChanged_shouldSendPgNotify() {
+        // Act
+        bus.notifyLimitChanged(new LimitChangedEvent(Transaction.ExpenseCategory.PRODUCT));
+
+        // Assert
+        verify(jdbcTemplate).query(eq("select pg_notify(?, ?)"), any(ResultSetExtractor.class),
+                eq(CacheInvalidationBus.CHANNEL), eq("node-a|LIMITS|PRODUCT"));
+    }
+
+    @Test
+    @DisplayName("После коммита нового лимита локальный кеш категории должен сбрасываться")
+    void invalidateLocalLimit_shouldPublishLocalInvalidation() {
+        // Act
+        bus.invalidateLocalLimit(new LimitChangedEvent(Transaction.ExpenseCategory.SERVICE));
+
+        // Assert
+        verify(eventPublisher).publishEvent(new CacheInvalidationEvent(CacheInvalidationEvent.Topic.LIMITS, "SERVICE"));
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    @DisplayName("Ошибка отправки оповещения о курсе не должна мешать сбросу локального кеша")
+    void onExchangeRateSaved_shouldInvalidateLocallyEvenIfNotifyFails() {
+        // Arrange
+        when(jdbcTemplate.query(anyString(), any(ResultSetExtractor.class), any(), any()))
+                .thenThrow(new DataAccessResourceFailureException("PostgreSQL недоступен"));
+
+        // Act
+        bus.onExchangeRateSaved(new ExchangeRateSavedEvent("EUR", "USD", LocalDate.of(2025, 3, 28)));
+
+        // Assert
+        verify(eventPublisher).publishEvent(new CacheInvalidationEvent(CacheInvalidationEvent.Topic.RATES, "EUR/USD"));
+    }
+
+    @Test
+    @DisplayName("Оповещение другого экземпляра должно публиковаться как локальный сброс кеша")
+    void dispatch_shouldPublishInvalidationFromOtherInstance() {
+        // Act
+        bus.dispatch("node-b|LIMITS|PRODUCT");
+        bus.dispatch("node-b|RATES|");
+
+        // Assert
+        verify(eventPublisher).publishEvent(new CacheInvalidationEvent(CacheInvalidationEvent.Topic.LIMITS, "PRODUCT"));
+        verify(eventPublisher).publishEvent(CacheInvalidationEvent.all(CacheInvalidationEvent.Topic.RATES));
+    }
+
+    @Test
+    @DisplayName("Превышение лимита должно уходить другим экземплярам и приходить от них тем же событием")
+    void notifyLimitExceeded_shouldRoundTripTransactionThroughPayload() {
+        // Arrange
+        LimitExceededTransactionDTO transaction = new LimitExceededTransactionDTO(UUID.randomUUID(), "1000000001",
+                "9999999999", "USD", new BigDecimal("1500.00"), new BigDecimal("1500.00"),
+                Transaction.ExpenseCategory.SERVICE, ZonedDateTime.parse("2025-03-28T10:15:30Z"),
+                new BigDecimal("1000.00"), null, null);
+        bus.notifyLimitExceeded(new LimitExceededEvent(transaction));
+        ArgumentCaptor<String> payload = ArgumentCaptor.forClass(String.class);
+        verify(jdbcTemplate).query(eq("select pg_notify(?, ?)"), any(ResultSetExtractor.class),
+                eq(CacheInvalidationBus.CHANNEL), payload.capture());
+
+        // Act: то же оповещение на другом экземпляре
+        bus.dispatch(payload.getValue().replaceFirst(INSTANCE_ID, "node-b"));
+
+        // Assert
+        verify(eventPublisher).publishEvent(argThat((CacheInvalidationEvent event) ->
+                event.topic() == CacheInvalidationEvent.Topic.EXCEEDED_STREAM
+                        && event.key().contains(transaction.getTransactionId().toString())));
+    }
+
+    @Test
+    @DisplayName("Ошибка отправки превышения не должна выходить из обработчика")
+    void notifyLimitExceeded_shouldSwallowSendFailure() {
+        // Arrange
+        LimitExceededTransactionDTO transaction = new LimitExceededTransactionDTO(UUID.randomUUID(), "1000000001",
+                "9999999999", "USD", new BigDecimal("1500.00"), new BigDecimal("1500.00"),
+                Transaction.ExpenseCategory.SERVICE, ZonedDateTime.parse("2025-03-28T10:15:30Z"),
+                new BigDecimal("1000.00"), null, null);
+        when(jdbcTemplate.query(anyString(), any(ResultSetExtractor.class), any(Object[].class)))
+                .thenThrow(new DataAccessResourceFailureException("очередь NOTIFY заполнена"));
+
+        // Act & Assert
+        bus.notifyLimitExceeded(new LimitExceededEvent(transaction));
+    }
+
+    @Test
+    @DisplayName("Собственные и некорректные оповещения должны пропускаться")
+    void dispatch_shouldIgnoreOwnAndMalformedPayloads() {
+        // Act
+        bus.dispatch(CacheInvalidationBus.encode(INSTANCE_ID, CacheInvalidationEvent.Topic.LIMITS, "PRODUCT"));
+        bus.dispatch("garbage");
+        bus.dispatch("node-b|UNKNOWN|x");
+
+        // Assert
+        verifyNoInteractions(eventPublisher);
+    }
+
+    @Test
+    @DisplayName("Ресинхронизация должна сбрасывать кеши всех типов целиком")
+    void resync_shouldInvalidateAllTopics() {
+        // Act
+        bus.resync();
+
+        // Assert
+        for (CacheInvalidationEvent.Topic topic : CacheInvalidationEvent.Topic.values()) {
+            verify(eventPublisher).publishEvent(CacheInvalidationEvent.all(topic));
+        }
+        assertThat(bus.getResyncCount()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Отключенная шина не должна обращаться к PostgreSQL")
+    void notifyLimitChanged_shouldDoNothingWhenDisabled() {
+        // Arrange
+        CacheInvalidationBus disabled = new CacheInvalidationBus(jdbcTemplate, new DataSourceProperties(), eventPublisher,
+                new InstanceIdentity(INSTANCE_ID), objectMapper, false, Duration.ofSeconds(10), Duration.ofSeconds(30));
+
+        // Act
+        disabled.notifyLimitChanged(new LimitChangedEvent(Transaction.ExpenseCategory.PRODUCT));
+        disabled.start();
+
+        // Assert
+        verifyNoInteractions(jdbcTemplate);
+        assertThat(disabled.isRunning()).isFalse();
+    }
+}
@@ -0,0 +1,88 @@
+package com.abarigena.bankoperation.cache;
+
+import com.abarigena.bankoperation.event.CacheInvalidationEvent;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ExchangeRateCacheTest {
+
+    private final LocalDate date = LocalDate.of(2025, 3, 28);
+
+    @Test
+    @DisplayName("Курс и его отсутствие должны запрашиваться у хранилища один раз до сброса")
+    void get_shouldCacheFoundAndMissingRates() {
+        // Arrange
+        ExchangeRateCache cache = new ExchangeRateCache(100);
+        AtomicInteger loads = new AtomicInteger();
+        Supplier<Optional<BigDecimal>> eurLoader = () -> {
+            loads.incrementAndGet();
+            return Optional.of(new BigDecimal("1.08"));
+        };
+        Supplier<Optional<BigDecimal>> kztLoader = () -> {
+            loads.incrementAndGet();
+            return Optional.empty();
+        };
+
+        // Act
+        cache.get("EUR", "USD", date, eurLoader);
+        Optional<BigDecimal> eur = cache.get("EUR", "USD", date, eurLoader);
+        cache.get("KZT", "USD", date, kztLoader);
+        Optional<BigDecimal> kzt = cache.get("KZT", "USD", date, kztLoader);
+
+        // Assert
+        assertThat(eur).contains(new BigDecimal("1.08"));
+        assertThat(kzt).isEmpty();
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    @DisplayName("Сброс курсов должен очищать кеш, сброс лимитов — нет")
+    void onCacheInvalidation_shouldClearOnlyOnRatesTopic() {
+        // Arrange
+        ExchangeRateCache cache = new ExchangeRateCache(100);
+        AtomicInteger loads = new AtomicInteger();
+        Supplier<Optional<BigDecimal>> loader = () -> Optional.of(new BigDecimal(loads.incrementAndGet()));
+        cache.get("EUR", "USD", date, loader);
+
+        // Act
+        cache.onCacheInvalidation(CacheInvalidationEvent.all(CacheInvalidationEvent.Topic.LIMITS));
+        Optional<BigDecimal> afterLimits = cache.get("EUR", "USD", date, loader);
+        cache.onCacheInvalidation(new CacheInvalidationEvent(CacheInvalidationEvent.Topic.RATES, "RUB/USD"));
+        Optional<BigDecimal> afterRates = cache.get("EUR", "USD", date, loader);
+
+        // Assert
+        assertThat(afterLimits).contains(BigDecimal.ONE);
+        assertThat(afterRates).contains(new BigDecimal(2));
+    }
+
+    @Test
+    @DisplayName("Курс, найденный во время сброса, не должен попадать в кеш")
+    void get_shouldNotCacheRateLoadedBeforeInvalidation() {
+        // Arrange
+        ExchangeRateCache cache = new ExchangeRateCache(100);
+        AtomicInteger loads = new AtomicInteger();
+
+        // Act
+        cache.get("EUR", "USD", date, () -> {
+            loads.incrementAndGet();
+            cache.onCacheInvalidation(CacheInvalidationEvent.all(CacheInvalidationEvent.Topic.RATES));
+            return Optional.of(new BigDecimal("1.08"));
+        });
+        Optional<BigDecimal> reloaded = cache.get("EUR", "USD", date, () -> {
+            loads.incrementAndGet();
+            return Optional.of(new BigDecimal("1.09"));
+        });
+
+        // Assert
+        assertThat(reloaded).contains(new BigDecimal("1.09"));
+        assertThat(loads).hasValue(2);
+    }
+}
@@ -0,0 +1,126 @@
+package com.abarigena.bankoperation.cache;
+
+import com.abarigena.bankoperation.event.CacheInvalidationEvent;
+import com.abarigena.bankoperation.store.entity.ExpenseLimit;
+import com.abarigena.bankoperation.store.entity.Transaction;
+import com.abarigena.bankoperation.store.repository.ExpenseLimitRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class LimitCacheTest {
+
+    @Mock
+    private ExpenseLimitRepository expenseLimitRepository;
+
+    @InjectMocks
+    private LimitCache limitCache;
+
+    private final ZonedDateTime march1 = ZonedDateTime.of(2025, 3, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+    private final ZonedDateTime march15 = ZonedDateTime.of(2025, 3, 15, 0, 0, 0, 0, ZoneOffset.UTC);
+
+    private ExpenseLimit limit(String sum, ZonedDateTime setAt) {
+        return new ExpenseLimit(UUID.randomUUID(), new BigDecimal(sum), setAt, "USD", Transaction.ExpenseCategory.PRODUCT);
+    }
+
+    @Test
+    @DisplayName("findLimitValidAt должен возвращать последний лимит, установленный не позже указанного момента")
+    void findLimitValidAt_shouldReturnLatestLimitNotAfterDateTime() {
+        // Arrange
+        when(expenseLimitRepository.findByExpenseCategoryOrderByLimitDateTimeAsc(Transaction.ExpenseCategory.PRODUCT))
+                .thenReturn(List.of(limit("1000.00", march1), limit("1500.00", march15)));
+
+        // Act
+        Optional<ExpenseLimit> beforeAll = limitCache.findLimitValidAt(Transaction.ExpenseCategory.PRODUCT, march1.minusDays(1));
+        Optional<ExpenseLimit> between = limitCache.findLimitValidAt(Transaction.ExpenseCategory.PRODUCT, march1.plusDays(3));
+        Optional<ExpenseLimit> exact = limitCache.findLimitValidAt(Transaction.ExpenseCategory.PRODUCT, march15);
+        // Тот же момент в другом часовом поясе
+        Optional<ExpenseLimit> otherZone = limitCache.findLimitValidAt(Transaction.ExpenseCategory.PRODUCT,
+                march15.withZoneSameInstant(ZoneOffset.ofHours(5)).minusSeconds(1));
+
+        // Assert
+        assertThat(beforeAll).isEmpty();
+        assertThat(between).get().extracting(ExpenseLimit::getLimitSum).isEqualTo(new BigDecimal("1000.00"));
+        assertThat(exact).get().extracting(ExpenseLimit::getLimitSum).isEqualTo(new BigDecimal("1500.00"));
+        assertThat(otherZone).get().extracting(ExpenseLimit::getLimitSum).isEqualTo(new BigDecimal("1000.00"));
+        // История категории загружается один раз
+        verify(expenseLimitRepository, times(1)).findByExpenseCategoryOrderByLimitDateTimeAsc(Transaction.ExpenseCategory.PRODUCT);
+    }
+
+    @Test
+    @DisplayName("Сброс категории должен приводить к повторной загрузке только этой категории")
+    void onCacheInvalidation_shouldReloadOnlyInvalidatedCategory() {
+        // Arrange
+        when(expenseLimitRepository.findByExpenseCategoryOrderByLimitDateTimeAsc(Transaction.ExpenseCategory.PRODUCT))
+                .thenReturn(List.of(limit("1000.00", march1)))
+                .thenReturn(List.of(limit("1000.00", march1), limit("1500.00", march15)));
+        when(expenseLimitRepository.findByExpenseCategoryOrderByLimitDateTimeAsc(Transaction.ExpenseCategory.SERVICE))
+                .thenReturn(List.of());
+        limitCache.findLimitValidAt(Transaction.ExpenseCategory.PRODUCT, march15);
+        limitCache.findLimitValidAt(Transaction.ExpenseCategory.SERVICE, march15);
+
+        // Act
+        limitCache.onCacheInvalidation(new CacheInvalidationEvent(CacheInvalidationEvent.Topic.LIMITS, "PRODUCT"));
+        Optional<ExpenseLimit> product = limitCache.findLimitValidAt(Transaction.ExpenseCategory.PRODUCT, march15);
+        limitCache.findLimitValidAt(Transaction.ExpenseCategory.SERVICE, march15);
+
+        // Assert
+        assertThat(product).get().extracting(ExpenseLimit::getLimitSum).isEqualTo(new BigDecimal("1500.00"));
+        verify(expenseLimitRepository, times(2)).findByExpenseCategoryOrderByLimitDateTimeAsc(Transaction.ExpenseCategory.PRODUCT);
+        verify(expenseLimitRepository, times(1)).findByExpenseCategoryOrderByLimitDateTimeAsc(Transaction.ExpenseCategory.SERVICE);
+    }
+
+    @Test
+    @DisplayName("Полный сброс должен сбрасывать все категории, сброс курсов — не затрагивать лимиты")
+    void onCacheInvalidation_fullResetShouldReloadAllCategories() {
+        // Arrange
+        when(expenseLimitRepository.findByExpenseCategoryOrderByLimitDateTimeAsc(any())).thenReturn(List.of());
+        limitCache.findLimitValidAt(Transaction.ExpenseCategory.PRODUCT, march15);
+        limitCache.findLimitValidAt(Transaction.ExpenseCategory.SERVICE, march15);
+
+        // Act
+        limitCache.onCacheInvalidation(CacheInvalidationEvent.all(CacheInvalidationEvent.Topic.RATES));
+        limitCache.findLimitValidAt(Transaction.ExpenseCategory.PRODUCT, march15);
+        limitCache.onCacheInvalidation(CacheInvalidationEvent.all(CacheInvalidationEvent.Topic.LIMITS));
+        limitCache.findLimitValidAt(Transaction.ExpenseCategory.PRODUCT, march15);
+        limitCache.findLimitValidAt(Transaction.ExpenseCategory.SERVICE, march15);
+
+        // Assert
+        verify(expenseLimitRepository, times(2)).findByExpenseCategoryOrderByLimitDateTimeAsc(Transaction.ExpenseCategory.PRODUCT);
+        verify(expenseLimitRepository, times(2)).findByExpenseCategoryOrderByLimitDateTimeAsc(Transaction.ExpenseCategory.SERVICE);
+    }
+
+    @Test
+    @DisplayName("История, загруженная до сброса, не должна попадать в кеш")
+    void findLimitValidAt_shouldNotCacheHistoryLoadedBeforeInvalidation() {
+        // Arrange: сброс приходит, пока идет загрузка
+        when(expenseLimitRepository.findByExpenseCategoryOrderByLimitDateTimeAsc(Transaction.ExpenseCategory.PRODUCT))
+                .thenAnswer(invocation -> {
+                    limitCache.onCacheInvalidation(new CacheInvalidationEvent(CacheInvalidationEvent.Topic.LIMITS, "PRODUCT"));
+                    return List.of(limit("1000.00", march1));
+                })
+                .thenReturn(List.of(limit("1500.00", march1)));
+
+        // Act
+        Optional<ExpenseLimit> stale = limitCache.findLimitValidAt(Transaction.ExpenseCategory.PRODUCT, march15);
+        Optional<ExpenseLimit> fresh = limitCache.findLimitValidAt(Transaction.ExpenseCategory.PRODUCT, march15);
+
+        // Assert
+        assertThat(stale).get().extracting(ExpenseLimit::getLimitSum).isEqualTo(new BigDecimal("1000.00"));
+        assertThat(fresh).get().extracting(ExpenseLimit::getLimitSum).isEqualTo(new BigDecimal("1500.00"));
+    }
+}
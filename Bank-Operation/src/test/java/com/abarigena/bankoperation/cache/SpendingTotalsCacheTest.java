@@ -0,0 +1,91 @@
+package com.abarigena.bankoperation.cache;
+
+import com.abarigena.bankoperation.event.TransactionRecordedEvent;
+import com.abarigena.bankoperation.store.entity.SpendingRollup;
+import com.abarigena.bankoperation.store.entity.Transaction;
+import com.abarigena.bankoperation.store.repository.SpendingRollupRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.YearMonth;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SpendingTotalsCacheTest {
+
+    @Mock
+    private SpendingRollupRepository spendingRollupRepository;
+
+    private final AtomicLong nanos = new AtomicLong();
+    private final YearMonth month = YearMonth.of(2025, 3);
+    private final SpendingRollup.Key key = new SpendingRollup.Key(Transaction.ExpenseCategory.PRODUCT, month.atDay(1));
+    private SpendingTotalsCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new SpendingTotalsCache(spendingRollupRepository, Duration.ofSeconds(1), nanos::get);
+    }
+
+    @Test
+    @DisplayName("monthTotal: повторные запросы в пределах интервала не обращаются к БД")
+    void monthTotal_shouldServeFromMemoryWithinRefreshInterval() {
+        // Arrange
+        when(spendingRollupRepository.findById(key))
+                .thenReturn(Optional.of(new SpendingRollup(key, new BigDecimal("100.00"), 3, 0)));
+
+        // Act
+        BigDecimal first = cache.monthTotal(Transaction.ExpenseCategory.PRODUCT, month);
+        nanos.addAndGet(Duration.ofMillis(500).toNanos());
+        BigDecimal second = cache.monthTotal(Transaction.ExpenseCategory.PRODUCT, month);
+
+        // Assert
+        assertThat(first).isEqualByComparingTo("100.00");
+        assertThat(second).isEqualByComparingTo("100.00");
+        verify(spendingRollupRepository, times(1)).findById(any());
+    }
+
+    @Test
+    @DisplayName("onTransactionRecorded: транзакция этого экземпляра сразу видна в сумме месяца")
+    void onTransactionRecorded_shouldAddAmountToCachedTotal() {
+        // Arrange
+        when(spendingRollupRepository.findById(key))
+                .thenReturn(Optional.of(new SpendingRollup(key, new BigDecimal("100.00"), 3, 0)));
+        cache.monthTotal(Transaction.ExpenseCategory.PRODUCT, month);
+
+        // Act
+        cache.onTransactionRecorded(new TransactionRecordedEvent(
+                Transaction.ExpenseCategory.PRODUCT, month.atDay(1), new BigDecimal("25.50")));
+
+        // Assert
+        assertThat(cache.monthTotal(Transaction.ExpenseCategory.PRODUCT, month)).isEqualByComparingTo("125.50");
+        verify(spendingRollupRepository, times(1)).findById(any());
+    }
+
+    @Test
+    @DisplayName("monthTotal: по истечении интервала сумма перечитывается (траты других экземпляров)")
+    void monthTotal_shouldReloadAfterRefreshInterval() {
+        // Arrange
+        when(spendingRollupRepository.findById(key))
+                .thenReturn(Optional.empty(), Optional.of(new SpendingRollup(key, new BigDecimal("40.00"), 1, 0)));
+        assertThat(cache.monthTotal(Transaction.ExpenseCategory.PRODUCT, month)).isEqualByComparingTo("0");
+
+        // Act
+        nanos.addAndGet(Duration.ofSeconds(1).toNanos());
+        BigDecimal reloaded = cache.monthTotal(Transaction.ExpenseCategory.PRODUCT, month);
+
+        // Assert
+        assertThat(reloaded).isEqualByComparingTo("40.00");
+        verify(spendingRollupRepository, times(2)).findById(key);
+    }
+}
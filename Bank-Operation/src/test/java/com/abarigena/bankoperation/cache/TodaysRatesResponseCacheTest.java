@@ -0,0 +1,177 @@
+package com.abarigena.bankoperation.cache;
+
+import com.abarigena.bankoperation.controller.ExchangeRateController;
+import com.abarigena.bankoperation.dto.ExchangeRateDTO;
+import com.abarigena.bankoperation.event.CacheInvalidationEvent;
+import com.abarigena.bankoperation.service.ExchangeRateService;
+import com.abarigena.bankoperation.service.ExchangeRateHistoryService;
+import com.abarigena.bankoperation.service.RateConversionService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@ExtendWith(MockitoExtension.class)
+class TodaysRatesResponseCacheTest {
+
+    private static final List<String> CURRENCIES = List.of("EUR/USD");
+    private static final Instant SAVED_AT = Instant.parse("2025-03-28T05:00:00Z");
+
+    @Mock
+    private ExchangeRateService exchangeRateService;
+
+    private final ObjectMapper objectMapper = JsonMapper.builder().findAndAddModules().build();
+    // 06:00 UTC: до планового обновления в 08:00 остается 2 часа
+    private final Clock clock = Clock.fixed(ZonedDateTime.of(2025, 3, 28, 6, 0, 0, 0, ZoneOffset.UTC).toInstant(), ZoneOffset.UTC);
+    private final LocalDate today = LocalDate.of(2025, 3, 28);
+
+    private TodaysRatesResponseCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new TodaysRatesResponseCache(exchangeRateService, objectMapper, "0 0 8 * * MON-SUN", CURRENCIES, clock);
+    }
+
+    @Test
+    @DisplayName("get должен обращаться к хранилищу один раз и возвращать один и тот же ETag")
+    void get_shouldCacheSerializedResponse() {
+        // Arrange
+        when(exchangeRateService.findTodaysRates()).thenReturn(todaysRates(rate("1.08")));
+
+        // Act
+        TodaysRatesResponseCache.CachedResponse first = cache.get();
+        TodaysRatesResponseCache.CachedResponse second = cache.get();
+
+        // Assert
+        assertThat(second).isSameAs(first);
+        assertThat(first.etag()).startsWith("\"").endsWith("\"");
+        assertThat(new String(first.body())).contains("\"closePrice\":1.08");
+        verify(exchangeRateService, times(1)).findTodaysRates();
+    }
+
+    @Test
+    @DisplayName("Сохранение нового курса должно сбрасывать кеш и менять ETag")
+    void onCacheInvalidation_shouldInvalidate() {
+        // Arrange
+        when(exchangeRateService.findTodaysRates())
+                .thenReturn(todaysRates(rate("1.08")))
+                .thenReturn(todaysRates(rate("1.09")));
+        String oldEtag = cache.get().etag();
+
+        // Act
+        cache.onCacheInvalidation(new CacheInvalidationEvent(CacheInvalidationEvent.Topic.RATES, "EUR/USD"));
+        String newEtag = cache.get().etag();
+
+        // Assert
+        assertThat(newEtag).isNotEqualTo(oldEtag);
+        verify(exchangeRateService, times(2)).findTodaysRates();
+    }
+
+    @Test
+    @DisplayName("Экземпляры, собравшие ответ в разное время, отдают одинаковый ETag для одних и тех же курсов")
+    void get_shouldReturnSameEtagAcrossInstances() {
+        // Arrange
+        when(exchangeRateService.findTodaysRates()).thenReturn(todaysRates(rate("1.08")));
+        Clock later = Clock.offset(clock, Duration.ofMinutes(30));
+        TodaysRatesResponseCache otherInstance =
+                new TodaysRatesResponseCache(exchangeRateService, objectMapper, "0 0 8 * * MON-SUN", CURRENCIES, later);
+
+        // Act & Assert
+        assertThat(otherInstance.get().etag()).isEqualTo(cache.get().etag());
+    }
+
+    @Test
+    @DisplayName("timeToNextRefresh должен считать время до ближайшего запуска обновления курсов")
+    void timeToNextRefresh_shouldUseNextCronRun() {
+        // Act & Assert
+        assertThat(cache.timeToNextRefresh()).isEqualTo(Duration.ofHours(2));
+    }
+
+    @Test
+    @DisplayName("GET /api/rates/today с актуальным If-None-Match должен возвращать 304 без тела")
+    void getTodaysRates_shouldReturnNotModifiedForMatchingEtag() throws Exception {
+        // Arrange
+        when(exchangeRateService.findTodaysRates()).thenReturn(todaysRates(rate("1.08")));
+        MockMvc mockMvc = MockMvcBuilders.standaloneSetup(
+                new ExchangeRateController(cache, mock(RateConversionService.class),
+                        mock(ExchangeRateHistoryService.class))).build();
+        MvcResult first = mockMvc.perform(get("/api/rates/today"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "max-age=7200, public"))
+                .andExpect(header().dateValue(HttpHeaders.LAST_MODIFIED, SAVED_AT.toEpochMilli()))
+                .andReturn();
+        String etag = first.getResponse().getHeader(HttpHeaders.ETAG);
+
+        // Act & Assert
+        MvcResult second = mockMvc.perform(get("/api/rates/today").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andReturn();
+        assertThat(second.getResponse().getContentLength()).isZero();
+        verify(exchangeRateService, times(1)).findTodaysRates();
+    }
+
+    @Test
+    @DisplayName("GET /api/rates/today без курсов для всех пар должен отдавать no-cache")
+    void getTodaysRates_shouldNotCacheIncompleteRates() throws Exception {
+        // Arrange
+        TodaysRatesResponseCache partialCache = new TodaysRatesResponseCache(exchangeRateService, objectMapper,
+                "0 0 8 * * MON-SUN", List.of("EUR/USD", "RUB/USD"), clock);
+        when(exchangeRateService.findTodaysRates()).thenReturn(todaysRates(rate("1.08")));
+        MockMvc mockMvc = MockMvcBuilders.standaloneSetup(
+                new ExchangeRateController(partialCache, mock(RateConversionService.class),
+                        mock(ExchangeRateHistoryService.class))).build();
+
+        // Act & Assert
+        mockMvc.perform(get("/api/rates/today"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache, public"))
+                .andExpect(header().exists(HttpHeaders.ETAG));
+    }
+
+    @Test
+    @DisplayName("GET /api/rates/today без курсов на сегодня не должен отдавать Last-Modified")
+    void getTodaysRates_shouldOmitLastModified_whenNoRates() throws Exception {
+        // Arrange
+        when(exchangeRateService.findTodaysRates()).thenReturn(new ExchangeRateService.TodaysRates(List.of(), null));
+        MockMvc mockMvc = MockMvcBuilders.standaloneSetup(
+                new ExchangeRateController(cache, mock(RateConversionService.class),
+                        mock(ExchangeRateHistoryService.class))).build();
+
+        // Act & Assert
+        mockMvc.perform(get("/api/rates/today"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache, public"))
+                .andExpect(header().doesNotExist(HttpHeaders.LAST_MODIFIED));
+    }
+
+    private static ExchangeRateService.TodaysRates todaysRates(ExchangeRateDTO... rates) {
+        return new ExchangeRateService.TodaysRates(List.of(rates), SAVED_AT);
+    }
+
+    private ExchangeRateDTO rate(String closePrice) {
+        return new ExchangeRateDTO("EUR", "USD", today, new BigDecimal(closePrice), new BigDecimal("1.07"));
+    }
+}
@@ -0,0 +1,189 @@
+package com.abarigena.bankoperation.client;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CircuitBreakingRateProviderTest {
+
+    private static final RateQuote QUOTE = new RateQuote("stub", new BigDecimal("1.10"));
+
+    private final AtomicLong clock = new AtomicLong();
+    private final AtomicInteger calls = new AtomicInteger();
+    private final AtomicReference<Supplier<Mono<RateQuote>>> answer = new AtomicReference<>(() -> Mono.just(QUOTE));
+    private final RateProvider stub = new RateProvider() {
+        @Override
+        public String name() {
+            return "stub";
+        }
+
+        @Override
+        public Mono<RateQuote> fetchLatestClose(String fromCurrency, String toCurrency) {
+            calls.incrementAndGet();
+            return answer.get().get();
+        }
+    };
+    private MeterRegistry meterRegistry;
+    private CircuitBreakingRateProvider breaker;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        // Размыкается при 50% ошибок среди последних 4 запросов (не меньше 4), открыт 1 минуту, 2 пробных запроса
+        breaker = new CircuitBreakingRateProvider(stub, 0.5, 4, 4, Duration.ofMinutes(1), 2,
+                meterRegistry, clock::get);
+    }
+
+    @Test
+    @DisplayName("Доля ошибок ниже порога: выключатель остается замкнутым")
+    void shouldStayClosed_belowThreshold() {
+        // Arrange & Act
+        fail(1);
+        succeed(3);
+
+        // Assert
+        assertEquals(CircuitBreakingRateProvider.State.CLOSED, breaker.state());
+        assertEquals(1.0, stateGauge("closed"));
+    }
+
+    @Test
+    @DisplayName("Доля ошибок достигла порога: запросы отклоняются без обращения к источнику")
+    void shouldOpenAndRejectFast_whenFailureRateReached() {
+        // Arrange
+        succeed(2);
+        fail(2);
+        assertEquals(CircuitBreakingRateProvider.State.OPEN, breaker.state());
+        int callsBeforeOpen = calls.get();
+
+        // Act & Assert
+        StepVerifier.create(breaker.fetchLatestClose("EUR", "USD"))
+                .expectError(CircuitBreakingRateProvider.CircuitOpenException.class)
+                .verify();
+        assertEquals(callsBeforeOpen, calls.get());
+        assertEquals(1.0, stateGauge("open"));
+        assertEquals(1.0, meterRegistry.get("rate.provider.calls").tag("outcome", "rejected").counter().count());
+        assertEquals(2.0, meterRegistry.get("rate.provider.calls").tag("outcome", "failure").counter().count());
+    }
+
+    @Test
+    @DisplayName("После open-duration успешные пробные запросы замыкают выключатель")
+    void shouldCloseAfterSuccessfulTrialCalls() {
+        // Arrange
+        fail(4);
+        clock.addAndGet(Duration.ofMinutes(1).toNanos());
+
+        // Act
+        succeed(1);
+        assertEquals(CircuitBreakingRateProvider.State.HALF_OPEN, breaker.state());
+        succeed(1);
+
+        // Assert: окно начато заново, одной ошибки мало для размыкания
+        assertEquals(CircuitBreakingRateProvider.State.CLOSED, breaker.state());
+        fail(1);
+        assertEquals(CircuitBreakingRateProvider.State.CLOSED, breaker.state());
+    }
+
+    @Test
+    @DisplayName("Ошибка пробного запроса снова размыкает выключатель")
+    void shouldReopen_whenTrialCallFails() {
+        // Arrange
+        fail(4);
+        clock.addAndGet(Duration.ofMinutes(1).toNanos());
+
+        // Act
+        fail(1);
+
+        // Assert
+        assertEquals(CircuitBreakingRateProvider.State.OPEN, breaker.state());
+        StepVerifier.create(breaker.fetchLatestClose("EUR", "USD"))
+                .expectError(CircuitBreakingRateProvider.CircuitOpenException.class)
+                .verify();
+    }
+
+    @Test
+    @DisplayName("В полуоткрытом состоянии пропускается не больше half-open-calls одновременных запросов")
+    void shouldLimitConcurrentTrialCalls() {
+        // Arrange
+        fail(4);
+        clock.addAndGet(Duration.ofMinutes(1).toNanos());
+        Sinks.One<RateQuote> pending = Sinks.one();
+        answer.set(pending::asMono);
+
+        // Act: два пробных запроса висят, третий отклоняется
+        StepVerifier.create(breaker.fetchLatestClose("EUR", "USD")).thenCancel().verify();
+        Disposable first = breaker.fetchLatestClose("EUR", "USD").subscribe();
+        Disposable second = breaker.fetchLatestClose("EUR", "USD").subscribe();
+
+        // Assert: отмененный запрос вернул разрешение, поэтому два запроса пропущены, а третий нет
+        StepVerifier.create(breaker.fetchLatestClose("EUR", "USD"))
+                .expectError(CircuitBreakingRateProvider.CircuitOpenException.class)
+                .verify();
+        pending.tryEmitValue(QUOTE);
+        assertEquals(CircuitBreakingRateProvider.State.CLOSED, breaker.state());
+        first.dispose();
+        second.dispose();
+    }
+
+    @Test
+    @DisplayName("Пустой ответ источника считается успехом, отмена не учитывается")
+    void shouldCountEmptyAsSuccessAndIgnoreCancel() {
+        // Arrange
+        answer.set(Mono::empty);
+        succeed(2);
+        answer.set(Mono::never);
+        for (int i = 0; i < 10; i++) {
+            StepVerifier.create(breaker.fetchLatestClose("EUR", "USD")).thenCancel().verify();
+        }
+
+        // Act
+        fail(1);
+
+        // Assert: 1 ошибка из 3 учтенных исходов
+        assertEquals(CircuitBreakingRateProvider.State.CLOSED, breaker.state());
+        assertEquals(2.0, meterRegistry.get("rate.provider.calls").tag("outcome", "success").counter().count());
+    }
+
+    @Test
+    @DisplayName("Некорректные параметры отклоняются")
+    void constructor_shouldRejectInvalidSettings() {
+        assertThrows(IllegalArgumentException.class, () -> new CircuitBreakingRateProvider(stub, 0, 4, 4,
+                Duration.ofMinutes(1), 1, meterRegistry, clock::get));
+        assertThrows(IllegalArgumentException.class, () -> new CircuitBreakingRateProvider(stub, 0.5, 4, 5,
+                Duration.ofMinutes(1), 1, meterRegistry, clock::get));
+    }
+
+    private void succeed(int times) {
+        for (int i = 0; i < times; i++) {
+            breaker.fetchLatestClose("EUR", "USD").onErrorResume(e -> Mono.empty()).block();
+        }
+    }
+
+    private void fail(int times) {
+        Supplier<Mono<RateQuote>> previous = answer.get();
+        answer.set(() -> Mono.error(new RuntimeException("503")));
+        for (int i = 0; i < times; i++) {
+            breaker.fetchLatestClose("EUR", "USD").onErrorResume(e -> Mono.empty()).block();
+        }
+        answer.set(previous);
+    }
+
+    private double stateGauge(String state) {
+        return meterRegistry.get("rate.provider.circuit.state").tag("state", state).gauge().value();
+    }
+}
@@ -1,6 +1,6 @@
 package com.abarigena.bankoperation.client;
 
-import com.abarigena.bankoperation.dto.TwelveDataExchangeRateDTO;
+import com.abarigena.bankoperation.dto.ExchangeRateDTO;
 import com.abarigena.bankoperation.service.ExchangeRateService;
 import com.abarigena.bankoperation.store.entity.ExchangeRate;
 import org.junit.jupiter.api.BeforeEach;
@@ -11,58 +11,44 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.test.util.ReflectionTestUtils;
-import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.LocalDate;
-import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
-import java.util.function.Function;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
-class TwelveDataExchangeRateClientTest {
+class ExchangeRateUpdaterTest {
 
     @Mock
-    private WebClient webClient; // Мокаем внешний клиент
+    private RateProvider rateProvider; // Мокаем источник курсов
     @Mock
     private ExchangeRateService exchangeRateService; // Мокаем сервис
 
-    // Их нужно мокать, чтобы симулировать вызов .get().uri().retrieve().bodyToMono()
-    @Mock
-    private WebClient.RequestHeadersUriSpec requestHeadersUriSpec;
-    @Mock
-    private WebClient.RequestHeadersSpec requestHeadersSpec;
-    @Mock
-    private WebClient.ResponseSpec responseSpec;
-
     @InjectMocks
-    private TwelveDataExchangeRateClient twelveDataExchangeRateClient;
+    private ExchangeRateUpdater exchangeRateUpdater;
 
     private final String fromCurrencyEur = "EUR";
     private final String toCurrencyUsd = "USD";
     private final String fromCurrencyRub = "RUB";
     private final List<String> configuredCurrencies = List.of("EUR/USD", "RUB/USD");
-    private final String apiKey = "test-api-key";
     private final LocalDate today = LocalDate.now();
     private final LocalDate yesterday = today.minusDays(1);
     private final BigDecimal currentClosePrice = new BigDecimal("1.12");
     private final BigDecimal previousClosePrice = new BigDecimal("1.11");
-    private final BigDecimal fallbackPrice = new BigDecimal("1.09");
 
     @BeforeEach
     void setUp() {
-        ReflectionTestUtils.setField(twelveDataExchangeRateClient, "apiKey", apiKey);
-        ReflectionTestUtils.setField(twelveDataExchangeRateClient, "currencies", configuredCurrencies);
-
-        lenient().when(webClient.get()).thenReturn(requestHeadersUriSpec);
-        lenient().when(requestHeadersUriSpec.uri(any(Function.class))).thenReturn(requestHeadersSpec);
-        lenient().when(requestHeadersSpec.retrieve()).thenReturn(responseSpec);
+        ReflectionTestUtils.setField(exchangeRateUpdater, "currencies", configuredCurrencies);
+        ReflectionTestUtils.setField(exchangeRateUpdater, "refreshTimeout", Duration.ofSeconds(5));
 
         lenient().when(exchangeRateService.findRateOptional(anyString(), anyString(), any(LocalDate.class)))
                 .thenReturn(Optional.empty());
@@ -71,19 +57,17 @@ class TwelveDataExchangeRateClientTest {
     // --- Тесты для метода fetchExchangeRate ---
 
     @Test
-    @DisplayName("fetchExchangeRate должен вернуть курс, когда API отвечает успешно")
+    @DisplayName("fetchExchangeRate должен вернуть курс, когда источник отвечает успешно")
     void fetchExchangeRate_shouldReturnRate_whenApiCallSuccessful() {
         // Arrange
-        TwelveDataExchangeRateDTO dto = new TwelveDataExchangeRateDTO(
-                List.of(new TwelveDataExchangeRateDTO.Value(today.toString(), currentClosePrice.toString()))
-        );
-        when(responseSpec.bodyToMono(eq(TwelveDataExchangeRateDTO.class))).thenReturn(Mono.just(dto));
+        when(rateProvider.fetchLatestClose(fromCurrencyEur, toCurrencyUsd))
+                .thenReturn(Mono.just(new RateQuote("test", currentClosePrice)));
         // Мокаем ответ сервиса для получения предыдущего курса через findRateOptional
         when(exchangeRateService.findRateOptional(fromCurrencyEur, toCurrencyUsd, yesterday))
                 .thenReturn(Optional.of(previousClosePrice));
 
         // Act
-        Mono<ExchangeRate> resultMono = twelveDataExchangeRateClient.fetchExchangeRate(fromCurrencyEur, toCurrencyUsd);
+        Mono<ExchangeRate> resultMono = exchangeRateUpdater.fetchExchangeRate(fromCurrencyEur, toCurrencyUsd);
 
         // Assert
         StepVerifier.create(resultMono)
@@ -93,29 +77,27 @@ class TwelveDataExchangeRateClientTest {
                                 rate.getDate().equals(today) &&
                                 rate.getClosePrice().compareTo(currentClosePrice) == 0 &&
                                 rate.getPreviousClosePrice().compareTo(previousClosePrice) == 0 && // Проверяем, что предыдущий курс использован
-                                rate.getId() != null
+                                rate.getYear() == today.getYear() // Партиция года вычислена из даты
                 )
                 .verifyComplete();
 
         // Verify: Проверяем, что был вызван findRateOptional для предыдущего курса
         verify(exchangeRateService, times(1)).findRateOptional(fromCurrencyEur, toCurrencyUsd, yesterday);
-        verify(webClient).get();
+        verify(rateProvider).fetchLatestClose(fromCurrencyEur, toCurrencyUsd);
     }
 
     @Test
     @DisplayName("fetchExchangeRate должен использовать текущий как предыдущий, если предыдущий не найден")
     void fetchExchangeRate_shouldUseCurrentAsPrevious_whenPreviousRateNotFound() {
         // Arrange
-        TwelveDataExchangeRateDTO dto = new TwelveDataExchangeRateDTO(
-                List.of(new TwelveDataExchangeRateDTO.Value(today.toString(), currentClosePrice.toString()))
-        );
-        when(responseSpec.bodyToMono(eq(TwelveDataExchangeRateDTO.class))).thenReturn(Mono.just(dto));
+        when(rateProvider.fetchLatestClose(fromCurrencyEur, toCurrencyUsd))
+                .thenReturn(Mono.just(new RateQuote("test", currentClosePrice)));
         // Имитируем, что findRateOptional НЕ нашел предыдущий курс
         when(exchangeRateService.findRateOptional(fromCurrencyEur, toCurrencyUsd, yesterday))
                 .thenReturn(Optional.empty()); // Возвращаем пустой Optional
 
         // Act
-        Mono<ExchangeRate> resultMono = twelveDataExchangeRateClient.fetchExchangeRate(fromCurrencyEur, toCurrencyUsd);
+        Mono<ExchangeRate> resultMono = exchangeRateUpdater.fetchExchangeRate(fromCurrencyEur, toCurrencyUsd);
 
         // Assert
         StepVerifier.create(resultMono)
@@ -132,66 +114,31 @@ class TwelveDataExchangeRateClientTest {
 
 
     @Test
-    @DisplayName("fetchExchangeRate должен вернуть fallback курс, когда API возвращает пустые данные")
-    void fetchExchangeRate_shouldReturnFallbackRate_whenApiReturnsEmptyValues() {
-        // Arrange
-        TwelveDataExchangeRateDTO emptyDto = new TwelveDataExchangeRateDTO(Collections.emptyList());
-        when(responseSpec.bodyToMono(eq(TwelveDataExchangeRateDTO.class))).thenReturn(Mono.just(emptyDto));
-        // Имитируем, что findRateOptional НАШЕЛ fallback курс для СЕГОДНЯ
-        when(exchangeRateService.findRateOptional(fromCurrencyEur, toCurrencyUsd, today))
-                .thenReturn(Optional.of(fallbackPrice));
-
-        // Act
-        Mono<ExchangeRate> resultMono = twelveDataExchangeRateClient.fetchExchangeRate(fromCurrencyEur, toCurrencyUsd);
-
-        // Assert
-        StepVerifier.create(resultMono)
-                .expectNextMatches(rate ->
-                        rate.getClosePrice().compareTo(fallbackPrice) == 0 && // Курс - fallback
-                                rate.getPreviousClosePrice().compareTo(fallbackPrice) == 0 // Предыдущий тоже fallback
-                )
-                .verifyComplete(); // Теперь ожидаем результат, а не onComplete()
-
-        // Verify: Проверяем, что был вызван findRateOptional для получения fallback-курса
-        verify(exchangeRateService, times(1)).findRateOptional(fromCurrencyEur, toCurrencyUsd, today);
-        // Проверяем, что НЕ вызывался для вчерашнего дня
-        verify(exchangeRateService, never()).findRateOptional(fromCurrencyEur, toCurrencyUsd, yesterday);
-    }
-
-    @Test
-    @DisplayName("fetchExchangeRate должен вернуть пустой Mono, когда API пусто и fallback не найден")
-    void fetchExchangeRate_shouldReturnEmpty_whenApiReturnsEmptyValuesAndNoFallbackExists() {
+    @DisplayName("fetchExchangeRate должен вернуть пустой Mono и не копировать прошлый курс, когда источник не вернул курс")
+    void fetchExchangeRate_shouldReturnEmptyWithoutFallback_whenApiReturnsEmptyValues() {
         // Arrange
-        TwelveDataExchangeRateDTO emptyDto = new TwelveDataExchangeRateDTO(Collections.emptyList());
-        when(responseSpec.bodyToMono(eq(TwelveDataExchangeRateDTO.class))).thenReturn(Mono.just(emptyDto));
-        // Имитируем, что findRateOptional НЕ нашел fallback-курс
-        when(exchangeRateService.findRateOptional(fromCurrencyEur, toCurrencyUsd, today))
-                .thenReturn(Optional.empty()); // Возвращаем пустой Optional
+        when(rateProvider.fetchLatestClose(fromCurrencyEur, toCurrencyUsd)).thenReturn(Mono.empty());
 
         // Act
-        Mono<ExchangeRate> resultMono = twelveDataExchangeRateClient.fetchExchangeRate(fromCurrencyEur, toCurrencyUsd);
+        Mono<ExchangeRate> resultMono = exchangeRateUpdater.fetchExchangeRate(fromCurrencyEur, toCurrencyUsd);
 
-        // Assert
+        // Assert: курс на сегодня не подставляется, повторный запуск сохранит настоящий
         StepVerifier.create(resultMono)
-                .expectNextCount(0) // Ожидаем пустой Mono
+                .expectNextCount(0)
                 .verifyComplete();
-
-        // Verify: Проверяем, что вызывался findRateOptional
-        verify(exchangeRateService, times(1)).findRateOptional(fromCurrencyEur, toCurrencyUsd, today);
-        verify(exchangeRateService, never()).findRateOptional(fromCurrencyEur, toCurrencyUsd, yesterday);
+        verify(exchangeRateService, never()).findRateOptional(anyString(), anyString(), any(LocalDate.class));
     }
 
-
     @Test
-    @DisplayName("fetchExchangeRate должен вернуть пустой Mono, когда API возвращает ошибку")
+    @DisplayName("fetchExchangeRate должен вернуть пустой Mono, когда источник возвращает ошибку")
     void fetchExchangeRate_shouldReturnEmpty_whenApiCallFails() {
         // Arrange
-        // Имитируем ошибку от WebClient
-        when(responseSpec.bodyToMono(eq(TwelveDataExchangeRateDTO.class)))
+        // Имитируем ошибку источника курсов
+        when(rateProvider.fetchLatestClose(fromCurrencyEur, toCurrencyUsd))
                 .thenReturn(Mono.error(new RuntimeException("API connection failed")));
 
         // Act
-        Mono<ExchangeRate> resultMono = twelveDataExchangeRateClient.fetchExchangeRate(fromCurrencyEur, toCurrencyUsd);
+        Mono<ExchangeRate> resultMono = exchangeRateUpdater.fetchExchangeRate(fromCurrencyEur, toCurrencyUsd);
 
         // Assert: Проверяем, что onErrorResume обработал ошибку и вернул Mono.empty()
         StepVerifier.create(resultMono)
@@ -210,7 +157,7 @@ class TwelveDataExchangeRateClientTest {
         // --- Arrange ---
 
         // Мы хотим вызвать реальный updateExchangeRates(), но замокать fetchExchangeRate(), чтобы не делать реальных вызовов API.
-        TwelveDataExchangeRateClient spiedClient = spy(twelveDataExchangeRateClient);
+        ExchangeRateUpdater spiedClient = spy(exchangeRateUpdater);
 
         // Возвращаем Mono.empty(), потому что в этом тесте нам не важен результат fetchExchangeRate,
         // нам важно только то, что он был ВЫЗВАН для каждой пары.
@@ -223,7 +170,8 @@ class TwelveDataExchangeRateClientTest {
         // --- Act ---
         // Вызываем РЕАЛЬНЫЙ метод updateExchangeRates() на ШПИОНЕ.
         // Внутри него будет выполнен цикл forEach, который будет вызывать ЗАМОКАННЫЙ fetchExchangeRate().
-        spiedClient.updateExchangeRates();
+        // Ни одна пара не получила курс: запуск завершается ошибкой, чтобы его повторили
+        assertThatThrownBy(spiedClient::updateExchangeRates).isInstanceOf(IllegalStateException.class);
 
         // --- Assert (Verify) ---
         // Проверяем, что метод fetchExchangeRate() был вызван на шпионе РОВНО по одному разу
@@ -234,7 +182,67 @@ class TwelveDataExchangeRateClientTest {
         // Дополнительно проверяем, что другие методы НЕ вызывались (как и ожидалось):
         // Сервис сохранения не должен был вызваться, так как fetchExchangeRate вернул Mono.empty().
         verify(exchangeRateService, never()).saveExchangeRateIfNotExists(any());
-        // WebClient не должен был вызываться, так как реальный код fetchExchangeRate не выполнялся (он был замокан).
-        verify(webClient, never()).get();
+        // Источник курсов не должен был вызываться, так как реальный код fetchExchangeRate не выполнялся (он был замокан).
+        verify(rateProvider, never()).fetchLatestClose(anyString(), anyString());
+    }
+
+    @Test
+    @DisplayName("updateExchangeRates должен дождаться загрузки и сохранить полученные курсы")
+    void updateExchangeRates_shouldSaveFetchedRates() {
+        // Arrange
+        ExchangeRateUpdater spiedClient = spy(exchangeRateUpdater);
+        ExchangeRate eurRate = ExchangeRate.builder()
+                .fromCurrency(fromCurrencyEur).toCurrency(toCurrencyUsd).date(today)
+                .closePrice(currentClosePrice).previousClosePrice(previousClosePrice)
+                .build();
+        ExchangeRate rubRate = ExchangeRate.builder()
+                .fromCurrency(fromCurrencyRub).toCurrency(toCurrencyUsd).date(today)
+                .closePrice(currentClosePrice).previousClosePrice(previousClosePrice)
+                .build();
+        doReturn(Mono.just(eurRate)).when(spiedClient).fetchExchangeRate("EUR", "USD");
+        doReturn(Mono.just(rubRate)).when(spiedClient).fetchExchangeRate("RUB", "USD");
+        when(exchangeRateService.saveExchangeRateIfNotExists(any())).thenReturn(true);
+
+        // Act
+        spiedClient.updateExchangeRates();
+
+        // Assert: к моменту возврата курсы уже сохранены
+        verify(exchangeRateService, times(1)).saveExchangeRateIfNotExists(eurRate);
+        verify(exchangeRateService, times(1)).saveExchangeRateIfNotExists(rubRate);
+    }
+
+    @Test
+    @DisplayName("updateExchangeRates должен сохранить полученные курсы и завершиться ошибкой, если для пары курса нет")
+    void updateExchangeRates_shouldSaveReceivedAndThrow_whenPairMissing() {
+        // Arrange
+        ExchangeRateUpdater spiedClient = spy(exchangeRateUpdater);
+        ExchangeRate eurRate = ExchangeRate.builder()
+                .fromCurrency(fromCurrencyEur).toCurrency(toCurrencyUsd).date(today)
+                .closePrice(currentClosePrice).previousClosePrice(previousClosePrice)
+                .build();
+        doReturn(Mono.just(eurRate)).when(spiedClient).fetchExchangeRate("EUR", "USD");
+        doReturn(Mono.empty()).when(spiedClient).fetchExchangeRate("RUB", "USD");
+        when(exchangeRateService.saveExchangeRateIfNotExists(eurRate)).thenReturn(true);
+        when(rateProvider.name()).thenReturn("test");
+
+        // Act & Assert
+        assertThatThrownBy(spiedClient::updateExchangeRates)
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("RUB/USD");
+        verify(exchangeRateService, times(1)).saveExchangeRateIfNotExists(eurRate);
+    }
+
+    @Test
+    @DisplayName("isTodaysRatesMissing должен сообщать о паре без курса на сегодня")
+    void isTodaysRatesMissing_shouldCompareConfiguredPairs() {
+        // Arrange
+        when(exchangeRateService.getTodaysExchangeRates())
+                .thenReturn(List.of(new ExchangeRateDTO("EUR", "USD", today, currentClosePrice, previousClosePrice)))
+                .thenReturn(List.of(new ExchangeRateDTO("EUR", "USD", today, currentClosePrice, previousClosePrice),
+                        new ExchangeRateDTO("RUB", "USD", today, currentClosePrice, previousClosePrice)));
+
+        // Act & Assert
+        assertThat(exchangeRateUpdater.isTodaysRatesMissing()).isTrue();
+        assertThat(exchangeRateUpdater.isTodaysRatesMissing()).isFalse();
     }
-}
\ No newline at end of file
+}
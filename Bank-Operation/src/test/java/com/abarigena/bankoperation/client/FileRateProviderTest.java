@@ -0,0 +1,56 @@
+package com.abarigena.bankoperation.client;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import reactor.test.StepVerifier;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+class FileRateProviderTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("Курс пары читается из файла, изменения файла видны без перезапуска")
+    void fetchLatestClose_shouldReadCurrentFile() throws IOException {
+        // Arrange
+        Path file = directory.resolve("rates.properties");
+        Files.writeString(file, "EUR/USD=1.0825\n");
+        FileRateProvider provider = new FileRateProvider(file);
+
+        // Act & Assert
+        StepVerifier.create(provider.fetchLatestClose("EUR", "USD"))
+                .expectNext(new RateQuote(FileRateProvider.NAME, new BigDecimal("1.0825")))
+                .verifyComplete();
+
+        Files.writeString(file, "EUR/USD = 1.09\n");
+        StepVerifier.create(provider.fetchLatestClose("EUR", "USD"))
+                .expectNext(new RateQuote(FileRateProvider.NAME, new BigDecimal("1.09")))
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("Пары нет в файле: пустой результат")
+    void fetchLatestClose_shouldReturnEmpty_whenPairMissing() throws IOException {
+        // Arrange
+        Path file = directory.resolve("rates.properties");
+        Files.writeString(file, "EUR/USD=1.0825\n");
+
+        // Act & Assert
+        StepVerifier.create(new FileRateProvider(file).fetchLatestClose("RUB", "USD")).verifyComplete();
+    }
+
+    @Test
+    @DisplayName("Файла нет: ошибка источника")
+    void fetchLatestClose_shouldFail_whenFileMissing() {
+        StepVerifier.create(new FileRateProvider(directory.resolve("missing.properties")).fetchLatestClose("EUR", "USD"))
+                .expectError(UncheckedIOException.class)
+                .verify();
+    }
+}
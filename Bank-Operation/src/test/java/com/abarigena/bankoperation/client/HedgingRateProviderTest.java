@@ -0,0 +1,207 @@
+package com.abarigena.bankoperation.client;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HedgingRateProviderTest {
+
+    private static final Duration HEDGE_AFTER = Duration.ofMillis(200);
+
+    @Test
+    @DisplayName("Быстрый ответ первого источника: второй источник не опрашивается")
+    void shouldNotHedge_whenPrimaryAnswersInTime() {
+        // Arrange
+        StubProvider primary = new StubProvider("primary", () -> Mono.just(quote("primary", "1.10")));
+        StubProvider secondary = new StubProvider("secondary", () -> Mono.just(quote("secondary", "1.20")));
+        HedgingRateProvider hedging = hedging(primary, secondary);
+
+        // Act & Assert
+        StepVerifier.create(hedging.fetchLatestClose("EUR", "USD"))
+                .expectNext(quote("primary", "1.10"))
+                .verifyComplete();
+        assertEquals(0, secondary.calls.get());
+    }
+
+    @Test
+    @DisplayName("Первый источник не ответил за порог: берется ответ второго, первый запрос отменяется")
+    void shouldHedge_whenPrimaryIsSlow() {
+        // Arrange
+        AtomicBoolean primaryCancelled = new AtomicBoolean();
+        StubProvider primary = new StubProvider("primary", () -> Mono.just(quote("primary", "1.10"))
+                .delayElement(Duration.ofSeconds(10))
+                .doOnCancel(() -> primaryCancelled.set(true)));
+        StubProvider secondary = new StubProvider("secondary", () -> Mono.just(quote("secondary", "1.20")));
+        HedgingRateProvider hedging = hedging(primary, secondary);
+
+        // Act & Assert
+        StepVerifier.withVirtualTime(() -> hedging.fetchLatestClose("EUR", "USD"))
+                .expectSubscription()
+                .expectNoEvent(HEDGE_AFTER.minusMillis(1))
+                .thenAwait(Duration.ofMillis(1))
+                .expectNext(quote("secondary", "1.20"))
+                .verifyComplete();
+        assertEquals(1, secondary.calls.get());
+        assertTrue(primaryCancelled.get());
+    }
+
+    @Test
+    @DisplayName("Ответ первого источника после запуска второго все равно принимается, если пришел раньше")
+    void shouldTakeFirstAnswer_whenBothAreRunning() {
+        // Arrange
+        StubProvider primary = new StubProvider("primary",
+                () -> Mono.just(quote("primary", "1.10")).delayElement(Duration.ofMillis(300)));
+        StubProvider secondary = new StubProvider("secondary",
+                () -> Mono.just(quote("secondary", "1.20")).delayElement(Duration.ofSeconds(1)));
+        HedgingRateProvider hedging = hedging(primary, secondary);
+
+        // Act & Assert
+        StepVerifier.withVirtualTime(() -> hedging.fetchLatestClose("EUR", "USD"))
+                .thenAwait(Duration.ofMillis(300))
+                .expectNext(quote("primary", "1.10"))
+                .verifyComplete();
+        assertEquals(1, secondary.calls.get());
+    }
+
+    @Test
+    @DisplayName("Ошибка или пустой ответ первого источника: второй опрашивается сразу")
+    void shouldFailOverImmediately_whenPrimaryHasNoRate() {
+        // Arrange
+        StubProvider failing = new StubProvider("failing", () -> Mono.error(new RuntimeException("503")));
+        StubProvider empty = new StubProvider("empty", Mono::empty);
+        StubProvider last = new StubProvider("last", () -> Mono.just(quote("last", "1.30")));
+        HedgingRateProvider hedging = hedging(failing, empty, last);
+
+        // Act & Assert: виртуальное время не продвигается, порог не срабатывает
+        StepVerifier.withVirtualTime(() -> hedging.fetchLatestClose("EUR", "USD"))
+                .expectNext(quote("last", "1.30"))
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("Нулевой курс не считается ответом")
+    void shouldSkipNonPositiveRate() {
+        // Arrange
+        StubProvider primary = new StubProvider("primary", () -> Mono.just(new RateQuote("primary", BigDecimal.ZERO)));
+        StubProvider secondary = new StubProvider("secondary", () -> Mono.just(quote("secondary", "1.20")));
+        HedgingRateProvider hedging = hedging(primary, secondary);
+
+        // Act & Assert
+        StepVerifier.withVirtualTime(() -> hedging.fetchLatestClose("EUR", "USD"))
+                .expectNext(quote("secondary", "1.20"))
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("Ни один источник не дал курса: пустой результат")
+    void shouldReturnEmpty_whenNoProviderHasRate() {
+        // Arrange
+        StubProvider primary = new StubProvider("primary", Mono::empty);
+        StubProvider secondary = new StubProvider("secondary", () -> Mono.error(new RuntimeException("timeout")));
+        HedgingRateProvider hedging = hedging(primary, secondary);
+
+        // Act & Assert
+        StepVerifier.create(hedging.fetchLatestClose("EUR", "USD")).verifyComplete();
+    }
+
+    @Test
+    @DisplayName("Порог считается по перцентилю задержек источника, но не меньше min-delay")
+    void hedgeDelay_shouldFollowLatencyPercentile() {
+        // Arrange
+        StubProvider primary = new StubProvider("primary", Mono::empty);
+        StubProvider secondary = new StubProvider("secondary", Mono::empty);
+        HedgingRateProvider hedging = new HedgingRateProvider(List.of(primary, secondary),
+                0.9, Duration.ofMillis(50), Duration.ofSeconds(2), 10, 100);
+
+        // Act & Assert: пока замеров меньше min-samples, действует initial-delay
+        for (int i = 1; i <= 9; i++) {
+            hedging.recordLatency("primary", Duration.ofMillis(i * 100L));
+        }
+        assertEquals(Duration.ofSeconds(2), hedging.hedgeDelay(primary));
+
+        // 100..1000 мс: 90-й перцентиль — 900 мс
+        hedging.recordLatency("primary", Duration.ofMillis(1000));
+        assertEquals(Duration.ofMillis(900), hedging.hedgeDelay(primary));
+
+        // Быстрый источник: порог не опускается ниже min-delay
+        for (int i = 0; i < 10; i++) {
+            hedging.recordLatency("secondary", Duration.ofMillis(5));
+        }
+        assertEquals(Duration.ofMillis(50), hedging.hedgeDelay(secondary));
+    }
+
+    @Test
+    @DisplayName("Окно задержек хранит только последние window-size замеров")
+    void hedgeDelay_shouldForgetOldSamples() {
+        // Arrange
+        StubProvider primary = new StubProvider("primary", Mono::empty);
+        HedgingRateProvider hedging = new HedgingRateProvider(List.of(primary),
+                1.0, Duration.ZERO, Duration.ofSeconds(2), 1, 4);
+
+        // Act
+        hedging.recordLatency("primary", Duration.ofSeconds(5));
+        for (int i = 0; i < 4; i++) {
+            hedging.recordLatency("primary", Duration.ofMillis(100));
+        }
+
+        // Assert
+        assertEquals(Duration.ofMillis(100), hedging.hedgeDelay(primary));
+    }
+
+    @Test
+    @DisplayName("Некорректные параметры отклоняются")
+    void constructor_shouldRejectInvalidSettings() {
+        StubProvider primary = new StubProvider("primary", Mono::empty);
+        assertThrows(IllegalArgumentException.class, () -> new HedgingRateProvider(List.of(),
+                0.95, Duration.ZERO, Duration.ZERO, 1, 8));
+        assertThrows(IllegalArgumentException.class, () -> new HedgingRateProvider(List.of(primary),
+                1.5, Duration.ZERO, Duration.ZERO, 1, 8));
+        assertFalse(new HedgingRateProvider(List.of(primary), 0.95, Duration.ZERO, Duration.ZERO, 1, 8)
+                .name().isEmpty());
+    }
+
+    private static HedgingRateProvider hedging(RateProvider... providers) {
+        // Пока замеров нет, порог равен initial-delay
+        return new HedgingRateProvider(List.of(providers), 0.95, Duration.ofMillis(50), HEDGE_AFTER, 20, 64);
+    }
+
+    private static RateQuote quote(String provider, String close) {
+        return new RateQuote(provider, new BigDecimal(close));
+    }
+
+    private static final class StubProvider implements RateProvider {
+
+        private final String name;
+        private final Supplier<Mono<RateQuote>> answer;
+        private final AtomicInteger calls = new AtomicInteger();
+
+        private StubProvider(String name, Supplier<Mono<RateQuote>> answer) {
+            this.name = name;
+            this.answer = answer;
+        }
+
+        @Override
+        public String name() {
+            return name;
+        }
+
+        @Override
+        public Mono<RateQuote> fetchLatestClose(String fromCurrency, String toCurrency) {
+            calls.incrementAndGet();
+            return answer.get();
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.abarigena.bankoperation.client;
+
+import com.abarigena.bankoperation.dto.TwelveDataExchangeRateDTO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class TwelveDataRateProviderTest {
+
+    @Mock
+    private WebClient webClient;
+
+    // Их нужно мокать, чтобы симулировать вызов .get().uri().retrieve().bodyToMono()
+    @Mock
+    private WebClient.RequestHeadersUriSpec requestHeadersUriSpec;
+    @Mock
+    private WebClient.RequestHeadersSpec requestHeadersSpec;
+    @Mock
+    private WebClient.ResponseSpec responseSpec;
+
+    private TwelveDataRateProvider provider;
+
+    @BeforeEach
+    void setUp() {
+        provider = new TwelveDataRateProvider(webClient, "test-api-key");
+        when(webClient.get()).thenReturn(requestHeadersUriSpec);
+        when(requestHeadersUriSpec.uri(any(Function.class))).thenReturn(requestHeadersSpec);
+        when(requestHeadersSpec.retrieve()).thenReturn(responseSpec);
+    }
+
+    @Test
+    @DisplayName("Курс закрытия из ответа API возвращается с именем источника")
+    void fetchLatestClose_shouldReturnClose() {
+        // Arrange
+        TwelveDataExchangeRateDTO dto = new TwelveDataExchangeRateDTO(
+                List.of(new TwelveDataExchangeRateDTO.Value("2025-04-01", "1.12")));
+        when(responseSpec.bodyToMono(eq(TwelveDataExchangeRateDTO.class))).thenReturn(Mono.just(dto));
+
+        // Act & Assert
+        StepVerifier.create(provider.fetchLatestClose("EUR", "USD"))
+                .expectNext(new RateQuote(TwelveDataRateProvider.NAME, new BigDecimal("1.12")))
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("Пустой ответ API означает, что курса нет")
+    void fetchLatestClose_shouldReturnEmpty_whenNoValues() {
+        // Arrange
+        when(responseSpec.bodyToMono(eq(TwelveDataExchangeRateDTO.class)))
+                .thenReturn(Mono.just(new TwelveDataExchangeRateDTO(Collections.emptyList())));
+
+        // Act & Assert
+        StepVerifier.create(provider.fetchLatestClose("EUR", "USD")).verifyComplete();
+    }
+
+    @Test
+    @DisplayName("Запись без close означает, что курса нет")
+    void fetchLatestClose_shouldReturnEmpty_whenCloseIsNull() {
+        // Arrange
+        TwelveDataExchangeRateDTO dto = new TwelveDataExchangeRateDTO(
+                List.of(new TwelveDataExchangeRateDTO.Value("2025-04-01", null)));
+        when(responseSpec.bodyToMono(eq(TwelveDataExchangeRateDTO.class))).thenReturn(Mono.just(dto));
+
+        // Act & Assert
+        StepVerifier.create(provider.fetchLatestClose("EUR", "USD")).verifyComplete();
+    }
+
+    @Test
+    @DisplayName("Ошибка запроса передается вызывающему")
+    void fetchLatestClose_shouldPropagateError() {
+        // Arrange
+        when(responseSpec.bodyToMono(eq(TwelveDataExchangeRateDTO.class)))
+                .thenReturn(Mono.error(new RuntimeException("API connection failed")));
+
+        // Act & Assert
+        StepVerifier.create(provider.fetchLatestClose("EUR", "USD"))
+                .expectErrorMessage("API connection failed")
+                .verify();
+    }
+}
@@ -0,0 +1,42 @@
+package com.abarigena.bankoperation.config;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InstanceIdentityTest {
+
+    @Test
+    @DisplayName("Сгенерированный идентификатор меняется после restore, но не при первом запуске")
+    void regeneratesAfterRestore() {
+        // Arrange
+        InstanceIdentity identity = new InstanceIdentity("");
+        String initial = identity.getId();
+
+        // Act
+        identity.start();
+        String afterStartup = identity.getId();
+        identity.stop();
+        identity.start();
+
+        // Assert
+        assertThat(afterStartup).isEqualTo(initial);
+        assertThat(identity.getId()).isNotEqualTo(initial);
+    }
+
+    @Test
+    @DisplayName("Идентификатор из app.instance-id после restore не меняется")
+    void keepsConfiguredId() {
+        // Arrange
+        InstanceIdentity identity = new InstanceIdentity("node-1");
+
+        // Act
+        identity.start();
+        identity.stop();
+        identity.start();
+
+        // Assert
+        assertThat(identity.getId()).isEqualTo("node-1");
+    }
+}
@@ -0,0 +1,46 @@
+package com.abarigena.bankoperation.config;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import reactor.netty.resources.ConnectionProvider;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IsolatedHttpResourcesTest {
+
+    @Test
+    @DisplayName("Пул соединений закрывается при остановке и создается заново при запуске (checkpoint/restore)")
+    void shouldRecreatePoolOnRestart() {
+        // Arrange
+        AtomicInteger pools = new AtomicInteger();
+        IsolatedHttpResources resources = new IsolatedHttpResources("test-http", 1, () -> {
+            pools.incrementAndGet();
+            return ConnectionProvider.builder("test-http").maxConnections(1).build();
+        }, httpClient -> httpClient.responseTimeout(Duration.ofSeconds(1)));
+        WebClient webClient = WebClient.builder().clientConnector(resources.connector()).build();
+
+        try {
+            // Act
+            resources.stop();
+            assertFalse(resources.isRunning());
+            resources.start();
+
+            // Assert: после перезапуска запросы выполняются через новый пул (порт 1 закрыт — ошибка соединения, а не закрытого пула)
+            assertTrue(resources.isRunning());
+            assertEquals(2, pools.get());
+            StepVerifier.create(webClient.get().uri("http://127.0.0.1:1/").retrieve().toBodilessEntity())
+                    .expectError(WebClientRequestException.class)
+                    .verify(Duration.ofSeconds(10));
+        } finally {
+            resources.destroy();
+        }
+    }
+}
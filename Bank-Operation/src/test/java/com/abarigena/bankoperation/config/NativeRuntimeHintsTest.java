@@ -0,0 +1,43 @@
+package com.abarigena.bankoperation.config;
+
+import com.abarigena.bankoperation.dto.LimitExceededTransactionDTO;
+import com.abarigena.bankoperation.logging.LogSamplingTurboFilter;
+import liquibase.change.core.CreateTableChange;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.predicate.RuntimeHintsPredicates;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class NativeRuntimeHintsTest {
+
+    private RuntimeHints hints;
+
+    @BeforeEach
+    void setUp() {
+        hints = new RuntimeHints();
+        new NativeRuntimeHints().registerHints(hints, getClass().getClassLoader());
+    }
+
+    @Test
+    @DisplayName("Changelog Liquibase и XSD попадают в ресурсы нативного образа")
+    void registersLiquibaseResources() {
+        // Assert
+        assertThat(RuntimeHintsPredicates.resource().forResource("db/changelog/changelog-master.xml")).accepts(hints);
+        assertThat(RuntimeHintsPredicates.resource().forResource("www.liquibase.org/xml/ns/dbchangelog/dbchangelog-4.3.xsd"))
+                .accepts(hints);
+        assertThat(RuntimeHintsPredicates.reflection().onType(CreateTableChange.class)).accepts(hints);
+    }
+
+    @Test
+    @DisplayName("Конструкторы из SELECT new в JPQL и классы logback-spring.xml доступны через отражение")
+    void registersReflectiveConstructors() throws NoSuchMethodException {
+        // Assert
+        assertThat(RuntimeHintsPredicates.reflection().onConstructor(
+                LimitExceededTransactionDTO.class.getConstructors()[0]).invoke()).accepts(hints);
+        assertThat(RuntimeHintsPredicates.reflection().onConstructor(
+                LogSamplingTurboFilter.class.getConstructor()).invoke()).accepts(hints);
+    }
+}
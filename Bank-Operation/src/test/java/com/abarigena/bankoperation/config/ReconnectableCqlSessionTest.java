@@ -0,0 +1,92 @@
+package com.abarigena.bankoperation.config;
+
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.cql.ResultSet;
+import com.datastax.oss.driver.api.core.cql.SimpleStatement;
+import com.datastax.oss.driver.api.core.cql.Statement;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ReconnectableCqlSessionTest {
+
+    private final Deque<CqlSession> opened = new ArrayDeque<>();
+    private ReconnectableCqlSession session;
+
+    @BeforeEach
+    void setUp() {
+        session = new ReconnectableCqlSession(() -> {
+            CqlSession delegate = mock(CqlSession.class);
+            when(delegate.getName()).thenReturn("s" + opened.size());
+            when(delegate.closeAsync()).thenReturn(CompletableFuture.completedFuture(null));
+            opened.add(delegate);
+            return delegate;
+        });
+    }
+
+    @Test
+    @DisplayName("Сессия открывается при первом запросе, запросы выполняет текущая сессия драйвера")
+    void opensLazilyAndDelegates() {
+        // Arrange
+        ResultSet resultSet = mock(ResultSet.class);
+        SimpleStatement statement = SimpleStatement.newInstance("SELECT now() FROM system.local");
+        assertThat(opened).isEmpty();
+        CqlSession delegate = session.delegate();
+        when(delegate.execute(statement, Statement.SYNC)).thenReturn(resultSet);
+
+        // Act
+        ResultSet actual = session.execute(statement);
+
+        // Assert
+        assertThat(opened).hasSize(1);
+        assertThat(actual).isSameAs(resultSet);
+    }
+
+    @Test
+    @DisplayName("stop закрывает сессию драйвера, start открывает новую (checkpoint/restore)")
+    void stopClosesAndStartReopens() {
+        // Arrange
+        session.start();
+        CqlSession beforeCheckpoint = opened.getLast();
+
+        // Act
+        session.stop();
+        session.start();
+
+        // Assert
+        verify(beforeCheckpoint).close();
+        assertThat(opened).hasSize(2);
+        assertThat(session.delegate()).isSameAs(opened.getLast());
+        assertThat(session.isRunning()).isTrue();
+    }
+
+    @Test
+    @DisplayName("После окончательного закрытия сессия не открывается заново")
+    void closeIsFinal() {
+        // Arrange
+        session.start();
+        CqlSession current = opened.getLast();
+
+        // Act
+        session.close();
+
+        // Assert
+        verify(current).closeAsync();
+        verify(current, never()).forceCloseAsync();
+        assertThat(session.closeFuture().toCompletableFuture()).isCompleted();
+        assertThatThrownBy(session::getName).isInstanceOf(IllegalStateException.class);
+        session.start();
+        assertThat(opened).hasSize(1);
+    }
+}
@@ -0,0 +1,208 @@
+package com.abarigena.bankoperation.crac;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.containers.CassandraContainer;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Прогрев, checkpoint и restore приложения на JDK с поддержкой CRaC против PostgreSQL и Cassandra в Testcontainers.
+ * <p>
+ * Приложение запускается из распакованного jar, прогревается запросами до компиляции горячих методов JIT,
+ * после чего снимается checkpoint (jcmd JDK.checkpoint). Восстановленный процесс должен сразу отвечать
+ * на запросы (соединения с PostgreSQL и Cassandra открыты заново) с задержкой прогретого приложения.
+ * Печатает время до первого ответа после restore и медианы задержек до checkpoint и после restore.
+ * Запускается только в профиле crac-smoke (нужен Docker, Linux и JDK с CRaC):
+ * <pre>
+ * mvn -P crac -DskipTests -Djib.skip package
+ * mvn -P crac,crac-smoke test -Dcrac.java.home=/opt/zulu21-crac
+ * </pre>
+ */
+@Tag("crac-smoke")
+@Testcontainers
+class CheckpointRestoreSmokeTest {
+
+    private static final Path JAVA_HOME = Path.of(System.getProperty("crac.java.home", System.getProperty("java.home")));
+    private static final Path BOOT_JAR = Path.of(System.getProperty("crac.jar", "target/Bank-Operation-0.0.1-SNAPSHOT.jar"));
+    private static final int WARMUP_REQUESTS = Integer.getInteger("crac.warmup.requests", 20_000);
+    private static final int MEASURED_REQUESTS = 1_000;
+    private static final Duration STARTUP_TIMEOUT = Duration.ofSeconds(120);
+
+    private static final String CHECK_BODY = "{\"account_from\": \"1000000001\", \"account_to\": \"9999999999\", "
+            + "\"currency_shortname\": \"USD\", \"sum\": 10.00, \"expense_category\": \"PRODUCT\"}";
+
+    @Container
+    static final PostgreSQLContainer<?> postgresContainer = new PostgreSQLContainer<>("postgres:latest")
+            .withDatabaseName("bank_operation");
+
+    @Container
+    static final CassandraContainer<?> cassandraContainer = new CassandraContainer<>(DockerImageName.parse("cassandra:4.1"))
+            .withInitScript("init-cassandra-test.cql");
+
+    private static final HttpClient http = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(2)).build();
+    private static Path workDir;
+    private static Process restored;
+    private static String baseUrl;
+
+    @BeforeAll
+    static void prepare() throws Exception {
+        assertThat(BOOT_JAR).as("jar не собран: mvn -P crac -DskipTests -Djib.skip package").isRegularFile();
+        workDir = Files.createTempDirectory("bank-operation-crac");
+        // CRaC не сохраняет открытые файлы, поэтому приложение запускается из распакованного jar, а не из fat jar
+        run(List.of(java(), "-Djarmode=tools", "-jar", BOOT_JAR.toAbsolutePath().toString(),
+                "extract", "--destination", workDir.resolve("app").toString()));
+    }
+
+    @AfterAll
+    static void stop() throws InterruptedException {
+        if (restored != null) {
+            restored.destroy();
+            restored.waitFor();
+        }
+    }
+
+    @Test
+    void restoredInstanceServesImmediatelyAtWarmSpeed() throws Exception {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        baseUrl = "http://127.0.0.1:" + port;
+        Path checkpointDir = workDir.resolve("checkpoint");
+
+        // 1. Старт с возможностью checkpoint и прогрев
+        List<String> command = new ArrayList<>(List.of(java(), "-XX:CRaCCheckpointTo=" + checkpointDir,
+                "-jar", workDir.resolve("app").resolve(BOOT_JAR.getFileName()).toString()));
+        command.addAll(applicationArguments(port));
+        Process application = start(command, "checkpoint.log");
+        awaitHealthy(application);
+        assertThat(post("/api/limits", "{\"limitSum\": 1000000.00, \"expenseCategory\": \"PRODUCT\"}").statusCode())
+                .isEqualTo(201);
+        for (int i = 0; i < WARMUP_REQUESTS; i++) {
+            post("/api/transactions/check", CHECK_BODY);
+        }
+        long warmMedian = medianLatencyMicros();
+
+        // 2. Checkpoint: процесс сохраняется на диск и завершается
+        run(List.of(JAVA_HOME.resolve("bin").resolve("jcmd").toString(), String.valueOf(application.pid()), "JDK.checkpoint"));
+        assertThat(application.waitFor(60, TimeUnit.SECONDS)).as("процесс не завершился после checkpoint").isTrue();
+
+        // 3. Restore и время до первого успешного ответа
+        long restoreStart = System.nanoTime();
+        restored = start(List.of(java(), "-XX:CRaCRestoreFrom=" + checkpointDir), "restore.log");
+        awaitHealthy(restored);
+        Duration firstResponse = Duration.ofNanos(System.nanoTime() - restoreStart);
+        long restoredMedian = medianLatencyMicros();
+
+        System.out.printf(Locale.ROOT, "CRaC: first response %d ms after restore, median /api/transactions/check "
+                        + "%d us warm, %d us right after restore (logs in %s)%n",
+                firstResponse.toMillis(), warmMedian, restoredMedian, workDir);
+
+        // После restore работают PostgreSQL (запись транзакции) и Cassandra (проекция превышений)
+        String transaction = CHECK_BODY.replace("10.00", "2000000.00");
+        assertThat(post("/api/transactions", transaction).statusCode()).isEqualTo(201);
+        assertThat(get("/api/transactions/exceeded").statusCode()).isEqualTo(200);
+        assertThat(firstResponse).isLessThan(Duration.ofSeconds(2));
+        // Без прогрева первые запросы медленнее в десятки раз; небольшой запас на шум
+        assertThat(restoredMedian).isLessThanOrEqualTo(warmMedian * 3 + 500);
+    }
+
+    private static List<String> applicationArguments(int port) {
+        return List.of(
+                "--server.port=" + port,
+                "--spring.datasource.url=" + postgresContainer.getJdbcUrl(),
+                "--spring.datasource.username=" + postgresContainer.getUsername(),
+                "--spring.datasource.password=" + postgresContainer.getPassword(),
+                "--spring.cassandra.contact-points=" + cassandraContainer.getHost(),
+                "--spring.cassandra.port=" + cassandraContainer.getMappedPort(9042),
+                "--spring.cassandra.local-datacenter=datacenter1",
+                "--spring.cassandra.keyspace-name=bank_operation_test",
+                "--spring.cassandra.schema-action=create_if_not_exists",
+                "--twelvedata.api.key=test-api-key",
+                // Внешний API недоступен: загрузка курсов завершится ошибкой, что не мешает работе
+                "--twelvedata.api.base-url=http://127.0.0.1:9",
+                "--app.archive.dir=" + workDir.resolve("archive"));
+    }
+
+    private static long medianLatencyMicros() throws IOException, InterruptedException {
+        long[] latencies = new long[MEASURED_REQUESTS];
+        for (int i = 0; i < MEASURED_REQUESTS; i++) {
+            long start = System.nanoTime();
+            HttpResponse<String> response = post("/api/transactions/check", CHECK_BODY);
+            latencies[i] = (System.nanoTime() - start) / 1_000;
+            assertThat(response.statusCode()).isEqualTo(200);
+        }
+        Arrays.sort(latencies);
+        return latencies[MEASURED_REQUESTS / 2];
+    }
+
+    private static String java() {
+        return JAVA_HOME.resolve("bin").resolve("java").toString();
+    }
+
+    private static Process start(List<String> command, String logName) throws IOException {
+        return new ProcessBuilder(command)
+                .directory(workDir.toFile())
+                .redirectErrorStream(true)
+                .redirectOutput(workDir.resolve(logName).toFile())
+                .start();
+    }
+
+    private static void run(List<String> command) throws IOException, InterruptedException {
+        Process process = new ProcessBuilder(command).inheritIO().start();
+        assertThat(process.waitFor()).as("команда завершилась с ошибкой: %s", command).isZero();
+    }
+
+    private static void awaitHealthy(Process process) throws InterruptedException, IOException {
+        long deadline = System.nanoTime() + STARTUP_TIMEOUT.toNanos();
+        while (System.nanoTime() < deadline) {
+            assertThat(process.isAlive()).as("процесс приложения завершился, журнал в %s", workDir).isTrue();
+            try {
+                HttpResponse<String> health = get("/actuator/health");
+                if (health.statusCode() == 200 && health.body().contains("\"UP\"")) {
+                    return;
+                }
+            } catch (ConnectException e) {
+                // Порт еще не открыт
+            }
+            Thread.sleep(1);
+        }
+        throw new IllegalStateException("Приложение не стало доступным за " + STARTUP_TIMEOUT);
+    }
+
+    private static HttpResponse<String> get(String path) throws IOException, InterruptedException {
+        return http.send(HttpRequest.newBuilder(URI.create(baseUrl + path)).GET().build(),
+                HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static HttpResponse<String> post(String path, String json) throws IOException, InterruptedException {
+        return http.send(HttpRequest.newBuilder(URI.create(baseUrl + path))
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString(json))
+                        .build(),
+                HttpResponse.BodyHandlers.ofString());
+    }
+}
@@ -0,0 +1,56 @@
+package com.abarigena.bankoperation.loadtest;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Потокобезопасная гистограмма задержек с логарифмическими корзинами (шаг 2%).
+ * Занимает постоянную память независимо от числа запросов, точность перцентилей — около 2%.
+ */
+final class LatencyHistogram {
+
+    private static final double LOG_BASE = Math.log(1.02);
+    // Корзины покрывают диапазон до ~10 минут в микросекундах
+    private static final int BUCKETS = (int) Math.ceil(Math.log1p(600_000_000d) / LOG_BASE) + 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong maxMicros = new AtomicLong();
+
+    void recordNanos(long nanos) {
+        long micros = Math.max(0, nanos / 1_000);
+        int bucket = (int) Math.min(BUCKETS - 1, Math.floor(Math.log1p(micros) / LOG_BASE));
+        counts.incrementAndGet(bucket);
+        total.incrementAndGet();
+        maxMicros.accumulateAndGet(micros, Math::max);
+    }
+
+    long count() {
+        return total.get();
+    }
+
+    /**
+     * @param percentile Перцентиль в диапазоне (0, 100].
+     * @return Верхняя граница корзины перцентиля в миллисекундах.
+     */
+    double percentileMillis(double percentile) {
+        long count = total.get();
+        if (count == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(percentile / 100.0 * count);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                double upperMicros = Math.expm1((i + 1) * LOG_BASE);
+                return Math.min(upperMicros, maxMicros.get()) / 1_000.0;
+            }
+        }
+        return maxMicros.get() / 1_000.0;
+    }
+
+    double maxMillis() {
+        return maxMicros.get() / 1_000.0;
+    }
+}
@@ -0,0 +1,32 @@
+package com.abarigena.bankoperation.loadtest;
+
+/**
+ * Эндпоинты сервиса, на которые подается нагрузка.
+ */
+enum LoadEndpoint {
+    TRANSACTIONS("transactions", "POST /api/transactions"),
+    LIMITS("limits", "POST /api/limits"),
+    EXCEEDED("exceeded", "GET /api/transactions/exceeded"),
+    RATES("rates", "GET /api/rates/today");
+
+    private final String key;
+    private final String description;
+
+    LoadEndpoint(String key, String description) {
+        this.key = key;
+        this.description = description;
+    }
+
+    String description() {
+        return description;
+    }
+
+    static LoadEndpoint fromKey(String key) {
+        for (LoadEndpoint endpoint : values()) {
+            if (endpoint.key.equalsIgnoreCase(key)) {
+                return endpoint;
+            }
+        }
+        throw new IllegalArgumentException("Неизвестный эндпоинт в load.mix: " + key);
+    }
+}
@@ -0,0 +1,134 @@
+package com.abarigena.bankoperation.loadtest;
+
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Генератор нагрузки по открытой модели: запросы отправляются в заранее рассчитанные моменты
+ * (пуассоновский поток с заданной интенсивностью) независимо от того, успел ли сервис ответить на предыдущие.
+ * Задержка считается от запланированного момента отправки, поэтому очередь внутри генератора
+ * не скрывает деградацию сервиса (нет coordinated omission).
+ */
+final class LoadGenerator implements AutoCloseable {
+
+    private final LoadTestConfig config;
+    private final RequestFactory requestFactory;
+    private final WeightedChoice<LoadEndpoint> endpoints;
+    private final SplittableRandom random;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final HttpClient httpClient;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    LoadGenerator(String baseUrl, LoadTestConfig config) {
+        this.config = config;
+        this.requestFactory = new RequestFactory(baseUrl, config);
+        this.endpoints = new WeightedChoice<>(config.endpointMix());
+        this.random = new SplittableRandom(config.seed());
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(executor)
+                .build();
+    }
+
+    /**
+     * Подает нагрузку с постоянной средней интенсивностью в течение заданного времени.
+     *
+     * @param ratePerSecond Средняя интенсивность запросов в секунду.
+     * @param duration      Длительность ступени.
+     * @param stats         Куда записывать результаты.
+     */
+    void runOpenModel(double ratePerSecond, Duration duration, LoadStats stats) {
+        Phaser pending = new Phaser(1);
+        long start = System.nanoTime();
+        long durationNanos = duration.toNanos();
+        double elapsedSeconds = 0;
+        while (true) {
+            // Экспоненциальный интервал между событиями пуассоновского потока
+            elapsedSeconds += -Math.log(1 - random.nextDouble()) / ratePerSecond;
+            long intendedOffset = (long) (elapsedSeconds * 1e9);
+            if (intendedOffset >= durationNanos) {
+                break;
+            }
+            long intendedStart = start + intendedOffset;
+            sleepUntil(intendedStart);
+            LoadEndpoint endpoint = endpoints.next(random);
+            dispatch(endpoint, requestFactory.create(endpoint, random), intendedStart, stats, pending);
+        }
+        awaitCompletion(pending);
+        stats.setElapsed(Duration.ofNanos(System.nanoTime() - start));
+    }
+
+    /**
+     * Воспроизводит записанные транзакции, сохраняя интервалы между ними с учетом ускорения load.replay.speed.
+     */
+    void replay(ReplaySource source, LoadStats stats) {
+        Phaser pending = new Phaser(1);
+        long start = System.nanoTime();
+        while (source.hasNext()) {
+            ReplaySource.Entry entry = source.next();
+            long intendedStart = start + entry.offsetNanos();
+            sleepUntil(intendedStart);
+            dispatch(LoadEndpoint.TRANSACTIONS, requestFactory.transaction(entry.json()), intendedStart, stats, pending);
+        }
+        awaitCompletion(pending);
+        stats.setElapsed(Duration.ofNanos(System.nanoTime() - start));
+    }
+
+    private void dispatch(LoadEndpoint endpoint, HttpRequest request, long intendedStart, LoadStats stats, Phaser pending) {
+        if (inFlight.incrementAndGet() > config.maxInFlight()) {
+            inFlight.decrementAndGet();
+            stats.recordDropped();
+            return;
+        }
+        pending.register();
+        executor.execute(() -> {
+            try {
+                HttpResponse<Void> response = httpClient.send(request, HttpResponse.BodyHandlers.discarding());
+                stats.recordResponse(endpoint, response.statusCode(), System.nanoTime() - intendedStart);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                stats.recordFailure(endpoint, System.nanoTime() - intendedStart);
+            } catch (Exception e) {
+                stats.recordFailure(endpoint, System.nanoTime() - intendedStart);
+            } finally {
+                inFlight.decrementAndGet();
+                pending.arriveAndDeregister();
+            }
+        });
+    }
+
+    private void awaitCompletion(Phaser pending) {
+        int phase = pending.arrive();
+        try {
+            pending.awaitAdvanceInterruptibly(phase,
+                    config.requestTimeout().toMillis() + TimeUnit.SECONDS.toMillis(5), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (TimeoutException e) {
+            // Оставшиеся запросы будут учтены как ошибки по таймауту HttpClient
+        }
+    }
+
+    private static void sleepUntil(long deadlineNanos) {
+        long remaining;
+        while ((remaining = deadlineNanos - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(remaining);
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+}
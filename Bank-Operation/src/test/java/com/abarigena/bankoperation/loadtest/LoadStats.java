@@ -0,0 +1,93 @@
+package com.abarigena.bankoperation.loadtest;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Результаты одной ступени нагрузки: задержки и ошибки по каждому эндпоинту.
+ */
+final class LoadStats {
+
+    private final String name;
+    private final Map<LoadEndpoint, EndpointStats> byEndpoint = new EnumMap<>(LoadEndpoint.class);
+    private final AtomicLong dropped = new AtomicLong();
+    private volatile long elapsedNanos;
+
+    LoadStats(String name) {
+        this.name = name;
+        for (LoadEndpoint endpoint : LoadEndpoint.values()) {
+            byEndpoint.put(endpoint, new EndpointStats());
+        }
+    }
+
+    void recordResponse(LoadEndpoint endpoint, int status, long latencyNanos) {
+        EndpointStats stats = byEndpoint.get(endpoint);
+        stats.latency.recordNanos(latencyNanos);
+        if (status >= 400) {
+            stats.statusErrors.computeIfAbsent(status, s -> new AtomicLong()).incrementAndGet();
+        }
+    }
+
+    void recordFailure(LoadEndpoint endpoint, long latencyNanos) {
+        EndpointStats stats = byEndpoint.get(endpoint);
+        stats.latency.recordNanos(latencyNanos);
+        stats.failures.incrementAndGet();
+    }
+
+    /**
+     * Запрос не отправлен, так как генератор уперся в load.max-in-flight (признак насыщения сервиса).
+     */
+    void recordDropped() {
+        dropped.incrementAndGet();
+    }
+
+    void setElapsed(Duration elapsed) {
+        this.elapsedNanos = elapsed.toNanos();
+    }
+
+    String format() {
+        double seconds = Math.max(1e-9, elapsedNanos / 1e9);
+        StringBuilder report = new StringBuilder();
+        long totalCount = 0;
+        long totalErrors = 0;
+        report.append(String.format(Locale.ROOT, "=== %s (%.1f s) ===%n", name, seconds));
+        report.append(String.format(Locale.ROOT, "%-34s %9s %9s %9s %9s %9s %9s %9s %9s%n",
+                "endpoint", "count", "rps", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms", "errors"));
+        for (Map.Entry<LoadEndpoint, EndpointStats> entry : byEndpoint.entrySet()) {
+            EndpointStats stats = entry.getValue();
+            long count = stats.latency.count();
+            if (count == 0) {
+                continue;
+            }
+            long errors = stats.errorCount();
+            totalCount += count;
+            totalErrors += errors;
+            report.append(String.format(Locale.ROOT, "%-34s %9d %9.1f %9.2f %9.2f %9.2f %9.2f %9.2f %9d%n",
+                    entry.getKey().description(), count, count / seconds,
+                    stats.latency.percentileMillis(50), stats.latency.percentileMillis(90),
+                    stats.latency.percentileMillis(99), stats.latency.percentileMillis(99.9),
+                    stats.latency.maxMillis(), errors));
+            if (!stats.statusErrors.isEmpty() || stats.failures.get() > 0) {
+                report.append(String.format(Locale.ROOT, "%-34s statuses=%s io-failures=%d%n",
+                        "", stats.statusErrors, stats.failures.get()));
+            }
+        }
+        report.append(String.format(Locale.ROOT, "total: %d requests, %.1f rps completed, %d errors, %d dropped by generator%n",
+                totalCount, totalCount / seconds, totalErrors, dropped.get()));
+        return report.toString();
+    }
+
+    private static final class EndpointStats {
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final Map<Integer, AtomicLong> statusErrors = new ConcurrentHashMap<>();
+        private final AtomicLong failures = new AtomicLong();
+
+        private long errorCount() {
+            return failures.get() + statusErrors.values().stream().mapToLong(AtomicLong::get).sum();
+        }
+    }
+}
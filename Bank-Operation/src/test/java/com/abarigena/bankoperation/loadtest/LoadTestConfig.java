@@ -0,0 +1,85 @@
+package com.abarigena.bankoperation.loadtest;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Параметры нагрузочного прогона. Читаются из системных свойств с префиксом load.
+ * (например, mvn -P load-test test -Dload.rates=50,100,200 -Dload.step-duration=PT60S).
+ */
+record LoadTestConfig(
+        String target,
+        List<Double> rates,
+        Duration stepDuration,
+        Duration warmup,
+        Map<LoadEndpoint, Integer> endpointMix,
+        Map<String, Integer> categoryMix,
+        Map<String, Integer> currencyMix,
+        int accounts,
+        int maxInFlight,
+        Duration requestTimeout,
+        Path replayFile,
+        double replaySpeed,
+        boolean replayPreserveDatetime,
+        Duration stubLatency,
+        long seed,
+        Path reportFile
+) {
+
+    static LoadTestConfig fromSystemProperties() {
+        String replay = System.getProperty("load.replay.file");
+        String target = System.getProperty("load.target");
+        return new LoadTestConfig(
+                target == null || target.isBlank() ? null : target,
+                parseRates(System.getProperty("load.rates", "50")),
+                Duration.parse(System.getProperty("load.step-duration", "PT30S")),
+                Duration.parse(System.getProperty("load.warmup", "PT10S")),
+                parseEndpointMix(System.getProperty("load.mix", "transactions=70,limits=2,exceeded=8,rates=20")),
+                parseWeights(System.getProperty("load.categories", "PRODUCT=60,SERVICE=40")),
+                parseWeights(System.getProperty("load.currencies", "RUB=45,KZT=25,EUR=20,USD=10")),
+                Integer.parseInt(System.getProperty("load.accounts", "10000")),
+                Integer.parseInt(System.getProperty("load.max-in-flight", "5000")),
+                Duration.parse(System.getProperty("load.request-timeout", "PT10S")),
+                replay == null || replay.isBlank() ? null : Path.of(replay),
+                Double.parseDouble(System.getProperty("load.replay.speed", "1.0")),
+                Boolean.parseBoolean(System.getProperty("load.replay.preserve-datetime", "false")),
+                Duration.parse(System.getProperty("load.stub.latency", "PT0S")),
+                Long.parseLong(System.getProperty("load.seed", "42")),
+                Path.of(System.getProperty("load.report", "target/load-report.txt"))
+        );
+    }
+
+    private static List<Double> parseRates(String value) {
+        List<Double> rates = new ArrayList<>();
+        for (String part : value.split(",")) {
+            double rate = Double.parseDouble(part.trim());
+            if (rate <= 0) {
+                throw new IllegalArgumentException("Интенсивность нагрузки должна быть положительной: " + part);
+            }
+            rates.add(rate);
+        }
+        return List.copyOf(rates);
+    }
+
+    private static Map<LoadEndpoint, Integer> parseEndpointMix(String value) {
+        Map<LoadEndpoint, Integer> mix = new LinkedHashMap<>();
+        parseWeights(value).forEach((name, weight) -> mix.put(LoadEndpoint.fromKey(name), weight));
+        return mix;
+    }
+
+    private static Map<String, Integer> parseWeights(String value) {
+        Map<String, Integer> weights = new LinkedHashMap<>();
+        for (String part : value.split(",")) {
+            String[] keyValue = part.trim().split("=");
+            if (keyValue.length != 2) {
+                throw new IllegalArgumentException("Ожидается формат key=weight: " + part);
+            }
+            weights.put(keyValue[0].trim(), Integer.parseInt(keyValue[1].trim()));
+        }
+        return weights;
+    }
+}
@@ -0,0 +1,155 @@
+package com.abarigena.bankoperation.loadtest;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Читает записанные транзакции из CSV (или CSV.gz) для воспроизведения с ускорением.
+ * Колонки определяются по заголовку: account_from, account_to, currency_shortname, sum, expense_category
+ * и время transaction_datetime (или datetime) в ISO-8601. Подходит, в частности, файл
+ * выгрузки GET /api/transactions/exceeded/export. Строки должны идти по возрастанию времени.
+ */
+final class ReplaySource implements Iterator<ReplaySource.Entry>, AutoCloseable {
+
+    record Entry(long offsetNanos, String json) {
+    }
+
+    private final BufferedReader reader;
+    private final Map<String, Integer> columns = new HashMap<>();
+    private final double speed;
+    private final boolean preserveDateTime;
+    private OffsetDateTime firstTimestamp;
+    private Entry next;
+
+    ReplaySource(Path file, double speed, boolean preserveDateTime) {
+        if (speed <= 0) {
+            throw new IllegalArgumentException("load.replay.speed должен быть положительным");
+        }
+        this.speed = speed;
+        this.preserveDateTime = preserveDateTime;
+        try {
+            InputStream input = Files.newInputStream(file);
+            if (file.getFileName().toString().endsWith(".gz")) {
+                input = new GZIPInputStream(input);
+            }
+            this.reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+            List<String> header = parseLine(reader.readLine());
+            for (int i = 0; i < header.size(); i++) {
+                columns.put(header.get(i).trim(), i);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось открыть файл воспроизведения " + file, e);
+        }
+        if (!columns.containsKey("transaction_datetime") && !columns.containsKey("datetime")) {
+            throw new IllegalArgumentException("В файле нет колонки transaction_datetime или datetime");
+        }
+        this.next = readEntry();
+    }
+
+    @Override
+    public boolean hasNext() {
+        return next != null;
+    }
+
+    @Override
+    public Entry next() {
+        if (next == null) {
+            throw new NoSuchElementException();
+        }
+        Entry current = next;
+        next = readEntry();
+        return current;
+    }
+
+    private Entry readEntry() {
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                List<String> values = parseLine(line);
+                OffsetDateTime timestamp = OffsetDateTime.parse(column(values,
+                        columns.containsKey("transaction_datetime") ? "transaction_datetime" : "datetime"));
+                if (firstTimestamp == null) {
+                    firstTimestamp = timestamp;
+                }
+                long offsetNanos = (long) (Duration.between(firstTimestamp, timestamp).toNanos() / speed);
+                String json = RequestFactory.transactionJson(
+                        column(values, "account_from"),
+                        column(values, "account_to"),
+                        column(values, "currency_shortname"),
+                        new BigDecimal(column(values, "sum")),
+                        column(values, "expense_category"),
+                        preserveDateTime ? timestamp.toString() : null);
+                return new Entry(Math.max(0, offsetNanos), json);
+            }
+            return null;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private String column(List<String> values, String name) {
+        Integer index = columns.get(name);
+        if (index == null || index >= values.size()) {
+            throw new IllegalArgumentException("В строке нет колонки " + name);
+        }
+        return values.get(index);
+    }
+
+    /**
+     * Разбирает строку CSV с учетом кавычек (RFC 4180, без переносов строк внутри полей).
+     */
+    static List<String> parseLine(String line) {
+        if (line == null) {
+            throw new IllegalArgumentException("Пустой файл воспроизведения");
+        }
+        List<String> values = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    current.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        values.add(current.toString());
+        return values;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
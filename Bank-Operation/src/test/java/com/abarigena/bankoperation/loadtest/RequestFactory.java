@@ -0,0 +1,100 @@
+package com.abarigena.bankoperation.loadtest;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.random.RandomGenerator;
+
+/**
+ * Формирует HTTP-запросы к сервису по заданным пропорциям категорий и валют.
+ */
+final class RequestFactory {
+
+    private final String baseUrl;
+    private final Duration timeout;
+    private final int accounts;
+    private final WeightedChoice<String> categories;
+    private final WeightedChoice<String> currencies;
+
+    RequestFactory(String baseUrl, LoadTestConfig config) {
+        this.baseUrl = baseUrl;
+        this.timeout = config.requestTimeout();
+        this.accounts = config.accounts();
+        this.categories = new WeightedChoice<>(config.categoryMix());
+        this.currencies = new WeightedChoice<>(config.currencyMix());
+    }
+
+    HttpRequest create(LoadEndpoint endpoint, RandomGenerator random) {
+        return switch (endpoint) {
+            case TRANSACTIONS -> transaction(randomTransactionJson(random));
+            case LIMITS -> post("/api/limits", "{\"limitSum\":" + (1000 + random.nextInt(4000))
+                    + ",\"expenseCategory\":\"" + categories.next(random) + "\"}", null);
+            case EXCEEDED -> get("/api/transactions/exceeded");
+            case RATES -> get("/api/rates/today");
+        };
+    }
+
+    /**
+     * Запрос на регистрацию транзакции с уже готовым телом (используется при воспроизведении записи).
+     */
+    HttpRequest transaction(String json) {
+        return post("/api/transactions", json, UUID.randomUUID().toString());
+    }
+
+    private String randomTransactionJson(RandomGenerator random) {
+        String currency = currencies.next(random);
+        return transactionJson(
+                String.format("%010d", random.nextInt(accounts)),
+                String.format("%010d", 9_000_000_000L + random.nextInt(accounts)),
+                currency,
+                randomAmount(currency, random),
+                categories.next(random),
+                null);
+    }
+
+    static String transactionJson(String accountFrom, String accountTo, String currency, BigDecimal sum,
+                                  String category, String dateTime) {
+        return "{\"account_from\":\"" + accountFrom + "\"," +
+                "\"account_to\":\"" + accountTo + "\"," +
+                "\"currency_shortname\":\"" + currency + "\"," +
+                "\"sum\":" + sum.toPlainString() + "," +
+                "\"expense_category\":\"" + category + "\"" +
+                (dateTime != null ? ",\"datetime\":\"" + dateTime + "\"" : "") +
+                "}";
+    }
+
+    /**
+     * Сумма около 50 USD с логнормальным разбросом, пересчитанная в валюту транзакции.
+     */
+    private static BigDecimal randomAmount(String currency, RandomGenerator random) {
+        double usd = Math.exp(Math.log(50) + random.nextGaussian());
+        double perUsd = switch (currency) {
+            case "RUB" -> 90;
+            case "KZT" -> 480;
+            case "EUR" -> 0.92;
+            default -> 1;
+        };
+        return BigDecimal.valueOf(usd * perUsd).setScale(2, RoundingMode.HALF_UP).max(new BigDecimal("0.01"));
+    }
+
+    private HttpRequest get(String path) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(timeout)
+                .GET()
+                .build();
+    }
+
+    private HttpRequest post(String path, String json, String idempotencyKey) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(timeout)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json));
+        if (idempotencyKey != null) {
+            builder.header("Idempotency-Key", idempotencyKey);
+        }
+        return builder.build();
+    }
+}
@@ -0,0 +1,96 @@
+package com.abarigena.bankoperation.loadtest;
+
+import com.abarigena.bankoperation.AbstractIntegrationTest;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+
+/**
+ * Нагрузочный прогон сервиса. Поднимает приложение на Testcontainers PostgreSQL и Cassandra
+ * с заглушкой Twelve Data и подает нагрузку ступенями по интенсивности, чтобы найти точку насыщения.
+ * Не запускается в обычной сборке, только в профиле load-test:
+ * <pre>
+ * mvn -P load-test test -Dload.rates=50,100,200,400 -Dload.step-duration=PT60S
+ * mvn -P load-test test -Dload.replay.file=exceeded-2025-03.csv.gz -Dload.replay.speed=10
+ * mvn -P load-test test -Dload.target=http://localhost:8000   (внешний экземпляр вместо встроенного)
+ * </pre>
+ * Отчет с пропускной способностью и перцентилями задержек печатается в консоль и в load.report.
+ */
+@Tag("load")
+class ServiceLoadTest extends AbstractIntegrationTest {
+
+    private static final LoadTestConfig CONFIG = LoadTestConfig.fromSystemProperties();
+    private static final TwelveDataStub TWELVE_DATA_STUB = startStub();
+
+    @LocalServerPort
+    private int port;
+
+    @DynamicPropertySource
+    static void stubTwelveData(DynamicPropertyRegistry registry) {
+        registry.add("twelvedata.api.base-url", TWELVE_DATA_STUB::baseUrl);
+        // Курсы загружаются сразу после старта, до прогрева
+        registry.add("app.scheduler.catch-up-initial-delay", () -> "0s");
+        // Подробные логи на каждую транзакцию искажают результаты прогона
+        registry.add("logging.level.com.abarigena.bankoperation", () -> "WARN");
+    }
+
+    @Test
+    void runLoad() {
+        String baseUrl = CONFIG.target() != null ? CONFIG.target() : "http://localhost:" + port;
+        StringBuilder report = new StringBuilder();
+        report.append(String.format(Locale.ROOT, "Load test against %s, seed=%d, mix=%s%n",
+                baseUrl, CONFIG.seed(), CONFIG.endpointMix()));
+
+        try (LoadGenerator generator = new LoadGenerator(baseUrl, CONFIG)) {
+            if (!CONFIG.warmup().isZero()) {
+                generator.runOpenModel(CONFIG.rates().get(0), CONFIG.warmup(), new LoadStats("warmup"));
+            }
+
+            if (CONFIG.replayFile() != null) {
+                LoadStats stats = new LoadStats("replay " + CONFIG.replayFile().getFileName() + " x" + CONFIG.replaySpeed());
+                try (ReplaySource source = new ReplaySource(CONFIG.replayFile(), CONFIG.replaySpeed(), CONFIG.replayPreserveDatetime())) {
+                    generator.replay(source, stats);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                report.append(stats.format());
+            } else {
+                for (double rate : CONFIG.rates()) {
+                    LoadStats stats = new LoadStats(String.format(Locale.ROOT, "open model %.1f req/s", rate));
+                    generator.runOpenModel(rate, CONFIG.stepDuration(), stats);
+                    report.append(stats.format());
+                }
+            }
+        } finally {
+            TWELVE_DATA_STUB.close();
+        }
+
+        System.out.println(report);
+        writeReport(report.toString());
+    }
+
+    private static void writeReport(String report) {
+        try {
+            Files.createDirectories(CONFIG.reportFile().toAbsolutePath().getParent());
+            Files.writeString(CONFIG.reportFile(), report, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось записать отчет " + CONFIG.reportFile(), e);
+        }
+    }
+
+    private static TwelveDataStub startStub() {
+        try {
+            return new TwelveDataStub(CONFIG.stubLatency());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось запустить заглушку Twelve Data", e);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.abarigena.bankoperation.loadtest;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.concurrent.Executors;
+
+/**
+ * Заглушка API Twelve Data для нагрузочных прогонов: отвечает на /time_series фиксированными курсами
+ * с настраиваемой задержкой, чтобы прогоны не тратили квоту внешнего API и были воспроизводимы.
+ */
+final class TwelveDataStub implements AutoCloseable {
+
+    private static final Map<String, String> CLOSE_PRICES = Map.of(
+            "EUR/USD", "1.08250",
+            "RUB/USD", "0.01100",
+            "KZT/RUB", "0.19000",
+            "KZT/USD", "0.00209"
+    );
+
+    private final HttpServer server;
+    private final Duration latency;
+
+    TwelveDataStub(Duration latency) throws IOException {
+        this.latency = latency;
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        this.server.createContext("/time_series", this::handleTimeSeries);
+        this.server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        this.server.start();
+    }
+
+    String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    private void handleTimeSeries(HttpExchange exchange) throws IOException {
+        if (!latency.isZero()) {
+            try {
+                Thread.sleep(latency);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        String symbol = queryParam(exchange.getRequestURI().getRawQuery(), "symbol");
+        String close = CLOSE_PRICES.get(symbol);
+        String body = close == null
+                ? "{\"values\":[]}"
+                : "{\"values\":[{\"datetime\":\"" + LocalDate.now() + "\",\"close\":\"" + close + "\"}]}";
+
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream output = exchange.getResponseBody()) {
+            output.write(bytes);
+        }
+    }
+
+    private static String queryParam(String rawQuery, String name) {
+        if (rawQuery == null) {
+            return null;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0 && pair.substring(0, eq).equals(name)) {
+                return URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8);
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+}
@@ -0,0 +1,44 @@
+package com.abarigena.bankoperation.loadtest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.random.RandomGenerator;
+
+/**
+ * Случайный выбор значения с заданными весами.
+ */
+final class WeightedChoice<T> {
+
+    private final List<T> values = new ArrayList<>();
+    private final int[] cumulativeWeights;
+    private final int totalWeight;
+
+    WeightedChoice(Map<T, Integer> weights) {
+        cumulativeWeights = new int[weights.size()];
+        int total = 0;
+        int i = 0;
+        for (Map.Entry<T, Integer> entry : weights.entrySet()) {
+            if (entry.getValue() < 0) {
+                throw new IllegalArgumentException("Вес не может быть отрицательным: " + entry);
+            }
+            total += entry.getValue();
+            values.add(entry.getKey());
+            cumulativeWeights[i++] = total;
+        }
+        if (total == 0) {
+            throw new IllegalArgumentException("Сумма весов должна быть положительной: " + weights);
+        }
+        totalWeight = total;
+    }
+
+    T next(RandomGenerator random) {
+        int point = random.nextInt(totalWeight);
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (point < cumulativeWeights[i]) {
+                return values.get(i);
+            }
+        }
+        return values.get(values.size() - 1);
+    }
+}
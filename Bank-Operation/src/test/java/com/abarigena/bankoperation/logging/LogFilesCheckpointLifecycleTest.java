@@ -0,0 +1,91 @@
+package com.abarigena.bankoperation.logging;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.util.LogbackMDCAdapter;
+import ch.qos.logback.core.rolling.RollingFileAppender;
+import ch.qos.logback.core.rolling.SizeAndTimeBasedRollingPolicy;
+import ch.qos.logback.core.util.FileSize;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.context.event.ContextClosedEvent;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class LogFilesCheckpointLifecycleTest {
+
+    @TempDir
+    Path logDir;
+
+    private LoggerContext context;
+    private RollingFileAppender<ILoggingEvent> fileAppender;
+    private Logger logger;
+    private LogFilesCheckpointLifecycle lifecycle;
+
+    @BeforeEach
+    void setUp() {
+        context = new LoggerContext();
+        context.setMDCAdapter(new LogbackMDCAdapter());
+
+        PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setContext(context);
+        encoder.setPattern("%msg%n");
+        encoder.start();
+
+        fileAppender = new RollingFileAppender<>();
+        fileAppender.setContext(context);
+        fileAppender.setFile(logDir.resolve("app.log").toString());
+        fileAppender.setEncoder(encoder);
+        SizeAndTimeBasedRollingPolicy<ILoggingEvent> policy = new SizeAndTimeBasedRollingPolicy<>();
+        policy.setContext(context);
+        policy.setParent(fileAppender);
+        policy.setFileNamePattern(logDir.resolve("app-%d{yyyy-MM-dd}-%i.log.gz").toString());
+        policy.setMaxFileSize(FileSize.valueOf("10MB"));
+        policy.start();
+        fileAppender.setRollingPolicy(policy);
+        fileAppender.start();
+
+        logger = context.getLogger("test");
+        logger.addAppender(fileAppender);
+        lifecycle = new LogFilesCheckpointLifecycle(context);
+        lifecycle.start();
+    }
+
+    @Test
+    @DisplayName("Перед checkpoint файлы журнала закрываются, после restore запись в файл продолжается")
+    void closesAndReopensFiles() throws IOException {
+        // Arrange
+        logger.info("before");
+
+        // Act
+        lifecycle.stop();
+        boolean startedDuringCheckpoint = fileAppender.isStarted();
+        lifecycle.start();
+        logger.info("after");
+
+        // Assert
+        assertThat(startedDuringCheckpoint).isFalse();
+        assertThat(fileAppender.isStarted()).isTrue();
+        assertThat(Files.readAllLines(logDir.resolve("app.log"))).containsExactly("before", "after");
+    }
+
+    @Test
+    @DisplayName("При остановке приложения файлы журнала не закрываются")
+    void keepsFilesOpenOnContextClose() {
+        // Act
+        lifecycle.onContextClosed(mock(ContextClosedEvent.class));
+        lifecycle.stop();
+
+        // Assert
+        assertThat(fileAppender.isStarted()).isTrue();
+    }
+}
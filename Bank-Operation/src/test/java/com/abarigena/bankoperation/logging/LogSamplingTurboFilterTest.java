@@ -0,0 +1,91 @@
+package com.abarigena.bankoperation.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.core.spi.FilterReply;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LogSamplingTurboFilterTest {
+
+    private final AtomicLong nowMillis = new AtomicLong(1_000_000L);
+    private LoggerContext context;
+    private LogSamplingTurboFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        context = new LoggerContext();
+        context.getLogger(Logger.ROOT_LOGGER_NAME).setLevel(Level.INFO);
+        filter = new LogSamplingTurboFilter();
+        filter.setContext(context);
+        filter.addLoggerName("com.example.Hot");
+        filter.setMaxPerSecond(2);
+        filter.setSampleEvery(3);
+        filter.setClock(nowMillis::get);
+        filter.start();
+    }
+
+    @Test
+    @DisplayName("decide должен пропускать maxPerSecond записей в секунду, а сверх лимита — каждую sampleEvery-ю")
+    void decide_shouldLimitAndSampleWithinSecond() {
+        // Arrange
+        Logger hot = context.getLogger("com.example.Hot");
+
+        // Act
+        int passed = 0;
+        for (int i = 0; i < 11; i++) {
+            if (filter.decide(null, hot, Level.INFO, "msg", null, null) == FilterReply.NEUTRAL) {
+                passed++;
+            }
+        }
+
+        // Assert
+        // 2 в пределах лимита + 3 из 9 оставшихся (каждая третья)
+        assertThat(passed).isEqualTo(5);
+        assertThat(filter.getSuppressedCount()).isEqualTo(6);
+    }
+
+    @Test
+    @DisplayName("decide должен сбрасывать лимит в новой секунде")
+    void decide_shouldResetLimitEverySecond() {
+        // Arrange
+        Logger hot = context.getLogger("com.example.Hot");
+        filter.setSampleEvery(0);
+        for (int i = 0; i < 5; i++) {
+            filter.decide(null, hot, Level.INFO, "msg", null, null);
+        }
+        assertThat(filter.decide(null, hot, Level.INFO, "msg", null, null)).isEqualTo(FilterReply.DENY);
+
+        // Act
+        nowMillis.addAndGet(1_000);
+
+        // Assert
+        assertThat(filter.decide(null, hot, Level.INFO, "msg", null, null)).isEqualTo(FilterReply.NEUTRAL);
+    }
+
+    @Test
+    @DisplayName("decide не должен ограничивать WARN/ERROR, другие логгеры и проверки isEnabled")
+    void decide_shouldNotLimitErrorsOtherLoggersAndEnabledChecks() {
+        // Arrange
+        Logger hot = context.getLogger("com.example.Hot");
+        Logger other = context.getLogger("com.example.Other");
+        filter.setSampleEvery(0);
+        for (int i = 0; i < 10; i++) {
+            filter.decide(null, hot, Level.INFO, "msg", null, null);
+        }
+
+        // Act & Assert
+        assertThat(filter.decide(null, hot, Level.ERROR, "msg", null, null)).isEqualTo(FilterReply.NEUTRAL);
+        assertThat(filter.decide(null, hot, Level.WARN, "msg", null, null)).isEqualTo(FilterReply.NEUTRAL);
+        assertThat(filter.decide(null, hot, Level.INFO, null, null, null)).isEqualTo(FilterReply.NEUTRAL);
+        assertThat(filter.decide(null, other, Level.INFO, "msg", null, null)).isEqualTo(FilterReply.NEUTRAL);
+        // DEBUG отключен уровнем логгера и не расходует лимит
+        assertThat(filter.decide(null, hot, Level.DEBUG, "msg", null, null)).isEqualTo(FilterReply.NEUTRAL);
+    }
+}
@@ -0,0 +1,166 @@
+package com.abarigena.bankoperation.nativeimage;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.containers.CassandraContainer;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Запускает собранный нативный файл против PostgreSQL и Cassandra в Testcontainers и проверяет,
+ * что работают миграции Liquibase, JPA, Cassandra, сериализация DTO и springdoc — то, что в нативном
+ * образе ломается при нехватке метаданных. Печатает время старта и RSS процесса.
+ * Запускается только в профиле native-smoke (нужен Docker и собранный файл):
+ * <pre>
+ * mvn -P native -DskipTests native:compile
+ * mvn -P native-smoke test -Dnative.executable=target/bank-operation
+ * </pre>
+ */
+@Tag("native-smoke")
+@Testcontainers
+class NativeImageSmokeTest {
+
+    private static final Path EXECUTABLE = Path.of(System.getProperty("native.executable", "target/bank-operation"));
+    private static final Duration STARTUP_TIMEOUT = Duration.ofSeconds(60);
+
+    @Container
+    static final PostgreSQLContainer<?> postgresContainer = new PostgreSQLContainer<>("postgres:latest")
+            .withDatabaseName("bank_operation");
+
+    @Container
+    static final CassandraContainer<?> cassandraContainer = new CassandraContainer<>(DockerImageName.parse("cassandra:4.1"))
+            .withInitScript("init-cassandra-test.cql");
+
+    private static final HttpClient http = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(2)).build();
+    private static Process application;
+    private static String baseUrl;
+
+    @BeforeAll
+    static void startApplication() throws Exception {
+        assertThat(EXECUTABLE).as("нативный файл не собран: mvn -P native -DskipTests native:compile").isExecutable();
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        baseUrl = "http://127.0.0.1:" + port;
+        Path workDir = Files.createTempDirectory("bank-operation-native");
+
+        long start = System.nanoTime();
+        application = new ProcessBuilder(List.of(
+                EXECUTABLE.toAbsolutePath().toString(),
+                "--server.port=" + port,
+                "--spring.datasource.url=" + postgresContainer.getJdbcUrl(),
+                "--spring.datasource.username=" + postgresContainer.getUsername(),
+                "--spring.datasource.password=" + postgresContainer.getPassword(),
+                "--spring.cassandra.contact-points=" + cassandraContainer.getHost(),
+                "--spring.cassandra.port=" + cassandraContainer.getMappedPort(9042),
+                "--spring.cassandra.local-datacenter=datacenter1",
+                "--spring.cassandra.keyspace-name=bank_operation_test",
+                "--spring.cassandra.schema-action=create_if_not_exists",
+                "--twelvedata.api.key=test-api-key",
+                // Внешний API недоступен: загрузка курсов завершится ошибкой, что не мешает старту
+                "--twelvedata.api.base-url=http://127.0.0.1:9",
+                "--app.archive.dir=" + workDir.resolve("archive")))
+                .directory(workDir.toFile())
+                .redirectErrorStream(true)
+                .redirectOutput(workDir.resolve("application.log").toFile())
+                .start();
+
+        awaitHealthy();
+        Duration startup = Duration.ofNanos(System.nanoTime() - start);
+        System.out.printf(Locale.ROOT, "Native image started in %d ms, RSS %s, log %s%n",
+                startup.toMillis(), residentSetSize(application.pid()), workDir.resolve("application.log"));
+    }
+
+    @AfterAll
+    static void stopApplication() throws InterruptedException {
+        if (application != null) {
+            application.destroy();
+            application.waitFor();
+        }
+    }
+
+    @Test
+    void servesLimitsTransactionsAndApiDocs() throws Exception {
+        // Лимит: JPA и Liquibase (таблица expense_limits)
+        assertThat(post("/api/limits", "{\"limitSum\": 100.00, \"expenseCategory\": \"PRODUCT\"}").statusCode())
+                .isEqualTo(201);
+
+        // Транзакция в USD не требует курса; превышение пишется в проекцию Cassandra
+        String transaction = "{\"account_from\": \"1000000001\", \"account_to\": \"9999999999\", "
+                + "\"currency_shortname\": \"USD\", \"sum\": 150.00, \"expense_category\": \"PRODUCT\"}";
+        HttpResponse<String> check = post("/api/transactions/check", transaction);
+        assertThat(check.statusCode()).isEqualTo(200);
+        assertThat(check.body()).contains("\"limitExceeded\":true");
+        assertThat(post("/api/transactions", transaction).statusCode()).isEqualTo(201);
+
+        assertThat(get("/api/limits/remaining?category=PRODUCT").statusCode()).isEqualTo(200);
+        assertThat(get("/api/spending/summary").statusCode()).isEqualTo(200);
+        assertThat(get("/api/transactions/exceeded").statusCode()).isEqualTo(200);
+
+        HttpResponse<String> apiDocs = get("/v3/api-docs");
+        assertThat(apiDocs.statusCode()).isEqualTo(200);
+        assertThat(apiDocs.body()).contains("/api/transactions/check");
+    }
+
+    private static void awaitHealthy() throws InterruptedException, IOException {
+        long deadline = System.nanoTime() + STARTUP_TIMEOUT.toNanos();
+        while (System.nanoTime() < deadline) {
+            assertThat(application.isAlive()).as("нативный процесс завершился при старте").isTrue();
+            try {
+                HttpResponse<String> health = get("/actuator/health");
+                if (health.statusCode() == 200 && health.body().contains("\"UP\"")) {
+                    return;
+                }
+            } catch (ConnectException e) {
+                // Порт еще не открыт
+            }
+            Thread.sleep(100);
+        }
+        throw new IllegalStateException("Приложение не стало доступным за " + STARTUP_TIMEOUT);
+    }
+
+    private static String residentSetSize(long pid) {
+        try {
+            return Files.readAllLines(Path.of("/proc", String.valueOf(pid), "status")).stream()
+                    .filter(line -> line.startsWith("VmRSS:"))
+                    .map(line -> line.substring("VmRSS:".length()).trim())
+                    .findFirst()
+                    .orElse("n/a");
+        } catch (IOException e) {
+            return "n/a";
+        }
+    }
+
+    private static HttpResponse<String> get(String path) throws IOException, InterruptedException {
+        return http.send(HttpRequest.newBuilder(URI.create(baseUrl + path)).GET().build(),
+                HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static HttpResponse<String> post(String path, String json) throws IOException, InterruptedException {
+        return http.send(HttpRequest.newBuilder(URI.create(baseUrl + path))
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString(json))
+                        .build(),
+                HttpResponse.BodyHandlers.ofString());
+    }
+}
@@ -0,0 +1,105 @@
+package com.abarigena.bankoperation.scheduling;
+
+import com.abarigena.bankoperation.service.ExceededTransactionProjection;
+import com.abarigena.bankoperation.store.entity.SchedulerLease;
+import com.abarigena.bankoperation.store.repository.SchedulerLeaseRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ExceededProjectionReconcileJobTest {
+
+    private static final String EVERY_10_MINUTES = "0 */10 * * * *";
+
+    @Mock
+    private SchedulerLeaseService schedulerLeaseService;
+    @Mock
+    private SchedulerLeaseRepository schedulerLeaseRepository;
+    @Mock
+    private ExceededTransactionProjection projection;
+
+    // 1 апреля 00:15 UTC: текущий плановый момент 00:10, сверяются апрель и март
+    private final Clock clock = Clock.fixed(Instant.parse("2025-04-01T00:15:00Z"), ZoneOffset.UTC);
+    private ExceededProjectionReconcileJob job;
+
+    @BeforeEach
+    void setUp() {
+        job = new ExceededProjectionReconcileJob(schedulerLeaseService, schedulerLeaseRepository, projection,
+                true, EVERY_10_MINUTES, 2, Duration.ofMinutes(5), clock);
+    }
+
+    @Test
+    @DisplayName("Сверка должна дописывать превышения с предыдущего запуска и сверять последние месяцы")
+    void runCurrentSlot_shouldCatchUpSincePreviousRunAndReconcileMonths() {
+        // Arrange
+        SchedulerLease lease = new SchedulerLease();
+        lease.setLastRunSlot(Instant.parse("2025-04-01T00:00:00Z"));
+        when(schedulerLeaseRepository.findById(ExceededProjectionReconcileJob.JOB_NAME)).thenReturn(Optional.of(lease));
+        when(schedulerLeaseService.runExclusively(eq(ExceededProjectionReconcileJob.JOB_NAME),
+                eq(Instant.parse("2025-04-01T00:10:00Z")), any()))
+                .thenAnswer(invocation -> {
+                    invocation.<Runnable>getArgument(2).run();
+                    return SchedulerLeaseService.RunOutcome.COMPLETED;
+                });
+
+        // Act
+        SchedulerLeaseService.RunOutcome outcome = job.runCurrentSlot();
+
+        // Assert
+        assertThat(outcome).isEqualTo(SchedulerLeaseService.RunOutcome.COMPLETED);
+        verify(projection).catchUp(Instant.parse("2025-03-31T23:55:00Z"), clock.instant());
+        verify(projection).reconcileMonth(YearMonth.of(2025, 4));
+        verify(projection).reconcileMonth(YearMonth.of(2025, 3));
+    }
+
+    @Test
+    @DisplayName("Первая сверка без предыдущего запуска должна только сверять месяцы")
+    void runCurrentSlot_shouldOnlyReconcileMonths_whenNoPreviousRun() {
+        // Arrange
+        when(schedulerLeaseRepository.findById(ExceededProjectionReconcileJob.JOB_NAME)).thenReturn(Optional.empty());
+        when(schedulerLeaseService.runExclusively(any(), any(), any()))
+                .thenAnswer(invocation -> {
+                    invocation.<Runnable>getArgument(2).run();
+                    return SchedulerLeaseService.RunOutcome.COMPLETED;
+                });
+
+        // Act
+        job.runCurrentSlot();
+
+        // Assert
+        verify(projection, never()).catchUp(any(), any());
+        verify(projection, times(2)).reconcileMonth(any());
+    }
+
+    @Test
+    @DisplayName("Недоступность PostgreSQL не должна прерывать планировщик")
+    void runCurrentSlot_shouldReturnFailed_whenLeaseStorageUnavailable() {
+        // Arrange
+        when(schedulerLeaseRepository.findById(any()))
+                .thenThrow(new DataAccessResourceFailureException("PostgreSQL недоступен"));
+
+        // Act
+        SchedulerLeaseService.RunOutcome outcome = job.runCurrentSlot();
+
+        // Assert
+        assertThat(outcome).isEqualTo(SchedulerLeaseService.RunOutcome.FAILED);
+        verifyNoInteractions(projection, schedulerLeaseService);
+    }
+}
@@ -0,0 +1,134 @@
+package com.abarigena.bankoperation.scheduling;
+
+import com.abarigena.bankoperation.client.ExchangeRateUpdater;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.scheduling.support.CronExpression;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ExchangeRateRefreshJobTest {
+
+    private static final String DAILY_AT_8 = "0 0 8 * * MON-SUN";
+
+    @Mock
+    private SchedulerLeaseService schedulerLeaseService;
+    @Mock
+    private ExchangeRateUpdater exchangeRateUpdater;
+
+    private static ZonedDateTime at(int day, int hour, int minute) {
+        return ZonedDateTime.of(2025, 3, day, hour, minute, 0, 0, ZoneOffset.UTC);
+    }
+
+    @Test
+    @DisplayName("До запуска по расписанию плановым моментом должен быть последний запуск предыдущих суток")
+    void currentSlot_shouldBePreviousDayRun_beforeFirstScheduledRunToday() {
+        // Act & Assert
+        assertThat(ExchangeRateRefreshJob.currentSlot(CronExpression.parse(DAILY_AT_8), at(28, 6, 0)))
+                .contains(at(27, 8, 0).toInstant());
+        // Расписание по будням: в понедельник утром — запуск пятницы
+        assertThat(ExchangeRateRefreshJob.currentSlot(CronExpression.parse("0 0 8 * * MON-FRI"), at(31, 6, 0)))
+                .contains(at(28, 8, 0).toInstant());
+    }
+
+    @Test
+    @DisplayName("После запуска по расписанию плановым моментом должен быть этот запуск")
+    void currentSlot_shouldBeLastScheduledRun() {
+        CronExpression daily = CronExpression.parse(DAILY_AT_8);
+        CronExpression every6Hours = CronExpression.parse("0 0 */6 * * *");
+
+        // Act & Assert
+        assertThat(ExchangeRateRefreshJob.currentSlot(daily, at(28, 8, 0))).contains(at(28, 8, 0).toInstant());
+        assertThat(ExchangeRateRefreshJob.currentSlot(daily, at(28, 23, 59))).contains(at(28, 8, 0).toInstant());
+        assertThat(ExchangeRateRefreshJob.currentSlot(every6Hours, at(28, 13, 30))).contains(at(28, 12, 0).toInstant());
+    }
+
+    @Test
+    @DisplayName("Проверка пропущенных запусков должна передавать текущий плановый момент в SchedulerLeaseService")
+    void catchUp_shouldRunCurrentSlotExclusively() {
+        // Arrange
+        Clock clock = Clock.fixed(at(28, 9, 15).toInstant(), ZoneOffset.UTC);
+        ExchangeRateRefreshJob job = new ExchangeRateRefreshJob(schedulerLeaseService, exchangeRateUpdater, DAILY_AT_8, clock);
+        when(schedulerLeaseService.runExclusively(eq(ExchangeRateRefreshJob.JOB_NAME), eq(at(28, 8, 0).toInstant()), any()))
+                .thenAnswer(invocation -> {
+                    invocation.<Runnable>getArgument(2).run();
+                    return SchedulerLeaseService.RunOutcome.COMPLETED;
+                });
+
+        // Act
+        job.catchUp();
+
+        // Assert
+        verify(exchangeRateUpdater).updateExchangeRates();
+    }
+
+    @Test
+    @DisplayName("Недоступность PostgreSQL не должна прерывать планировщик")
+    void runCurrentSlot_shouldReturnFailed_whenLeaseStorageUnavailable() {
+        // Arrange
+        Clock clock = Clock.fixed(Instant.parse("2025-03-28T09:15:00Z"), ZoneOffset.UTC);
+        ExchangeRateRefreshJob job = new ExchangeRateRefreshJob(schedulerLeaseService, exchangeRateUpdater, DAILY_AT_8, clock);
+        when(schedulerLeaseService.runExclusively(any(), any(), any()))
+                .thenThrow(new DataAccessResourceFailureException("PostgreSQL недоступен"));
+
+        // Act
+        SchedulerLeaseService.RunOutcome outcome = job.runCurrentSlot();
+
+        // Assert
+        assertThat(outcome).isEqualTo(SchedulerLeaseService.RunOutcome.FAILED);
+        verifyNoInteractions(exchangeRateUpdater);
+    }
+
+    @Test
+    @DisplayName("Загрузка при старте не выполняется, если курсы на сегодня уже есть")
+    void runStartupLoad_shouldSkip_whenTodaysRatesPresent() {
+        // Arrange
+        Clock clock = Clock.fixed(at(28, 0, 5).toInstant(), ZoneOffset.UTC);
+        ExchangeRateRefreshJob job = new ExchangeRateRefreshJob(schedulerLeaseService, exchangeRateUpdater, DAILY_AT_8, clock);
+        when(exchangeRateUpdater.isTodaysRatesMissing()).thenReturn(false);
+
+        // Act
+        SchedulerLeaseService.RunOutcome outcome = job.runStartupLoad();
+
+        // Assert
+        assertThat(outcome).isEqualTo(SchedulerLeaseService.RunOutcome.ALREADY_DONE);
+        verifyNoInteractions(schedulerLeaseService);
+    }
+
+    @Test
+    @DisplayName("Без курсов на сегодня загрузка при старте выполняется для начала суток и повторяется после ошибки")
+    void catchUp_shouldRetryStartupLoadUntilCompleted_whenTodaysRatesMissing() {
+        // Arrange
+        Clock clock = Clock.fixed(at(28, 0, 5).toInstant(), ZoneOffset.UTC);
+        ExchangeRateRefreshJob job = new ExchangeRateRefreshJob(schedulerLeaseService, exchangeRateUpdater, DAILY_AT_8, clock);
+        when(schedulerLeaseService.runExclusively(eq(ExchangeRateRefreshJob.JOB_NAME), eq(at(27, 8, 0).toInstant()), any()))
+                .thenReturn(SchedulerLeaseService.RunOutcome.ALREADY_DONE);
+        when(exchangeRateUpdater.isTodaysRatesMissing()).thenReturn(true);
+        when(schedulerLeaseService.runExclusively(eq(ExchangeRateRefreshJob.STARTUP_JOB_NAME),
+                eq(at(28, 0, 0).toInstant()), any()))
+                .thenReturn(SchedulerLeaseService.RunOutcome.FAILED)
+                .thenReturn(SchedulerLeaseService.RunOutcome.COMPLETED);
+
+        // Act
+        job.catchUp();
+        job.catchUp();
+        job.catchUp();
+
+        // Assert: после успешной загрузки проверка при старте больше не выполняется
+        verify(schedulerLeaseService, times(2)).runExclusively(eq(ExchangeRateRefreshJob.STARTUP_JOB_NAME), any(), any());
+        verify(schedulerLeaseService, times(3)).runExclusively(eq(ExchangeRateRefreshJob.JOB_NAME), any(), any());
+    }
+}
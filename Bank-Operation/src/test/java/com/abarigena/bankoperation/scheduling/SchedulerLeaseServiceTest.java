@@ -0,0 +1,173 @@
+package com.abarigena.bankoperation.scheduling;
+
+import com.abarigena.bankoperation.config.InstanceIdentity;
+import com.abarigena.bankoperation.store.entity.SchedulerLease;
+import com.abarigena.bankoperation.store.repository.SchedulerLeaseRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SchedulerLeaseServiceTest {
+
+    private static final String JOB = "exchange-rate-refresh";
+    private static final String HOLDER = "node-a";
+
+    @Mock
+    private SchedulerLeaseRepository schedulerLeaseRepository;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final Instant slot = Instant.parse("2025-03-28T08:00:00Z");
+    private SchedulerLeaseService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new SchedulerLeaseService(schedulerLeaseRepository, meterRegistry,
+                new InstanceIdentity(HOLDER), Duration.ofMinutes(2));
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    private SchedulerLease leaseCompletedAt(Instant lastSlot) {
+        SchedulerLease lease = new SchedulerLease();
+        lease.setLeaseName(JOB);
+        lease.setLastRunSlot(lastSlot);
+        return lease;
+    }
+
+    private double runs(String outcome) {
+        return meterRegistry.counter("scheduler.job.runs", "job", JOB, "instance", HOLDER, "outcome", outcome).count();
+    }
+
+    @Test
+    @DisplayName("Держатель аренды должен выполнить задачу и отметить плановый запуск")
+    void runExclusively_shouldRunAndComplete_whenLeaseAcquired() {
+        // Arrange
+        when(schedulerLeaseRepository.findById(JOB)).thenReturn(Optional.empty());
+        when(schedulerLeaseRepository.tryAcquire(JOB, HOLDER, 120)).thenReturn(1);
+        AtomicInteger executions = new AtomicInteger();
+
+        // Act
+        SchedulerLeaseService.RunOutcome outcome = service.runExclusively(JOB, slot, executions::incrementAndGet);
+
+        // Assert
+        assertThat(outcome).isEqualTo(SchedulerLeaseService.RunOutcome.COMPLETED);
+        assertThat(executions).hasValue(1);
+        verify(schedulerLeaseRepository).completeRun(eq(JOB), eq(HOLDER), eq(slot), any(Instant.class));
+        assertThat(runs("completed")).isEqualTo(1.0);
+        assertThat(meterRegistry.timer("scheduler.job.duration", "job", JOB, "instance", HOLDER).count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Задача не должна выполняться, если аренду держит другой экземпляр")
+    void runExclusively_shouldSkip_whenLeaseHeldByOther() {
+        // Arrange
+        when(schedulerLeaseRepository.findById(JOB)).thenReturn(Optional.of(leaseCompletedAt(slot.minusSeconds(86400))));
+        when(schedulerLeaseRepository.tryAcquire(JOB, HOLDER, 120)).thenReturn(0);
+
+        // Act
+        SchedulerLeaseService.RunOutcome outcome = service.runExclusively(JOB, slot,
+                () -> { throw new AssertionError("Задача не должна выполняться"); });
+
+        // Assert
+        assertThat(outcome).isEqualTo(SchedulerLeaseService.RunOutcome.HELD_BY_OTHER);
+        verify(schedulerLeaseRepository, never()).completeRun(anyString(), anyString(), any(), any());
+        assertThat(runs("held_by_other")).isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("Уже выполненный плановый запуск не должен выполняться повторно")
+    void runExclusively_shouldSkip_whenSlotAlreadyCompleted() {
+        // Arrange
+        when(schedulerLeaseRepository.findById(JOB)).thenReturn(Optional.of(leaseCompletedAt(slot)));
+
+        // Act
+        SchedulerLeaseService.RunOutcome outcome = service.runExclusively(JOB, slot,
+                () -> { throw new AssertionError("Задача не должна выполняться"); });
+
+        // Assert
+        assertThat(outcome).isEqualTo(SchedulerLeaseService.RunOutcome.ALREADY_DONE);
+        verify(schedulerLeaseRepository, never()).tryAcquire(anyString(), anyString(), anyLong());
+    }
+
+    @Test
+    @DisplayName("Запуск, завершенный другим экземпляром во время захвата аренды, не должен выполняться повторно")
+    void runExclusively_shouldRecheckSlotAfterAcquiringLease() {
+        // Arrange
+        when(schedulerLeaseRepository.findById(JOB))
+                .thenReturn(Optional.of(leaseCompletedAt(slot.minusSeconds(86400))))
+                .thenReturn(Optional.of(leaseCompletedAt(slot)));
+        when(schedulerLeaseRepository.tryAcquire(JOB, HOLDER, 120)).thenReturn(1);
+
+        // Act
+        SchedulerLeaseService.RunOutcome outcome = service.runExclusively(JOB, slot,
+                () -> { throw new AssertionError("Задача не должна выполняться"); });
+
+        // Assert
+        assertThat(outcome).isEqualTo(SchedulerLeaseService.RunOutcome.ALREADY_DONE);
+        // Аренда освобождается тем же запросом, что отмечает запуск
+        verify(schedulerLeaseRepository).completeRun(eq(JOB), eq(HOLDER), eq(slot), any(Instant.class));
+    }
+
+    @Test
+    @DisplayName("Ошибка задачи должна освобождать аренду без отметки планового запуска")
+    void runExclusively_shouldReleaseLease_whenJobFails() {
+        // Arrange
+        when(schedulerLeaseRepository.findById(JOB)).thenReturn(Optional.empty());
+        when(schedulerLeaseRepository.tryAcquire(JOB, HOLDER, 120)).thenReturn(1);
+
+        // Act
+        SchedulerLeaseService.RunOutcome outcome = service.runExclusively(JOB, slot,
+                () -> { throw new IllegalStateException("Twelve Data недоступен"); });
+
+        // Assert
+        assertThat(outcome).isEqualTo(SchedulerLeaseService.RunOutcome.FAILED);
+        verify(schedulerLeaseRepository).releaseAfterFailure(eq(JOB), eq(HOLDER), any(Instant.class));
+        verify(schedulerLeaseRepository, never()).completeRun(anyString(), anyString(), any(), any());
+        assertThat(runs("failed")).isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("Аренда должна продлеваться, пока задача выполняется")
+    void runExclusively_shouldRenewLeaseDuringLongRun() {
+        // Arrange: срок аренды 300 мс, продление каждые 100 мс
+        service.shutdown();
+        service = new SchedulerLeaseService(schedulerLeaseRepository, meterRegistry,
+                new InstanceIdentity(HOLDER), Duration.ofMillis(300));
+        when(schedulerLeaseRepository.findById(JOB)).thenReturn(Optional.empty());
+        when(schedulerLeaseRepository.tryAcquire(eq(JOB), eq(HOLDER), anyLong())).thenReturn(1);
+        when(schedulerLeaseRepository.renew(eq(JOB), eq(HOLDER), anyLong())).thenReturn(1);
+
+        // Act
+        service.runExclusively(JOB, slot, () -> {
+            try {
+                Thread.sleep(450);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        // Assert
+        verify(schedulerLeaseRepository, atLeast(2)).renew(eq(JOB), eq(HOLDER), anyLong());
+    }
+}
@@ -0,0 +1,116 @@
+package com.abarigena.bankoperation.service;
+
+import com.abarigena.bankoperation.archive.TransactionArchive;
+import com.abarigena.bankoperation.dto.LimitExceededTransactionDTO;
+import com.abarigena.bankoperation.store.entity.Transaction;
+import com.abarigena.bankoperation.store.repository.TransactionRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.UUID;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ExceededTransactionExportServiceTest {
+
+    @Mock
+    private TransactionRepository transactionRepository;
+    @Mock
+    private TransactionArchive transactionArchive;
+
+    @InjectMocks
+    private ExceededTransactionExportService exportService;
+
+    @Test
+    @DisplayName("Выгрузка: пишет gzip CSV с заголовком, экранирует значения и закрывает Stream")
+    void exportCsvGzip_shouldWriteCompressedCsv() throws IOException {
+        // Arrange
+        ZoneId zone = ZoneId.systemDefault();
+        LocalDate from = LocalDate.of(2024, 3, 1);
+        LocalDate to = LocalDate.of(2024, 4, 1);
+        UUID id = UUID.randomUUID();
+        ZonedDateTime txTime = ZonedDateTime.of(2024, 3, 15, 10, 30, 0, 0, zone);
+        LimitExceededTransactionDTO dto = new LimitExceededTransactionDTO(id, "12,3", "4\"56", "RUB",
+                new BigDecimal("100000.00"), new BigDecimal("1100.00"), Transaction.ExpenseCategory.PRODUCT, txTime,
+                null, null, null);
+
+        boolean[] closed = {false};
+        Stream<LimitExceededTransactionDTO> stream = Stream.of(dto).onClose(() -> closed[0] = true);
+        when(transactionRepository.streamExceededTransactionsWithLimitDetails(
+                eq(from.atStartOfDay(zone)), eq(to.atStartOfDay(zone)))).thenReturn(stream);
+
+        when(transactionArchive.streamExceeded(eq(from.atStartOfDay(zone)), eq(to.atStartOfDay(zone))))
+                .thenReturn(Stream.empty());
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        // Act
+        long rows = exportService.exportCsvGzip(from, to, output);
+
+        // Assert
+        assertThat(rows).isEqualTo(1);
+        assertThat(closed[0]).isTrue();
+
+        String csv = new String(new GZIPInputStream(new ByteArrayInputStream(output.toByteArray())).readAllBytes(),
+                StandardCharsets.UTF_8);
+        String[] lines = csv.split("\n");
+        assertThat(lines).hasSize(2);
+        assertThat(lines[0]).startsWith("transaction_id,account_from");
+        assertThat(lines[1]).isEqualTo(id + ",\"12,3\",\"4\"\"56\",RUB,100000.00,1100.00,PRODUCT,"
+                + txTime.toOffsetDateTime() + ",,,");
+    }
+
+    @Test
+    @DisplayName("Выгрузка: строки архивированных месяцев идут перед строками из PostgreSQL")
+    void exportCsvGzip_shouldIncludeArchivedMonthsFirst() throws IOException {
+        // Arrange
+        ZoneId zone = ZoneId.systemDefault();
+        LocalDate from = LocalDate.of(2023, 1, 1);
+        LocalDate to = LocalDate.of(2025, 1, 1);
+        UUID archivedId = UUID.randomUUID();
+        UUID liveId = UUID.randomUUID();
+        LimitExceededTransactionDTO archived = new LimitExceededTransactionDTO(archivedId, "1", "2", "USD",
+                new BigDecimal("1200.00"), new BigDecimal("1200.00"), Transaction.ExpenseCategory.SERVICE,
+                ZonedDateTime.of(2023, 5, 2, 9, 0, 0, 0, zone), null, null, null);
+        LimitExceededTransactionDTO live = new LimitExceededTransactionDTO(liveId, "1", "2", "USD",
+                new BigDecimal("1300.00"), new BigDecimal("1300.00"), Transaction.ExpenseCategory.SERVICE,
+                ZonedDateTime.of(2024, 11, 2, 9, 0, 0, 0, zone), null, null, null);
+
+        boolean[] archiveClosed = {false};
+        when(transactionArchive.streamExceeded(eq(from.atStartOfDay(zone)), eq(to.atStartOfDay(zone))))
+                .thenReturn(Stream.of(archived).onClose(() -> archiveClosed[0] = true));
+        when(transactionRepository.streamExceededTransactionsWithLimitDetails(
+                eq(from.atStartOfDay(zone)), eq(to.atStartOfDay(zone)))).thenReturn(Stream.of(live));
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        // Act
+        long rows = exportService.exportCsvGzip(from, to, output);
+
+        // Assert
+        assertThat(rows).isEqualTo(2);
+        assertThat(archiveClosed[0]).isTrue();
+        String[] lines = new String(new GZIPInputStream(new ByteArrayInputStream(output.toByteArray())).readAllBytes(),
+                StandardCharsets.UTF_8).split("\n");
+        assertThat(lines).hasSize(3);
+        assertThat(lines[1]).startsWith(archivedId.toString());
+        assertThat(lines[2]).startsWith(liveId.toString());
+    }
+}
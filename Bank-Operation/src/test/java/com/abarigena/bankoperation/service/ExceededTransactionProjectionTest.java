@@ -0,0 +1,200 @@
+package com.abarigena.bankoperation.service;
+
+import com.abarigena.bankoperation.archive.TransactionArchive;
+import com.abarigena.bankoperation.dto.LimitExceededTransactionDTO;
+import com.abarigena.bankoperation.event.LimitExceededEvent;
+import com.abarigena.bankoperation.store.entity.ExceededTransactionMonth;
+import com.abarigena.bankoperation.store.entity.ExceededTransactionView;
+import com.abarigena.bankoperation.store.entity.Transaction;
+import com.abarigena.bankoperation.store.repository.ExceededTransactionMonthRepository;
+import com.abarigena.bankoperation.store.repository.ExceededTransactionViewRepository;
+import com.abarigena.bankoperation.store.repository.TransactionRepository;
+import com.abarigena.bankoperation.util.UuidV7;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ExceededTransactionProjectionTest {
+
+    @Mock
+    private ExceededTransactionViewRepository viewRepository;
+    @Mock
+    private ExceededTransactionMonthRepository monthRepository;
+    @Mock
+    private TransactionRepository transactionRepository;
+    @Mock
+    private TransactionArchive transactionArchive;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Captor
+    ArgumentCaptor<List<ExceededTransactionView>> rowsCaptor;
+    @Captor
+    ArgumentCaptor<List<ExceededTransactionMonth>> monthsCaptor;
+
+    private ExceededTransactionProjection projection;
+    private final ZoneId zone = ZoneId.systemDefault();
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(transactionArchive.zone()).thenReturn(zone);
+        projection = new ExceededTransactionProjection(viewRepository, monthRepository, transactionRepository,
+                transactionArchive, transactionManager, true);
+    }
+
+    @Test
+    @DisplayName("onLimitExceeded должен записать транзакцию в партицию (категория, месяц) и отметить месяц")
+    void onLimitExceeded_shouldWriteRowAndMonth() {
+        // Arrange
+        LimitExceededTransactionDTO dto = exceeded(Transaction.ExpenseCategory.SERVICE,
+                ZonedDateTime.of(2025, 3, 28, 10, 11, 12, 0, zone));
+
+        // Act
+        projection.onLimitExceeded(new LimitExceededEvent(dto));
+
+        // Assert
+        verify(viewRepository).saveAll(rowsCaptor.capture());
+        ExceededTransactionView row = rowsCaptor.getValue().get(0);
+        assertThat(row.getExpenseCategory()).isEqualTo("SERVICE");
+        assertThat(row.getMonthStart()).isEqualTo(LocalDate.of(2025, 3, 1));
+        assertThat(row.getTransactionId()).isEqualTo(dto.getTransactionId());
+        verify(monthRepository).saveAll(monthsCaptor.capture());
+        assertThat(monthsCaptor.getValue()).singleElement()
+                .satisfies(month -> assertThat(month.getMonthStart()).isEqualTo(LocalDate.of(2025, 3, 1)));
+        // Таблица транзакций при записи не используется
+        verifyNoInteractions(transactionRepository);
+    }
+
+    @Test
+    @DisplayName("findAll должен читать только партиции известных месяцев и возвращать записи от новых к старым")
+    void findAll_shouldMergePartitionsNewestFirst() {
+        // Arrange
+        LocalDate march = LocalDate.of(2025, 3, 1);
+        LocalDate february = LocalDate.of(2025, 2, 1);
+        LimitExceededTransactionDTO productMarch = exceeded(Transaction.ExpenseCategory.PRODUCT, ZonedDateTime.of(2025, 3, 5, 0, 0, 0, 0, zone));
+        LimitExceededTransactionDTO serviceMarch = exceeded(Transaction.ExpenseCategory.SERVICE, ZonedDateTime.of(2025, 3, 20, 0, 0, 0, 0, zone));
+        LimitExceededTransactionDTO serviceFebruary = exceeded(Transaction.ExpenseCategory.SERVICE, ZonedDateTime.of(2025, 2, 10, 0, 0, 0, 0, zone));
+        when(monthRepository.findByCategory("PRODUCT")).thenReturn(List.of(new ExceededTransactionMonth("PRODUCT", march)));
+        when(monthRepository.findByCategory("SERVICE")).thenReturn(List.of(
+                new ExceededTransactionMonth("SERVICE", march), new ExceededTransactionMonth("SERVICE", february)));
+        when(viewRepository.streamByCategoryAndMonth("PRODUCT", march)).thenReturn(Stream.of(ExceededTransactionProjection.toView(productMarch, zone)));
+        when(viewRepository.streamByCategoryAndMonth("SERVICE", march)).thenReturn(Stream.of(ExceededTransactionProjection.toView(serviceMarch, zone)));
+        when(viewRepository.streamByCategoryAndMonth("SERVICE", february)).thenReturn(Stream.of(ExceededTransactionProjection.toView(serviceFebruary, zone)));
+
+        // Act
+        List<LimitExceededTransactionDTO> result = projection.findAll();
+
+        // Assert
+        assertThat(result).extracting(LimitExceededTransactionDTO::getTransactionId)
+                .containsExactly(serviceMarch.getTransactionId(), productMarch.getTransactionId(), serviceFebruary.getTransactionId());
+        assertThat(result.get(0)).isEqualTo(serviceMarch);
+        verify(viewRepository, never()).streamByCategoryAndMonth("PRODUCT", february);
+        verifyNoInteractions(transactionRepository);
+    }
+
+    @Test
+    @DisplayName("rebuildIfEmpty не должен обращаться к PostgreSQL, если проекция уже заполнена")
+    void rebuildIfEmpty_shouldSkipWhenProjectionHasData() {
+        // Arrange
+        when(monthRepository.findByCategory(anyString()))
+                .thenReturn(List.of(new ExceededTransactionMonth("PRODUCT", LocalDate.of(2025, 3, 1))));
+
+        // Act
+        projection.rebuildIfEmpty();
+
+        // Assert
+        verifyNoInteractions(transactionRepository, transactionManager);
+    }
+
+    @Test
+    @DisplayName("Месяц партиции определяется в часовом поясе приложения, а не в поясе из DTO")
+    void toView_shouldUseApplicationZoneForMonth() {
+        // Arrange: 1 апреля 01:00 по +03:00 — это еще 31 марта по UTC
+        LimitExceededTransactionDTO dto = exceeded(Transaction.ExpenseCategory.SERVICE,
+                ZonedDateTime.of(2025, 4, 1, 1, 0, 0, 0, ZoneOffset.ofHours(3)));
+
+        // Act
+        ExceededTransactionView row = ExceededTransactionProjection.toView(dto, ZoneOffset.UTC);
+
+        // Assert
+        assertThat(row.getMonthStart()).isEqualTo(LocalDate.of(2025, 3, 1));
+    }
+
+    @Test
+    @DisplayName("catchUp должен дописывать превышения, записанные в PostgreSQL за период, по диапазону UUID v7")
+    void catchUp_shouldSaveRowsRecordedInPeriod() {
+        // Arrange
+        Instant from = Instant.parse("2025-03-28T10:00:00Z");
+        Instant to = Instant.parse("2025-03-28T10:10:00Z");
+        LimitExceededTransactionDTO dto = exceeded(Transaction.ExpenseCategory.PRODUCT,
+                ZonedDateTime.of(2025, 1, 15, 0, 0, 0, 0, zone)); // записана задним числом
+        when(transactionRepository.streamExceededTransactionsRecordedBetween(
+                UuidV7.lowerBound(from.toEpochMilli()), UuidV7.lowerBound(to.toEpochMilli())))
+                .thenReturn(Stream.of(dto));
+
+        // Act
+        long written = projection.catchUp(from, to);
+
+        // Assert
+        assertThat(written).isEqualTo(1);
+        verify(viewRepository).saveAll(rowsCaptor.capture());
+        assertThat(rowsCaptor.getValue()).singleElement()
+                .satisfies(row -> assertThat(row.getMonthStart()).isEqualTo(LocalDate.of(2025, 1, 1)));
+    }
+
+    @Test
+    @DisplayName("reconcileMonth должен записать превышения месяца и удалить строки, которых нет в источнике")
+    void reconcileMonth_shouldWriteMissingAndDeleteStaleRows() {
+        // Arrange
+        YearMonth month = YearMonth.of(2025, 3);
+        ZonedDateTime start = month.atDay(1).atStartOfDay(zone);
+        ZonedDateTime end = month.plusMonths(1).atDay(1).atStartOfDay(zone);
+        LimitExceededTransactionDTO archived = exceeded(Transaction.ExpenseCategory.SERVICE, start.plusDays(1));
+        LimitExceededTransactionDTO hot = exceeded(Transaction.ExpenseCategory.SERVICE, start.plusDays(20));
+        // Строка, записанная в партицию марта по прежнему правилу, хотя по поясу приложения это апрель
+        ExceededTransactionView stale = ExceededTransactionProjection.toView(
+                exceeded(Transaction.ExpenseCategory.SERVICE, end.plusHours(1)), zone);
+        stale.setMonthStart(month.atDay(1));
+        when(transactionArchive.streamExceeded(start, end)).thenReturn(Stream.of(archived));
+        when(transactionRepository.streamExceededTransactionsWithLimitDetails(start, end)).thenReturn(Stream.of(hot));
+        when(viewRepository.streamByCategoryAndMonth(anyString(), eq(month.atDay(1)))).thenReturn(Stream.empty());
+        when(viewRepository.streamByCategoryAndMonth("SERVICE", month.atDay(1))).thenReturn(Stream.of(
+                ExceededTransactionProjection.toView(hot, zone), ExceededTransactionProjection.toView(archived, zone), stale));
+
+        // Act
+        ExceededTransactionProjection.Reconciliation result = projection.reconcileMonth(month);
+
+        // Assert
+        assertThat(result).isEqualTo(new ExceededTransactionProjection.Reconciliation(2, 1));
+        verify(viewRepository).deleteAll(List.of(stale));
+    }
+
+    private LimitExceededTransactionDTO exceeded(Transaction.ExpenseCategory category, ZonedDateTime dateTime) {
+        return new LimitExceededTransactionDTO(UUID.randomUUID(), "1000000001", "9999999999", "RUB",
+                new BigDecimal("100000.00"), new BigDecimal("1100.00"), category, dateTime,
+                new BigDecimal("1000.00"), ZonedDateTime.of(2025, 1, 1, 0, 0, 0, 0, zone), "USD");
+    }
+}
@@ -0,0 +1,188 @@
+package com.abarigena.bankoperation.service;
+
+import com.abarigena.bankoperation.dto.ExchangeRateDTO;
+import com.abarigena.bankoperation.dto.ExchangeRateHistoryDTO;
+import com.abarigena.bankoperation.mapper.ExchangeRateMapper;
+import com.abarigena.bankoperation.store.entity.ExchangeRate;
+import com.abarigena.bankoperation.store.repository.ExchangeRateRepository;
+import com.abarigena.bankoperation.store.repository.ExchangeRateRepositoryCustom.HistorySlice;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mapstruct.factory.Mappers;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ExchangeRateHistoryServiceTest {
+
+    @Mock
+    private ExchangeRateRepository exchangeRateRepository;
+
+    private final ExchangeRateMapper mapper = Mappers.getMapper(ExchangeRateMapper.class);
+    // Сегодня 2024-01-31: период по умолчанию заканчивается 2024-02-01
+    private final Clock clock = Clock.fixed(Instant.parse("2024-01-31T23:59:00Z"), ZoneOffset.UTC);
+    private ExchangeRateHistoryService historyService;
+
+    private final LocalDate from = LocalDate.of(2023, 12, 1);
+    private final LocalDate to = LocalDate.of(2024, 2, 1);
+    private final ByteBuffer pagingState = ByteBuffer.wrap("page-2".getBytes(StandardCharsets.UTF_8));
+
+    @BeforeEach
+    void setUp() {
+        historyService = new ExchangeRateHistoryService(exchangeRateRepository, mapper, 1000, 10, clock);
+    }
+
+    @Test
+    @DisplayName("Первая страница читает партицию года конца периода и возвращает курсор с paging state")
+    void getHistory_shouldReturnFirstPageWithCursor() {
+        // Arrange
+        when(exchangeRateRepository.findHistorySlice("EUR", "USD", 2024,
+                LocalDate.of(2024, 1, 1), to, 2, null))
+                .thenReturn(new HistorySlice(List.of(rate("2024-01-31"), rate("2024-01-30")), pagingState));
+
+        // Act
+        ExchangeRateHistoryDTO page = historyService.getHistory("eur/usd", from, to, 2, null);
+
+        // Assert
+        assertThat(page.getRates()).extracting(ExchangeRateDTO::getDate)
+                .containsExactly(LocalDate.of(2024, 1, 31), LocalDate.of(2024, 1, 30));
+        assertThat(page.getNextCursor()).isNotNull();
+    }
+
+    @Test
+    @DisplayName("Курсор продолжает чтение партиции с сохраненного paging state")
+    void getHistory_shouldResumeFromCursor() {
+        // Arrange
+        when(exchangeRateRepository.findHistorySlice("EUR", "USD", 2024,
+                LocalDate.of(2024, 1, 1), to, 2, null))
+                .thenReturn(new HistorySlice(List.of(rate("2024-01-31"), rate("2024-01-30")), pagingState));
+        String cursor = historyService.getHistory("EUR/USD", from, to, 2, null).getNextCursor();
+        when(exchangeRateRepository.findHistorySlice("EUR", "USD", 2024,
+                LocalDate.of(2024, 1, 1), to, 2, pagingState))
+                .thenReturn(new HistorySlice(List.of(rate("2024-01-29")), null));
+        when(exchangeRateRepository.findHistorySlice("EUR", "USD", 2023, from, LocalDate.of(2024, 1, 1), 1, null))
+                .thenReturn(new HistorySlice(List.of(rate("2023-12-31")), null));
+
+        // Act
+        ExchangeRateHistoryDTO page = historyService.getHistory("EUR/USD", from, to, 2, cursor);
+
+        // Assert: страница захватила конец 2024 года и начало партиции 2023 года, больше лет в периоде нет
+        assertThat(page.getRates()).extracting(ExchangeRateDTO::getDate)
+                .containsExactly(LocalDate.of(2024, 1, 29), LocalDate.of(2023, 12, 31));
+        assertThat(page.getNextCursor()).isNull();
+    }
+
+    @Test
+    @DisplayName("Заполненная страница на границе года дает курсор на начало предыдущего года")
+    void getHistory_shouldPointCursorToNextYear_whenPartitionExhausted() {
+        // Arrange
+        when(exchangeRateRepository.findHistorySlice("EUR", "USD", 2024,
+                LocalDate.of(2024, 1, 1), to, 1, null))
+                .thenReturn(new HistorySlice(List.of(rate("2024-01-31")), null));
+        String cursor = historyService.getHistory("EUR/USD", from, to, 1, null).getNextCursor();
+        when(exchangeRateRepository.findHistorySlice("EUR", "USD", 2023, from, LocalDate.of(2024, 1, 1), 1, null))
+                .thenReturn(new HistorySlice(List.of(rate("2023-12-31")), null));
+
+        // Act
+        ExchangeRateHistoryDTO page = historyService.getHistory("EUR/USD", from, to, 1, cursor);
+
+        // Assert
+        assertThat(page.getRates()).extracting(ExchangeRateDTO::getDate).containsExactly(LocalDate.of(2023, 12, 31));
+        assertThat(page.getNextCursor()).isNull();
+    }
+
+    @Test
+    @DisplayName("Курсор другого запроса или поврежденный курсор отклоняются")
+    void getHistory_shouldRejectForeignOrBrokenCursor() {
+        // Arrange
+        when(exchangeRateRepository.findHistorySlice(eq("EUR"), eq("USD"), eq(2024), any(), any(), anyInt(), isNull()))
+                .thenReturn(new HistorySlice(List.of(rate("2024-01-31")), pagingState));
+        String cursor = historyService.getHistory("EUR/USD", from, to, 1, null).getNextCursor();
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class,
+                () -> historyService.getHistory("RUB/USD", from, to, 1, cursor));
+        assertThrows(IllegalArgumentException.class,
+                () -> historyService.getHistory("EUR/USD", from.minusDays(1), to, 1, cursor));
+        assertThrows(IllegalArgumentException.class,
+                () -> historyService.getHistory("EUR/USD", from, to, 1, "не-base64"));
+        assertThrows(IllegalArgumentException.class,
+                () -> historyService.getHistory("EUR/USD", from, to, 1, "AAAA"));
+    }
+
+    @Test
+    @DisplayName("Курсор запроса без to продолжает период первой страницы после смены даты")
+    void getHistory_shouldKeepPeriodEndInCursor_whenToOmitted() {
+        // Arrange
+        when(exchangeRateRepository.findHistorySlice("EUR", "USD", 2024,
+                LocalDate.of(2024, 1, 1), to, 1, null))
+                .thenReturn(new HistorySlice(List.of(rate("2024-01-31")), pagingState));
+        String cursor = historyService.getHistory("EUR/USD", from, null, 1, null).getNextCursor();
+        ExchangeRateHistoryService nextDay = new ExchangeRateHistoryService(exchangeRateRepository, mapper, 1000, 10,
+                Clock.offset(clock, Duration.ofMinutes(2)));
+        when(exchangeRateRepository.findHistorySlice("EUR", "USD", 2024,
+                LocalDate.of(2024, 1, 1), to, 1, pagingState))
+                .thenReturn(new HistorySlice(List.of(rate("2024-01-30")), pagingState));
+
+        // Act
+        ExchangeRateHistoryDTO page = nextDay.getHistory("EUR/USD", from, null, 1, cursor);
+
+        // Assert
+        assertThat(page.getRates()).extracting(ExchangeRateDTO::getDate).containsExactly(LocalDate.of(2024, 1, 30));
+        assertThrows(IllegalArgumentException.class,
+                () -> nextDay.getHistory("EUR/USD", from, to.plusDays(1), 1, cursor));
+    }
+
+    @Test
+    @DisplayName("Период длиннее app.rates.history.max-years лет отклоняется без обращения к Cassandra")
+    void getHistory_shouldRejectTooLongPeriod() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class,
+                () -> historyService.getHistory("EUR/USD", LocalDate.of(1, 1, 1), to, 10, null));
+        assertThrows(IllegalArgumentException.class,
+                () -> historyService.getHistory("EUR/USD", LocalDate.of(2013, 12, 31), LocalDate.of(2024, 1, 1), 10, null));
+        verify(exchangeRateRepository, never()).findHistorySlice(any(), any(), anyInt(), any(), any(), anyInt(), any());
+    }
+
+    @Test
+    @DisplayName("Некорректные пара, период и размер страницы отклоняются без обращения к Cassandra")
+    void getHistory_shouldValidateParameters() {
+        assertThrows(IllegalArgumentException.class, () -> historyService.getHistory("EURUSD", from, to, 10, null));
+        assertThrows(IllegalArgumentException.class, () -> historyService.getHistory("EUR/USD", to, from, 10, null));
+        assertThrows(IllegalArgumentException.class, () -> historyService.getHistory("EUR/USD", from, to, 0, null));
+        assertThrows(IllegalArgumentException.class, () -> historyService.getHistory("EUR/USD", from, to, 1001, null));
+        verify(exchangeRateRepository, never()).findHistorySlice(any(), any(), anyInt(), any(), any(), anyInt(), any());
+    }
+
+    private static ExchangeRate rate(String date) {
+        return ExchangeRate.builder()
+                .fromCurrency("EUR")
+                .toCurrency("USD")
+                .date(LocalDate.parse(date))
+                .closePrice(new BigDecimal("1.10"))
+                .previousClosePrice(new BigDecimal("1.09"))
+                .build();
+    }
+}
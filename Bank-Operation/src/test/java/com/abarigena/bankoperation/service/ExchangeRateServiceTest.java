@@ -1,6 +1,7 @@
 package com.abarigena.bankoperation.service;
 
-
+import com.abarigena.bankoperation.cache.ExchangeRateCache;
+import com.abarigena.bankoperation.event.ExchangeRateSavedEvent;
 import com.abarigena.bankoperation.store.entity.ExchangeRate;
 import com.abarigena.bankoperation.store.repository.ExchangeRateRepository;
 import org.junit.jupiter.api.BeforeEach;
@@ -9,12 +10,13 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.Optional;
-import java.util.UUID;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.*;
@@ -26,6 +28,10 @@ class ExchangeRateServiceTest {
 
     @Mock
     private ExchangeRateRepository exchangeRateRepository;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+    @Spy
+    private ExchangeRateCache exchangeRateCache = new ExchangeRateCache(100);
 
     @InjectMocks
     private ExchangeRateService exchangeRateService;
@@ -41,7 +47,6 @@ class ExchangeRateServiceTest {
     @BeforeEach
     void setUp() {
         sampleRate = ExchangeRate.builder()
-                .id(UUID.randomUUID())
                 .fromCurrency(fromCurrency)
                 .toCurrency(toCurrency)
                 .date(today)
@@ -56,9 +61,7 @@ class ExchangeRateServiceTest {
     @DisplayName("saveExchangeRateIfNotExists должен сохранить курс, если он еще не существует")
     void saveExchangeRateIfNotExists_shouldSave_whenRateDoesNotExist() {
         // Arrange
-        when(exchangeRateRepository.findByFromCurrencyAndToCurrencyAndDate(fromCurrency, toCurrency, today))
-                .thenReturn(Optional.empty());
-        when(exchangeRateRepository.save(any(ExchangeRate.class))).thenReturn(sampleRate);
+        when(exchangeRateRepository.insertIfNotExists(sampleRate)).thenReturn(true);
 
         // Act
         boolean result = exchangeRateService.saveExchangeRateIfNotExists(sampleRate);
@@ -66,18 +69,21 @@ class ExchangeRateServiceTest {
         // Assert
         // 1. Проверяем, что метод вернул true (указывая, что сохранение произошло).
         assertTrue(result);
-        // 2. Проверяем (verify), что метод репозитория был вызван ровно 1 раз
-        verify(exchangeRateRepository, times(1)).findByFromCurrencyAndToCurrencyAndDate(fromCurrency, toCurrency, today);
-        // 3. Проверяем, что метод save репозитория был вызван ровно 1 раз
-        verify(exchangeRateRepository, times(1)).save(sampleRate);
+        // 2. Проверяем, что курс записан одним условным INSERT ровно 1 раз
+        verify(exchangeRateRepository, times(1)).insertIfNotExists(sampleRate);
+        // 3. Проверяем, что предварительного чтения и безусловной записи не было
+        verify(exchangeRateRepository, never()).findByFromCurrencyAndToCurrencyAndDate(anyString(), anyString(), any());
+        verify(exchangeRateRepository, never()).save(any(ExchangeRate.class));
+        // 4. Проверяем, что опубликовано событие о новом курсе (сбрасывает кеш ответов)
+        verify(eventPublisher, times(1)).publishEvent(new ExchangeRateSavedEvent(fromCurrency, toCurrency, today));
     }
 
     @Test
     @DisplayName("saveExchangeRateIfNotExists НЕ должен сохранять курс, если он уже существует")
     void saveExchangeRateIfNotExists_shouldNotSave_whenRateExists() {
         // Arrange
-        when(exchangeRateRepository.findByFromCurrencyAndToCurrencyAndDate(fromCurrency, toCurrency, today))
-                .thenReturn(Optional.of(sampleRate));
+        // Cassandra не применила INSERT ... IF NOT EXISTS: курс на эту дату уже есть
+        when(exchangeRateRepository.insertIfNotExists(sampleRate)).thenReturn(false);
 
         // Act
         boolean result = exchangeRateService.saveExchangeRateIfNotExists(sampleRate);
@@ -85,10 +91,12 @@ class ExchangeRateServiceTest {
         // Assert
         // 1. Проверяем, что метод вернул false (указывая, что сохранение НЕ произошло).
         assertFalse(result);
-        // 2. Проверяем, что метод репозитория был вызван ровно 1 раз
-        verify(exchangeRateRepository, times(1)).findByFromCurrencyAndToCurrencyAndDate(fromCurrency, toCurrency, today);
+        // 2. Проверяем, что условный INSERT был выполнен ровно 1 раз
+        verify(exchangeRateRepository, times(1)).insertIfNotExists(sampleRate);
         // 3. Проверяем, что метод save репозитория НЕ БЫЛ вызван НИ РАЗУ.
         verify(exchangeRateRepository, never()).save(any(ExchangeRate.class));
+        // 4. Событие о новом курсе НЕ публикуется
+        verify(eventPublisher, never()).publishEvent(any(ExchangeRateSavedEvent.class));
     }
 
     // --- Тесты для getExchangeRate ---
@@ -117,7 +125,6 @@ class ExchangeRateServiceTest {
     void getExchangeRate_shouldReturnLatestRate_whenNotExistsForDateButLatestExists() {
         // Arrange
         ExchangeRate latestRate = ExchangeRate.builder()
-                .id(UUID.randomUUID())
                 .fromCurrency(fromCurrency)
                 .toCurrency(toCurrency)
                 .date(yesterday) // Вчерашний курс
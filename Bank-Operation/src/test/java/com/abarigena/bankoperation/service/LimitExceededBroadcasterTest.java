@@ -0,0 +1,171 @@
+package com.abarigena.bankoperation.service;
+
+import com.abarigena.bankoperation.admission.TransactionAdmissionControl;
+import com.abarigena.bankoperation.controller.TransactionController;
+import com.abarigena.bankoperation.dto.LimitExceededTransactionDTO;
+import com.abarigena.bankoperation.event.CacheInvalidationEvent;
+import com.abarigena.bankoperation.store.entity.Transaction;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.Mockito.mock;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class LimitExceededBroadcasterTest {
+
+    private final ObjectMapper objectMapper = JsonMapper.builder().findAndAddModules().build();
+    private LimitExceededBroadcaster broadcaster;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        // Буфер повтора на 2 события, очередь подписчика на 8
+        broadcaster = new LimitExceededBroadcaster(objectMapper, 2, 8, 10, Duration.ofSeconds(30), Duration.ofMinutes(1));
+        mockMvc = MockMvcBuilders.standaloneSetup(new TransactionController(
+                mock(TransactionService.class), mock(ExceededTransactionExportService.class), broadcaster,
+                mock(TransactionAdmissionControl.class), mock(StreamingJsonArrayWriter.class))).build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        broadcaster.shutdown();
+    }
+
+    @Test
+    @DisplayName("Подписчик должен получать событие limit-exceeded сразу после публикации")
+    void subscribe_shouldDeliverPublishedEvents() throws Exception {
+        // Arrange
+        MvcResult result = mockMvc.perform(get("/api/transactions/exceeded/stream"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        UUID transactionId = UUID.randomUUID();
+
+        // Act
+        broadcaster.publish(exceeded(transactionId));
+
+        // Assert
+        await().atMost(Duration.ofSeconds(5)).untilAsserted(() ->
+                assertThat(result.getResponse().getContentAsString())
+                        .contains("event:limit-exceeded")
+                        .contains(transactionId.toString()));
+        assertThat(broadcaster.getSubscriberCount()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Переподключение с Last-Event-ID должно повторить пропущенные события и сообщить о вытесненных (lag)")
+    void subscribe_shouldReplayFromLastEventIdAndReportGap() throws Exception {
+        // Arrange
+        // 4 события при буфере на 2: первые два вытеснены
+        UUID[] ids = {UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID()};
+        MvcResult first = mockMvc.perform(get("/api/transactions/exceeded/stream")).andReturn();
+        broadcaster.publish(exceeded(ids[0]));
+        await().atMost(Duration.ofSeconds(5)).untilAsserted(() ->
+                assertThat(first.getResponse().getContentAsString()).contains(ids[0].toString()));
+        String firstEventId = first.getResponse().getContentAsString().lines()
+                .filter(line -> line.startsWith("id:")).findFirst().orElseThrow().substring(3);
+        for (int i = 1; i < ids.length; i++) {
+            broadcaster.publish(exceeded(ids[i]));
+        }
+
+        // Act
+        MvcResult resumed = mockMvc.perform(get("/api/transactions/exceeded/stream").header("Last-Event-ID", firstEventId))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // Assert
+        // Событие 2 вытеснено из буфера — клиент получает lag, затем события 3 и 4
+        await().atMost(Duration.ofSeconds(5)).untilAsserted(() ->
+                assertThat(resumed.getResponse().getContentAsString())
+                        .contains("event:lag")
+                        .contains("\"dropped\":1")
+                        .contains(ids[2].toString())
+                        .contains(ids[3].toString())
+                        .doesNotContain(ids[0].toString()));
+    }
+
+    @Test
+    @DisplayName("Событие другого экземпляра из шины должно доставляться локальным подписчикам")
+    void onClusterEvent_shouldDeliverRemoteTransaction() throws Exception {
+        // Arrange
+        MvcResult result = mockMvc.perform(get("/api/transactions/exceeded/stream")).andReturn();
+        UUID transactionId = UUID.randomUUID();
+        String payload = objectMapper.writeValueAsString(exceeded(transactionId));
+
+        // Act
+        broadcaster.onClusterEvent(new CacheInvalidationEvent(CacheInvalidationEvent.Topic.EXCEEDED_STREAM, payload));
+
+        // Assert
+        await().atMost(Duration.ofSeconds(5)).untilAsserted(() ->
+                assertThat(result.getResponse().getContentAsString())
+                        .contains("event:limit-exceeded")
+                        .contains(transactionId.toString()));
+    }
+
+    @Test
+    @DisplayName("Last-Event-ID, не выданный этим экземпляром (в том числе при пустом буфере), должен давать reset")
+    void subscribe_shouldSendReset_whenLastEventIdNotCovered() throws Exception {
+        // Act: буфер пуст, идентификатор выдан другим экземпляром или до перезапуска
+        MvcResult resumed = mockMvc.perform(get("/api/transactions/exceeded/stream").header("Last-Event-ID", "42"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // Assert
+        await().atMost(Duration.ofSeconds(5)).untilAsserted(() ->
+                assertThat(resumed.getResponse().getContentAsString())
+                        .contains("event:reset")
+                        .contains("/api/transactions/exceeded"));
+    }
+
+    @Test
+    @DisplayName("Потеря оповещений шины должна давать reset подписчикам и запрещать повтор с более ранних событий")
+    void onClusterEvent_fullReset_shouldResetSubscribersAndInvalidateOlderIds() throws Exception {
+        // Arrange
+        MvcResult first = mockMvc.perform(get("/api/transactions/exceeded/stream")).andReturn();
+        UUID transactionId = UUID.randomUUID();
+        broadcaster.publish(exceeded(transactionId));
+        await().atMost(Duration.ofSeconds(5)).untilAsserted(() ->
+                assertThat(first.getResponse().getContentAsString()).contains(transactionId.toString()));
+        String eventId = first.getResponse().getContentAsString().lines()
+                .filter(line -> line.startsWith("id:")).findFirst().orElseThrow().substring(3);
+
+        // Act
+        broadcaster.onClusterEvent(CacheInvalidationEvent.all(CacheInvalidationEvent.Topic.EXCEEDED_STREAM));
+        MvcResult resumed = mockMvc.perform(get("/api/transactions/exceeded/stream").header("Last-Event-ID", eventId))
+                .andReturn();
+
+        // Assert
+        await().atMost(Duration.ofSeconds(5)).untilAsserted(() ->
+                assertThat(resumed.getResponse().getContentAsString()).contains("event:reset"));
+        assertThat(resumed.getResponse().getContentAsString()).doesNotContain(transactionId.toString());
+    }
+
+    @Test
+    @DisplayName("Некорректный Last-Event-ID должен возвращать 400")
+    void subscribe_shouldRejectInvalidLastEventId() throws Exception {
+        // Act & Assert
+        mockMvc.perform(get("/api/transactions/exceeded/stream").header("Last-Event-ID", "abc"))
+                .andExpect(status().isBadRequest());
+    }
+
+    private static LimitExceededTransactionDTO exceeded(UUID transactionId) {
+        return new LimitExceededTransactionDTO(transactionId, "1000000001", "9999999999", "USD",
+                new BigDecimal("1500.00"), new BigDecimal("1500.00"), Transaction.ExpenseCategory.SERVICE,
+                ZonedDateTime.now(), new BigDecimal("1000.00"), null, null);
+    }
+}
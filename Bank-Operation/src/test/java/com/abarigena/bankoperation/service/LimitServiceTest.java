@@ -1,6 +1,10 @@
 package com.abarigena.bankoperation.service;
 
+import com.abarigena.bankoperation.cache.LimitCache;
+import com.abarigena.bankoperation.cache.SpendingTotalsCache;
 import com.abarigena.bankoperation.dto.LimitDTO;
+import com.abarigena.bankoperation.dto.RemainingBudgetDTO;
+import com.abarigena.bankoperation.event.LimitChangedEvent;
 import com.abarigena.bankoperation.mapper.LimitMapper;
 import com.abarigena.bankoperation.store.entity.ExpenseLimit;
 import com.abarigena.bankoperation.store.entity.Transaction;
@@ -14,13 +18,17 @@ import org.mockito.Captor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 
 import java.math.BigDecimal;
+import java.time.YearMonth;
 import java.time.ZonedDateTime;
+import java.util.Optional;
 import java.util.UUID;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -30,6 +38,12 @@ class LimitServiceTest {
     private ExpenseLimitRepository expenseLimitRepository;
     @Mock
     private LimitMapper limitMapper; // Мокаем маппер
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+    @Mock
+    private LimitCache limitCache;
+    @Mock
+    private SpendingTotalsCache spendingTotalsCache;
 
     @InjectMocks
     private LimitService limitService;
@@ -47,7 +61,6 @@ class LimitServiceTest {
         limitDTO.setLimitSum(new BigDecimal("1500.00"));
         limitDTO.setExpenseCategory(Transaction.ExpenseCategory.SERVICE);
 
-        // Настройка мока маппера
         mappedLimit = new ExpenseLimit();
         mappedLimit.setLimitSum(limitDTO.getLimitSum());
         mappedLimit.setExpenseCategory(limitDTO.getExpenseCategory());
@@ -55,22 +68,23 @@ class LimitServiceTest {
         // Ожидаем, что маппер установит время близкое к now()
         // В тесте мы не будем проверять точное время, а проверим через captor
         mappedLimit.setLimitDateTime(ZonedDateTime.now()); // Просто для примера
-        when(limitMapper.toEntity(any(LimitDTO.class))).thenReturn(mappedLimit);
 
-        // Настройка мока сохранения
         savedLimit = new ExpenseLimit();
         savedLimit.setId(UUID.randomUUID()); // Имитируем генерацию ID
         savedLimit.setLimitSum(mappedLimit.getLimitSum());
         savedLimit.setExpenseCategory(mappedLimit.getExpenseCategory());
         savedLimit.setLimitCurrencyShortname(mappedLimit.getLimitCurrencyShortname());
         savedLimit.setLimitDateTime(mappedLimit.getLimitDateTime());
-        when(expenseLimitRepository.save(any(ExpenseLimit.class))).thenReturn(savedLimit);
     }
 
     @Test
     @DisplayName("Установка нового лимита: должен смапить DTO, сохранить и вернуть сущность")
     void setNewLimit_shouldMapAndSaveLimit() {
         // Arrange
+        // Настройка мока маппера
+        when(limitMapper.toEntity(any(LimitDTO.class))).thenReturn(mappedLimit);
+        // Настройка мока сохранения
+        when(expenseLimitRepository.save(any(ExpenseLimit.class))).thenReturn(savedLimit);
         ZonedDateTime timeBeforeSave = ZonedDateTime.now(); // Время до вызова метода
 
         // Act
@@ -97,5 +111,43 @@ class LimitServiceTest {
         // Проверяем, что возвращенный результат - это сущность, которую вернул мок репозитория
         assertThat(result).isEqualTo(savedLimit);
         assertThat(result.getId()).isNotNull(); // У возвращенной сущности должен быть ID
+
+        // Кеши лимитов категории должны быть сброшены на всех экземплярах
+        verify(eventPublisher).publishEvent(new LimitChangedEvent(Transaction.ExpenseCategory.SERVICE));
+    }
+
+    @Test
+    @DisplayName("getRemainingBudget: остаток = действующий лимит минус траты месяца из агрегата")
+    void getRemainingBudget_shouldSubtractMonthSpendingFromLimit() {
+        // Arrange
+        when(limitCache.findLimitValidAt(eq(Transaction.ExpenseCategory.SERVICE), any())).thenReturn(Optional.of(savedLimit));
+        when(spendingTotalsCache.monthTotal(Transaction.ExpenseCategory.SERVICE, YearMonth.now()))
+                .thenReturn(new BigDecimal("1200.40"));
+
+        // Act
+        RemainingBudgetDTO remaining = limitService.getRemainingBudget(Transaction.ExpenseCategory.SERVICE);
+
+        // Assert
+        assertThat(remaining.getLimitSum()).isEqualByComparingTo("1500.00");
+        assertThat(remaining.getSpentUsd()).isEqualByComparingTo("1200.40");
+        assertThat(remaining.getRemainingUsd()).isEqualByComparingTo("299.60");
+        assertThat(remaining.isLimitExceeded()).isFalse();
+    }
+
+    @Test
+    @DisplayName("getRemainingBudget: без установленного лимита действует лимит по умолчанию, остаток не меньше 0")
+    void getRemainingBudget_shouldUseDefaultLimitAndClampAtZero() {
+        // Arrange
+        when(limitCache.findLimitValidAt(eq(Transaction.ExpenseCategory.PRODUCT), any())).thenReturn(Optional.empty());
+        when(spendingTotalsCache.monthTotal(eq(Transaction.ExpenseCategory.PRODUCT), any()))
+                .thenReturn(new BigDecimal("1000.01"));
+
+        // Act
+        RemainingBudgetDTO remaining = limitService.getRemainingBudget(Transaction.ExpenseCategory.PRODUCT);
+
+        // Assert
+        assertThat(remaining.getLimitSum()).isEqualByComparingTo(TransactionService.DEFAULT_MONTHLY_LIMIT_USD);
+        assertThat(remaining.getRemainingUsd()).isEqualByComparingTo("0");
+        assertThat(remaining.isLimitExceeded()).isTrue();
     }
 }
@@ -0,0 +1,98 @@
+package com.abarigena.bankoperation.service;
+
+import com.abarigena.bankoperation.dto.RateConversionItemDTO;
+import com.abarigena.bankoperation.dto.RateConversionResponseDTO;
+import com.abarigena.bankoperation.dto.RateConversionResultDTO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RateConversionServiceTest {
+
+    @Mock
+    private ExchangeRateService exchangeRateService;
+
+    private RateConversionService rateConversionService;
+
+    private final LocalDate date = LocalDate.of(2025, 3, 28);
+
+    @BeforeEach
+    void setUp() {
+        rateConversionService = new RateConversionService(exchangeRateService, Executors.newFixedThreadPool(4), 3);
+    }
+
+    @Test
+    @DisplayName("convertAll должен запрашивать курс один раз для каждой различной пары (валюта, дата)")
+    void convertAll_shouldResolveEachDistinctKeyOnce() {
+        // Arrange
+        when(exchangeRateService.getExchangeRate("EUR", "USD", date)).thenReturn(new BigDecimal("1.10"));
+        List<RateConversionItemDTO> items = List.of(
+                new RateConversionItemDTO(new BigDecimal("100.00"), "EUR", date),
+                new RateConversionItemDTO(new BigDecimal("10.005"), "eur", date),
+                new RateConversionItemDTO(new BigDecimal("50.00"), "USD", date));
+        when(exchangeRateService.getExchangeRate("USD", "USD", date)).thenReturn(BigDecimal.ONE);
+
+        // Act
+        RateConversionResponseDTO response = rateConversionService.convertAll(items);
+
+        // Assert
+        // 1. Две различные пары: EUR и USD на одну дату
+        assertThat(response.getDistinctRates()).isEqualTo(2);
+        assertThat(response.getFailed()).isZero();
+        // 2. Результаты в порядке запроса, с округлением до 2 знаков HALF_UP
+        assertThat(response.getResults()).extracting(RateConversionResultDTO::getAmountInUsd)
+                .containsExactly(new BigDecimal("110.00"), new BigDecimal("11.01"), new BigDecimal("50.00"));
+        assertThat(response.getResults().get(1).getCurrency()).isEqualTo("EUR");
+        // 3. Курс EUR/USD запрошен ровно один раз
+        verify(exchangeRateService, times(1)).getExchangeRate("EUR", "USD", date);
+    }
+
+    @Test
+    @DisplayName("convertAll должен возвращать ошибку для отдельных позиций, не прерывая весь пакет")
+    void convertAll_shouldReportPerItemErrors() {
+        // Arrange
+        when(exchangeRateService.getExchangeRate("EUR", "USD", date)).thenReturn(new BigDecimal("1.10"));
+        when(exchangeRateService.getExchangeRate("JPY", "USD", date))
+                .thenThrow(new IllegalArgumentException("Курс обмена не найден для JPY/USD на " + date));
+        List<RateConversionItemDTO> items = List.of(
+                new RateConversionItemDTO(new BigDecimal("100.00"), "JPY", date),
+                new RateConversionItemDTO(null, "EUR", date),
+                new RateConversionItemDTO(new BigDecimal("1.00"), "EUR", date));
+
+        // Act
+        RateConversionResponseDTO response = rateConversionService.convertAll(items);
+
+        // Assert
+        assertThat(response.getFailed()).isEqualTo(2);
+        assertThat(response.getResults().get(0).getError()).contains("JPY/USD");
+        assertThat(response.getResults().get(1).getError()).isEqualTo("Сумма должна быть указана");
+        assertThat(response.getResults().get(2).getAmountInUsd()).isEqualTo(new BigDecimal("1.10"));
+    }
+
+    @Test
+    @DisplayName("convertAll должен отклонить пакет, превышающий максимальный размер")
+    void convertAll_shouldRejectTooLargeBatch() {
+        // Arrange
+        RateConversionItemDTO item = new RateConversionItemDTO(BigDecimal.ONE, "EUR", date);
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class,
+                () -> rateConversionService.convertAll(List.of(item, item, item, item)));
+        verify(exchangeRateService, never()).getExchangeRate(anyString(), anyString(), any());
+    }
+}
@@ -0,0 +1,89 @@
+package com.abarigena.bankoperation.service;
+
+import com.abarigena.bankoperation.dto.SpendingSummaryDTO;
+import com.abarigena.bankoperation.store.entity.ExpenseLimit;
+import com.abarigena.bankoperation.store.entity.SpendingRollup;
+import com.abarigena.bankoperation.store.entity.Transaction;
+import com.abarigena.bankoperation.store.repository.ExpenseLimitRepository;
+import com.abarigena.bankoperation.store.repository.SpendingRollupRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SpendingSummaryServiceTest {
+
+    @Mock
+    private SpendingRollupRepository spendingRollupRepository;
+    @Mock
+    private ExpenseLimitRepository expenseLimitRepository;
+
+    @InjectMocks
+    private SpendingSummaryService spendingSummaryService;
+
+    private final YearMonth month = YearMonth.of(2024, 3);
+
+    @Test
+    @DisplayName("Сводка за месяц: берется из агрегата и считает использование лимита")
+    void getMonthlySummary_shouldUseRollupAndLimit() {
+        // Arrange
+        SpendingRollup rollup = new SpendingRollup(
+                new SpendingRollup.Key(Transaction.ExpenseCategory.PRODUCT, month.atDay(1)),
+                new BigDecimal("750.00"), 5, 1);
+        when(spendingRollupRepository.findByIdMonthStart(LocalDate.of(2024, 3, 1))).thenReturn(List.of(rollup));
+
+        ExpenseLimit limit = new ExpenseLimit(UUID.randomUUID(), new BigDecimal("1500.00"),
+                ZonedDateTime.now().minusYears(1), "USD", Transaction.ExpenseCategory.PRODUCT);
+        when(expenseLimitRepository.findLimitValidAtDateTime(eq(Transaction.ExpenseCategory.PRODUCT), any()))
+                .thenReturn(Optional.of(limit));
+
+        // Act
+        List<SpendingSummaryDTO> result = spendingSummaryService.getMonthlySummary(month, Transaction.ExpenseCategory.PRODUCT);
+
+        // Assert
+        assertThat(result).hasSize(1);
+        SpendingSummaryDTO summary = result.get(0);
+        assertThat(summary.getMonth()).isEqualTo(month);
+        assertThat(summary.getTotalSpentUsd()).isEqualByComparingTo("750.00");
+        assertThat(summary.getTransactionCount()).isEqualTo(5);
+        assertThat(summary.getExceededCount()).isEqualTo(1);
+        assertThat(summary.getLimitSum()).isEqualByComparingTo("1500.00");
+        assertThat(summary.getLimitUtilizationPercent()).isEqualByComparingTo("50.00");
+    }
+
+    @Test
+    @DisplayName("Сводка за месяц без транзакций: нулевые значения и дефолтный лимит для всех категорий")
+    void getMonthlySummary_shouldReturnZeroSummary_whenNoRollups() {
+        // Arrange
+        when(spendingRollupRepository.findByIdMonthStart(LocalDate.of(2024, 3, 1))).thenReturn(List.of());
+        when(expenseLimitRepository.findLimitValidAtDateTime(any(), any())).thenReturn(Optional.empty());
+
+        // Act
+        List<SpendingSummaryDTO> result = spendingSummaryService.getMonthlySummary(month, null);
+
+        // Assert
+        assertThat(result).hasSize(Transaction.ExpenseCategory.values().length);
+        assertThat(result).allSatisfy(summary -> {
+            assertThat(summary.getTotalSpentUsd()).isEqualByComparingTo(BigDecimal.ZERO);
+            assertThat(summary.getTransactionCount()).isZero();
+            assertThat(summary.getLimitSum()).isEqualByComparingTo("1000.00");
+            assertThat(summary.getLimitUtilizationPercent()).isEqualByComparingTo(BigDecimal.ZERO);
+        });
+    }
+}
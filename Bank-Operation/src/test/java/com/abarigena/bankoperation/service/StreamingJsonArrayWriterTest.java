@@ -0,0 +1,142 @@
+package com.abarigena.bankoperation.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class StreamingJsonArrayWriterTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    record Row(int id, BigDecimal sum, ZonedDateTime dateTime) {
+    }
+
+    @Test
+    @DisplayName("Элементы источника пишутся одним JSON-массивом, источник закрывается")
+    void write_shouldProduceJsonArrayAndCloseSource() throws IOException {
+        // Arrange
+        StreamingJsonArrayWriter writer = new StreamingJsonArrayWriter(objectMapper, 2);
+        ZonedDateTime dateTime = ZonedDateTime.of(2025, 3, 28, 10, 0, 0, 0, ZoneOffset.UTC);
+        AtomicBoolean closed = new AtomicBoolean();
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        // Act
+        long written = writer.write(() -> IntStream.range(0, 3)
+                .mapToObj(i -> new Row(i, BigDecimal.valueOf(i * 10L, 2), dateTime))
+                .onClose(() -> closed.set(true)), output);
+
+        // Assert
+        JsonNode array = objectMapper.readTree(output.toByteArray());
+        assertThat(written).isEqualTo(3);
+        assertThat(array.isArray()).isTrue();
+        assertThat(array).hasSize(3);
+        assertThat(array.get(2).get("id").asInt()).isEqualTo(2);
+        assertThat(array.get(2).get("sum").decimalValue()).isEqualByComparingTo("0.20");
+        assertThat(array.get(0).get("dateTime").asText()).isEqualTo("2025-03-28T10:00:00Z");
+        assertThat(closed).isTrue();
+    }
+
+    @Test
+    @DisplayName("Пустой источник дает пустой массив")
+    void write_whenSourceEmpty_shouldProduceEmptyArray() {
+        // Arrange
+        StreamingJsonArrayWriter writer = new StreamingJsonArrayWriter(objectMapper, 100);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        // Act
+        writer.write(Stream::empty, output);
+
+        // Assert
+        assertThat(output.toString()).isEqualTo("[]");
+    }
+
+    @Test
+    @DisplayName("Ответ сбрасывается каждые flush-every элементов, а не после каждого")
+    void write_shouldFlushEveryConfiguredElements() {
+        // Arrange
+        StreamingJsonArrayWriter writer = new StreamingJsonArrayWriter(objectMapper, 10);
+        AtomicInteger flushes = new AtomicInteger();
+        OutputStream output = new ByteArrayOutputStream() {
+            @Override
+            public void flush() {
+                flushes.incrementAndGet();
+            }
+        };
+
+        // Act
+        writer.write(() -> IntStream.range(0, 25).boxed(), output);
+
+        // Assert: после 10-го и 20-го элементов и в конце массива
+        assertThat(flushes).hasValue(3);
+    }
+
+    @Test
+    @DisplayName("Разрыв соединения прекращает чтение источника и закрывает его")
+    void write_whenClientDisconnects_shouldStopReadingAndCloseSource() {
+        // Arrange
+        StreamingJsonArrayWriter writer = new StreamingJsonArrayWriter(objectMapper, 1);
+        AtomicInteger produced = new AtomicInteger();
+        AtomicBoolean closed = new AtomicBoolean();
+        OutputStream disconnected = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("Broken pipe");
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                throw new IOException("Broken pipe");
+            }
+        };
+
+        // Act & Assert
+        assertThatThrownBy(() -> writer.write(() -> Stream.iterate(0, i -> i + 1)
+                .peek(i -> produced.incrementAndGet())
+                .onClose(() -> closed.set(true)), disconnected))
+                .isInstanceOf(UncheckedIOException.class)
+                .hasMessageContaining("Broken pipe");
+        assertThat(produced).hasValue(1);
+        assertThat(closed).isTrue();
+    }
+
+    @Test
+    @DisplayName("Ошибка источника посреди записи оставляет ответ некорректным JSON, а не укороченным массивом")
+    void write_whenSourceFailsMidway_shouldLeaveUnterminatedArray() {
+        // Arrange
+        StreamingJsonArrayWriter writer = new StreamingJsonArrayWriter(objectMapper, 100);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        // Act
+        assertThatThrownBy(() -> writer.write(() -> Stream.iterate(0, i -> i + 1).peek(i -> {
+            if (i == 2) {
+                throw new IllegalStateException("Cassandra read timeout");
+            }
+        }), output)).isInstanceOf(IllegalStateException.class);
+
+        // Assert
+        assertThat(output.toString()).isEqualTo("[0,1");
+        assertThatThrownBy(() -> objectMapper.readTree(output.toByteArray()))
+                .isInstanceOf(JsonProcessingException.class);
+    }
+}
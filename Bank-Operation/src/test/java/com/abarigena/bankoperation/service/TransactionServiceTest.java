@@ -1,12 +1,20 @@
 package com.abarigena.bankoperation.service;
 
+import com.abarigena.bankoperation.archive.TransactionArchive;
+import com.abarigena.bankoperation.cache.LimitCache;
+import com.abarigena.bankoperation.cache.SpendingTotalsCache;
 import com.abarigena.bankoperation.dto.LimitExceededTransactionDTO;
+import com.abarigena.bankoperation.dto.TransactionCheckResultDTO;
 import com.abarigena.bankoperation.dto.TransactionDTO;
+import com.abarigena.bankoperation.event.LimitExceededEvent;
+import com.abarigena.bankoperation.event.TransactionRecordedEvent;
+import com.abarigena.bankoperation.exception.DuplicateTransactionException;
 import com.abarigena.bankoperation.mapper.TransactionMapper;
 import com.abarigena.bankoperation.store.entity.ExpenseLimit;
 import com.abarigena.bankoperation.store.entity.Transaction;
-import com.abarigena.bankoperation.store.repository.ExpenseLimitRepository;
+import com.abarigena.bankoperation.store.repository.SpendingRollupRepository;
 import com.abarigena.bankoperation.store.repository.TransactionRepository;
+import com.abarigena.bankoperation.store.repository.TransactionRepositoryCustom;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -16,16 +24,21 @@ import org.mockito.Captor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalTime;
+import java.time.YearMonth;
 import java.time.ZoneId;
+import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
 import java.time.temporal.TemporalAdjusters;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.*;
@@ -40,7 +53,19 @@ class TransactionServiceTest {
     @Mock
     private ExchangeRateService exchangeRateService;
     @Mock
-    private ExpenseLimitRepository expenseLimitRepository;
+    private LimitCache limitCache;
+    @Mock
+    private SpendingRollupRepository spendingRollupRepository;
+    @Mock
+    private IdempotencyKeyRegistry idempotencyKeyRegistry;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+    @Mock
+    private ExceededTransactionProjection exceededTransactionProjection;
+    @Mock
+    private TransactionArchive transactionArchive;
+    @Mock
+    private SpendingTotalsCache spendingTotalsCache;
     @Mock
     private TransactionMapper transactionMapper; // Мокаем маппер
 
@@ -49,6 +74,8 @@ class TransactionServiceTest {
 
     @Captor
     ArgumentCaptor<Transaction> transactionCaptor;
+    @Captor
+    ArgumentCaptor<LimitExceededEvent> eventCaptor;
 
     private TransactionDTO transactionDTO;
     private Transaction transactionEntity;
@@ -84,6 +111,11 @@ class TransactionServiceTest {
         currentLimit.setLimitDateTime(transactionTime.minusDays(10));
         currentLimit.setLimitCurrencyShortname("USD");
 
+        // Месяцы считаются в часовом поясе приложения
+        lenient().when(transactionArchive.zone()).thenReturn(ZoneId.systemDefault());
+        // По умолчанию месяц транзакции не архивирован
+        lenient().when(transactionArchive.sumInUsd(any(), any(), any())).thenReturn(BigDecimal.ZERO);
+
         lenient().when(transactionRepository.save(any(Transaction.class))).thenAnswer(invocation -> {
             Transaction saved = invocation.getArgument(0);
             if (saved.getId() == null) {
@@ -100,7 +132,7 @@ class TransactionServiceTest {
     }
 
     private void mockApplicableLimit(Optional<ExpenseLimit> limitOptional) {
-        when(expenseLimitRepository.findLimitValidAtDateTime(
+        when(limitCache.findLimitValidAt(
                 eq(Transaction.ExpenseCategory.PRODUCT),
                 eq(transactionTime)))
                 .thenReturn(limitOptional);
@@ -141,12 +173,31 @@ class TransactionServiceTest {
         assertThat(captured.getLimitExceeded()).isFalse();
         // Проверяем расчет USD
         assertThat(captured.getSumInUsd()).isEqualByComparingTo(expectedUsdSum);
-        verify(expenseLimitRepository).findLimitValidAtDateTime(any(), any());
+        verify(limitCache).findLimitValidAt(any(), any());
         verify(transactionRepository).calculateSpendingInUsdForPeriod(any(), any(), any());
         // Проверяем вызов сервиса курса для RUB
         verify(exchangeRateService).getExchangeRate(eq("RUB"), eq("USD"), any(LocalDate.class));
     }
 
+    @Test
+    @DisplayName("Обработка транзакции задним числом: траты архивированного месяца учитываются в лимите")
+    void processAndSaveTransaction_shouldAddArchivedSpending() {
+        // Arrange
+        mockExchangeRateRub();
+        mockApplicableLimit(Optional.of(currentLimit)); // Действует лимит 1500 USD
+        mockSpendingCalculation(BigDecimal.ZERO); // В таблице за месяц ничего не осталось
+        ZonedDateTime monthStart = transactionTime.with(TemporalAdjusters.firstDayOfMonth()).with(LocalTime.MIN);
+        when(transactionArchive.sumInUsd(Transaction.ExpenseCategory.PRODUCT, monthStart, transactionTime))
+                .thenReturn(new BigDecimal("500.00")); // 500 USD перенесены в архив
+        // Итого = 500 + 1100 = 1600 USD, что > 1500 USD
+
+        // Act
+        Transaction saved = transactionService.processAndSaveTransaction(transactionDTO);
+
+        // Assert
+        assertThat(saved.getLimitExceeded()).isTrue();
+    }
+
     @Test
     @DisplayName("Обработка транзакции (RUB): лимит ПРЕВЫШЕН (с использованием кастомного лимита)")
     void processAndSaveTransaction_Rub_shouldExceedLimit_withCustomLimit() {
@@ -169,6 +220,14 @@ class TransactionServiceTest {
         assertThat(saved.getLimitExceeded()).isTrue();
         assertThat(captured.getLimitExceeded()).isTrue();
         assertThat(captured.getSumInUsd()).isEqualByComparingTo(expectedUsdSum);
+        // Месячный агрегат обновлен с учетом превышения
+        verify(spendingRollupRepository).addTransaction(
+                eq("PRODUCT"), eq(LocalDate.of(2024, 3, 1)), argThat(sum -> sum.compareTo(expectedUsdSum) == 0), eq(1));
+        // Событие превышения опубликовано с деталями примененного лимита
+        verify(eventPublisher).publishEvent(eventCaptor.capture());
+        LimitExceededTransactionDTO published = eventCaptor.getValue().transaction();
+        assertThat(published.getSumInUsd()).isEqualByComparingTo(expectedUsdSum);
+        assertThat(published.getLimitSum()).isEqualByComparingTo(currentLimit.getLimitSum());
     }
 
     @Test
@@ -195,6 +254,8 @@ class TransactionServiceTest {
         Transaction captured = transactionCaptor.getValue();
         assertThat(captured.getLimitExceeded()).isFalse();
         assertThat(captured.getSumInUsd()).isEqualByComparingTo(expectedUsdSum);
+        // Без превышения событие не публикуется
+        verify(eventPublisher, never()).publishEvent(any(LimitExceededEvent.class));
     }
 
 
@@ -269,25 +330,244 @@ class TransactionServiceTest {
         assertThat(exception.getMessage()).contains("Курс RUB не найден");
 
         verify(transactionRepository, never()).save(any(Transaction.class));
-        verify(expenseLimitRepository, never()).findLimitValidAtDateTime(any(), any());
+        verify(spendingRollupRepository, never()).addTransaction(any(), any(), any(), anyInt());
+        verify(limitCache, never()).findLimitValidAt(any(), any());
+        verify(transactionRepository, never()).calculateSpendingInUsdForPeriod(any(), any(), any());
+    }
+
+    // --- Тесты идемпотентности ---
+
+    @Test
+    @DisplayName("Обработка транзакции с новым ключом идемпотентности: БД не проверяется, ключ регистрируется")
+    void processAndSaveTransaction_withNewIdempotencyKey_shouldSkipDbLookupAndRegisterKey() {
+        // Arrange
+        mockExchangeRateRub();
+        mockApplicableLimit(Optional.of(currentLimit));
+        mockSpendingCalculation(BigDecimal.ZERO);
+        when(idempotencyKeyRegistry.mightContain("key-1")).thenReturn(false);
+
+        // Act
+        Transaction saved = transactionService.processAndSaveTransaction(transactionDTO, "key-1");
+
+        // Assert
+        assertThat(saved.getIdempotencyKey()).isEqualTo("key-1");
+        verify(transactionRepository, never()).findByIdempotencyKey(anyString());
+        verify(transactionRepository, never()).findById(any());
+        verify(idempotencyKeyRegistry).register("key-1", saved.getId());
+    }
+
+    @Test
+    @DisplayName("Повтор транзакции с известным ключом: возвращается исходная транзакция, новая не сохраняется")
+    void processAndSaveTransaction_withRecentIdempotencyKey_shouldThrowDuplicate() {
+        // Arrange
+        Transaction existing = new Transaction();
+        existing.setId(UUID.randomUUID());
+        when(idempotencyKeyRegistry.mightContain("key-1")).thenReturn(true);
+        when(idempotencyKeyRegistry.findRecentTransactionId("key-1")).thenReturn(Optional.of(existing.getId()));
+        when(transactionRepository.findById(existing.getId())).thenReturn(Optional.of(existing));
+
+        // Act & Assert
+        DuplicateTransactionException exception = assertThrows(DuplicateTransactionException.class,
+                () -> transactionService.processAndSaveTransaction(transactionDTO, "key-1"));
+
+        assertThat(exception.getExistingTransaction()).isSameAs(existing);
+        verify(transactionRepository, never()).save(any(Transaction.class));
+        verify(spendingRollupRepository, never()).addTransaction(any(), any(), any(), anyInt());
+    }
+
+    @Test
+    @DisplayName("Ложное срабатывание фильтра ключей: проверка по БД, транзакция сохраняется")
+    void processAndSaveTransaction_withFalsePositive_shouldCheckDbAndSave() {
+        // Arrange
+        mockExchangeRateRub();
+        mockApplicableLimit(Optional.of(currentLimit));
+        mockSpendingCalculation(BigDecimal.ZERO);
+        when(idempotencyKeyRegistry.mightContain("key-2")).thenReturn(true);
+        when(idempotencyKeyRegistry.findRecentTransactionId("key-2")).thenReturn(Optional.empty());
+        when(transactionRepository.findByIdempotencyKey("key-2")).thenReturn(Optional.empty());
+
+        // Act
+        Transaction saved = transactionService.processAndSaveTransaction(transactionDTO, "key-2");
+
+        // Assert
+        verify(transactionRepository).findByIdempotencyKey("key-2");
+        verify(transactionRepository).save(any(Transaction.class));
+        verify(idempotencyKeyRegistry).register("key-2", saved.getId());
+    }
+
+    // --- Запись одним запросом ---
+
+    @Test
+    @DisplayName("Режим single-statement: лимит, траты и агрегат считаются в одном запросе, JPA-запросы не выполняются")
+    void processAndSaveTransaction_singleStatement_shouldInsertInOneQuery() {
+        // Arrange
+        ReflectionTestUtils.setField(transactionService, "ingestMode", TransactionService.IngestMode.SINGLE_STATEMENT);
+        mockExchangeRateRub(); // 100000 RUB -> 1100.00 USD
+        ZonedDateTime monthStart = transactionTime.with(TemporalAdjusters.firstDayOfMonth()).with(LocalTime.MIN);
+        when(transactionRepository.insertCheckingLimit(any(Transaction.class), eq(monthStart),
+                eq(BigDecimal.ZERO), eq(defaultLimit)))
+                .thenReturn(new TransactionRepositoryCustom.LimitCheckedInsert(true, currentLimit));
+
+        // Act
+        Transaction saved = transactionService.processAndSaveTransaction(transactionDTO, "key-1");
+
+        // Assert
+        verify(transactionRepository).insertCheckingLimit(transactionCaptor.capture(), any(), any(), any());
+        Transaction inserted = transactionCaptor.getValue();
+        assertThat(inserted.getId()).isNotNull();
+        assertThat(inserted.getSumInUsd()).isEqualByComparingTo("1100.00");
+        assertThat(inserted.getIdempotencyKey()).isEqualTo("key-1");
+        assertThat(saved.getLimitExceeded()).isTrue();
+
+        verify(transactionRepository).lockSpendingMonth(Transaction.ExpenseCategory.PRODUCT, YearMonth.from(transactionTime));
+        verify(transactionRepository, never()).save(any());
         verify(transactionRepository, never()).calculateSpendingInUsdForPeriod(any(), any(), any());
+        verifyNoInteractions(limitCache, spendingRollupRepository);
+        verify(idempotencyKeyRegistry).register("key-1", inserted.getId());
+
+        verify(eventPublisher).publishEvent(eventCaptor.capture());
+        assertThat(eventCaptor.getValue().transaction().getTransactionId()).isEqualTo(inserted.getId());
+        assertThat(eventCaptor.getValue().transaction().getLimitSum()).isEqualByComparingTo(customLimitAmount);
     }
 
     @Test
-    @DisplayName("Получение транзакций, превысивших лимит: должен вызывать репозиторий")
-    void getExceededTransactionsWithLimitDetails_shouldCallRepository() {
+    @DisplayName("Режим single-statement: без превышения событие превышения не публикуется")
+    void processAndSaveTransaction_singleStatement_whenNotExceeded_shouldNotPublishExceeded() {
+        // Arrange
+        ReflectionTestUtils.setField(transactionService, "ingestMode", TransactionService.IngestMode.SINGLE_STATEMENT);
+        mockExchangeRateRub();
+        when(transactionRepository.insertCheckingLimit(any(Transaction.class), any(), any(), any()))
+                .thenReturn(new TransactionRepositoryCustom.LimitCheckedInsert(false, null));
+
+        // Act
+        Transaction saved = transactionService.processAndSaveTransaction(transactionDTO);
+
+        // Assert
+        assertThat(saved.getLimitExceeded()).isFalse();
+        verify(eventPublisher, never()).publishEvent(any(LimitExceededEvent.class));
+        verify(eventPublisher).publishEvent(any(TransactionRecordedEvent.class));
+    }
+
+    @Test
+    @DisplayName("Месяц транзакции определяется в часовом поясе приложения, а не в поясе из запроса")
+    void processAndSaveTransaction_shouldUseApplicationZoneForMonth() {
+        // Arrange: 1 апреля 01:00 по +03:00 — это еще 31 марта по UTC
+        ReflectionTestUtils.setField(transactionService, "ingestMode", TransactionService.IngestMode.SINGLE_STATEMENT);
+        when(transactionArchive.zone()).thenReturn(ZoneOffset.UTC);
+        ZonedDateTime clientTime = ZonedDateTime.of(2024, 4, 1, 1, 0, 0, 0, ZoneOffset.ofHours(3));
+        transactionDTO.setCurrencyShortname("USD");
+        transactionDTO.setSum(new BigDecimal("300.00"));
+        transactionDTO.setDateTime(clientTime);
+        transactionEntity.setCurrencyShortname("USD");
+        transactionEntity.setSum(new BigDecimal("300.00"));
+        transactionEntity.setDateTime(clientTime);
+        ZonedDateTime monthStart = ZonedDateTime.of(2024, 3, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+        when(transactionRepository.insertCheckingLimit(any(Transaction.class), eq(monthStart), any(), any()))
+                .thenReturn(new TransactionRepositoryCustom.LimitCheckedInsert(false, null));
+
+        // Act
+        transactionService.processAndSaveTransaction(transactionDTO);
+
+        // Assert
+        verify(transactionRepository).lockSpendingMonth(Transaction.ExpenseCategory.PRODUCT, YearMonth.of(2024, 3));
+        verify(transactionArchive).sumInUsd(Transaction.ExpenseCategory.PRODUCT, monthStart, clientTime);
+        verify(eventPublisher).publishEvent(new TransactionRecordedEvent(
+                Transaction.ExpenseCategory.PRODUCT, LocalDate.of(2024, 3, 1), new BigDecimal("300.00")));
+    }
+
+    @Test
+    @DisplayName("Лимит на границе месяца считается за месяц в часовом поясе приложения")
+    void processAndSaveTransaction_shouldEvaluateLimitForApplicationZoneMonth() {
+        // Arrange: 1 апреля 03:00 по +06:00 — это 31 марта 21:00 по UTC, траты и лимит считаются за март
+        when(transactionArchive.zone()).thenReturn(ZoneOffset.UTC);
+        ZonedDateTime clientTime = ZonedDateTime.of(2025, 4, 1, 3, 0, 0, 0, ZoneOffset.ofHours(6));
+        transactionDTO.setCurrencyShortname("USD");
+        transactionDTO.setSum(new BigDecimal("300.00"));
+        transactionDTO.setDateTime(clientTime);
+        transactionEntity.setCurrencyShortname("USD");
+        transactionEntity.setSum(new BigDecimal("300.00"));
+        transactionEntity.setDateTime(clientTime);
+        ZonedDateTime marchStart = ZonedDateTime.of(2025, 3, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+        when(limitCache.findLimitValidAt(Transaction.ExpenseCategory.PRODUCT, clientTime)).thenReturn(Optional.empty());
+        when(transactionRepository.calculateSpendingInUsdForPeriod(Transaction.ExpenseCategory.PRODUCT, marchStart, clientTime))
+                .thenReturn(new BigDecimal("900.00")); // Траты марта; с апрельскими тратами лимит не был бы превышен
+        // Итого = 900 + 300 = 1200 USD, что > лимита по умолчанию 1000 USD
+
+        // Act
+        Transaction saved = transactionService.processAndSaveTransaction(transactionDTO);
+
+        // Assert
+        assertThat(saved.getLimitExceeded()).isTrue();
+        verify(transactionRepository).lockSpendingMonth(Transaction.ExpenseCategory.PRODUCT, YearMonth.of(2025, 3));
+        verify(spendingRollupRepository).addTransaction(Transaction.ExpenseCategory.PRODUCT.name(),
+                LocalDate.of(2025, 3, 1), new BigDecimal("300.00"), 1);
+    }
+
+    @Test
+    @DisplayName("Получение транзакций, превысивших лимит: должен читать проекцию, а не таблицу транзакций")
+    void streamExceededTransactionsWithLimitDetails_shouldReadProjection() {
         // Arrange
         List<LimitExceededTransactionDTO> expectedList = List.of(
                 new LimitExceededTransactionDTO(UUID.randomUUID(), "111", "222", "RUB", BigDecimal.TEN, BigDecimal.ONE, Transaction.ExpenseCategory.SERVICE, ZonedDateTime.now(), BigDecimal.TEN, ZonedDateTime.now(), "USD")
         );
-        when(transactionRepository.findExceededTransactionsWithLimitDetails()).thenReturn(expectedList);
+        when(exceededTransactionProjection.stream()).thenReturn(expectedList.stream());
 
         // Act
-        List<LimitExceededTransactionDTO> actualList = transactionService.getExceededTransactionsWithLimitDetails();
+        List<LimitExceededTransactionDTO> actualList;
+        try (Stream<LimitExceededTransactionDTO> stream = transactionService.streamExceededTransactionsWithLimitDetails()) {
+            actualList = stream.toList();
+        }
 
         // Assert
         assertThat(actualList).isEqualTo(expectedList);
-        verify(transactionRepository, times(1)).findExceededTransactionsWithLimitDetails();
+        verify(exceededTransactionProjection, times(1)).stream();
+        verify(transactionRepository, never()).findExceededTransactionsWithLimitDetails();
     }
 
+    // --- Проверка без сохранения ---
+
+    @Test
+    @DisplayName("Проверка транзакции: превышение по тратам из кеша, ничего не сохраняется")
+    void checkTransaction_whenWouldExceed_shouldReportWithoutSaving() {
+        // Arrange
+        mockExchangeRateRub(); // 100000 RUB -> 1100.00 USD
+        mockApplicableLimit(Optional.of(currentLimit)); // 1500 USD
+        when(transactionMapper.mapDateTime(transactionTime)).thenReturn(transactionTime);
+        when(spendingTotalsCache.monthTotal(Transaction.ExpenseCategory.PRODUCT, YearMonth.of(2024, 3)))
+                .thenReturn(new BigDecimal("500.00"));
+
+        // Act
+        TransactionCheckResultDTO result = transactionService.checkTransaction(transactionDTO);
+
+        // Assert
+        assertThat(result.getSumInUsd()).isEqualByComparingTo("1100.00");
+        assertThat(result.getLimitSum()).isEqualByComparingTo(customLimitAmount);
+        assertThat(result.getLimitCurrencyShortname()).isEqualTo("USD");
+        assertThat(result.getSpentUsd()).isEqualByComparingTo("500.00");
+        assertThat(result.getRemainingUsd()).isEqualByComparingTo("0.00");
+        assertThat(result.isLimitExceeded()).isTrue();
+        assertThat(result.getMonth()).isEqualTo(YearMonth.of(2024, 3));
+        verifyNoInteractions(transactionRepository, spendingRollupRepository, eventPublisher, idempotencyKeyRegistry);
+    }
+
+    @Test
+    @DisplayName("Проверка транзакции без установленного лимита: дефолтный лимит и остаток после транзакции")
+    void checkTransaction_withoutLimit_shouldUseDefaultLimit() {
+        // Arrange
+        mockExchangeRateRub();
+        mockApplicableLimit(Optional.empty());
+        when(transactionMapper.mapDateTime(transactionTime)).thenReturn(transactionTime);
+        when(spendingTotalsCache.monthTotal(Transaction.ExpenseCategory.PRODUCT, YearMonth.of(2024, 3)))
+                .thenReturn(BigDecimal.ZERO);
+        transactionDTO.setSum(new BigDecimal("50000.00")); // 550.00 USD
+
+        // Act
+        TransactionCheckResultDTO result = transactionService.checkTransaction(transactionDTO);
+
+        // Assert
+        assertThat(result.getLimitSum()).isEqualByComparingTo(defaultLimit);
+        assertThat(result.getRemainingUsd()).isEqualByComparingTo("450.00");
+        assertThat(result.isLimitExceeded()).isFalse();
+        verify(transactionRepository, never()).save(any(Transaction.class));
+    }
 }
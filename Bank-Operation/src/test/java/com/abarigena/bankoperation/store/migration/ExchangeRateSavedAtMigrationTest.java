@@ -0,0 +1,61 @@
+package com.abarigena.bankoperation.store.migration;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.cassandra.core.CassandraOperations;
+import org.springframework.data.cassandra.core.cql.CqlOperations;
+
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ExchangeRateSavedAtMigrationTest {
+
+    @Mock
+    private CassandraOperations cassandraOperations;
+    @Mock
+    private CqlOperations cqlOperations;
+
+    private ExchangeRateSavedAtMigration migration;
+
+    @BeforeEach
+    void setUp() {
+        when(cassandraOperations.getCqlOperations()).thenReturn(cqlOperations);
+        migration = new ExchangeRateSavedAtMigration(cassandraOperations, "bank_operation");
+    }
+
+    @Test
+    @DisplayName("Отсутствующая колонка saved_at добавляется через ALTER TABLE")
+    void migrate_shouldAddMissingColumn() {
+        // Arrange
+        when(cqlOperations.queryForList(anyString(), eq(String.class), any(Object[].class))).thenReturn(List.of());
+
+        // Act
+        migration.migrate();
+
+        // Assert
+        verify(cqlOperations).execute("ALTER TABLE daily_exchange_rates ADD saved_at timestamp");
+    }
+
+    @Test
+    @DisplayName("Существующая колонка saved_at не добавляется повторно")
+    void migrate_shouldSkip_whenColumnExists() {
+        // Arrange
+        when(cqlOperations.queryForList(anyString(), eq(String.class), any(Object[].class)))
+                .thenReturn(List.of("saved_at"));
+
+        // Act
+        migration.migrate();
+
+        // Assert
+        verify(cqlOperations, never()).execute(anyString());
+    }
+}
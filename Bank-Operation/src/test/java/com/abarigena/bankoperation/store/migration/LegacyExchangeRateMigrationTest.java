@@ -0,0 +1,91 @@
+package com.abarigena.bankoperation.store.migration;
+
+import com.abarigena.bankoperation.scheduling.SchedulerLeaseService;
+import com.abarigena.bankoperation.store.repository.ExchangeRateRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.cassandra.core.CassandraOperations;
+import org.springframework.data.cassandra.core.cql.CqlOperations;
+import org.springframework.data.cassandra.core.cql.RowCallbackHandler;
+
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class LegacyExchangeRateMigrationTest {
+
+    @Mock
+    private SchedulerLeaseService schedulerLeaseService;
+    @Mock
+    private CassandraOperations cassandraOperations;
+    @Mock
+    private CqlOperations cqlOperations;
+    @Mock
+    private ExchangeRateRepository exchangeRateRepository;
+
+    private LegacyExchangeRateMigration migration;
+
+    @BeforeEach
+    void setUp() {
+        when(cassandraOperations.getCqlOperations()).thenReturn(cqlOperations);
+        migration = new LegacyExchangeRateMigration(schedulerLeaseService, cassandraOperations,
+                exchangeRateRepository, "bank_operation", true);
+    }
+
+    @Test
+    @DisplayName("Перенос, уже отмеченный в аренде, не обращается к Cassandra")
+    void migrate_shouldSkipCassandra_whenAlreadyDone() {
+        // Arrange
+        when(schedulerLeaseService.runExclusively(eq(LegacyExchangeRateMigration.JOB_NAME),
+                eq(LegacyExchangeRateMigration.SLOT), any()))
+                .thenReturn(SchedulerLeaseService.RunOutcome.ALREADY_DONE);
+
+        // Act
+        migration.migrate();
+
+        // Assert
+        verifyNoInteractions(cqlOperations, exchangeRateRepository);
+    }
+
+    @Test
+    @DisplayName("Перенос под арендой без старой таблицы не читает ее строки")
+    void migrate_shouldNotScan_whenLegacyTableMissing() {
+        // Arrange
+        when(schedulerLeaseService.runExclusively(eq(LegacyExchangeRateMigration.JOB_NAME),
+                eq(LegacyExchangeRateMigration.SLOT), any()))
+                .thenAnswer(invocation -> {
+                    invocation.<Runnable>getArgument(2).run();
+                    return SchedulerLeaseService.RunOutcome.COMPLETED;
+                });
+        when(cqlOperations.queryForList(anyString(), eq(String.class), any(Object[].class))).thenReturn(List.of());
+
+        // Act
+        migration.migrate();
+
+        // Assert
+        verify(cqlOperations, never()).query(anyString(), any(RowCallbackHandler.class));
+        verifyNoInteractions(exchangeRateRepository);
+    }
+
+    @Test
+    @DisplayName("Выключенный перенос не берет аренду")
+    void migrate_shouldDoNothing_whenDisabled() {
+        // Arrange
+        LegacyExchangeRateMigration disabled = new LegacyExchangeRateMigration(schedulerLeaseService,
+                cassandraOperations, exchangeRateRepository, "bank_operation", false);
+
+        // Act
+        disabled.migrate();
+
+        // Assert
+        verifyNoInteractions(schedulerLeaseService, cqlOperations);
+    }
+}
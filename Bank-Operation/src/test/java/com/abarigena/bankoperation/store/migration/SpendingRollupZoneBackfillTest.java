@@ -0,0 +1,66 @@
+package com.abarigena.bankoperation.store.migration;
+
+import liquibase.statement.SqlStatement;
+import liquibase.statement.core.RawParameterizedSqlStatement;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SpendingRollupZoneBackfillTest {
+
+    @TempDir
+    Path archiveDir;
+
+    @Test
+    @DisplayName("Месяцы с файлом в архиве исключаются и из удаления, и из пересчета агрегатов")
+    void generateStatements_shouldExcludeArchivedMonths() throws IOException {
+        // Arrange
+        Files.createFile(archiveDir.resolve("transactions-2025-02.v3.bcol"));
+        Files.createFile(archiveDir.resolve("transactions-2025-01.v1.bcol"));
+        Files.createFile(archiveDir.resolve("transactions-2025-03.v1.bcol.tmp"));
+        SpendingRollupZoneBackfill backfill = new SpendingRollupZoneBackfill();
+        backfill.setArchiveDir(archiveDir.toString());
+
+        // Act
+        SqlStatement[] statements = backfill.generateStatements(null);
+
+        // Assert
+        assertThat(statements).hasSize(2).allSatisfy(statement -> {
+            RawParameterizedSqlStatement sql = (RawParameterizedSqlStatement) statement;
+            assertThat(sql.getSql()).contains("month_start <> ALL (CAST(? AS date[]))");
+            assertThat(sql.getParameters()).last().isEqualTo("{2025-01-01,2025-02-01}");
+        });
+    }
+
+    @Test
+    @DisplayName("Без каталога архива пересчитываются все месяцы таблицы")
+    void generateStatements_shouldExcludeNothing_whenArchiveDirNotSet() {
+        // Arrange
+        SpendingRollupZoneBackfill backfill = new SpendingRollupZoneBackfill();
+        backfill.setArchiveDir("${archiveDir}");
+
+        // Act
+        SqlStatement[] statements = backfill.generateStatements(null);
+
+        // Assert
+        assertThat(((RawParameterizedSqlStatement) statements[0]).getParameters()).last().isEqualTo("{}");
+    }
+
+    @Test
+    @DisplayName("Фиксированное смещение передается интервалом, а не POSIX-строкой")
+    void zoneParameter_shouldUseIntervalForOffsets() {
+        // Act & Assert
+        assertThat(SpendingRollupZoneBackfill.zoneExpression(ZoneOffset.ofHours(3))).isEqualTo("CAST(? AS interval)");
+        assertThat(SpendingRollupZoneBackfill.zoneParameter(ZoneOffset.ofHours(3))).isEqualTo("10800 seconds");
+        assertThat(SpendingRollupZoneBackfill.zoneExpression(ZoneId.of("Asia/Almaty"))).isEqualTo("?");
+        assertThat(SpendingRollupZoneBackfill.zoneParameter(ZoneId.of("Asia/Almaty"))).isEqualTo("Asia/Almaty");
+    }
+}
@@ -0,0 +1,407 @@
+package com.abarigena.bankoperation.stress;
+
+import com.abarigena.bankoperation.AbstractIntegrationTest;
+import com.abarigena.bankoperation.dto.LimitDTO;
+import com.abarigena.bankoperation.dto.TransactionDTO;
+import com.abarigena.bankoperation.event.CacheInvalidationEvent;
+import com.abarigena.bankoperation.event.ExchangeRateSavedEvent;
+import com.abarigena.bankoperation.service.ExchangeRateService;
+import com.abarigena.bankoperation.service.LimitService;
+import com.abarigena.bankoperation.service.TransactionService;
+import com.abarigena.bankoperation.store.entity.ExchangeRate;
+import com.abarigena.bankoperation.store.entity.ExpenseLimit;
+import com.abarigena.bankoperation.store.entity.Transaction;
+import com.abarigena.bankoperation.store.repository.ExchangeRateRepository;
+import com.abarigena.bankoperation.store.repository.ExpenseLimitRepository;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Стресс-проверка корректности параллельной записи транзакций на Testcontainers PostgreSQL и Cassandra.
+ * <p>
+ * Тысячи вызовов processAndSaveTransaction идут одновременно по обеим категориям, нескольким месяцам
+ * и четырем валютам; время транзакций случайно внутри месяцев, поэтому большая часть записывается задним числом.
+ * Параллельно вызывается setNewLimit, сбрасывая кеш лимитов посреди прогона. После прогона проверяется:
+ * <ul>
+ *     <li>флаг limit_exceeded каждой транзакции совпадает с последовательным пересчетом в порядке записи
+ *     (порядок записи внутри категории и месяца — порядок UUID v7, назначаемых под блокировкой месяца);</li>
+ *     <li>траты не потеряны: агрегат spending_rollups совпадает с суммой и числом строк transactions;</li>
+ *     <li>курс на пару и дату сохранен не больше одного раза, и все суммы в KZT пересчитаны по одному курсу.</li>
+ * </ul>
+ * Лимиты, установленные в прогоне через setNewLimit, действуют с текущего момента и на прошедшие месяцы
+ * не влияют; историю лимитов внутри проверяемых месяцев тест записывает сам.
+ * Не запускается в обычной сборке, только в профиле stress-test:
+ * <pre>
+ * mvn -P stress-test test -Dstress.transactions=20000 -Dstress.threads=64
+ * </pre>
+ */
+@Tag("stress")
+class IngestConcurrencyStressTest extends AbstractIntegrationTest {
+
+    private static final int TRANSACTIONS = Integer.getInteger("stress.transactions", 4000);
+    private static final int THREADS = Integer.getInteger("stress.threads", 32);
+    private static final long SEED = Long.getLong("stress.seed", 20250328L);
+    private static final int MONTHS = 3;
+    private static final List<String> CURRENCIES = List.of("USD", "EUR", "RUB", "KZT");
+    private static final Map<String, BigDecimal> SEEDED_RATES = Map.of(
+            "EUR/USD", new BigDecimal("1.08250"),
+            "RUB/USD", new BigDecimal("0.01100"),
+            "KZT/RUB", new BigDecimal("0.19000"));
+    private static final BigDecimal DEFAULT_LIMIT = new BigDecimal("1000.00");
+
+    @Autowired
+    private TransactionService transactionService;
+    @Autowired
+    private LimitService limitService;
+    @Autowired
+    private ExchangeRateService exchangeRateService;
+    @Autowired
+    private ExchangeRateRepository exchangeRateRepository;
+    @Autowired
+    private ExpenseLimitRepository expenseLimitRepository;
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private SavedRatesCounter savedRatesCounter;
+
+    @DynamicPropertySource
+    static void stressProperties(DynamicPropertyRegistry registry) {
+        // Проверяемые месяцы старше app.archive.hot-months: архивация не должна забрать их посреди прогона
+        registry.add("app.archive.enabled", () -> "false");
+        // Курсы задает тест; плановое обновление получает отказ соединения и ничего не пишет
+        registry.add("twelvedata.api.base-url", () -> "http://127.0.0.1:9");
+        registry.add("logging.level.com.abarigena.bankoperation", () -> "WARN");
+    }
+
+    /**
+     * Считает сохранения курсов по паре и дате.
+     */
+    @TestConfiguration
+    static class StressTestConfig {
+
+        @Bean
+        SavedRatesCounter savedRatesCounter() {
+            return new SavedRatesCounter();
+        }
+    }
+
+    static class SavedRatesCounter {
+
+        private final Map<String, AtomicInteger> saves = new ConcurrentHashMap<>();
+
+        @EventListener
+        public void onSaved(ExchangeRateSavedEvent event) {
+            saves.computeIfAbsent(event.fromCurrency() + "/" + event.toCurrency() + "@" + event.date(),
+                    key -> new AtomicInteger()).incrementAndGet();
+        }
+
+        Map<String, Integer> snapshot() {
+            Map<String, Integer> copy = new TreeMap<>();
+            saves.forEach((key, count) -> copy.put(key, count.get()));
+            return copy;
+        }
+    }
+
+    private record Submitted(Transaction.ExpenseCategory category, YearMonth month) {
+    }
+
+    @ParameterizedTest
+    @EnumSource(TransactionService.IngestMode.class)
+    void concurrentIngest_shouldKeepInvariants(TransactionService.IngestMode mode) throws InterruptedException {
+        // Arrange: у каждого режима свои месяцы, чтобы прогоны не пересекались
+        YearMonth firstMonth = YearMonth.now(ZoneOffset.UTC).minusMonths(24L - 2L * MONTHS * mode.ordinal());
+        List<YearMonth> months = new ArrayList<>();
+        for (int i = 0; i < MONTHS; i++) {
+            months.add(firstMonth.plusMonths(i));
+        }
+        seedRates(months);
+        seedLimitHistory(months);
+        ReflectionTestUtils.setField(AopTestUtils.getTargetObject(transactionService), "ingestMode", mode);
+
+        Random random = new Random(SEED + mode.ordinal());
+        List<TransactionDTO> requests = new ArrayList<>(TRANSACTIONS);
+        for (int i = 0; i < TRANSACTIONS; i++) {
+            requests.add(randomTransaction(random, months));
+        }
+
+        // Act
+        ConcurrentLinkedQueue<Throwable> failures = new ConcurrentLinkedQueue<>();
+        ConcurrentLinkedQueue<Submitted> saved = new ConcurrentLinkedQueue<>();
+        AtomicBoolean running = new AtomicBoolean(true);
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        Thread limitChanger = Thread.ofPlatform().name("stress-limit-changer").start(() -> changeLimits(running, random.nextLong(), failures));
+        try {
+            for (TransactionDTO request : requests) {
+                executor.execute(() -> {
+                    try {
+                        start.await();
+                        Transaction transaction = transactionService.processAndSaveTransaction(request);
+                        saved.add(new Submitted(transaction.getExpenseCategory(), YearMonth.from(transaction.getDateTime())));
+                    } catch (Throwable e) {
+                        failures.add(e);
+                    }
+                });
+            }
+            start.countDown();
+            executor.shutdown();
+            assertThat(executor.awaitTermination(10, TimeUnit.MINUTES)).as("прогон завершился").isTrue();
+        } finally {
+            running.set(false);
+            limitChanger.join();
+            executor.shutdownNow();
+            ReflectionTestUtils.setField(AopTestUtils.getTargetObject(transactionService), "ingestMode",
+                    TransactionService.IngestMode.JPA);
+        }
+
+        // Assert
+        assertThat(failures).as("ошибки при записи").isEmpty();
+        assertThat(saved).hasSize(TRANSACTIONS);
+        assertFlagsMatchSerialRecomputation(months);
+        assertNoSpendingLost(months, saved);
+        assertRatesSavedOnce(months);
+    }
+
+    // --- Подготовка ---
+
+    private void seedRates(List<YearMonth> months) {
+        for (YearMonth month : months) {
+            for (LocalDate date = month.atDay(1); !date.isAfter(month.atEndOfMonth()); date = date.plusDays(1)) {
+                for (Map.Entry<String, BigDecimal> rate : SEEDED_RATES.entrySet()) {
+                    String[] pair = rate.getKey().split("/");
+                    exchangeRateService.saveExchangeRateIfNotExists(ExchangeRate.builder()
+                            .fromCurrency(pair[0])
+                            .toCurrency(pair[1])
+                            .date(date)
+                            .closePrice(rate.getValue())
+                            .previousClosePrice(rate.getValue())
+                            .build());
+                }
+            }
+        }
+    }
+
+    /**
+     * Два лимита внутри каждого месяца по каждой категории: после 10-го числа лимит строже, после 20-го — мягче.
+     */
+    private void seedLimitHistory(List<YearMonth> months) {
+        for (YearMonth month : months) {
+            for (Transaction.ExpenseCategory category : Transaction.ExpenseCategory.values()) {
+                expenseLimitRepository.save(limit(category, month.atDay(10), new BigDecimal("1500.00")));
+                expenseLimitRepository.save(limit(category, month.atDay(20), new BigDecimal("4000.00")));
+            }
+        }
+        eventPublisher.publishEvent(CacheInvalidationEvent.all(CacheInvalidationEvent.Topic.LIMITS));
+    }
+
+    private static ExpenseLimit limit(Transaction.ExpenseCategory category, LocalDate date, BigDecimal sum) {
+        ExpenseLimit limit = new ExpenseLimit();
+        limit.setExpenseCategory(category);
+        limit.setLimitSum(sum);
+        limit.setLimitCurrencyShortname("USD");
+        limit.setLimitDateTime(date.atTime(12, 0).atZone(ZoneOffset.UTC));
+        return limit;
+    }
+
+    private static TransactionDTO randomTransaction(Random random, List<YearMonth> months) {
+        YearMonth month = months.get(random.nextInt(months.size()));
+        ZonedDateTime dateTime = month.atDay(1).atStartOfDay(ZoneOffset.UTC)
+                .plusSeconds(random.nextLong(Duration.ofDays(month.lengthOfMonth()).toSeconds()));
+        String currency = CURRENCIES.get(random.nextInt(CURRENCIES.size()));
+        BigDecimal sum = switch (currency) {
+            case "RUB" -> BigDecimal.valueOf(100 + random.nextInt(4000), 0);
+            case "KZT" -> BigDecimal.valueOf(500 + random.nextInt(20000), 0);
+            default -> BigDecimal.valueOf(100 + random.nextInt(4000), 2);
+        };
+
+        TransactionDTO dto = new TransactionDTO();
+        dto.setAccountFrom(String.format("%010d", random.nextInt(1000)));
+        dto.setAccountTo("9999999999");
+        dto.setCurrencyShortname(currency);
+        dto.setSum(sum);
+        dto.setExpenseCategory(Transaction.ExpenseCategory.values()[random.nextInt(2)]);
+        dto.setDateTime(dateTime);
+        return dto;
+    }
+
+    /**
+     * Устанавливает новые лимиты посреди прогона: каждый сбрасывает кеш лимитов, пока идет запись.
+     */
+    private void changeLimits(AtomicBoolean running, long seed, ConcurrentLinkedQueue<Throwable> failures) {
+        Random random = new Random(seed);
+        while (running.get()) {
+            try {
+                LimitDTO dto = new LimitDTO();
+                dto.setExpenseCategory(Transaction.ExpenseCategory.values()[random.nextInt(2)]);
+                dto.setLimitSum(BigDecimal.valueOf(500 + random.nextInt(5000)));
+                limitService.setNewLimit(dto);
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Throwable e) {
+                failures.add(e);
+            }
+        }
+    }
+
+    // --- Проверки ---
+
+    private record Row(Transaction.ExpenseCategory category, ZonedDateTime dateTime, BigDecimal sumInUsd,
+                       boolean limitExceeded) {
+    }
+
+    /**
+     * Повторяет расчет флага по одной транзакции в порядке записи: траты — сумма уже записанных транзакций
+     * категории с начала месяца до момента транзакции, лимит — последний установленный не позже нее.
+     */
+    private void assertFlagsMatchSerialRecomputation(List<YearMonth> months) {
+        List<ExpenseLimit> limits = expenseLimitRepository.findAll();
+        for (YearMonth month : months) {
+            for (Transaction.ExpenseCategory category : Transaction.ExpenseCategory.values()) {
+                List<Row> rows = rows(category, month);
+                List<Row> written = new ArrayList<>();
+                int mismatches = 0;
+                StringBuilder examples = new StringBuilder();
+                for (Row row : rows) {
+                    BigDecimal spentBefore = written.stream()
+                            .filter(previous -> previous.dateTime().isBefore(row.dateTime()))
+                            .map(Row::sumInUsd)
+                            .reduce(BigDecimal.ZERO, BigDecimal::add);
+                    BigDecimal limit = limits.stream()
+                            .filter(l -> l.getExpenseCategory() == category)
+                            .filter(l -> !l.getLimitDateTime().isAfter(row.dateTime()))
+                            .max((a, b) -> a.getLimitDateTime().compareTo(b.getLimitDateTime()))
+                            .map(ExpenseLimit::getLimitSum)
+                            .orElse(DEFAULT_LIMIT);
+                    boolean expected = spentBefore.add(row.sumInUsd()).compareTo(limit) > 0;
+                    if (expected != row.limitExceeded()) {
+                        if (mismatches++ < 5) {
+                            examples.append(String.format("%n  %s %s: записан %s, ожидается %s (потрачено %s + %s, лимит %s)",
+                                    category, row.dateTime(), row.limitExceeded(), expected, spentBefore, row.sumInUsd(), limit));
+                        }
+                    }
+                    written.add(row);
+                }
+                assertThat(mismatches)
+                        .as("флаги %s за %s расходятся с последовательным пересчетом:%s", category, month, examples)
+                        .isZero();
+            }
+        }
+    }
+
+    private List<Row> rows(Transaction.ExpenseCategory category, YearMonth month) {
+        // UUID v7 назначается под блокировкой категории за месяц: порядок id — порядок записи
+        return jdbcTemplate.query(
+                "SELECT expense_category, datetime, sum_in_usd, limit_exceeded FROM transactions " +
+                        "WHERE expense_category = ? AND datetime >= ? AND datetime < ? ORDER BY id",
+                (rs, rowNum) -> new Row(
+                        Transaction.ExpenseCategory.valueOf(rs.getString(1)),
+                        rs.getTimestamp(2).toInstant().atZone(ZoneOffset.UTC),
+                        rs.getBigDecimal(3),
+                        rs.getBoolean(4)),
+                category.name(), start(month), start(month.plusMonths(1)));
+    }
+
+    private void assertNoSpendingLost(List<YearMonth> months, ConcurrentLinkedQueue<Submitted> saved) {
+        Map<Submitted, Long> savedCounts = new HashMap<>();
+        saved.forEach(submitted -> savedCounts.merge(submitted, 1L, Long::sum));
+
+        for (YearMonth month : months) {
+            for (Transaction.ExpenseCategory category : Transaction.ExpenseCategory.values()) {
+                Map<String, Object> table = jdbcTemplate.queryForMap(
+                        "SELECT COALESCE(SUM(sum_in_usd), 0) AS total, COUNT(*) AS cnt, " +
+                                "COUNT(*) FILTER (WHERE limit_exceeded) AS exceeded FROM transactions " +
+                                "WHERE expense_category = ? AND datetime >= ? AND datetime < ?",
+                        category.name(), start(month), start(month.plusMonths(1)));
+                List<Map<String, Object>> rollup = jdbcTemplate.queryForList(
+                        "SELECT total_spent_usd, transaction_count, exceeded_count FROM spending_rollups " +
+                                "WHERE expense_category = ? AND month_start = ?",
+                        category.name(), month.atDay(1));
+
+                long count = ((Number) table.get("cnt")).longValue();
+                assertThat(count).as("строк %s за %s", category, month)
+                        .isEqualTo(savedCounts.getOrDefault(new Submitted(category, month), 0L));
+                if (count == 0) {
+                    assertThat(rollup).isEmpty();
+                    continue;
+                }
+                assertThat(rollup).as("агрегат %s за %s", category, month).hasSize(1);
+                assertThat((BigDecimal) rollup.get(0).get("total_spent_usd"))
+                        .as("сумма в агрегате %s за %s", category, month)
+                        .isEqualByComparingTo((BigDecimal) table.get("total"));
+                assertThat(((Number) rollup.get(0).get("transaction_count")).longValue()).isEqualTo(count);
+                assertThat(((Number) rollup.get(0).get("exceeded_count")).longValue())
+                        .isEqualTo(((Number) table.get("exceeded")).longValue());
+            }
+        }
+    }
+
+    private void assertRatesSavedOnce(List<YearMonth> months) {
+        assertThat(savedRatesCounter.snapshot()).as("сохранений курса на пару и дату")
+                .allSatisfy((key, count) -> assertThat(count).as(key).isEqualTo(1));
+
+        // Кросс-курс KZT/USD вычисляется параллельно: все суммы в KZT должны быть пересчитаны по одному курсу
+        BigDecimal kztUsd = SEEDED_RATES.get("KZT/RUB").multiply(SEEDED_RATES.get("RUB/USD"));
+        List<Map<String, Object>> kzt = jdbcTemplate.queryForList(
+                "SELECT sum, sum_in_usd, datetime FROM transactions WHERE currency_shortname = 'KZT' " +
+                        "AND datetime >= ? AND datetime < ?",
+                start(months.get(0)), start(months.get(months.size() - 1).plusMonths(1)));
+        assertThat(kzt).isNotEmpty();
+        for (Map<String, Object> row : kzt) {
+            BigDecimal expected = ((BigDecimal) row.get("sum")).multiply(kztUsd).setScale(2, RoundingMode.HALF_UP);
+            assertThat((BigDecimal) row.get("sum_in_usd")).as("KZT-транзакция %s", row.get("datetime"))
+                    .isEqualByComparingTo(expected);
+        }
+        List<LocalDate> cachedDates = new ArrayList<>();
+        for (YearMonth month : months) {
+            for (LocalDate date = month.atDay(1); !date.isAfter(month.atEndOfMonth()); date = date.plusDays(1)) {
+                exchangeRateRepository.findByFromCurrencyAndToCurrencyAndDate("KZT", "USD", date)
+                        .ifPresent(rate -> cachedDates.add(rate.getDate()));
+            }
+        }
+        assertThat(cachedDates).doesNotHaveDuplicates();
+    }
+
+    private static Timestamp start(YearMonth month) {
+        return Timestamp.from(month.atDay(1).atStartOfDay(ZoneOffset.UTC).toInstant());
+    }
+}
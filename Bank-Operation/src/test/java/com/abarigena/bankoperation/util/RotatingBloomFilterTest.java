@@ -0,0 +1,65 @@
+package com.abarigena.bankoperation.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class RotatingBloomFilterTest {
+
+    @Test
+    @DisplayName("Фильтр не дает ложноотрицательных ответов для добавленных ключей")
+    void mightContain_shouldReturnTrueForAddedKeys() {
+        RotatingBloomFilter filter = new RotatingBloomFilter(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.put("key-" + i);
+        }
+        for (int i = 0; i < 10_000; i++) {
+            assertThat(filter.mightContain("key-" + i)).isTrue();
+        }
+    }
+
+    @Test
+    @DisplayName("Доля ложноположительных ответов близка к заданной")
+    void mightContain_shouldKeepFalsePositiveRateNearConfigured() {
+        RotatingBloomFilter filter = new RotatingBloomFilter(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.put("key-" + i);
+        }
+        int falsePositives = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (filter.mightContain("other-" + i)) {
+                falsePositives++;
+            }
+        }
+        // Заполнено только текущее поколение: ожидаем около 1%, допускаем до 2%
+        assertThat(falsePositives).isLessThan(2_000);
+    }
+
+    @Test
+    @DisplayName("После двух ротаций старые ключи вытесняются, а память не растет")
+    void put_shouldRotateGenerations() {
+        RotatingBloomFilter filter = new RotatingBloomFilter(1_000, 0.001);
+        filter.put("old-key");
+        // Заполняем текущее и следующее поколения: old-key остается в предыдущем поколении
+        for (int i = 0; i < 1_500; i++) {
+            filter.put("key-" + i);
+        }
+        assertThat(filter.mightContain("old-key")).isTrue();
+
+        // Еще одна ротация отбрасывает поколение с old-key
+        for (int i = 1_500; i < 3_000; i++) {
+            filter.put("key-" + i);
+        }
+        assertThat(filter.mightContain("old-key")).isFalse();
+        assertThat(filter.mightContain("key-2999")).isTrue();
+    }
+
+    @Test
+    @DisplayName("Некорректные параметры отклоняются")
+    void constructor_shouldRejectInvalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> new RotatingBloomFilter(0, 0.01));
+        assertThrows(IllegalArgumentException.class, () -> new RotatingBloomFilter(100, 1.0));
+    }
+}
@@ -0,0 +1,62 @@
+package com.abarigena.bankoperation.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class UuidV7Test {
+
+    @Test
+    @DisplayName("generate должен возвращать UUID версии 7 с вариантом RFC 4122/9562")
+    void generate_shouldSetVersionAndVariant() {
+        // Act
+        UUID uuid = UuidV7.generate();
+
+        // Assert
+        assertThat(uuid.version()).isEqualTo(7);
+        assertThat(uuid.variant()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("generate должен выдавать строго возрастающие значения (как unsigned-сравнение в Postgres)")
+    void generate_shouldBeMonotonic() {
+        // Arrange
+        UUID previous = UuidV7.generate();
+
+        // Act & Assert
+        // Генерируем больше значений, чем помещается в счетчик одной миллисекунды
+        for (int i = 0; i < 20_000; i++) {
+            UUID next = UuidV7.generate();
+            assertThat(Long.compareUnsigned(next.getMostSignificantBits(), previous.getMostSignificantBits()))
+                    .as("UUID %s должен быть больше %s", next, previous)
+                    .isPositive();
+            previous = next;
+        }
+    }
+
+    @Test
+    @DisplayName("timestampMillis должен возвращать время генерации UUID")
+    void timestampMillis_shouldReturnCreationTime() {
+        // Arrange
+        long before = System.currentTimeMillis();
+
+        // Act
+        UUID uuid = UuidV7.generate();
+        long after = System.currentTimeMillis();
+
+        // Assert
+        // Верхняя граница с запасом: при исчерпании счетчика время может «уйти вперед»
+        assertThat(UuidV7.timestampMillis(uuid)).isBetween(before, after + 1_000);
+    }
+
+    @Test
+    @DisplayName("timestampMillis должен выбросить исключение для UUID другой версии")
+    void timestampMillis_shouldRejectOtherVersions() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> UuidV7.timestampMillis(UUID.randomUUID()));
+    }
+}